@@ -0,0 +1,193 @@
+package com.pramithamj.kafka.aggregation;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-memory, mergeable quantile sketch with relative-error guarantees (DDSketch).
+ *
+ * Values are counted in logarithmically sized buckets, so any reported quantile is within
+ * the configured relative accuracy of the true value. The bucket range covers
+ * [MIN_VALUE, MAX_VALUE]; smaller values are counted in the zero bucket and larger ones in
+ * the last bucket. add() is lock-free and safe to call from several threads.
+ */
+public class DDSketch {
+
+    static final double MIN_VALUE = 0.01;
+    static final double MAX_VALUE = 10_000_000.0;
+
+    private static final byte FORMAT_VERSION = 1;
+
+    private final double relativeAccuracy;
+    private final double logGamma;
+    private final int minIndex;
+    private final AtomicLongArray counts;
+    private final AtomicLong zeroCount = new AtomicLong();
+
+    public DDSketch(double relativeAccuracy) {
+        this.relativeAccuracy = relativeAccuracy;
+        double gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+        this.logGamma = Math.log(gamma);
+        this.minIndex = index(MIN_VALUE);
+        this.counts = new AtomicLongArray(index(MAX_VALUE) - minIndex + 1);
+    }
+
+    public double getRelativeAccuracy() {
+        return relativeAccuracy;
+    }
+
+    /**
+     * Add a value to the sketch
+     */
+    public void add(double value) {
+        if (value < MIN_VALUE) {
+            zeroCount.incrementAndGet();
+            return;
+        }
+        int bucket = Math.min(index(value) - minIndex, counts.length() - 1);
+        counts.incrementAndGet(bucket);
+    }
+
+    /**
+     * Add every count of another sketch with the same relative accuracy
+     */
+    public void merge(DDSketch other) {
+        combine(other, 1);
+    }
+
+    /**
+     * Remove the counts of a sketch previously merged into this one
+     */
+    public void subtract(DDSketch other) {
+        combine(other, -1);
+    }
+
+    /**
+     * @return Total number of values added
+     */
+    public long getCount() {
+        long total = zeroCount.get();
+        for (int i = 0; i < counts.length(); i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * Estimate a quantile
+     *
+     * @param quantile Quantile between 0 and 1, e.g. 0.99
+     * @return Estimated value, or 0.0 if the sketch is empty
+     */
+    public double getQuantile(double quantile) {
+        long total = getCount();
+        if (total == 0) {
+            return 0.0;
+        }
+
+        long rank = (long) Math.floor(quantile * (total - 1));
+        long seen = zeroCount.get();
+        if (rank < seen) {
+            return 0.0;
+        }
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen > rank) {
+                return value(i + minIndex);
+            }
+        }
+        return value(counts.length() - 1 + minIndex);
+    }
+
+    /**
+     * Compact binary form: version, accuracy, zero count, then (bucket delta, count) varint pairs
+     * for non-empty buckets only
+     */
+    public byte[] toBytes() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(FORMAT_VERSION);
+        writeLong(out, Double.doubleToLongBits(relativeAccuracy));
+        writeVarLong(out, zeroCount.get());
+        int previous = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            long count = counts.get(i);
+            if (count != 0) {
+                writeVarLong(out, i - previous);
+                writeVarLong(out, count);
+                previous = i;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Rebuild a sketch produced by {@link #toBytes()}
+     */
+    public static DDSketch fromBytes(byte[] bytes) {
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        byte version = in.get();
+        if (version != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported sketch format version: " + version);
+        }
+        DDSketch sketch = new DDSketch(Double.longBitsToDouble(in.getLong()));
+        sketch.zeroCount.set(readVarLong(in));
+        int bucket = 0;
+        while (in.hasRemaining()) {
+            bucket += (int) readVarLong(in);
+            sketch.counts.set(bucket, readVarLong(in));
+        }
+        return sketch;
+    }
+
+    private void combine(DDSketch other, int sign) {
+        if (other.relativeAccuracy != relativeAccuracy) {
+            throw new IllegalArgumentException("Cannot merge sketches with different relative accuracy: "
+                    + relativeAccuracy + " vs " + other.relativeAccuracy);
+        }
+        zeroCount.addAndGet(sign * other.zeroCount.get());
+        for (int i = 0; i < counts.length(); i++) {
+            long count = other.counts.get(i);
+            if (count != 0) {
+                counts.addAndGet(i, sign * count);
+            }
+        }
+    }
+
+    private int index(double value) {
+        return (int) Math.ceil(Math.log(value) / logGamma);
+    }
+
+    private double value(int index) {
+        // Midpoint of the bucket in relative terms: 2 * gamma^i / (gamma + 1)
+        double gamma = Math.exp(logGamma);
+        return 2 * Math.exp(index * logGamma) / (gamma + 1);
+    }
+
+    private static void writeLong(ByteArrayOutputStream out, long value) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            out.write((int) (value >>> shift));
+        }
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
@@ -0,0 +1,123 @@
+package com.pramithamj.kafka.aggregation;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Global and per-product price percentiles backed by {@link DDSketch}.
+ *
+ * Each key keeps a few striped sketches picked by thread id, so listener threads update
+ * different counters on the hot path; reads merge the stripes into a fresh sketch.
+ */
+@Component
+public class PriceQuantileTracker {
+
+    private static final String GLOBAL = "";
+    private static final double[] REPORTED_QUANTILES = {0.5, 0.95, 0.99};
+
+    private final double relativeAccuracy;
+    private final int stripes;
+    private final Map<String, DDSketch[]> sketches = new ConcurrentHashMap<>();
+
+    public PriceQuantileTracker(@Value("${kafka.aggregation.quantiles.relative-accuracy:0.01}") double relativeAccuracy) {
+        this.relativeAccuracy = relativeAccuracy;
+        this.stripes = Math.min(Runtime.getRuntime().availableProcessors(), 8);
+    }
+
+    /**
+     * Record an order price globally and for its product
+     */
+    public void record(String product, double price) {
+        int stripe = (int) (Thread.currentThread().threadId() % stripes);
+        stripesFor(GLOBAL)[stripe].add(price);
+        stripesFor(product)[stripe].add(price);
+    }
+
+    /**
+     * Add a previously recorded sketch for a product, e.g. restored from a checkpoint
+     */
+    public void merge(String product, DDSketch sketch) {
+        stripesFor(GLOBAL)[0].merge(sketch);
+        stripesFor(product)[0].merge(sketch);
+    }
+
+    /**
+     * Remove a sketch previously added with {@link #merge}, e.g. when its partition is revoked
+     */
+    public void subtract(String product, DDSketch sketch) {
+        stripesFor(GLOBAL)[0].subtract(sketch);
+        stripesFor(product)[0].subtract(sketch);
+    }
+
+    /**
+     * Merged sketch over all products
+     */
+    public DDSketch getGlobalSketch() {
+        return merged(GLOBAL);
+    }
+
+    /**
+     * Merged sketch for one product, empty if the product has not been seen
+     */
+    public DDSketch getProductSketch(String product) {
+        return merged(product);
+    }
+
+    /**
+     * p50/p95/p99 and count of a sketch, in the shape served by the REST API
+     */
+    public static Map<String, Object> summarize(DDSketch sketch) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", sketch.getCount());
+        for (double quantile : REPORTED_QUANTILES) {
+            summary.put("p" + Math.round(quantile * 100), sketch.getQuantile(quantile));
+        }
+        return summary;
+    }
+
+    /**
+     * Percentile summaries for every product, sorted by product name
+     */
+    public Map<String, Map<String, Object>> summarizeProducts() {
+        Map<String, Map<String, Object>> result = new TreeMap<>();
+        for (String product : sketches.keySet()) {
+            if (!GLOBAL.equals(product)) {
+                result.put(product, summarize(merged(product)));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Drop all recorded values
+     */
+    public void reset() {
+        sketches.clear();
+    }
+
+    private DDSketch[] stripesFor(String key) {
+        return sketches.computeIfAbsent(key, k -> {
+            DDSketch[] created = new DDSketch[stripes];
+            for (int i = 0; i < stripes; i++) {
+                created[i] = new DDSketch(relativeAccuracy);
+            }
+            return created;
+        });
+    }
+
+    private DDSketch merged(String key) {
+        DDSketch result = new DDSketch(relativeAccuracy);
+        DDSketch[] parts = sketches.get(key);
+        if (parts != null) {
+            for (DDSketch part : parts) {
+                result.merge(part);
+            }
+        }
+        return result;
+    }
+}
@@ -3,96 +3,200 @@ package com.pramithamj.kafka.aggregation;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 
 /**
- * Running average calculator for order amounts
- * Uses atomic operations for thread-safety
+ * Running average calculator for order amounts.
+ *
+ * Amounts are accumulated in striped cells so concurrent listener threads do not contend
+ * on a single counter. Each cell holds (count, sum) behind its own sequence lock, so a
+ * snapshot always pairs a count with exactly the sum of the amounts it counted.
  */
 @Slf4j
 @Component
 public class RunningAverageCalculator {
 
-    private final AtomicLong totalAmount = new AtomicLong(0);
-    private final AtomicInteger count = new AtomicInteger(0);
+    // Each cell is [seq, count, sumInCents] padded to 128 bytes to avoid false sharing
+    private static final int STRIDE = 16;
+    private static final int SEQ = 0;
+    private static final int COUNT = 1;
+    private static final int SUM = 2;
+
+    private static final VarHandle CELLS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final int cellMask;
+    private final long[] cells;
+
+    public RunningAverageCalculator() {
+        int cellCount = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)) << 1;
+        this.cellMask = cellCount - 1;
+        this.cells = new long[cellCount * STRIDE];
+    }
+
+    /**
+     * Immutable, consistent view of the calculator
+     *
+     * @param count Number of amounts added
+     * @param totalInCents Sum of the amounts, in cents
+     */
+    public record Snapshot(long count, long totalInCents) {
+
+        public double totalAmount() {
+            return totalInCents / 100.0;
+        }
+
+        public double average() {
+            return count == 0 ? 0.0 : (double) totalInCents / (count * 100);
+        }
+    }
 
     /**
      * Add a new order amount to the running average
-     * 
-     * @param amount Order amount in cents (to avoid floating-point precision issues)
-     * @return The new running average
+     *
+     * @param amount Order amount (converted to cents to avoid floating-point precision issues)
      */
-    public double addAmount(double amount) {
-        // Convert to cents to work with long integers
-        long amountInCents = Math.round(amount * 100);
-        
-        long newTotal = totalAmount.addAndGet(amountInCents);
-        int newCount = count.incrementAndGet();
-        
-        double average = (double) newTotal / (newCount * 100);
-        
-        log.debug("Added amount: ${}, New running average: ${}, Total orders: {}", 
-                 amount, average, newCount);
-        
-        return average;
+    public void addAmount(double amount) {
+        add(1, Math.round(amount * 100));
+    }
+
+    /**
+     * Add a pre-aggregated count and sum, e.g. when restoring or merging state
+     *
+     * @param count Number of amounts
+     * @param totalInCents Sum of the amounts, in cents
+     */
+    public void add(long count, long totalInCents) {
+        int base = tryLockAny();
+        long seq = (long) CELLS.get(cells, base + SEQ) - 1; // we hold the lock, so it is odd
+        CELLS.setOpaque(cells, base + COUNT, (long) CELLS.getOpaque(cells, base + COUNT) + count);
+        CELLS.setOpaque(cells, base + SUM, (long) CELLS.getOpaque(cells, base + SUM) + totalInCents);
+        CELLS.setRelease(cells, base + SEQ, seq + 2);
+    }
+
+    /**
+     * Take a consistent snapshot of (count, sum)
+     *
+     * @return Snapshot of the current state
+     */
+    public Snapshot snapshot() {
+        long count = 0;
+        long total = 0;
+        for (int base = 0; base < cells.length; base += STRIDE) {
+            while (true) {
+                long before = (long) CELLS.getAcquire(cells, base + SEQ);
+                if ((before & 1) != 0) {
+                    Thread.onSpinWait();
+                    continue;
+                }
+                long cellCount = (long) CELLS.getOpaque(cells, base + COUNT);
+                long cellSum = (long) CELLS.getOpaque(cells, base + SUM);
+                VarHandle.acquireFence();
+                if ((long) CELLS.getOpaque(cells, base + SEQ) == before) {
+                    count += cellCount;
+                    total += cellSum;
+                    break;
+                }
+            }
+        }
+        return new Snapshot(count, total);
     }
 
     /**
      * Get the current running average
-     * 
+     *
      * @return The current average or 0.0 if no orders processed
      */
     public double getCurrentAverage() {
-        int currentCount = count.get();
-        if (currentCount == 0) {
-            return 0.0;
-        }
-        
-        long currentTotal = totalAmount.get();
-        return (double) currentTotal / (currentCount * 100);
+        return snapshot().average();
     }
 
     /**
      * Get the total number of orders processed
-     * 
+     *
      * @return Total order count
      */
-    public int getOrderCount() {
-        return count.get();
+    public long getOrderCount() {
+        return snapshot().count();
     }
 
     /**
      * Get the total amount processed
-     * 
+     *
      * @return Total amount
      */
     public double getTotalAmount() {
-        return totalAmount.get() / 100.0;
+        return snapshot().totalAmount();
     }
 
     /**
      * Reset the running average calculator
      */
     public void reset() {
-        totalAmount.set(0);
-        count.set(0);
+        for (int base = 0; base < cells.length; base += STRIDE) {
+            long seq = lock(base);
+            CELLS.setOpaque(cells, base + COUNT, 0L);
+            CELLS.setOpaque(cells, base + SUM, 0L);
+            CELLS.setRelease(cells, base + SEQ, seq + 2);
+        }
         log.info("Running average calculator has been reset");
     }
 
     /**
      * Get statistics as a formatted string
-     * 
+     *
      * @return Statistics string
      */
     public String getStatistics() {
-        int currentCount = getOrderCount();
-        double currentTotal = getTotalAmount();
-        double currentAverage = getCurrentAverage();
-        
+        Snapshot snapshot = snapshot();
         return String.format(
             "Orders Processed: %d | Total Amount: $%.2f | Running Average: $%.2f",
-            currentCount, currentTotal, currentAverage
+            snapshot.count(), snapshot.totalAmount(), snapshot.average()
         );
     }
+
+    /**
+     * Lock the thread's home cell, moving on to the next cell whenever the current one is
+     * contended, and yielding after a full sweep in case a lock holder was descheduled
+     *
+     * @return Base index of the locked cell
+     */
+    private int tryLockAny() {
+        int index = cellIndex();
+        for (int attempt = 1; ; attempt++) {
+            int base = (index & cellMask) * STRIDE;
+            long seq = (long) CELLS.getVolatile(cells, base + SEQ);
+            if ((seq & 1) == 0 && CELLS.compareAndSet(cells, base + SEQ, seq, seq + 1)) {
+                return base;
+            }
+            index++;
+            if ((attempt & cellMask) == 0) {
+                Thread.yield();
+            }
+        }
+    }
+
+    /**
+     * Acquire a specific cell's sequence lock by moving it from even to odd
+     *
+     * @return The (even) sequence value before locking
+     */
+    private long lock(int base) {
+        while (true) {
+            long seq = (long) CELLS.getVolatile(cells, base + SEQ);
+            if ((seq & 1) == 0 && CELLS.compareAndSet(cells, base + SEQ, seq, seq + 1)) {
+                return seq;
+            }
+            Thread.yield();
+        }
+    }
+
+    private int cellIndex() {
+        long id = Thread.currentThread().threadId();
+        // Spread sequential thread ids across cells (fmix64 from MurmurHash3)
+        id ^= id >>> 33;
+        id *= 0xff51afd7ed558ccdL;
+        id ^= id >>> 33;
+        return (int) id & cellMask;
+    }
 }
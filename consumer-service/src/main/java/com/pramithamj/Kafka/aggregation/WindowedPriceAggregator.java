@@ -0,0 +1,279 @@
+package com.pramithamj.kafka.aggregation;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Event-time price statistics per product over 1-minute tumbling windows and
+ * 5-minute windows sliding every 10 seconds.
+ *
+ * Both window types are assembled from 10-second panes held in a fixed-size ring per
+ * product, so memory is bounded by (largest window + grace period) regardless of traffic.
+ * Events older than the watermark minus the grace period are dropped and counted as late.
+ *
+ * Each source partition has its own watermark (highest event timestamp it has delivered),
+ * and the watermark is the lowest of them, so a partition that runs ahead (or catches up
+ * after a rebalance) does not make the in-order events of lagging ones late. Partitions
+ * that deliver nothing for idle-timeout-ms are left out until they do, and revoked ones
+ * are dropped, so an idle partition does not hold the windows back.
+ */
+@Slf4j
+@Component
+public class WindowedPriceAggregator implements ConsumerAwareRebalanceListener {
+
+    static final long PANE_MS = 10_000;
+    static final long TUMBLING_MS = 60_000;
+    static final long SLIDING_MS = 300_000;
+
+    @Value("${kafka.aggregation.windows.grace-period-ms:30000}")
+    private long gracePeriodMs;
+
+    @Value("${kafka.aggregation.windows.idle-timeout-ms:60000}")
+    private long idleTimeoutMs;
+
+    private final Map<String, PaneRing> products = new ConcurrentHashMap<>();
+    private final Map<TopicPartition, PartitionWatermark> watermarks = new ConcurrentHashMap<>();
+    private final AtomicLong lateEventsDropped = new AtomicLong();
+
+    private int ringSize;
+
+    @PostConstruct
+    void init() {
+        ringSize = (int) ((SLIDING_MS + gracePeriodMs) / PANE_MS) + 2;
+    }
+
+    /**
+     * Statistics of one window; prices are in dollars
+     */
+    public record WindowStats(long windowStart, long windowEnd, long count,
+                              double sum, double min, double max, double average) {
+    }
+
+    /**
+     * Add an order price to the windows covering its event time
+     *
+     * @param source Partition the order was read from
+     * @param product Product name (window key)
+     * @param price Order price
+     * @param timestamp Event time in epoch milliseconds
+     * @return false if the event was dropped as late
+     */
+    public boolean record(TopicPartition source, String product, double price, long timestamp) {
+        return record(source, product, price, timestamp, System.currentTimeMillis());
+    }
+
+    boolean record(TopicPartition source, String product, double price, long timestamp, long now) {
+        watermarks.computeIfAbsent(source, p -> new PartitionWatermark()).observe(timestamp, now);
+        long currentWatermark = watermark(now);
+        if (timestamp < currentWatermark - gracePeriodMs) {
+            lateEventsDropped.incrementAndGet();
+            log.debug("Dropping late event: product={}, timestamp={}, watermark={}",
+                    product, timestamp, currentWatermark);
+            return false;
+        }
+
+        long pane = Math.floorDiv(timestamp, PANE_MS) * PANE_MS;
+        long cents = Math.round(price * 100);
+        // compute() keeps the add atomic with idle-product eviction
+        products.compute(product, (p, ring) -> {
+            PaneRing target = ring != null ? ring : new PaneRing(ringSize);
+            target.add(pane, cents);
+            return target;
+        });
+        return true;
+    }
+
+    /**
+     * Tumbling 1-minute windows still within retention, oldest first, per product
+     */
+    public Map<String, List<WindowStats>> getTumblingWindows() {
+        long now = getWatermark();
+        Map<String, List<WindowStats>> result = new TreeMap<>();
+        if (now == Long.MIN_VALUE) {
+            return result;
+        }
+
+        long currentStart = Math.floorDiv(now, TUMBLING_MS) * TUMBLING_MS;
+        long oldestStart = currentStart - (SLIDING_MS / TUMBLING_MS - 1) * TUMBLING_MS;
+        evictIdleProducts(now);
+        products.forEach((product, ring) -> {
+            List<WindowStats> windows = new ArrayList<>();
+            for (long start = oldestStart; start <= currentStart; start += TUMBLING_MS) {
+                WindowStats stats = ring.aggregate(start, start + TUMBLING_MS);
+                if (stats != null) {
+                    windows.add(stats);
+                }
+            }
+            result.put(product, windows);
+        });
+        return result;
+    }
+
+    /**
+     * Latest 5-minute sliding window (ending at the current 10-second boundary) per product
+     */
+    public Map<String, WindowStats> getSlidingWindows() {
+        long now = getWatermark();
+        Map<String, WindowStats> result = new TreeMap<>();
+        if (now == Long.MIN_VALUE) {
+            return result;
+        }
+
+        long end = Math.floorDiv(now, PANE_MS) * PANE_MS + PANE_MS;
+        evictIdleProducts(now);
+        products.forEach((product, ring) -> {
+            WindowStats stats = ring.aggregate(end - SLIDING_MS, end);
+            if (stats != null) {
+                result.put(product, stats);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * @return Lowest watermark of the partitions delivering events, or Long.MIN_VALUE before the first event
+     */
+    public long getWatermark() {
+        return watermark(System.currentTimeMillis());
+    }
+
+    public long getGracePeriodMs() {
+        return gracePeriodMs;
+    }
+
+    public long getLateEventsDropped() {
+        return lateEventsDropped.get();
+    }
+
+    @Override
+    public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        partitions.forEach(watermarks::remove);
+    }
+
+    @Override
+    public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        partitions.forEach(watermarks::remove);
+    }
+
+    private long watermark(long now) {
+        long active = Long.MAX_VALUE;
+        long newest = Long.MIN_VALUE;
+        for (PartitionWatermark partition : watermarks.values()) {
+            long eventTime = partition.eventTime;
+            newest = Math.max(newest, eventTime);
+            if (now - partition.lastSeen <= idleTimeoutMs) {
+                active = Math.min(active, eventTime);
+            }
+        }
+        // With every partition idle, keep the windows where the newest one left them
+        return active != Long.MAX_VALUE ? active : newest;
+    }
+
+    private void evictIdleProducts(long now) {
+        long horizon = now - SLIDING_MS - gracePeriodMs;
+        for (String product : products.keySet()) {
+            products.computeIfPresent(product, (p, ring) -> ring.newestPane() < horizon ? null : ring);
+        }
+    }
+
+    /**
+     * Highest event time delivered by one partition, and when it last delivered an event
+     */
+    private static final class PartitionWatermark {
+
+        private volatile long eventTime = Long.MIN_VALUE;
+        private volatile long lastSeen;
+
+        synchronized void observe(long timestamp, long now) {
+            eventTime = Math.max(eventTime, timestamp);
+            lastSeen = now;
+        }
+    }
+
+    /**
+     * Fixed ring of panes for one product. A slot is reused once its pane falls out of
+     * retention, which is what bounds memory.
+     */
+    static final class PaneRing {
+
+        private final long[] paneStart;
+        private final long[] count;
+        private final long[] sum;
+        private final long[] min;
+        private final long[] max;
+        private long newest = Long.MIN_VALUE;
+
+        PaneRing(int size) {
+            paneStart = new long[size];
+            count = new long[size];
+            sum = new long[size];
+            min = new long[size];
+            max = new long[size];
+            Arrays.fill(paneStart, Long.MIN_VALUE);
+        }
+
+        synchronized void add(long pane, long cents) {
+            int slot = slot(pane);
+            if (paneStart[slot] != pane) {
+                if (paneStart[slot] > pane) {
+                    // Slot already holds a newer pane; this one is beyond retention
+                    return;
+                }
+                paneStart[slot] = pane;
+                count[slot] = 0;
+                sum[slot] = 0;
+                min[slot] = Long.MAX_VALUE;
+                max[slot] = Long.MIN_VALUE;
+            }
+            count[slot]++;
+            sum[slot] += cents;
+            min[slot] = Math.min(min[slot], cents);
+            max[slot] = Math.max(max[slot], cents);
+            newest = Math.max(newest, pane);
+        }
+
+        synchronized WindowStats aggregate(long start, long end) {
+            long totalCount = 0;
+            long totalSum = 0;
+            long lowest = Long.MAX_VALUE;
+            long highest = Long.MIN_VALUE;
+            for (long pane = start; pane < end; pane += PANE_MS) {
+                int slot = slot(pane);
+                if (paneStart[slot] != pane || count[slot] == 0) {
+                    continue;
+                }
+                totalCount += count[slot];
+                totalSum += sum[slot];
+                lowest = Math.min(lowest, min[slot]);
+                highest = Math.max(highest, max[slot]);
+            }
+            if (totalCount == 0) {
+                return null;
+            }
+            return new WindowStats(start, end, totalCount, totalSum / 100.0,
+                    lowest / 100.0, highest / 100.0, (double) totalSum / (totalCount * 100));
+        }
+
+        synchronized long newestPane() {
+            return newest;
+        }
+
+        private int slot(long pane) {
+            return (int) Math.floorMod(pane / PANE_MS, (long) paneStart.length);
+        }
+    }
+}
@@ -1,19 +1,35 @@
 package com.pramithamj.kafka.config;
 
+import com.pramithamj.kafka.aggregation.WindowedPriceAggregator;
+import com.pramithamj.kafka.dedup.OrderDeduplicator;
+import com.pramithamj.kafka.processing.KeyOrderedProcessingEngine;
+import com.pramithamj.kafka.serde.OrderAvroDeserializer;
+import com.pramithamj.kafka.serde.SchemaIdCache;
+import com.pramithamj.kafka.state.AggregationStateManager;
 import io.confluent.kafka.serializers.KafkaAvroDeserializer;
 import io.confluent.kafka.serializers.KafkaAvroDeserializerConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.MicrometerConsumerListener;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
 import org.springframework.kafka.listener.ContainerProperties;
 import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.kafka.transaction.KafkaAwareTransactionManager;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -27,6 +43,14 @@ public class KafkaConsumerConfig {
     @Value("${spring.kafka.properties.schema.registry.url}")
     private String schemaRegistryUrl;
 
+    // Pooled Order serde; false falls back to the Confluent Avro deserializer
+    @Value("${kafka.serde.pooled.enabled:true}")
+    private boolean pooledSerde;
+
+    // Schema ids kept across restarts by the pooled serde; blank keeps them in memory only
+    @Value("${kafka.serde.schema-cache.path:}")
+    private String schemaCachePath;
+
     @Value("${spring.kafka.consumer.group-id}")
     private String groupId;
 
@@ -36,6 +60,25 @@ public class KafkaConsumerConfig {
     @Value("${spring.kafka.consumer.max-poll-interval-ms:300000}")
     private int maxPollIntervalMs;
 
+    @Value("${kafka.consumer.virtual-threads.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${kafka.consumer.parallel.enabled:false}")
+    private boolean parallelEnabled;
+
+    // Exactly-once mode; the transaction manager is only defined when this is true
+    @Value("${kafka.consumer.transactions.enabled:false}")
+    private boolean transactionsEnabled;
+
+    private final MeterRegistry meterRegistry;
+    private final ObjectProvider<KafkaAwareTransactionManager<String, Object>> transactionManager;
+
+    public KafkaConsumerConfig(MeterRegistry meterRegistry,
+                               ObjectProvider<KafkaAwareTransactionManager<String, Object>> transactionManager) {
+        this.meterRegistry = meterRegistry;
+        this.transactionManager = transactionManager;
+    }
+
     @Bean
     public ConsumerFactory<String, Object> consumerFactory() {
         Map<String, Object> props = new HashMap<>();
@@ -45,11 +88,13 @@ public class KafkaConsumerConfig {
         props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
         props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
         props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
-        props.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, KafkaAvroDeserializer.class);
+        props.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS,
+                pooledSerde ? OrderAvroDeserializer.class : KafkaAvroDeserializer.class);
         
         // Schema Registry configuration
         props.put(KafkaAvroDeserializerConfig.SCHEMA_REGISTRY_URL_CONFIG, schemaRegistryUrl);
         props.put(KafkaAvroDeserializerConfig.SPECIFIC_AVRO_READER_CONFIG, true);
+        props.put(SchemaIdCache.PATH_CONFIG, schemaCachePath);
         
         // Consumer behavior configuration
         props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
@@ -58,22 +103,72 @@ public class KafkaConsumerConfig {
         props.put(ConsumerConfig.MAX_POLL_INTERVAL_MS_CONFIG, maxPollIntervalMs);
         props.put(ConsumerConfig.SESSION_TIMEOUT_MS_CONFIG, 30000);
         props.put(ConsumerConfig.HEARTBEAT_INTERVAL_MS_CONFIG, 10000);
+        // Retry tiers are written transactionally in exactly-once mode; skip aborted sends
+        props.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, transactionsEnabled ? "read_committed" : "read_uncommitted");
         
         // Fetch configuration
         props.put(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, 1);
         props.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, 500);
         
-        return new DefaultKafkaConsumerFactory<>(props);
+        DefaultKafkaConsumerFactory<String, Object> factory = new DefaultKafkaConsumerFactory<>(props);
+        // Export the client's own metrics per consumer, including records-lag per partition
+        factory.addListener(new MicrometerConsumerListener<>(meterRegistry));
+        return factory;
     }
 
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, Object> kafkaListenerContainerFactory() {
+    public ConcurrentKafkaListenerContainerFactory<String, Object> kafkaListenerContainerFactory(
+            AggregationStateManager aggregationStateManager,
+            OrderDeduplicator orderDeduplicator,
+            WindowedPriceAggregator windowedAggregator) {
         ConcurrentKafkaListenerContainerFactory<String, Object> factory =
                 new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
         factory.setConcurrency(3); // 3 threads for 3 partitions
         factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
         factory.getContainerProperties().setPollTimeout(3000);
+        // Restore and checkpoint per-partition aggregation state on rebalance, then pre-warm
+        // the dedup cache up to the restored offsets and drop revoked partitions' watermarks
+        factory.getContainerProperties().setConsumerRebalanceListener(
+                chainRebalanceListeners(aggregationStateManager, orderDeduplicator, windowedAggregator));
+        applyThreading(factory);
+        applyTransactions(factory);
+        return factory;
+    }
+
+    /**
+     * Batch variant of the main listener factory. The whole poll (up to max-poll-records)
+     * is handed to the listener at once and committed with a single acknowledgment,
+     * or fanned out to the key-ordered processing engine when parallel mode is enabled.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, Object> batchKafkaListenerContainerFactory(
+            KeyOrderedProcessingEngine processingEngine,
+            AggregationStateManager aggregationStateManager,
+            OrderDeduplicator orderDeduplicator,
+            WindowedPriceAggregator windowedAggregator) {
+        ConcurrentKafkaListenerContainerFactory<String, Object> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory());
+        factory.setConcurrency(3); // 3 threads for 3 partitions
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setPollTimeout(3000);
+        // Drain and commit in-flight parallel work before partitions are revoked,
+        // then checkpoint aggregation state; pre-warm the dedup cache on assignment
+        factory.getContainerProperties().setConsumerRebalanceListener(
+                chainRebalanceListeners(processingEngine, aggregationStateManager, orderDeduplicator,
+                        windowedAggregator));
+        // Idle events let the engine commit completed work when polls return nothing
+        factory.getContainerProperties().setIdleEventInterval(1000L);
+        applyThreading(factory);
+        if (transactionsEnabled && parallelEnabled) {
+            // The engine commits completed offsets itself, outside any transaction, while the
+            // container would send the whole poll's offsets before the work has finished
+            throw new IllegalStateException(
+                    "kafka.consumer.transactions.enabled cannot be combined with kafka.consumer.parallel.enabled");
+        }
+        applyTransactions(factory);
         return factory;
     }
 
@@ -85,6 +180,8 @@ public class KafkaConsumerConfig {
         factory.setConcurrency(2); // Fewer threads for retry
         factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
         factory.getContainerProperties().setPollTimeout(3000);
+        applyThreading(factory);
+        applyTransactions(factory);
         return factory;
     }
 
@@ -96,6 +193,79 @@ public class KafkaConsumerConfig {
         factory.setConcurrency(1); // Single thread for DLQ
         factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
         factory.getContainerProperties().setPollTimeout(3000);
+        applyThreading(factory);
         return factory;
     }
+
+    /**
+     * Consumer factory for the aggregation changelog topic (raw checkpoint bytes, no group:
+     * restores and the changelog follower assign partitions directly)
+     */
+    @Bean
+    public ConsumerFactory<String, byte[]> changelogConsumerFactory() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        // Also reads the orders topic to warm up dedup; keys of aborted orders were never handled
+        props.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, transactionsEnabled ? "read_committed" : "read_uncommitted");
+        return new DefaultKafkaConsumerFactory<>(props);
+    }
+
+    /**
+     * Invoke rebalance listeners in order on assignment and revocation
+     */
+    private ConsumerAwareRebalanceListener chainRebalanceListeners(ConsumerAwareRebalanceListener... listeners) {
+        return new ConsumerAwareRebalanceListener() {
+
+            @Override
+            public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+                for (ConsumerAwareRebalanceListener listener : listeners) {
+                    listener.onPartitionsRevokedBeforeCommit(consumer, partitions);
+                }
+            }
+
+            @Override
+            public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+                for (ConsumerAwareRebalanceListener listener : listeners) {
+                    listener.onPartitionsAssigned(consumer, partitions);
+                }
+            }
+
+            @Override
+            public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+                for (ConsumerAwareRebalanceListener listener : listeners) {
+                    listener.onPartitionsLost(consumer, partitions);
+                }
+            }
+        };
+    }
+
+    /**
+     * Run the container's consumer loop on a virtual thread when virtual thread mode is
+     * enabled. This only swaps the thread the loop runs on: the listener still gets one
+     * record (or one batch) at a time. Per-record virtual threads come from the processing
+     * engine, i.e. batch listener with parallel mode.
+     */
+    private void applyThreading(ConcurrentKafkaListenerContainerFactory<String, Object> factory) {
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("kafka-vt-");
+            executor.setVirtualThreads(true);
+            factory.getContainerProperties().setListenerTaskExecutor(executor);
+        }
+    }
+
+    /**
+     * In exactly-once mode, run each listener invocation in a Kafka transaction. Sends made
+     * by the listener join it and the container adds the processed offsets with
+     * sendOffsetsToTransaction instead of committing them, whatever the ack mode. If the
+     * commit fails the transaction is aborted and the records are redelivered.
+     */
+    private void applyTransactions(ConcurrentKafkaListenerContainerFactory<String, Object> factory) {
+        if (transactionsEnabled) {
+            factory.getContainerProperties().setKafkaAwareTransactionManager(transactionManager.getObject());
+        }
+    }
 }
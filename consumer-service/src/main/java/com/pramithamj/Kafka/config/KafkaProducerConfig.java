@@ -1,21 +1,30 @@
 package com.pramithamj.kafka.config;
 
+import com.pramithamj.kafka.serde.OrderAvroSerializer;
+import com.pramithamj.kafka.serde.SchemaIdCache;
 import io.confluent.kafka.serializers.KafkaAvroSerializer;
 import io.confluent.kafka.serializers.KafkaAvroSerializerConfig;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.MicrometerProducerListener;
 import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.transaction.KafkaTransactionManager;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
 
 import java.util.HashMap;
 import java.util.Map;
 
 /**
- * Kafka Producer configuration for retry and DLQ functionality
+ * Kafka Producer configuration for retry and DLQ functionality, and for the
+ * aggregation changelog
  */
 @Configuration
 public class KafkaProducerConfig {
@@ -26,26 +35,93 @@ public class KafkaProducerConfig {
     @Value("${spring.kafka.properties.schema.registry.url}")
     private String schemaRegistryUrl;
 
+    // Pooled Order serde; false falls back to the Confluent Avro serializer
+    @Value("${kafka.serde.pooled.enabled:true}")
+    private boolean pooledSerde;
+
+    // Schema ids kept across restarts by the pooled serde; blank keeps them in memory only
+    @Value("${kafka.serde.schema-cache.path:}")
+    private String schemaCachePath;
+
+    // Order value encoding written by the pooled serializer: v1 (Order) or v2 (compact OrderV2)
+    @Value("${kafka.serde.order-encoding:v1}")
+    private String orderEncoding;
+
+    // Exactly-once mode: retry/DLQ sends and the consumed offsets commit in one transaction
+    @Value("${kafka.consumer.transactions.enabled:false}")
+    private boolean transactionsEnabled;
+
+    // Must differ between instances; Spring appends a counter per cached producer
+    @Value("${kafka.consumer.transactions.id-prefix:${spring.application.name}-tx-}")
+    private String transactionIdPrefix;
+
     @Bean
-    public ProducerFactory<String, Object> producerFactory() {
+    public ProducerFactory<String, Object> producerFactory(MeterRegistry meterRegistry) {
         Map<String, Object> configProps = new HashMap<>();
         
         configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, KafkaAvroSerializer.class);
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG,
+                pooledSerde ? OrderAvroSerializer.class : KafkaAvroSerializer.class);
         
         configProps.put(KafkaAvroSerializerConfig.SCHEMA_REGISTRY_URL_CONFIG, schemaRegistryUrl);
         configProps.put(KafkaAvroSerializerConfig.AUTO_REGISTER_SCHEMAS, true);
+        configProps.put(OrderAvroSerializer.ORDER_ENCODING_CONFIG, orderEncoding);
+        configProps.put(SchemaIdCache.PATH_CONFIG, schemaCachePath);
         
         configProps.put(ProducerConfig.ACKS_CONFIG, "all");
         configProps.put(ProducerConfig.RETRIES_CONFIG, 3);
         configProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
         
+        DefaultKafkaProducerFactory<String, Object> factory = new DefaultKafkaProducerFactory<>(configProps);
+        factory.addListener(new MicrometerProducerListener<>(meterRegistry));
+        if (transactionsEnabled) {
+            factory.setTransactionIdPrefix(transactionIdPrefix);
+        }
+        return factory;
+    }
+
+    @Bean
+    public KafkaTemplate<String, Object> kafkaTemplate(ProducerFactory<String, Object> producerFactory) {
+        return new KafkaTemplate<>(producerFactory);
+    }
+
+    /**
+     * Transaction manager for the listener containers in exactly-once mode. The container
+     * begins a transaction before invoking the listener, the retry/DLQ sends join it, and
+     * the record's offset is sent to it with sendOffsetsToTransaction, so forwarding and
+     * committing succeed or roll back together.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "kafka.consumer.transactions.enabled", havingValue = "true")
+    public KafkaTransactionManager<String, Object> kafkaTransactionManager(
+            ProducerFactory<String, Object> producerFactory) {
+        KafkaTransactionManager<String, Object> transactionManager = new KafkaTransactionManager<>(producerFactory);
+        // Off by default for Kafka; lets listeners defer in-memory updates until the commit
+        transactionManager.setTransactionSynchronization(
+                AbstractPlatformTransactionManager.SYNCHRONIZATION_ON_ACTUAL_TRANSACTION);
+        return transactionManager;
+    }
+
+    /**
+     * Plain byte[] producer for aggregation checkpoints, which are not Avro encoded
+     */
+    @Bean
+    public ProducerFactory<String, byte[]> changelogProducerFactory() {
+        Map<String, Object> configProps = new HashMap<>();
+
+        configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+
+        configProps.put(ProducerConfig.ACKS_CONFIG, "all");
+        configProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+
         return new DefaultKafkaProducerFactory<>(configProps);
     }
 
     @Bean
-    public KafkaTemplate<String, Object> kafkaTemplate() {
-        return new KafkaTemplate<>(producerFactory());
+    public KafkaTemplate<String, byte[]> changelogKafkaTemplate() {
+        return new KafkaTemplate<>(changelogProducerFactory());
     }
 }
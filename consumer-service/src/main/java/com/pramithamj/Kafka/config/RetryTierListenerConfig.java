@@ -0,0 +1,74 @@
+package com.pramithamj.kafka.config;
+
+import com.pramithamj.kafka.consumer.OrderConsumer;
+import com.pramithamj.kafka.model.Order;
+import com.pramithamj.kafka.retry.RetryHandler;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.annotation.KafkaListenerConfigurer;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistrar;
+import org.springframework.kafka.config.MethodKafkaListenerEndpoint;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.messaging.handler.annotation.support.DefaultMessageHandlerMethodFactory;
+
+import java.lang.reflect.Method;
+
+/**
+ * Registers one retry listener container per delay tier, for the tier topics RetryHandler
+ * sends to, so the listeners always follow kafka.retry.tier-delays-ms.
+ *
+ * Each tier keeps its own container (listener id = tier topic, e.g. orders-retry-4s) so a
+ * record that is not yet due only pauses its own tier. The legacy orders-retry topic is
+ * still consumed by the @KafkaListener on OrderConsumer.consumeRetryOrder.
+ */
+@Configuration
+public class RetryTierListenerConfig implements KafkaListenerConfigurer {
+
+    private final OrderConsumer orderConsumer;
+    private final RetryHandler retryHandler;
+    private final ConcurrentKafkaListenerContainerFactory<String, Object> retryKafkaListenerContainerFactory;
+
+    @Value("${spring.kafka.consumer.group-id}")
+    private String groupId;
+
+    public RetryTierListenerConfig(OrderConsumer orderConsumer, RetryHandler retryHandler,
+                                   @Qualifier("retryKafkaListenerContainerFactory")
+                                   ConcurrentKafkaListenerContainerFactory<String, Object> retryKafkaListenerContainerFactory) {
+        this.orderConsumer = orderConsumer;
+        this.retryHandler = retryHandler;
+        this.retryKafkaListenerContainerFactory = retryKafkaListenerContainerFactory;
+    }
+
+    @Override
+    public void configureKafkaListeners(KafkaListenerEndpointRegistrar registrar) {
+        // Endpoints registered here do not get the annotation processor's factory; the
+        // default one resolves @Payload and @Header, and the record and acknowledgment
+        // are passed in by type
+        DefaultMessageHandlerMethodFactory handlerMethodFactory = new DefaultMessageHandlerMethodFactory();
+        handlerMethodFactory.afterPropertiesSet();
+        Method listener = retryListenerMethod();
+
+        for (String topic : retryHandler.getTierTopics()) {
+            MethodKafkaListenerEndpoint<String, Object> endpoint = new MethodKafkaListenerEndpoint<>();
+            endpoint.setId(topic);
+            endpoint.setGroupId(groupId + "-retry");
+            endpoint.setTopics(topic);
+            endpoint.setBean(orderConsumer);
+            endpoint.setMethod(listener);
+            endpoint.setMessageHandlerMethodFactory(handlerMethodFactory);
+            registrar.registerEndpoint(endpoint, retryKafkaListenerContainerFactory);
+        }
+    }
+
+    private static Method retryListenerMethod() {
+        try {
+            return OrderConsumer.class.getMethod("consumeRetryOrder",
+                    Order.class, int.class, long.class, ConsumerRecord.class, Acknowledgment.class);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("OrderConsumer.consumeRetryOrder not found", e);
+        }
+    }
+}
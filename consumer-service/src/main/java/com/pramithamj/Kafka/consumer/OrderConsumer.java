@@ -1,12 +1,22 @@
 package com.pramithamj.kafka.consumer;
 
+import com.pramithamj.kafka.aggregation.PriceQuantileTracker;
 import com.pramithamj.kafka.aggregation.RunningAverageCalculator;
+import com.pramithamj.kafka.aggregation.WindowedPriceAggregator;
+import com.pramithamj.kafka.dedup.OrderDeduplicator;
 import com.pramithamj.kafka.dlq.DLQHandler;
+import com.pramithamj.kafka.events.OrderEventLog;
+import com.pramithamj.kafka.metrics.ConsumerMetrics;
 import com.pramithamj.kafka.model.Order;
+import com.pramithamj.kafka.processing.KeyOrderedProcessingEngine;
 import com.pramithamj.kafka.retry.RetryHandler;
+import com.pramithamj.kafka.state.AggregationStateManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.kafka.support.KafkaHeaders;
@@ -14,6 +24,10 @@ import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -25,8 +39,21 @@ import java.util.concurrent.atomic.AtomicLong;
 public class OrderConsumer {
 
     private final RunningAverageCalculator averageCalculator;
+    private final WindowedPriceAggregator windowedAggregator;
+    private final PriceQuantileTracker quantileTracker;
     private final RetryHandler retryHandler;
     private final DLQHandler dlqHandler;
+    private final KeyOrderedProcessingEngine processingEngine;
+    private final AggregationStateManager stateManager;
+    private final OrderDeduplicator deduplicator;
+    private final ConsumerMetrics metrics;
+    private final OrderEventLog eventLog;
+
+    @Value("${kafka.consumer.parallel.enabled:false}")
+    private boolean parallelEnabled;
+
+    @Value("${kafka.consumer.processing-delay-ms:100}")
+    private long processingDelayMs;
 
     private final AtomicLong processedCount = new AtomicLong(0);
     private final AtomicLong errorCount = new AtomicLong(0);
@@ -35,9 +62,11 @@ public class OrderConsumer {
      * Main consumer for orders topic
      */
     @KafkaListener(
+        id = "orders",
         topics = "${kafka.topic.orders}",
         groupId = "${spring.kafka.consumer.group-id}",
-        containerFactory = "kafkaListenerContainerFactory"
+        containerFactory = "kafkaListenerContainerFactory",
+        autoStartup = "#{!${kafka.consumer.batch-listener.enabled:false}}"
     )
     public void consumeOrder(
             @Payload Order order,
@@ -46,15 +75,36 @@ public class OrderConsumer {
             ConsumerRecord<String, Order> record,
             Acknowledgment acknowledgment) {
         
-        try {
-            log.info(" Received order: orderId={}, product={}, price=${:.2f}, partition={}, offset={}", 
-                    order.getOrderId(), order.getProduct(), order.getPrice(), partition, offset);
+        // Records reach this listener one at a time, so everything before this one is done
+        stateManager.advanceTo(partitionOf(record), offset);
+
+        if (!stateManager.shouldProcess(record)) {
+            // Replaying committed orders to rebuild aggregates restored from an older snapshot.
+            // Not acknowledged: that would move the committed offset back; the first order
+            // past the old commit is acknowledged and commits the replay with it.
+            recordAggregates(record);
+            deduplicator.markHandled(order);
+            return;
+        }
 
+        // Orders replayed from the DLQ store were handled before and are let through on purpose
+        if (!DLQHandler.isReplay(record) && deduplicator.isDuplicate(order)) {
+            eventLog.record(OrderEventLog.Type.ORDER_DUPLICATE, record, -1, null);
+            stateManager.markHandled(record);
+            acknowledgment.acknowledge();
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
             // Process the order
             processOrder(order);
 
-            // Update running average for price aggregation
-            double newAverage = averageCalculator.addAmount(order.getPrice());
+            // Update running average and windowed aggregations
+            recordAggregates(record);
+            deduplicator.markHandled(order);
+            metrics.recordProcessing(start, true);
+            metrics.recordEndToEnd(order.getTimestamp());
             
             long processed = processedCount.incrementAndGet();
             
@@ -65,16 +115,18 @@ public class OrderConsumer {
 
             // Manually commit the offset
             acknowledgment.acknowledge();
-            
-            log.debug("Order processed successfully: orderId={}", order.getOrderId());
+
+            eventLog.record(OrderEventLog.Type.ORDER_PROCESSED, record, -1, null);
 
         } catch (Exception e) {
+            metrics.recordProcessing(start, false);
             errorCount.incrementAndGet();
-            log.error("Error processing order: orderId={}, error={}", 
-                    order.getOrderId(), e.getMessage(), e);
+            eventLog.record(OrderEventLog.Type.ORDER_FAILED, record, 0, e);
             
             // Send to retry topic
             retryHandler.sendToRetry(order, e, 0);
+            stateManager.markHandled(record);
+            deduplicator.markHandled(order);
             
             // Still acknowledge to prevent reprocessing by this consumer
             acknowledgment.acknowledge();
@@ -82,9 +134,129 @@ public class OrderConsumer {
     }
 
     /**
-     * Consumer for retry topic
+     * Batch consumer for orders topic, enabled with kafka.consumer.batch-listener.enabled=true.
+     * Processes the whole poll, forwards only the failed records to the retry topic and
+     * commits the batch with a single acknowledgment.
+     *
+     * With kafka.consumer.parallel.enabled=true the records are instead fanned out to the
+     * key-ordered processing engine, and only the contiguous completed offsets are committed.
+     */
+    @KafkaListener(
+        id = "orders-batch",
+        topics = "${kafka.topic.orders}",
+        groupId = "${spring.kafka.consumer.group-id}",
+        containerFactory = "batchKafkaListenerContainerFactory",
+        autoStartup = "${kafka.consumer.batch-listener.enabled:false}"
+    )
+    public void consumeOrderBatch(
+            List<ConsumerRecord<String, Order>> records,
+            Consumer<?, ?> consumer,
+            Acknowledgment acknowledgment) throws InterruptedException {
+        log.debug("Received batch of {} orders", records.size());
+
+        if (parallelEnabled) {
+            for (ConsumerRecord<String, Order> record : records) {
+                if (!stateManager.shouldProcess(record)) {
+                    // Replayed here and never registered with the engine, which would
+                    // otherwise commit the replayed offsets, below the existing commit
+                    handleRecord(record);
+                    continue;
+                }
+                processingEngine.submit(record, () -> handleRecord(record));
+            }
+            // Commit whatever prefix has completed so far; the rest is committed on later polls
+            processingEngine.commitCompleted(consumer);
+            for (TopicPartition partition : consumer.assignment()) {
+                stateManager.advanceTo(partition, processingEngine.completedBefore(partition));
+            }
+            return;
+        }
+
+        int failed = 0;
+        for (ConsumerRecord<String, Order> record : records) {
+            stateManager.advanceTo(partitionOf(record), record.offset());
+            if (!handleRecord(record)) {
+                failed++;
+            }
+        }
+
+        // One commit for the whole poll, unless that would move a replaying partition's
+        // commit back; a later batch past the old commit acknowledges these records too
+        if (!endsInReplay(records)) {
+            acknowledgment.acknowledge();
+        }
+
+        log.info("Batch processed: size={}, failed={} | {}",
+                records.size(), failed, averageCalculator.getStatistics());
+    }
+
+    /**
+     * @return true if the batch's last record of some partition is still being replayed
+     */
+    private boolean endsInReplay(List<ConsumerRecord<String, Order>> records) {
+        Map<TopicPartition, ConsumerRecord<String, Order>> last = new HashMap<>();
+        records.forEach(record -> last.put(partitionOf(record), record));
+        return last.values().stream().anyMatch(record -> !stateManager.shouldProcess(record));
+    }
+
+    /**
+     * Process a single record from a batch, forwarding it to the retry topic on failure
+     *
+     * @param record The record to process
+     * @return true if the order was processed successfully
+     */
+    private boolean handleRecord(ConsumerRecord<String, Order> record) {
+        Order order = record.value();
+        if (order == null) {
+            // Deserialization failure surfaced by ErrorHandlingDeserializer
+            log.error("Skipping undeserializable record: partition={}, offset={}",
+                    record.partition(), record.offset());
+            errorCount.incrementAndGet();
+            stateManager.markHandled(record);
+            return false;
+        }
+
+        if (!stateManager.shouldProcess(record)) {
+            recordAggregates(record);
+            deduplicator.markHandled(order);
+            return true;
+        }
+
+        if (!DLQHandler.isReplay(record) && deduplicator.isDuplicate(order)) {
+            eventLog.record(OrderEventLog.Type.ORDER_DUPLICATE, record, -1, null);
+            stateManager.markHandled(record);
+            return true;
+        }
+
+        long start = System.nanoTime();
+        try {
+            processOrder(order);
+            recordAggregates(record);
+            deduplicator.markHandled(order);
+            metrics.recordProcessing(start, true);
+            metrics.recordEndToEnd(order.getTimestamp());
+            processedCount.incrementAndGet();
+            eventLog.record(OrderEventLog.Type.ORDER_PROCESSED, record, -1, null);
+            return true;
+        } catch (Exception e) {
+            metrics.recordProcessing(start, false);
+            errorCount.incrementAndGet();
+            eventLog.record(OrderEventLog.Type.ORDER_FAILED, record, 0, e);
+            retryHandler.sendToRetry(order, e, 0);
+            stateManager.markHandled(record);
+            deduplicator.markHandled(order);
+            return false;
+        }
+    }
+
+    /**
+     * Consumer for the retry delay tiers. Each tier gets its own container so a record
+     * that is not yet due only pauses its own tier; RetryTierListenerConfig registers them
+     * from the configured tier delays. The legacy orders-retry topic is still drained; its
+     * records carry no not-before header and are processed at once.
      */
     @KafkaListener(
+        id = "orders-retry",
         topics = "${kafka.topic.orders-retry}",
         groupId = "${spring.kafka.consumer.group-id}-retry",
         containerFactory = "retryKafkaListenerContainerFactory"
@@ -93,44 +265,47 @@ public class OrderConsumer {
             @Payload Order order,
             @Header(KafkaHeaders.RECEIVED_PARTITION) int partition,
             @Header(KafkaHeaders.OFFSET) long offset,
-            @Header(value = "retry-count", required = false) Integer retryCount,
+            ConsumerRecord<String, Order> record,
             Acknowledgment acknowledgment) {
-        
-        int currentRetryCount = (retryCount != null) ? retryCount : 1;
-        
-        log.info("Retrying order: orderId={}, retryCount={}, partition={}, offset={}", 
-                order.getOrderId(), currentRetryCount, partition, offset);
 
-        try {
-            // Add backoff delay
-            long backoffDelay = retryHandler.calculateBackoffDelay(currentRetryCount);
-            log.debug("Applying backoff delay: {}ms", backoffDelay);
-            Thread.sleep(backoffDelay);
+        // Not due yet: re-seek and pause this container until it is, without blocking the poll loop.
+        // Records in a tier share one delay, so nothing behind this one is due earlier.
+        long remainingDelay = retryHandler.remainingDelay(record);
+        if (remainingDelay > 0) {
+            log.debug("Retry not due yet, pausing for {}ms: orderId={}, topic={}",
+                    remainingDelay, order.getOrderId(), record.topic());
+            acknowledgment.nack(Duration.ofMillis(remainingDelay));
+            return;
+        }
+
+        int currentRetryCount = retryHandler.getRetryCount(record);
 
+        long start = System.nanoTime();
+        try {
             // Retry processing
             processOrder(order);
 
-            // Update running average
-            averageCalculator.addAmount(order.getPrice());
+            // Update running average and windowed aggregations
+            recordAggregates(record);
+            metrics.recordProcessing(start, true);
+            metrics.recordEndToEnd(order.getTimestamp());
             
             processedCount.incrementAndGet();
             
             acknowledgment.acknowledge();
-            
-            log.info("Order retry successful: orderId={}, retryCount={}", 
-                    order.getOrderId(), currentRetryCount);
+
+            eventLog.record(OrderEventLog.Type.RETRY_SUCCEEDED, record, currentRetryCount, null);
 
         } catch (Exception e) {
+            metrics.recordProcessing(start, false);
             errorCount.incrementAndGet();
-            log.error("Order retry failed: orderId={}, retryCount={}, error={}", 
-                    order.getOrderId(), currentRetryCount, e.getMessage(), e);
+            eventLog.record(OrderEventLog.Type.RETRY_FAILED, record, currentRetryCount, e);
             
             if (retryHandler.shouldRetry(currentRetryCount)) {
-                // Send to retry topic again
+                // Send to the next retry tier
                 retryHandler.sendToRetry(order, e, currentRetryCount);
             } else {
                 // Max retries reached, send to DLQ
-                log.warn("Max retries reached, sending to DLQ: orderId={}", order.getOrderId());
                 dlqHandler.sendToDLQ(order, e, currentRetryCount);
             }
             
@@ -139,7 +314,8 @@ public class OrderConsumer {
     }
 
     /**
-     * Consumer for Dead Letter Queue
+     * Consumer for Dead Letter Queue: keeps each entry in the local DLQ store, where it can
+     * be queried and replayed through /api/consumer/dlq
      */
     @KafkaListener(
         topics = "${kafka.topic.orders-dlq}",
@@ -150,19 +326,14 @@ public class OrderConsumer {
             @Payload Order order,
             @Header(KafkaHeaders.RECEIVED_PARTITION) int partition,
             @Header(KafkaHeaders.OFFSET) long offset,
+            ConsumerRecord<String, Order> record,
             Acknowledgment acknowledgment) {
-        
-        log.warn("💀 Processing order from DLQ: orderId={}, product={}, price=${:.2f}", 
-                order.getOrderId(), order.getProduct(), order.getPrice());
 
-        // In production, DLQ messages would be:
-        // - Logged to a database for investigation
-        // - Sent to a monitoring system
-        // - Available for manual review and reprocessing
-        
-        // For now, just log and acknowledge
-        log.info("DLQ order logged for manual review: orderId={}", order.getOrderId());
-        
+        dlqHandler.store(record).ifPresentOrElse(
+                entry -> eventLog.record(OrderEventLog.Type.DLQ_STORED, record, entry.retryCount(), null),
+                () -> log.debug("DLQ record already stored: partition={}, offset={}", partition, offset));
+
+        // Only reached once stored: a failed store write throws and the record is redelivered
         acknowledgment.acknowledge();
     }
 
@@ -173,16 +344,15 @@ public class OrderConsumer {
      * @throws Exception if processing fails
      */
     private void processOrder(Order order) throws Exception {
-        // Simulate order processing
-        log.debug("Processing order business logic: orderId={}", order.getOrderId());
-        
         // Validation
         if (order.getPrice() <= 0) {
             throw new IllegalArgumentException("Invalid order price: " + order.getPrice());
         }
 
         // Simulate some processing time
-        Thread.sleep(100);
+        if (processingDelayMs > 0) {
+            Thread.sleep(processingDelayMs);
+        }
 
         // Simulate occasional failures for testing retry/DLQ
         // In production, real failures would occur naturally
@@ -195,8 +365,25 @@ public class OrderConsumer {
         // - Payment processing
         // - Order fulfillment
         // - Notification sending
-        
-        log.debug("Order processing completed: orderId={}", order.getOrderId());
+    }
+
+    /**
+     * Feed a successfully processed order into all price aggregations, unless its
+     * contribution was already restored from a checkpoint
+     */
+    private void recordAggregates(ConsumerRecord<String, Order> record) {
+        if (stateManager.isAggregated(record)) {
+            return;
+        }
+        Order order = record.value();
+        averageCalculator.addAmount(order.getPrice());
+        windowedAggregator.record(partitionOf(record), order.getProduct(), order.getPrice(), order.getTimestamp());
+        quantileTracker.record(order.getProduct(), order.getPrice());
+        stateManager.apply(record, order);
+    }
+
+    private static TopicPartition partitionOf(ConsumerRecord<?, ?> record) {
+        return new TopicPartition(record.topic(), record.partition());
     }
 
     /**
@@ -210,6 +397,13 @@ public class OrderConsumer {
                (orderId.hashCode() % 20 == 0); // ~5% failure rate
     }
 
+    /**
+     * Orders that failed processing on the main topic since startup
+     */
+    public long getErrorCount() {
+        return errorCount.get();
+    }
+
     /**
      * Get processing statistics
      */
@@ -1,16 +1,40 @@
 package com.pramithamj.kafka.controller;
 
+import com.pramithamj.kafka.aggregation.DDSketch;
+import com.pramithamj.kafka.aggregation.PriceQuantileTracker;
 import com.pramithamj.kafka.aggregation.RunningAverageCalculator;
+import com.pramithamj.kafka.aggregation.WindowedPriceAggregator;
 import com.pramithamj.kafka.consumer.OrderConsumer;
+import com.pramithamj.kafka.dlq.DLQEntry;
+import com.pramithamj.kafka.dlq.DLQReplayer;
+import com.pramithamj.kafka.dlq.DLQStore;
+import com.pramithamj.kafka.flow.FlowController;
+import com.pramithamj.kafka.retry.RetryHandler;
+import com.pramithamj.kafka.state.AggregationStateManager;
+import com.pramithamj.kafka.state.PartitionCheckpoint;
+import com.pramithamj.kafka.stats.StatsStream;
 import lombok.RequiredArgsConstructor;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * REST controller for monitoring consumer service
@@ -20,8 +44,18 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class ConsumerController {
 
+    private static final int MAX_DLQ_PAGE_SIZE = 500;
+
     private final OrderConsumer orderConsumer;
     private final RunningAverageCalculator averageCalculator;
+    private final WindowedPriceAggregator windowedAggregator;
+    private final PriceQuantileTracker quantileTracker;
+    private final AggregationStateManager stateManager;
+    private final FlowController flowController;
+    private final DLQStore dlqStore;
+    private final DLQReplayer dlqReplayer;
+    private final RetryHandler retryHandler;
+    private final StatsStream statsStream;
 
     /**
      * Health check endpoint
@@ -35,24 +69,58 @@ public class ConsumerController {
     }
 
     /**
-     * Get consumer statistics
+     * Get consumer statistics.
+     *
+     * scope=local (default) covers the partitions assigned to this instance and flags when
+     * that is only part of the topic; scope=global combines the state of every partition.
      */
     @GetMapping("/stats")
-    public ResponseEntity<Map<String, Object>> getStatistics() {
+    public ResponseEntity<Map<String, Object>> getStatistics(
+            @RequestParam(defaultValue = "local") String scope) {
+        if ("global".equals(scope)) {
+            return ResponseEntity.ok(getGlobalStatistics());
+        }
+        if (!"local".equals(scope)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        RunningAverageCalculator.Snapshot snapshot = averageCalculator.snapshot();
+        List<Integer> assigned = stateManager.getAssignedPartitions().stream()
+                .map(TopicPartition::partition)
+                .sorted()
+                .toList();
         Map<String, Object> stats = new HashMap<>();
-        stats.put("ordersProcessed", averageCalculator.getOrderCount());
-        stats.put("totalAmount", averageCalculator.getTotalAmount());
-        stats.put("runningAverage", averageCalculator.getCurrentAverage());
+        stats.put("scope", "local");
+        stats.put("ordersProcessed", snapshot.count());
+        stats.put("totalAmount", snapshot.totalAmount());
+        stats.put("runningAverage", snapshot.average());
+        stats.put("assignedPartitions", assigned);
+        stats.put("partitionCount", stateManager.getPartitionCount());
+        stats.put("partial", assigned.size() < stateManager.getPartitionCount());
         stats.put("detailedStats", orderConsumer.getStatistics());
         return ResponseEntity.ok(stats);
     }
 
+    /**
+     * Stream this instance's statistics as Server-Sent Events: a "snapshot" event with all
+     * fields, then a "delta" event with the changed fields whenever something changes
+     * (see StatsStream). Returns 503 when the subscriber limit is reached.
+     */
+    @GetMapping(value = "/stats/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamStatistics() {
+        return statsStream.subscribe()
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+    }
+
     /**
      * Reset statistics
      */
     @PostMapping("/stats/reset")
     public ResponseEntity<Map<String, String>> resetStatistics() {
         averageCalculator.reset();
+        quantileTracker.reset();
+        stateManager.reset();
         Map<String, String> response = new HashMap<>();
         response.put("message", "Statistics reset successfully");
         return ResponseEntity.ok(response);
@@ -63,11 +131,205 @@ public class ConsumerController {
      */
     @GetMapping("/average")
     public ResponseEntity<Map<String, Object>> getRunningAverage() {
+        RunningAverageCalculator.Snapshot snapshot = averageCalculator.snapshot();
         Map<String, Object> average = new HashMap<>();
-        average.put("currentAverage", averageCalculator.getCurrentAverage());
-        average.put("orderCount", averageCalculator.getOrderCount());
-        average.put("totalAmount", averageCalculator.getTotalAmount());
+        average.put("currentAverage", snapshot.average());
+        average.put("orderCount", snapshot.count());
+        average.put("totalAmount", snapshot.totalAmount());
         average.put("statistics", averageCalculator.getStatistics());
         return ResponseEntity.ok(average);
     }
+
+    /**
+     * Get windowed price statistics per product
+     * (1-minute tumbling windows and the latest 5-minute window sliding every 10s)
+     */
+    @GetMapping("/aggregates")
+    public ResponseEntity<Map<String, Object>> getAggregates() {
+        Map<String, Object> aggregates = new HashMap<>();
+        aggregates.put("watermark", windowedAggregator.getWatermark());
+        aggregates.put("gracePeriodMs", windowedAggregator.getGracePeriodMs());
+        aggregates.put("lateEventsDropped", windowedAggregator.getLateEventsDropped());
+        aggregates.put("tumbling1m", windowedAggregator.getTumblingWindows());
+        aggregates.put("sliding5m", windowedAggregator.getSlidingWindows());
+        return ResponseEntity.ok(aggregates);
+    }
+
+    /**
+     * Get global and per-product price percentiles (p50/p95/p99)
+     */
+    @GetMapping("/quantiles")
+    public ResponseEntity<Map<String, Object>> getQuantiles() {
+        Map<String, Object> quantiles = new HashMap<>();
+        quantiles.put("global", PriceQuantileTracker.summarize(quantileTracker.getGlobalSketch()));
+        quantiles.put("products", quantileTracker.summarizeProducts());
+        return ResponseEntity.ok(quantiles);
+    }
+
+    /**
+     * Get the serialized price sketch (global, or for one product) so that results from
+     * several consumer instances can be merged with DDSketch.fromBytes / merge
+     */
+    @GetMapping(value = "/quantiles/sketch", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<byte[]> getQuantileSketch(@RequestParam(required = false) String product) {
+        DDSketch sketch = product == null
+                ? quantileTracker.getGlobalSketch()
+                : quantileTracker.getProductSketch(product);
+        return ResponseEntity.ok(sketch.toBytes());
+    }
+
+    /**
+     * Get the flow control thresholds, last load sample and paused containers
+     */
+    @GetMapping("/flow")
+    public ResponseEntity<Map<String, Object>> getFlowControl() {
+        return ResponseEntity.ok(flowController.getStatus());
+    }
+
+    /**
+     * Query the orders dead-lettered to this instance's DLQ store, newest first.
+     * from/to are epoch milliseconds (to exclusive); status is all, pending or replayed.
+     */
+    @GetMapping("/dlq")
+    public ResponseEntity<Map<String, Object>> getDlqEntries(
+            @RequestParam(required = false) String orderId,
+            @RequestParam(required = false) String product,
+            @RequestParam(required = false) Long from,
+            @RequestParam(required = false) Long to,
+            @RequestParam(defaultValue = "all") String status,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size) {
+        DLQStore.Status parsedStatus = parseStatus(status);
+        if (parsedStatus == null || page < 0 || size < 1 || size > MAX_DLQ_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        DLQStore.Page result = dlqStore.query(new DLQStore.Filter(orderId, product, from, to, parsedStatus), page, size);
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("entries", result.entries());
+        response.put("page", result.page());
+        response.put("size", result.size());
+        response.put("total", result.total());
+        response.put("totalPages", (result.total() + size - 1) / size);
+        response.put("storeSize", dlqStore.size());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Get one DLQ store entry
+     */
+    @GetMapping("/dlq/{id}")
+    public ResponseEntity<DLQEntry> getDlqEntry(@PathVariable long id) {
+        return ResponseEntity.of(dlqStore.get(id));
+    }
+
+    /**
+     * Republish the pending DLQ entries matching the filter to the orders topic, oldest
+     * first, at ratePerSecond (default kafka.dlq.replay.rate-per-second)
+     */
+    @PostMapping("/dlq/replay")
+    public ResponseEntity<Map<String, Object>> replayDlq(
+            @RequestParam(required = false) String orderId,
+            @RequestParam(required = false) String product,
+            @RequestParam(required = false) Long from,
+            @RequestParam(required = false) Long to,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) Integer ratePerSecond) {
+        if (limit != null && limit < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            DLQStore.Filter filter = new DLQStore.Filter(orderId, product, from, to, DLQStore.Status.PENDING);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(dlqReplayer.start(filter, limit, ratePerSecond));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Get the progress of the running or last DLQ replay
+     */
+    @GetMapping("/dlq/replay")
+    public ResponseEntity<Map<String, Object>> getDlqReplay() {
+        return ResponseEntity.ok(dlqReplayer.getStatus());
+    }
+
+    /**
+     * Stop the running DLQ replay; entries sent so far stay marked as replayed
+     */
+    @DeleteMapping("/dlq/replay")
+    public ResponseEntity<Map<String, Object>> cancelDlqReplay() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("cancelled", dlqReplayer.cancel());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Get the last orders this instance sent to a retry tier, newest first
+     */
+    @GetMapping("/retry")
+    public ResponseEntity<List<Map<String, Object>>> getRecentRetries() {
+        return ResponseEntity.ok(retryHandler.getRecentRetries());
+    }
+
+    private static DLQStore.Status parseStatus(String status) {
+        try {
+            return DLQStore.Status.valueOf(status.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Combine the per-partition states of the whole consumer group. Orders that only
+     * succeeded through the retry topics are not included.
+     */
+    private Map<String, Object> getGlobalStatistics() {
+        Map<TopicPartition, PartitionCheckpoint> checkpoints = stateManager.getClusterCheckpoints();
+        Set<TopicPartition> local = stateManager.getAssignedPartitions();
+
+        long count = 0;
+        long totalInCents = 0;
+        DDSketch prices = null;
+        List<Map<String, Object>> partitions = new ArrayList<>();
+        List<PartitionCheckpoint> sorted = checkpoints.values().stream()
+                .sorted(Comparator.comparingInt(PartitionCheckpoint::partition))
+                .toList();
+        for (PartitionCheckpoint checkpoint : sorted) {
+            TopicPartition topicPartition = new TopicPartition(checkpoint.topic(), checkpoint.partition());
+            count += checkpoint.count();
+            totalInCents += checkpoint.totalInCents();
+            for (byte[] sketch : checkpoint.productSketches().values()) {
+                DDSketch decoded = DDSketch.fromBytes(sketch);
+                if (prices == null) {
+                    prices = decoded;
+                } else {
+                    prices.merge(decoded);
+                }
+            }
+
+            Map<String, Object> partition = new LinkedHashMap<>();
+            partition.put("partition", checkpoint.partition());
+            partition.put("owner", local.contains(topicPartition) ? "local" : "remote");
+            partition.put("ordersProcessed", checkpoint.count());
+            partition.put("offset", checkpoint.contiguousOffset());
+            partitions.add(partition);
+        }
+
+        RunningAverageCalculator.Snapshot totals = new RunningAverageCalculator.Snapshot(count, totalInCents);
+        int partitionCount = Math.max(stateManager.getPartitionCount(), checkpoints.size());
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("scope", "global");
+        stats.put("ordersProcessed", totals.count());
+        stats.put("totalAmount", totals.totalAmount());
+        stats.put("runningAverage", totals.average());
+        stats.put("quantiles", prices != null ? PriceQuantileTracker.summarize(prices) : Map.of());
+        stats.put("partitionCount", partitionCount);
+        stats.put("partitionsCovered", checkpoints.size());
+        stats.put("complete", partitionCount > 0 && checkpoints.size() == partitionCount);
+        stats.put("partitions", partitions);
+        return stats;
+    }
 }
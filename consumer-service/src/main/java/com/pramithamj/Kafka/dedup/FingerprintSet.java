@@ -0,0 +1,256 @@
+package com.pramithamj.kafka.dedup;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Memory-bounded set of recently seen keys, stored as fingerprints in open-addressed
+ * primitive arrays instead of as strings.
+ *
+ * Each slot holds a 64-bit fingerprint of the key and an independent 32-bit check hash
+ * (12 bytes). A key is present only if both match; a slot whose fingerprint matches but
+ * whose check does not is a collision that a fingerprint-only set would have reported as a
+ * false positive. Those are counted and treated as misses, so the set only errs if both
+ * hashes collide.
+ *
+ * Keys are spread over segments, each behind its own monitor. A segment has two
+ * generations of the same size: keys are added to the current one, and when it reaches
+ * 75% load or has been current for the retention period it becomes the previous one,
+ * replacing (and reusing the arrays of) the old previous generation. A key is therefore
+ * remembered for at least the retention period unless more keys than one generation holds
+ * arrive in the meantime, and memory never exceeds the budget, however many distinct keys
+ * are seen.
+ */
+public class FingerprintSet {
+
+    static final int BYTES_PER_SLOT = Long.BYTES + Integer.BYTES;
+
+    private static final int DEFAULT_SEGMENTS = 64;
+    private static final long EMPTY = 0L;
+
+    private final Segment[] segments;
+    private final int segmentShift;
+    private final long retentionMs;
+    private final LongSupplier clock;
+    private final LongAdder falsePositives = new LongAdder();
+
+    public FingerprintSet(long memoryBudgetBytes, long retentionMs) {
+        this(DEFAULT_SEGMENTS, memoryBudgetBytes, retentionMs, System::currentTimeMillis);
+    }
+
+    /**
+     * @param segmentCount Number of segments, a power of two
+     */
+    FingerprintSet(int segmentCount, long memoryBudgetBytes, long retentionMs, LongSupplier clock) {
+        if (Integer.bitCount(segmentCount) != 1) {
+            throw new IllegalArgumentException("segmentCount must be a power of two: " + segmentCount);
+        }
+        long slots = memoryBudgetBytes / (2L * segmentCount * BYTES_PER_SLOT);
+        if (slots < 4 || slots > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Memory budget out of range: " + memoryBudgetBytes + " bytes");
+        }
+        this.segments = new Segment[segmentCount];
+        this.segmentShift = 64 - Integer.numberOfTrailingZeros(segmentCount);
+        this.retentionMs = retentionMs;
+        this.clock = clock;
+        long now = clock.getAsLong();
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment((int) slots, now);
+        }
+    }
+
+    /**
+     * @return true if the key was added within the retention period and not evicted since
+     */
+    public boolean contains(String key) {
+        long fingerprint = fingerprint(key);
+        int check = check(key);
+        Segment segment = segmentFor(fingerprint);
+        synchronized (segment) {
+            segment.rotateIfExpired(clock.getAsLong(), retentionMs);
+            return segment.find(segment.fingerprints, segment.checks, fingerprint, check) >= 0
+                    || segment.find(segment.previousFingerprints, segment.previousChecks, fingerprint, check) >= 0;
+        }
+    }
+
+    /**
+     * Add a key, or leave it in place if it is already present
+     *
+     * @return true if the key was not present
+     */
+    public boolean add(String key) {
+        long fingerprint = fingerprint(key);
+        int check = check(key);
+        Segment segment = segmentFor(fingerprint);
+        synchronized (segment) {
+            segment.rotateIfExpired(clock.getAsLong(), retentionMs);
+            if (segment.find(segment.fingerprints, segment.checks, fingerprint, check) >= 0
+                    || segment.find(segment.previousFingerprints, segment.previousChecks, fingerprint, check) >= 0) {
+                return false;
+            }
+            segment.insert(fingerprint, check, clock.getAsLong());
+            return true;
+        }
+    }
+
+    /**
+     * @return Fingerprint matches rejected by the check hash since creation
+     */
+    public long getFalsePositives() {
+        return falsePositives.sum();
+    }
+
+    /**
+     * @return Keys currently held in both generations (an upper bound while they overlap)
+     */
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size + segment.previousSize;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return Bytes allocated for fingerprints and check hashes, fixed at creation
+     */
+    public long memoryBytes() {
+        return 2L * segments.length * segments[0].fingerprints.length * BYTES_PER_SLOT;
+    }
+
+    /**
+     * @return Keys each generation holds before it rotates
+     */
+    public long generationCapacity() {
+        return (long) segments.length * segments[0].maxSize;
+    }
+
+    private Segment segmentFor(long fingerprint) {
+        return segments.length == 1 ? segments[0] : segments[(int) (fingerprint >>> segmentShift)];
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-16 chars, finished with the MurmurHash3 fmix64 mixer.
+     * Never returns EMPTY.
+     */
+    static long fingerprint(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash = (hash ^ key.charAt(i)) * 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash == EMPTY ? 1L : hash;
+    }
+
+    /**
+     * String.hashCode (cached by the string) through the MurmurHash3 fmix32 mixer
+     */
+    static int check(String key) {
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    /**
+     * Two generations of linear-probing tables. Guarded by its own monitor.
+     */
+    private final class Segment {
+
+        final int maxSize;
+        long[] fingerprints;
+        int[] checks;
+        long[] previousFingerprints;
+        int[] previousChecks;
+        int size;
+        int previousSize;
+        long startedMs;
+
+        Segment(int slots, long now) {
+            this.maxSize = slots * 3 / 4;
+            this.fingerprints = new long[slots];
+            this.checks = new int[slots];
+            this.previousFingerprints = new long[slots];
+            this.previousChecks = new int[slots];
+            this.startedMs = now;
+        }
+
+        /**
+         * @return Slot holding the key, or -1
+         */
+        int find(long[] table, int[] tableChecks, long fingerprint, int check) {
+            int slot = home(fingerprint, table.length);
+            while (true) {
+                long stored = table[slot];
+                if (stored == EMPTY) {
+                    return -1;
+                }
+                if (stored == fingerprint) {
+                    if (tableChecks[slot] == check) {
+                        return slot;
+                    }
+                    falsePositives.increment();
+                }
+                slot = slot + 1 == table.length ? 0 : slot + 1;
+            }
+        }
+
+        void insert(long fingerprint, int check, long now) {
+            int slot = home(fingerprint, fingerprints.length);
+            while (fingerprints[slot] != EMPTY) {
+                slot = slot + 1 == fingerprints.length ? 0 : slot + 1;
+            }
+            fingerprints[slot] = fingerprint;
+            checks[slot] = check;
+            if (++size >= maxSize) {
+                rotate(now);
+            }
+        }
+
+        void rotateIfExpired(long now, long retentionMs) {
+            long age = now - startedMs;
+            if (age >= retentionMs) {
+                rotate(now);
+                if (age >= 2 * retentionMs) {
+                    // Idle for two retention periods: the previous generation has expired too
+                    rotate(now);
+                }
+            }
+        }
+
+        /**
+         * Current generation becomes previous; the old previous arrays are cleared and reused
+         */
+        private void rotate(long now) {
+            long[] freeFingerprints = previousFingerprints;
+            int[] freeChecks = previousChecks;
+            previousFingerprints = fingerprints;
+            previousChecks = checks;
+            previousSize = size;
+            Arrays.fill(freeFingerprints, EMPTY);
+            Arrays.fill(freeChecks, 0);
+            fingerprints = freeFingerprints;
+            checks = freeChecks;
+            size = 0;
+            startedMs = now;
+        }
+
+        /**
+         * Map the fingerprint's low 32 bits onto [0, slots) without a modulo; the high bits
+         * already picked the segment
+         */
+        private static int home(long fingerprint, int slots) {
+            return (int) (((fingerprint & 0xffffffffL) * slots) >>> 32);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.pramithamj.kafka.dedup;
+
+import com.pramithamj.kafka.model.Order;
+import com.pramithamj.kafka.state.AggregationStateManager;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Skips orders whose orderId was already handled, so redelivered records (after a
+ * rebalance, a crash or a failed commit) and resubmitted orders are not processed or
+ * counted twice.
+ *
+ * Handled orderIds are kept in a FingerprintSet sized by kafka.consumer.dedup.memory-budget-bytes
+ * and evicted after kafka.consumer.dedup.retention-ms or when a generation fills up. On
+ * assignment the set is pre-warmed with the keys of the partition's last warmup-records
+ * handled records, which relies on producers keying orders by orderId.
+ *
+ * Must be registered after AggregationStateManager, whose restored offsets bound the warm-up.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OrderDeduplicator implements ConsumerAwareRebalanceListener {
+
+    private final ConsumerFactory<String, byte[]> changelogConsumerFactory;
+    private final AggregationStateManager stateManager;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${kafka.topic.orders}")
+    private String ordersTopic;
+
+    @Value("${kafka.consumer.dedup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${kafka.consumer.dedup.memory-budget-bytes:67108864}")
+    private long memoryBudgetBytes;
+
+    @Value("${kafka.consumer.dedup.retention-ms:3600000}")
+    private long retentionMs;
+
+    @Value("${kafka.consumer.dedup.warmup-records:10000}")
+    private int warmupRecords;
+
+    @Value("${kafka.consumer.dedup.warmup-timeout-ms:10000}")
+    private long warmupTimeoutMs;
+
+    private FingerprintSet seen;
+    private Counter hits;
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            return;
+        }
+        seen = new FingerprintSet(memoryBudgetBytes, retentionMs);
+        hits = Counter.builder("orders.consumer.dedup.hits")
+                .description("Orders skipped because their orderId was already handled")
+                .register(meterRegistry);
+        FunctionCounter.builder("orders.consumer.dedup.false.positives", seen, FingerprintSet::getFalsePositives)
+                .description("Fingerprint matches rejected by the check hash")
+                .register(meterRegistry);
+        Gauge.builder("orders.consumer.dedup.keys", seen, FingerprintSet::size)
+                .description("OrderIds held by the dedup cache")
+                .register(meterRegistry);
+        Gauge.builder("orders.consumer.dedup.memory", seen, FingerprintSet::memoryBytes)
+                .description("Memory allocated by the dedup cache")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        log.info("Order dedup cache: budget={} bytes, allocated={} bytes, keys per generation={}, retention={}ms",
+                memoryBudgetBytes, seen.memoryBytes(), seen.generationCapacity(), retentionMs);
+    }
+
+    /**
+     * @return true if the order was already handled and should be skipped
+     */
+    public boolean isDuplicate(Order order) {
+        if (seen == null || !seen.contains(order.getOrderId())) {
+            return false;
+        }
+        hits.increment();
+        return true;
+    }
+
+    /**
+     * Remember an order once it has been processed or forwarded to a retry tier. Inside a
+     * Kafka transaction this waits for the commit, so an aborted transaction leaves the
+     * redelivered order to be processed again.
+     */
+    public void markHandled(Order order) {
+        if (seen == null) {
+            return;
+        }
+        String orderId = order.getOrderId();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    seen.add(orderId);
+                }
+            });
+        } else {
+            seen.add(orderId);
+        }
+    }
+
+    /**
+     * Add the keys of each newly assigned partition's last handled records: the
+     * warmup-records before the committed offset, and anything between the commit and the
+     * offset the restored checkpoint shows as handled.
+     */
+    @Override
+    public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        if (seen == null || warmupRecords <= 0) {
+            return;
+        }
+        Map<TopicPartition, Long> ends = new HashMap<>();
+        for (TopicPartition partition : partitions) {
+            if (!ordersTopic.equals(partition.topic())) {
+                continue;
+            }
+            OffsetAndMetadata committed = consumer.committed(Set.of(partition)).get(partition);
+            long end = Math.max(committed != null ? committed.offset() : 0, stateManager.handledThrough(partition) + 1);
+            if (end > 0) {
+                ends.put(partition, end);
+            }
+        }
+        if (!ends.isEmpty()) {
+            warmUp(ends);
+        }
+    }
+
+    private void warmUp(Map<TopicPartition, Long> ends) {
+        long start = System.nanoTime();
+        long added = 0;
+        try (Consumer<String, byte[]> warmup = changelogConsumerFactory.createConsumer(null, "dedup-warmup")) {
+            warmup.assign(ends.keySet());
+            Map<TopicPartition, Long> beginnings = warmup.beginningOffsets(ends.keySet());
+            Map<TopicPartition, Long> remaining = new HashMap<>();
+            ends.forEach((partition, end) -> {
+                long from = Math.max(beginnings.getOrDefault(partition, 0L), end - warmupRecords);
+                if (from < end) {
+                    warmup.seek(partition, from);
+                    remaining.put(partition, end);
+                }
+            });
+            warmup.pause(ends.keySet().stream().filter(partition -> !remaining.containsKey(partition)).toList());
+
+            long deadline = System.currentTimeMillis() + warmupTimeoutMs;
+            while (!remaining.isEmpty()) {
+                if (System.currentTimeMillis() > deadline) {
+                    log.warn("Dedup warm-up timed out after {}ms, partitions not finished={}",
+                            warmupTimeoutMs, remaining.keySet());
+                    break;
+                }
+                for (ConsumerRecord<String, byte[]> record : warmup.poll(Duration.ofMillis(200))) {
+                    Long end = remaining.get(new TopicPartition(record.topic(), record.partition()));
+                    if (end != null && record.offset() < end && record.key() != null) {
+                        seen.add(record.key());
+                        added++;
+                    }
+                }
+                remaining.entrySet().removeIf(entry -> {
+                    if (warmup.position(entry.getKey()) >= entry.getValue()) {
+                        warmup.pause(Set.of(entry.getKey()));
+                        return true;
+                    }
+                    return false;
+                });
+            }
+        } catch (RuntimeException e) {
+            // Warm-up only narrows the window for duplicates; assignment goes ahead without it
+            log.warn("Dedup warm-up failed: partitions={}, error={}", ends.keySet(), e.getMessage());
+        }
+        log.info("Dedup cache warmed up: partitions={}, keys={}, took={}ms",
+                ends.size(), added, (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -0,0 +1,87 @@
+package com.pramithamj.kafka.dlq;
+
+import com.pramithamj.kafka.model.Order;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * An order that failed all processing attempts, as kept by the DLQ store
+ *
+ * @param id Position in the store, increasing in failure-time order
+ * @param failedAt When the last attempt failed (epoch ms)
+ * @param orderId Failed order id
+ * @param product Failed order product
+ * @param price Failed order price
+ * @param orderTimestamp Failed order creation time (epoch ms)
+ * @param retryCount Retry attempts made before the order was dead-lettered
+ * @param errorType Class of the final exception
+ * @param errorMessage Message of the final exception
+ * @param dlqPartition orders-dlq partition the entry was read from
+ * @param dlqOffset orders-dlq offset the entry was read from
+ * @param replayedAt When the entry was republished to the orders topic, 0 if it was not
+ */
+public record DLQEntry(long id, long failedAt, String orderId, String product, float price, long orderTimestamp,
+                       int retryCount, String errorType, String errorMessage, int dlqPartition, long dlqOffset,
+                       long replayedAt) {
+
+    // Bounds the encoded size of an entry; longer strings are truncated
+    static final int MAX_STRING_LENGTH = 1024;
+
+    /**
+     * Rebuild the order to republish it
+     */
+    public Order toOrder() {
+        return Order.newBuilder()
+                .setOrderId(orderId)
+                .setProduct(product)
+                .setPrice(price)
+                .setTimestamp(orderTimestamp)
+                .build();
+    }
+
+    DLQEntry withId(long id) {
+        return new DLQEntry(id, failedAt, orderId, product, price, orderTimestamp, retryCount,
+                errorType, errorMessage, dlqPartition, dlqOffset, replayedAt);
+    }
+
+    DLQEntry withFailedAt(long failedAt) {
+        return new DLQEntry(id, failedAt, orderId, product, price, orderTimestamp, retryCount,
+                errorType, errorMessage, dlqPartition, dlqOffset, replayedAt);
+    }
+
+    DLQEntry withReplayedAt(long replayedAt) {
+        return new DLQEntry(id, failedAt, orderId, product, price, orderTimestamp, retryCount,
+                errorType, errorMessage, dlqPartition, dlqOffset, replayedAt);
+    }
+
+    /**
+     * Everything but the id, which is implied by the position in the log, and the replay
+     * time, which is logged separately
+     */
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeLong(failedAt);
+        out.writeUTF(truncate(orderId));
+        out.writeUTF(truncate(product));
+        out.writeFloat(price);
+        out.writeLong(orderTimestamp);
+        out.writeInt(retryCount);
+        out.writeUTF(truncate(errorType));
+        out.writeUTF(truncate(errorMessage));
+        out.writeInt(dlqPartition);
+        out.writeLong(dlqOffset);
+    }
+
+    static DLQEntry readFrom(DataInputStream in, long id) throws IOException {
+        return new DLQEntry(id, in.readLong(), in.readUTF(), in.readUTF(), in.readFloat(), in.readLong(),
+                in.readInt(), in.readUTF(), in.readUTF(), in.readInt(), in.readLong(), 0);
+    }
+
+    private static String truncate(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.length() > MAX_STRING_LENGTH ? value.substring(0, MAX_STRING_LENGTH) : value;
+    }
+}
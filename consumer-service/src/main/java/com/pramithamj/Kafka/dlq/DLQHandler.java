@@ -1,21 +1,43 @@
 package com.pramithamj.kafka.dlq;
 
+import com.pramithamj.kafka.events.OrderEventLog;
+import com.pramithamj.kafka.metrics.ConsumerMetrics;
 import com.pramithamj.kafka.model.Order;
+import com.pramithamj.kafka.retry.RetryHandler;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeaders;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
 /**
- * Dead Letter Queue handler for orders that failed all retry attempts
+ * Dead Letter Queue handler for orders that failed all retry attempts.
+ *
+ * DLQ records carry the final exception, the retry count and the failure time as headers,
+ * and are kept in the local DLQStore when consumed from orders-dlq.
  */
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class DLQHandler {
 
+    public static final String ERROR_TYPE_HEADER = "dlq-error-type";
+    public static final String ERROR_MESSAGE_HEADER = "dlq-error-message";
+    public static final String FAILED_AT_HEADER = "dlq-failed-at";
+    // Set on orders republished from the DLQ store, with the entry id
+    public static final String REPLAY_HEADER = "dlq-replay";
+
     private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final ConsumerMetrics metrics;
+    private final DLQStore store;
+    private final OrderEventLog eventLog;
 
     @Value("${kafka.topic.orders-dlq}")
     private String dlqTopic;
@@ -28,23 +50,24 @@ public class DLQHandler {
      * @param retryCount Number of retry attempts made
      */
     public void sendToDLQ(Order order, Exception exception, int retryCount) {
-        log.error("Sending order to DLQ: orderId={}, retryCount={}, finalError={}", 
-                order.getOrderId(), retryCount, exception.getMessage());
+        RecordHeaders headers = new RecordHeaders();
+        headers.add(ERROR_TYPE_HEADER, utf8(exception.getClass().getName()));
+        headers.add(ERROR_MESSAGE_HEADER, utf8(String.valueOf(exception.getMessage())));
+        headers.add(RetryHandler.RETRY_COUNT_HEADER, utf8(String.valueOf(retryCount)));
+        headers.add(FAILED_AT_HEADER, utf8(String.valueOf(System.currentTimeMillis())));
 
         try {
-            kafkaTemplate.send(dlqTopic, order.getOrderId().toString(), order)
+            kafkaTemplate.send(new ProducerRecord<>(dlqTopic, null, order.getOrderId().toString(), order, headers))
                 .whenComplete((result, ex) -> {
+                    metrics.recordDlq(ex == null);
                     if (ex == null) {
-                        log.info("Order sent to DLQ successfully: orderId={}, partition={}, offset={}", 
-                                order.getOrderId(),
-                                result.getRecordMetadata().partition(),
-                                result.getRecordMetadata().offset());
-                        
-                        // In a real system, you might want to:
+                        // One structured event, sampled as a failure (all of them by default).
+                        // In a real system, you might also want to:
                         // - Send an alert/notification
-                        // - Store error details in a database
                         // - Create a monitoring event
-                        logDLQAlert(order, exception, retryCount);
+                        eventLog.record(OrderEventLog.Type.DLQ_SENT, order, dlqTopic,
+                                result.getRecordMetadata().partition(), result.getRecordMetadata().offset(),
+                                retryCount, exception);
                     } else {
                         log.error("CRITICAL: Failed to send order to DLQ: orderId={}, error={}", 
                                 order.getOrderId(), ex.getMessage(), ex);
@@ -53,45 +76,50 @@ public class DLQHandler {
                     }
                 });
         } catch (Exception e) {
+            metrics.recordDlq(false);
             log.error("CRITICAL: Exception while sending to DLQ: orderId={}", 
                     order.getOrderId(), e);
         }
     }
 
     /**
-     * Log an alert for DLQ entries
-     * In production, this would trigger monitoring/alerting systems
+     * Keep a record consumed from orders-dlq in the DLQ store. Records sent before the
+     * failure headers existed are stored with what is known.
+     *
+     * @return The stored entry, or empty if the record was already stored
      */
-    private void logDLQAlert(Order order, Exception exception, int retryCount) {
-        log.warn("═══════════════════════════════════════════════════════════");
-        log.warn("⚠️  DLQ ALERT - Order Failed All Processing Attempts");
-        log.warn("═══════════════════════════════════════════════════════════");
-        log.warn("Order ID:       {}", order.getOrderId());
-        log.warn("Product:        {}", order.getProduct());
-        log.warn("Price:          ${}", order.getPrice());
-        log.warn("Retry Count:    {}", retryCount);
-        log.warn("Final Error:    {}", exception.getMessage());
-        log.warn("Timestamp:      {}", new java.util.Date(order.getTimestamp()));
-        log.warn("═══════════════════════════════════════════════════════════");
-        
-        // In production, trigger:
-        // - Email alerts to operations team
-        // - PagerDuty/Slack notifications
-        // - Metrics/Dashboard updates
-        // - Database logging for investigation
+    public Optional<DLQEntry> store(ConsumerRecord<String, Order> record) {
+        Order order = record.value();
+        String failedAt = header(record, FAILED_AT_HEADER);
+        String retryCount = header(record, RetryHandler.RETRY_COUNT_HEADER);
+        DLQEntry entry = new DLQEntry(0,
+                failedAt != null ? Long.parseLong(failedAt) : record.timestamp(),
+                order.getOrderId().toString(),
+                order.getProduct().toString(),
+                order.getPrice(),
+                order.getTimestamp(),
+                retryCount != null ? Integer.parseInt(retryCount) : 0,
+                Optional.ofNullable(header(record, ERROR_TYPE_HEADER)).orElse("unknown"),
+                Optional.ofNullable(header(record, ERROR_MESSAGE_HEADER)).orElse(""),
+                record.partition(),
+                record.offset(),
+                0);
+        return store.append(entry);
     }
 
     /**
-     * Process a message from the DLQ (for manual recovery)
-     * 
-     * @param order The order from DLQ to reprocess
+     * @return true if the record is an order republished from the DLQ store
      */
-    public void reprocessFromDLQ(Order order) {
-        log.info("Attempting to reprocess order from DLQ: orderId={}", order.getOrderId());
-        // Implementation would depend on business requirements
-        // This could involve:
-        // - Manual validation
-        // - Data correction
-        // - Republishing to main topic
+    public static boolean isReplay(ConsumerRecord<?, ?> record) {
+        return record.headers().lastHeader(REPLAY_HEADER) != null;
+    }
+
+    private static String header(ConsumerRecord<?, ?> record, String name) {
+        Header header = record.headers().lastHeader(name);
+        return header != null ? new String(header.value(), StandardCharsets.UTF_8) : null;
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
     }
 }
@@ -0,0 +1,249 @@
+package com.pramithamj.kafka.dlq;
+
+import com.pramithamj.kafka.metrics.ConsumerMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Republishes selected DLQ store entries to the orders topic, one replay at a time.
+ *
+ * The pending entries matching the filter are selected when the replay starts, oldest
+ * first, and sent in chunks paced to the requested rate so a large replay does not flood
+ * the orders topic. Each entry is marked replayed once its send is acknowledged, so a
+ * replay that is cancelled or fails can be started again without sending anything twice.
+ * Republished orders carry the dlq-replay header, which lets them past the orderId dedup
+ * cache that skipped them as already handled.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DLQReplayer {
+
+    public enum State { RUNNING, COMPLETED, CANCELLED, FAILED }
+
+    private final DLQStore store;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final ConsumerMetrics metrics;
+
+    @Value("${kafka.topic.orders}")
+    private String ordersTopic;
+
+    @Value("${kafka.dlq.replay.rate-per-second:100}")
+    private int defaultRatePerSecond;
+
+    @Value("${kafka.dlq.replay.max-rate-per-second:1000}")
+    private int maxRatePerSecond;
+
+    @Value("${kafka.dlq.replay.max-entries:100000}")
+    private int maxEntries;
+
+    @Value("${kafka.dlq.replay.send-timeout-ms:30000}")
+    private long sendTimeoutMs;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("dlq-replay").daemon().factory());
+    private final AtomicInteger replayIds = new AtomicInteger();
+    private volatile Replay current;
+
+    /**
+     * Start replaying the pending entries matching the filter
+     *
+     * @param limit Entries to replay at most, capped at max-entries
+     * @param ratePerSecond Entries per second, or null for the default rate
+     * @return Status of the started replay
+     * @throws IllegalStateException if a replay is already running
+     * @throws IllegalArgumentException if the rate is out of range
+     */
+    public synchronized Map<String, Object> start(DLQStore.Filter filter, Integer limit, Integer ratePerSecond) {
+        if (current != null && current.state == State.RUNNING) {
+            throw new IllegalStateException("Replay " + current.id + " is still running");
+        }
+        int rate = ratePerSecond != null ? ratePerSecond : defaultRatePerSecond;
+        if (rate <= 0 || rate > maxRatePerSecond) {
+            throw new IllegalArgumentException("ratePerSecond must be between 1 and " + maxRatePerSecond);
+        }
+        List<Long> ids = store.selectPending(filter, limit != null ? Math.min(limit, maxEntries) : maxEntries);
+        Replay replay = new Replay(replayIds.incrementAndGet(), filter, rate, ids.size());
+        current = replay;
+        log.info("Starting DLQ replay {}: entries={}, rate={}/s, filter={}", replay.id, ids.size(), rate, filter);
+        executor.execute(() -> run(replay, ids));
+        return replay.toMap();
+    }
+
+    /**
+     * Stop the running replay after its current chunk
+     *
+     * @return false if no replay is running
+     */
+    public boolean cancel() {
+        Replay replay = current;
+        if (replay == null || replay.state != State.RUNNING) {
+            return false;
+        }
+        replay.cancelled = true;
+        return true;
+    }
+
+    /**
+     * Progress of the running or last replay
+     */
+    public Map<String, Object> getStatus() {
+        Replay replay = current;
+        return replay != null ? replay.toMap() : Map.of("state", "IDLE");
+    }
+
+    @PreDestroy
+    void shutdown() {
+        cancel();
+        executor.shutdownNow();
+    }
+
+    private void run(Replay replay, List<Long> ids) {
+        int chunkSize = Math.max(1, replay.rate / 10);
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < ids.size() && !replay.cancelled; i += chunkSize) {
+                // Chunk starting at entry i is due i / rate seconds after the start
+                long wait = start + (long) (i * 1_000_000_000.0 / replay.rate) - System.nanoTime();
+                if (wait > 0) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+                List<Long> chunkIds = ids.subList(i, Math.min(i + chunkSize, ids.size()));
+                List<DLQEntry> chunk = chunkIds.stream()
+                        .map(store::get)
+                        .flatMap(Optional::stream)
+                        // Replayed meanwhile, or deleted by retention
+                        .filter(entry -> entry.replayedAt() == 0)
+                        .toList();
+                replay.skipped.addAndGet(chunkIds.size() - chunk.size());
+                if (!chunk.isEmpty() && send(chunk, replay) == 0) {
+                    replay.finish(State.FAILED);
+                    return;
+                }
+            }
+            replay.finish(replay.cancelled ? State.CANCELLED : State.COMPLETED);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            replay.finish(State.CANCELLED);
+        } catch (RuntimeException e) {
+            log.error("DLQ replay {} failed", replay.id, e);
+            replay.error = e.getMessage();
+            replay.finish(State.FAILED);
+        }
+    }
+
+    /**
+     * Send a chunk, in one transaction when the template is transactional
+     *
+     * @return Entries sent
+     */
+    private int send(List<DLQEntry> chunk, Replay replay) throws InterruptedException {
+        List<ProducerRecord<String, Object>> records = chunk.stream().map(this::toRecord).toList();
+        List<CompletableFuture<SendResult<String, Object>>> sends;
+        try {
+            sends = kafkaTemplate.isTransactional()
+                    ? kafkaTemplate.executeInTransaction(operations -> records.stream().map(operations::send).toList())
+                    : records.stream().map(kafkaTemplate::send).toList();
+        } catch (RuntimeException e) {
+            log.error("DLQ replay {}: failed to send {} entries: {}", replay.id, chunk.size(), e.getMessage());
+            replay.error = e.getMessage();
+            replay.failed.addAndGet(chunk.size());
+            chunk.forEach(entry -> metrics.recordDlqReplay(false));
+            return 0;
+        }
+
+        int sent = 0;
+        for (int i = 0; i < chunk.size(); i++) {
+            DLQEntry entry = chunk.get(i);
+            try {
+                sends.get(i).get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+                store.markReplayed(entry.id());
+                replay.sent.incrementAndGet();
+                metrics.recordDlqReplay(true);
+                sent++;
+            } catch (ExecutionException | TimeoutException e) {
+                log.warn("DLQ replay {}: failed to republish orderId={}: {}", replay.id, entry.orderId(), e.getMessage());
+                replay.error = e.getMessage();
+                replay.failed.incrementAndGet();
+                metrics.recordDlqReplay(false);
+            }
+        }
+        return sent;
+    }
+
+    private ProducerRecord<String, Object> toRecord(DLQEntry entry) {
+        RecordHeaders headers = new RecordHeaders();
+        headers.add(DLQHandler.REPLAY_HEADER, String.valueOf(entry.id()).getBytes(StandardCharsets.UTF_8));
+        return new ProducerRecord<>(ordersTopic, null, entry.orderId(), entry.toOrder(), headers);
+    }
+
+    /**
+     * Progress of one replay, written by the replay thread and read by status requests
+     */
+    private static final class Replay {
+
+        final int id;
+        final DLQStore.Filter filter;
+        final int rate;
+        final int selected;
+        final long startedAt = System.currentTimeMillis();
+        final AtomicLong sent = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final AtomicLong skipped = new AtomicLong();
+        volatile State state = State.RUNNING;
+        volatile boolean cancelled;
+        volatile long finishedAt;
+        volatile String error;
+
+        Replay(int id, DLQStore.Filter filter, int rate, int selected) {
+            this.id = id;
+            this.filter = filter;
+            this.rate = rate;
+            this.selected = selected;
+        }
+
+        void finish(State state) {
+            finishedAt = System.currentTimeMillis();
+            this.state = state;
+            log.info("DLQ replay {} {}: selected={}, sent={}, failed={}, skipped={}, took={}ms",
+                    id, state, selected, sent.get(), failed.get(), skipped.get(), finishedAt - startedAt);
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("id", id);
+            status.put("state", state);
+            status.put("filter", filter);
+            status.put("ratePerSecond", rate);
+            status.put("selected", selected);
+            status.put("sent", sent.get());
+            status.put("failed", failed.get());
+            status.put("skipped", skipped.get());
+            status.put("startedAt", startedAt);
+            status.put("finishedAt", finishedAt > 0 ? finishedAt : null);
+            status.put("error", error);
+            return status;
+        }
+    }
+}
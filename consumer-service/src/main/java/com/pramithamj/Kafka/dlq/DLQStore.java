@@ -0,0 +1,667 @@
+package com.pramithamj.kafka.dlq;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongPredicate;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of dead-lettered orders on local disk, indexed in memory by orderId,
+ * product and failure time.
+ *
+ * The log is a directory of fixed-size, memory-mapped segment files named by a sequence number
+ * that grows with every segment, since a segment holding only REPLAYED records starts at the
+ * same id as the next one. Records are framed as [length][CRC32C][type][payload]: ENTRY records
+ * hold a DLQEntry and REPLAYED records mark an earlier entry as republished, so nothing is
+ * rewritten in place. Appends write to the mapped pages, which survive a process crash, and
+ * a segment is forced to disk when it fills up and on shutdown. On startup every segment is
+ * scanned to rebuild the indexes; the scan stops at the first torn or corrupt record.
+ *
+ * Ids are assigned in log order and failure times are clamped to be non-decreasing in that
+ * order, so a time range maps to an id range by binary search. Segments whose newest entry
+ * is older than retention-ms are deleted, but not before the entries their REPLAYED records
+ * refer to, so a replayed entry never reads as pending after a restart. The indexes take roughly 100 bytes of heap per
+ * entry, so retention also bounds memory.
+ */
+@Slf4j
+@Component
+public class DLQStore {
+
+    public enum Status { ALL, PENDING, REPLAYED }
+
+    /**
+     * Query criteria; null fields do not filter
+     *
+     * @param from Failed at or after (epoch ms)
+     * @param to Failed before (epoch ms)
+     */
+    public record Filter(String orderId, String product, Long from, Long to, Status status) {
+    }
+
+    /**
+     * One page of entries, newest first
+     *
+     * @param total Entries matching the filter across all pages
+     */
+    public record Page(List<DLQEntry> entries, long total, int page, int size) {
+    }
+
+    static final int MIN_SEGMENT_BYTES = 64 * 1024;
+
+    private static final int MAGIC = 0x4F444C51; // "ODLQ"
+    private static final int FORMAT_VERSION = 2;
+    private static final int HEADER_BYTES = 24; // magic, version, sequence, base id
+    private static final int FRAME_BYTES = 8; // length, CRC32C
+    private static final byte ENTRY = 1;
+    private static final byte REPLAYED = 2;
+    private static final String SUFFIX = ".dlq";
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final long retentionMs;
+    private final LongSupplier clock;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Oldest first; appends go to the last one
+    private final List<Segment> segments = new ArrayList<>();
+    private final Map<String, IdList> byOrderId = new HashMap<>();
+    private final Map<String, IdList> byProduct = new HashMap<>();
+    private final Map<Long, Long> replayedAt = new HashMap<>();
+    // orders-dlq partition -> highest offset stored, so redelivered records are not stored twice
+    private final Map<Integer, Long> storedOffsets = new HashMap<>();
+    private long nextId;
+    private long nextSequence;
+    private long lastFailedAt;
+
+    @Autowired
+    public DLQStore(@Value("${kafka.dlq.store.dir:./data/dlq}") String directory,
+                    @Value("${kafka.dlq.store.segment-bytes:16777216}") int segmentBytes,
+                    @Value("${kafka.dlq.store.retention-ms:604800000}") long retentionMs,
+                    MeterRegistry meterRegistry) {
+        this(directory, segmentBytes, retentionMs, System::currentTimeMillis);
+        Gauge.builder("orders.dlq.store.entries", this, DLQStore::size)
+                .description("Dead-lettered orders held by the local DLQ store")
+                .register(meterRegistry);
+        Gauge.builder("orders.dlq.store.size", this, DLQStore::diskBytes)
+                .description("Disk allocated by the DLQ store segments")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    DLQStore(String directory, int segmentBytes, long retentionMs, LongSupplier clock) {
+        if (segmentBytes < MIN_SEGMENT_BYTES) {
+            throw new IllegalArgumentException("DLQ segment size must be at least " + MIN_SEGMENT_BYTES
+                    + " bytes: " + segmentBytes);
+        }
+        this.directory = Paths.get(directory);
+        this.segmentBytes = segmentBytes;
+        this.retentionMs = retentionMs;
+        this.clock = clock;
+    }
+
+    /**
+     * Map the existing segments and rebuild the indexes
+     */
+    @PostConstruct
+    void open() {
+        lock.writeLock().lock();
+        try {
+            long start = System.nanoTime();
+            Files.createDirectories(directory);
+            List<Path> files;
+            try (Stream<Path> list = Files.list(directory)) {
+                // Zero-padded sequence numbers, so name order is log order
+                files = list.filter(file -> file.getFileName().toString().endsWith(SUFFIX)).sorted().toList();
+            }
+            for (int i = 0; i < files.size(); i++) {
+                Segment segment = Segment.open(files.get(i));
+                if (segment == null || segment.sequence < nextSequence || segment.baseId < nextId) {
+                    log.warn("Ignoring DLQ segment with unknown format or overlapping ids: {}", files.get(i));
+                    continue;
+                }
+                segments.add(segment);
+                nextSequence = segment.sequence + 1;
+                nextId = segment.baseId;
+                load(segment, i == files.size() - 1);
+            }
+            if (segments.isEmpty()) {
+                roll();
+            }
+            log.info("Opened DLQ store: dir={}, segments={}, entries={}, replayed={}, took={}ms",
+                    directory, segments.size(), size(), replayedAt.size(), (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open DLQ store " + directory, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        lock.writeLock().lock();
+        try {
+            if (!segments.isEmpty()) {
+                active().buffer.force();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Append an entry read from orders-dlq
+     *
+     * @return The stored entry with its id, or empty if that orders-dlq record was already stored
+     */
+    public Optional<DLQEntry> append(DLQEntry entry) {
+        lock.writeLock().lock();
+        try {
+            Long stored = storedOffsets.get(entry.dlqPartition());
+            if (stored != null && entry.dlqOffset() <= stored) {
+                return Optional.empty();
+            }
+            DLQEntry indexed = entry.withId(nextId).withFailedAt(Math.max(entry.failedAt(), lastFailedAt));
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(ENTRY);
+            indexed.writeTo(out);
+            out.flush();
+            Segment segment = write(bytes.toByteArray());
+            index(segment, segment.lastPosition, indexed);
+            return Optional.of(indexed);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to DLQ store " + directory, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Record that an entry was republished to the orders topic
+     *
+     * @return false if the entry does not exist or was already marked
+     */
+    public boolean markReplayed(long id) {
+        lock.writeLock().lock();
+        try {
+            if (locate(id) == null || replayedAt.containsKey(id)) {
+                return false;
+            }
+            long now = clock.getAsLong();
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(17);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(REPLAYED);
+            out.writeLong(id);
+            out.writeLong(now);
+            out.flush();
+            write(bytes.toByteArray()).marked(id);
+            replayedAt.put(id, now);
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to DLQ store " + directory, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Optional<DLQEntry> get(long id) {
+        lock.readLock().lock();
+        try {
+            return Optional.ofNullable(locate(id) != null ? read(id) : null);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Entries matching the filter, newest first
+     *
+     * @param page Zero-based page number
+     */
+    public Page query(Filter filter, int page, int size) {
+        lock.readLock().lock();
+        try {
+            long skip = (long) page * size;
+            List<DLQEntry> entries = new ArrayList<>(Math.min(size, 1024));
+            long[] total = new long[1];
+            forEachMatch(filter, true, id -> {
+                if (total[0] >= skip && entries.size() < size) {
+                    entries.add(read(id));
+                }
+                total[0]++;
+                return true;
+            });
+            return new Page(entries, total[0], page, size);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of the entries matching the filter that were not replayed yet, oldest first
+     */
+    public List<Long> selectPending(Filter filter, int limit) {
+        Filter pending = new Filter(filter.orderId(), filter.product(), filter.from(), filter.to(), Status.PENDING);
+        List<Long> ids = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            forEachMatch(pending, false, id -> {
+                ids.add(id);
+                return ids.size() < limit;
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+        return ids;
+    }
+
+    /**
+     * @return Entries held in the store, replayed or not
+     */
+    public long size() {
+        lock.readLock().lock();
+        try {
+            long size = 0;
+            for (Segment segment : segments) {
+                size += segment.count;
+            }
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return Bytes allocated on disk by the segment files
+     */
+    public long diskBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = 0;
+            for (Segment segment : segments) {
+                bytes += segment.buffer.capacity();
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Delete the oldest segments once their newest entry is past the retention period and
+     * every entry they mark as replayed is deleted with them. The segment being appended to
+     * is always kept.
+     */
+    @Scheduled(fixedDelayString = "${kafka.dlq.store.retention-check-interval-ms:60000}")
+    public void enforceRetention() {
+        long cutoff = clock.getAsLong() - retentionMs;
+        lock.writeLock().lock();
+        try {
+            int deleted = 0;
+            while (segments.size() > 1) {
+                Segment oldest = segments.get(0);
+                if (oldest.count > 0 && oldest.failedAts[oldest.count - 1] >= cutoff) {
+                    break;
+                }
+                // Its replay marks must outlive the entries they refer to
+                if (oldest.highestMarkedId >= segments.get(1).baseId) {
+                    break;
+                }
+                try {
+                    Files.deleteIfExists(oldest.file);
+                } catch (IOException e) {
+                    log.warn("Failed to delete expired DLQ segment {}: {}", oldest.file, e.getMessage());
+                    break;
+                }
+                segments.remove(0);
+                deleted++;
+            }
+            if (deleted > 0) {
+                long firstId = segments.get(0).baseId;
+                byOrderId.values().removeIf(ids -> ids.removeBelow(firstId));
+                byProduct.values().removeIf(ids -> ids.removeBelow(firstId));
+                replayedAt.keySet().removeIf(id -> id < firstId);
+                log.info("Deleted {} expired DLQ segments, oldest remaining entry id={}", deleted, firstId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Visit the ids matching the filter in id (and failure time) order
+     *
+     * @param visitor Returns false to stop
+     */
+    private void forEachMatch(Filter filter, boolean newestFirst, LongPredicate visitor) {
+        long lo = filter.from() != null ? firstIdFailedAtOrAfter(filter.from()) : 0;
+        long hi = filter.to() != null ? firstIdFailedAtOrAfter(filter.to()) : Long.MAX_VALUE;
+        Status status = filter.status() != null ? filter.status() : Status.ALL;
+        // Looked up by orderId, the product has to be checked on the entry itself
+        boolean checkProduct = filter.orderId() != null && filter.product() != null;
+        LongPredicate matching = id -> {
+            if (status != Status.ALL && replayedAt.containsKey(id) != (status == Status.REPLAYED)) {
+                return true;
+            }
+            if (checkProduct && !filter.product().equals(read(id).product())) {
+                return true;
+            }
+            return visitor.test(id);
+        };
+
+        if (filter.orderId() != null || filter.product() != null) {
+            IdList ids = filter.orderId() != null ? byOrderId.get(filter.orderId()) : byProduct.get(filter.product());
+            if (ids != null) {
+                ids.forEach(lo, hi, newestFirst, matching);
+            }
+            return;
+        }
+        for (int s = 0; s < segments.size(); s++) {
+            Segment segment = segments.get(newestFirst ? segments.size() - 1 - s : s);
+            int from = (int) Math.max(0, Math.min(segment.count, lo - segment.baseId));
+            int to = (int) Math.max(0, Math.min(segment.count, hi - segment.baseId));
+            for (int i = from; i < to; i++) {
+                if (!matching.test(segment.baseId + (newestFirst ? to - 1 - (i - from) : i))) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private long firstIdFailedAtOrAfter(long time) {
+        for (Segment segment : segments) {
+            if (segment.count > 0 && segment.failedAts[segment.count - 1] >= time) {
+                int low = 0;
+                int high = segment.count - 1;
+                while (low < high) {
+                    int mid = (low + high) >>> 1;
+                    if (segment.failedAts[mid] < time) {
+                        low = mid + 1;
+                    } else {
+                        high = mid;
+                    }
+                }
+                return segment.baseId + low;
+            }
+        }
+        return nextId;
+    }
+
+    private Segment locate(long id) {
+        int low = 0;
+        int high = segments.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            Segment segment = segments.get(mid);
+            if (id < segment.baseId) {
+                high = mid - 1;
+            } else if (id >= segment.baseId + segment.count) {
+                low = mid + 1;
+            } else {
+                return segment;
+            }
+        }
+        return null;
+    }
+
+    private DLQEntry read(long id) {
+        Segment segment = locate(id);
+        int position = segment.positions[(int) (id - segment.baseId)];
+        byte[] data = new byte[segment.buffer.getInt(position)];
+        segment.buffer.get(position + FRAME_BYTES, data);
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, 1, data.length - 1));
+            return DLQEntry.readFrom(in, id).withReplayedAt(replayedAt.getOrDefault(id, 0L));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt DLQ entry " + id + " in " + segment.file, e);
+        }
+    }
+
+    /**
+     * Frame and append a record, rolling to a new segment if it does not fit
+     *
+     * @return The segment written to
+     */
+    private Segment write(byte[] data) throws IOException {
+        Segment segment = active();
+        if (segment.writePosition + FRAME_BYTES + data.length > segment.buffer.capacity()) {
+            segment = roll();
+        }
+        int position = segment.writePosition;
+        segment.buffer.putInt(position + 4, crc(data));
+        segment.buffer.put(position + FRAME_BYTES, data);
+        // Length last, so a record is not visible to a recovery scan before its payload is written
+        segment.buffer.putInt(position, data.length);
+        segment.writePosition = position + FRAME_BYTES + data.length;
+        segment.lastPosition = position;
+        return segment;
+    }
+
+    private Segment roll() throws IOException {
+        if (!segments.isEmpty()) {
+            active().buffer.force();
+        }
+        Path file = directory.resolve(String.format("%020d%s", nextSequence, SUFFIX));
+        // A file left behind by an unreadable segment keeps its name
+        while (Files.exists(file)) {
+            file = directory.resolve(String.format("%020d%s", ++nextSequence, SUFFIX));
+        }
+        Segment segment = Segment.create(file, nextSequence, nextId, segmentBytes);
+        segments.add(segment);
+        nextSequence++;
+        return segment;
+    }
+
+    private Segment active() {
+        return segments.get(segments.size() - 1);
+    }
+
+    /**
+     * Replay the records of a segment into the indexes. A corrupt record ends the segment;
+     * in the last one, the rest is zeroed so later appends are not followed by stale bytes.
+     */
+    private void load(Segment segment, boolean last) throws IOException {
+        MappedByteBuffer buffer = segment.buffer;
+        int position = HEADER_BYTES;
+        boolean corrupt = false;
+        while (position + FRAME_BYTES <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length == 0) {
+                break;
+            }
+            if (length < 0 || position + FRAME_BYTES + length > buffer.capacity()) {
+                corrupt = true;
+                break;
+            }
+            byte[] data = new byte[length];
+            buffer.get(position + FRAME_BYTES, data);
+            if (crc(data) != buffer.getInt(position + 4)) {
+                corrupt = true;
+                break;
+            }
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, 1, length - 1));
+            if (data[0] == ENTRY) {
+                index(segment, position, DLQEntry.readFrom(in, nextId));
+            } else if (data[0] == REPLAYED) {
+                long id = in.readLong();
+                long at = in.readLong();
+                segment.marked(id);
+                if (id >= segments.get(0).baseId) {
+                    replayedAt.put(id, at);
+                }
+            }
+            position += FRAME_BYTES + length;
+        }
+        segment.writePosition = position;
+        if (corrupt) {
+            log.warn("DLQ segment {} is corrupt after byte {}{}", segment.file, position,
+                    last ? ", truncating it there" : ", skipping the rest of it");
+            if (last) {
+                buffer.put(position, new byte[buffer.capacity() - position]);
+                buffer.force();
+            }
+        }
+    }
+
+    private void index(Segment segment, int position, DLQEntry entry) {
+        segment.add(position, entry.failedAt());
+        byOrderId.computeIfAbsent(entry.orderId(), key -> new IdList()).add(entry.id());
+        byProduct.computeIfAbsent(entry.product(), key -> new IdList()).add(entry.id());
+        storedOffsets.merge(entry.dlqPartition(), entry.dlqOffset(), Math::max);
+        lastFailedAt = Math.max(lastFailedAt, entry.failedAt());
+        nextId = entry.id() + 1;
+    }
+
+    private static int crc(byte[] data) {
+        CRC32C crc = new CRC32C();
+        crc.update(data);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * A mapped segment file, the position and failure time of each of its entries and the
+     * highest id it marks as replayed
+     */
+    private static final class Segment {
+
+        final Path file;
+        final long sequence;
+        final long baseId;
+        final MappedByteBuffer buffer;
+        int writePosition = HEADER_BYTES;
+        int lastPosition;
+        int count;
+        long highestMarkedId = -1;
+        int[] positions = new int[256];
+        long[] failedAts = new long[256];
+
+        private Segment(Path file, long sequence, long baseId, MappedByteBuffer buffer) {
+            this.file = file;
+            this.sequence = sequence;
+            this.baseId = baseId;
+            this.buffer = buffer;
+        }
+
+        static Segment create(Path file, long sequence, long baseId, int size) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, FORMAT_VERSION);
+                buffer.putLong(8, sequence);
+                buffer.putLong(16, baseId);
+                return new Segment(file, sequence, baseId, buffer);
+            }
+        }
+
+        /**
+         * @return The segment, or null if the file is not a DLQ segment
+         */
+        static Segment open(Path file) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                if (channel.size() < MIN_SEGMENT_BYTES || channel.size() > Integer.MAX_VALUE) {
+                    return null;
+                }
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+                if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+                    return null;
+                }
+                return new Segment(file, buffer.getLong(8), buffer.getLong(16), buffer);
+            }
+        }
+
+        void add(int position, long failedAt) {
+            if (count == positions.length) {
+                positions = Arrays.copyOf(positions, count * 2);
+                failedAts = Arrays.copyOf(failedAts, count * 2);
+            }
+            positions[count] = position;
+            failedAts[count] = failedAt;
+            count++;
+        }
+
+        void marked(long id) {
+            highestMarkedId = Math.max(highestMarkedId, id);
+        }
+    }
+
+    /**
+     * Growable, sorted list of entry ids
+     */
+    private static final class IdList {
+
+        long[] ids = new long[2];
+        int size;
+
+        void add(long id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        /**
+         * @return true if no ids are left
+         */
+        boolean removeBelow(long firstId) {
+            int from = lowerBound(firstId);
+            System.arraycopy(ids, from, ids, 0, size - from);
+            size -= from;
+            return size == 0;
+        }
+
+        boolean forEach(long lo, long hi, boolean descending, LongPredicate visitor) {
+            int from = lowerBound(lo);
+            int to = lowerBound(hi);
+            for (int i = 0; i < to - from; i++) {
+                if (!visitor.test(ids[descending ? to - 1 - i : from + i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int lowerBound(long id) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (ids[mid] < id) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
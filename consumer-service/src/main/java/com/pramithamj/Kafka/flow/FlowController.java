@@ -0,0 +1,259 @@
+package com.pramithamj.kafka.flow;
+
+import com.pramithamj.kafka.processing.KeyOrderedProcessingEngine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pauses and resumes listener containers so the consumer stops taking on work it cannot
+ * keep up with, instead of blocking the poll loop past max.poll.interval.ms.
+ *
+ * Every interval it samples, for this instance only:
+ * - queue depth: records submitted to the key-ordered processing engine and not finished
+ * - latency: mean processing time of the records finished since the last sample
+ * - main lag: records-lag of the orders partitions, from the main container's client metrics
+ *
+ * The running main container (orders or orders-batch) is paused when queue depth or latency
+ * reach their pause threshold, and resumed once both are at or below their resume threshold
+ * and it has been paused for min-pause-ms. While paused, the container keeps polling without
+ * fetching, so the group sees it alive. A latency pause finishes the in-flight work and then
+ * has no new samples; it is resumed after min-pause-ms to probe whether downstream recovered.
+ *
+ * The retry tier containers are paused while the main lag is at or above retry-pause-lag or
+ * the main container is paused, and resumed when the lag is back to retry-resume-lag, so
+ * retries do not compete with new orders for processing capacity.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FlowController {
+
+    static final String RECORD_LISTENER_ID = "orders";
+    static final String BATCH_LISTENER_ID = "orders-batch";
+    static final String LEGACY_RETRY_LISTENER_ID = "orders-retry";
+
+    private final KafkaListenerEndpointRegistry registry;
+    private final KeyOrderedProcessingEngine processingEngine;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${kafka.topic.orders}")
+    private String ordersTopic;
+
+    /** Tier listener ids are the tier topics, named from this topic (e.g. orders-retry-4s) */
+    @Value("${kafka.topic.orders-retry}")
+    private String retryTopic;
+
+    @Value("${kafka.consumer.flow-control.enabled:true}")
+    private boolean enabled;
+
+    @Value("${kafka.consumer.flow-control.pause-queue-depth:800}")
+    private int pauseQueueDepth;
+
+    @Value("${kafka.consumer.flow-control.resume-queue-depth:400}")
+    private int resumeQueueDepth;
+
+    @Value("${kafka.consumer.flow-control.pause-latency-ms:2000}")
+    private double pauseLatencyMs;
+
+    @Value("${kafka.consumer.flow-control.resume-latency-ms:500}")
+    private double resumeLatencyMs;
+
+    @Value("${kafka.consumer.flow-control.min-pause-ms:5000}")
+    private long minPauseMs;
+
+    @Value("${kafka.consumer.flow-control.retry-pause-lag:5000}")
+    private long retryPauseLag;
+
+    @Value("${kafka.consumer.flow-control.retry-resume-lag:1000}")
+    private long retryResumeLag;
+
+    // Container id -> when this controller paused it
+    private final Map<String, Long> pausedSince = new ConcurrentHashMap<>();
+    private final Map<String, Counter> pauseCounters = new ConcurrentHashMap<>();
+    private final Set<String> pausedGauges = ConcurrentHashMap.newKeySet();
+    private volatile Load lastLoad = new Load(0, Double.NaN, 0);
+    private long lastCount;
+    private double lastTotalNanos;
+
+    /**
+     * Load observed over the last interval
+     *
+     * @param latencyMs NaN if no record finished in the interval
+     */
+    record Load(int queueDepth, double latencyMs, long mainLag) {
+    }
+
+    enum Reason { QUEUE_DEPTH, LATENCY, MAIN_LAG, MAIN_PAUSED }
+
+    @Scheduled(fixedDelayString = "${kafka.consumer.flow-control.interval-ms:1000}")
+    public void evaluate() {
+        if (!enabled) {
+            return;
+        }
+        MessageListenerContainer main = mainContainer();
+        Load load = new Load(processingEngine.getInFlightCount(), sampleLatencyMs(),
+                main != null ? ordersLag(main) : 0);
+        apply(load, System.currentTimeMillis());
+    }
+
+    /**
+     * Pause or resume the main and retry containers for the given load
+     */
+    void apply(Load load, long nowMs) {
+        lastLoad = load;
+        MessageListenerContainer main = mainContainer();
+        boolean mainPaused = false;
+        if (main != null) {
+            String id = main.getListenerId();
+            Long since = pausedSince.get(id);
+            if (since == null) {
+                Reason reason = load.queueDepth() >= pauseQueueDepth ? Reason.QUEUE_DEPTH
+                        : load.latencyMs() >= pauseLatencyMs ? Reason.LATENCY
+                        : null;
+                if (reason != null) {
+                    pause(main, reason, load, nowMs);
+                    mainPaused = true;
+                }
+            } else if (nowMs - since >= minPauseMs
+                    && load.queueDepth() <= resumeQueueDepth
+                    && !(load.latencyMs() > resumeLatencyMs)) { // no samples (NaN) counts as recovered
+                resume(main, load);
+            } else {
+                mainPaused = true;
+            }
+        }
+
+        boolean lagging = load.mainLag() >= retryPauseLag;
+        boolean caughtUp = load.mainLag() <= retryResumeLag;
+        for (MessageListenerContainer retry : retryContainers()) {
+            boolean paused = pausedSince.containsKey(retry.getListenerId());
+            if (!paused && (lagging || mainPaused)) {
+                pause(retry, mainPaused ? Reason.MAIN_PAUSED : Reason.MAIN_LAG, load, nowMs);
+            } else if (paused && caughtUp && !mainPaused) {
+                resume(retry, load);
+            }
+        }
+    }
+
+    /**
+     * Thresholds, last sample and the containers currently paused by this controller
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        Load load = lastLoad;
+        status.put("enabled", enabled);
+        status.put("queueDepth", load.queueDepth());
+        status.put("latencyMs", Double.isNaN(load.latencyMs()) ? null : load.latencyMs());
+        status.put("mainLag", load.mainLag());
+        status.put("paused", List.copyOf(pausedSince.keySet()));
+        status.put("thresholds", Map.of(
+                "pauseQueueDepth", pauseQueueDepth, "resumeQueueDepth", resumeQueueDepth,
+                "pauseLatencyMs", pauseLatencyMs, "resumeLatencyMs", resumeLatencyMs,
+                "minPauseMs", minPauseMs,
+                "retryPauseLag", retryPauseLag, "retryResumeLag", retryResumeLag));
+        return status;
+    }
+
+    private void pause(MessageListenerContainer container, Reason reason, Load load, long nowMs) {
+        String id = container.getListenerId();
+        container.pause();
+        pausedSince.put(id, nowMs);
+        if (pausedGauges.add(id)) {
+            Gauge.builder("orders.consumer.flow.paused", pausedSince, paused -> paused.containsKey(id) ? 1 : 0)
+                    .description("1 while flow control holds the container paused")
+                    .tag("container", id)
+                    .register(meterRegistry);
+        }
+        pauseCounters.computeIfAbsent(id + ":" + reason, key -> Counter.builder("orders.consumer.flow.pauses")
+                .description("Listener containers paused by flow control")
+                .tag("container", id)
+                .tag("reason", reason.name().toLowerCase())
+                .register(meterRegistry))
+                .increment();
+        log.warn("Flow control paused {}: reason={}, queueDepth={}, latencyMs={}, mainLag={}",
+                id, reason, load.queueDepth(), load.latencyMs(), load.mainLag());
+    }
+
+    private void resume(MessageListenerContainer container, Load load) {
+        container.resume();
+        pausedSince.remove(container.getListenerId());
+        log.info("Flow control resumed {}: queueDepth={}, latencyMs={}, mainLag={}",
+                container.getListenerId(), load.queueDepth(), load.latencyMs(), load.mainLag());
+    }
+
+    private MessageListenerContainer mainContainer() {
+        for (String id : List.of(RECORD_LISTENER_ID, BATCH_LISTENER_ID)) {
+            MessageListenerContainer container = registry.getListenerContainer(id);
+            if (container != null && container.isRunning()) {
+                return container;
+            }
+        }
+        return null;
+    }
+
+    private List<MessageListenerContainer> retryContainers() {
+        List<MessageListenerContainer> containers = new ArrayList<>();
+        for (MessageListenerContainer container : registry.getListenerContainers()) {
+            String id = container.getListenerId();
+            if (id != null && (id.startsWith(retryTopic) || id.equals(LEGACY_RETRY_LISTENER_ID))
+                    && container.isRunning()) {
+                containers.add(container);
+            }
+        }
+        return containers;
+    }
+
+    /**
+     * Mean processing time of the records finished since the previous sample, from the
+     * orders.consumer.processing timers (main and retry listeners)
+     */
+    private double sampleLatencyMs() {
+        long count = 0;
+        double totalNanos = 0;
+        for (Timer timer : meterRegistry.find("orders.consumer.processing").timers()) {
+            count += timer.count();
+            totalNanos += timer.totalTime(TimeUnit.NANOSECONDS);
+        }
+        long finished = count - lastCount;
+        double latencyMs = finished > 0 ? (totalNanos - lastTotalNanos) / finished / 1_000_000 : Double.NaN;
+        lastCount = count;
+        lastTotalNanos = totalNanos;
+        return latencyMs;
+    }
+
+    /**
+     * Sum of records-lag over the orders partitions assigned to the container's consumers
+     */
+    private long ordersLag(MessageListenerContainer container) {
+        double lag = 0;
+        for (Map<MetricName, ? extends Metric> metrics : container.metrics().values()) {
+            for (Map.Entry<MetricName, ? extends Metric> entry : metrics.entrySet()) {
+                MetricName name = entry.getKey();
+                if ("records-lag".equals(name.name()) && ordersTopic.equals(name.tags().get("topic"))
+                        && entry.getValue().metricValue() instanceof Double value && !value.isNaN()) {
+                    lag += value;
+                }
+            }
+        }
+        return (long) lag;
+    }
+}
@@ -0,0 +1,134 @@
+package com.pramithamj.kafka.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer meters for the consumer pipeline, exported through /actuator/prometheus.
+ *
+ * Meters on the per-record path are registered up front, so recording is a plain histogram
+ * update with no registry lookup. Histogram buckets are bounded to the expected range to
+ * keep the bucket count small. Consumer lag per partition comes from the Kafka client
+ * metrics bound in KafkaConsumerConfig (kafka_consumer_fetch_manager_records_lag).
+ */
+@Component
+public class ConsumerMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final Timer processingSuccess;
+    private final Timer processingFailure;
+    private final Timer endToEndLatency;
+    private final Counter dlqSent;
+    private final Counter dlqFailed;
+    private final Counter dlqReplayed;
+    private final Counter dlqReplayFailed;
+    private final Map<String, Counter> retriesByTopic = new ConcurrentHashMap<>();
+
+    public ConsumerMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.processingSuccess = processingTimer("success");
+        this.processingFailure = processingTimer("failure");
+        this.endToEndLatency = Timer.builder("orders.consumer.end.to.end.latency")
+                .description("Time from the order timestamp to successful processing")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofMinutes(5))
+                .register(meterRegistry);
+        this.dlqSent = dlqCounter("success");
+        this.dlqFailed = dlqCounter("failure");
+        this.dlqReplayed = dlqReplayCounter("success");
+        this.dlqReplayFailed = dlqReplayCounter("failure");
+    }
+
+    /**
+     * Record the processing time of one order
+     *
+     * @param startNanos System.nanoTime() taken before processing
+     * @param success Whether the order was processed successfully
+     */
+    public void recordProcessing(long startNanos, boolean success) {
+        Timer timer = success ? processingSuccess : processingFailure;
+        timer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Record end-to-end latency of a processed order from its event timestamp
+     */
+    public void recordEndToEnd(long orderTimestampMs) {
+        long latency = System.currentTimeMillis() - orderTimestampMs;
+        if (latency >= 0) {
+            endToEndLatency.record(latency, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Count an order routed to a retry tier topic
+     */
+    public void recordRetry(String topic) {
+        retriesByTopic.computeIfAbsent(topic, t -> Counter.builder("orders.retry.sent")
+                .description("Orders sent to a retry tier topic")
+                .tag("topic", t)
+                .register(meterRegistry))
+                .increment();
+    }
+
+    /**
+     * Orders sent to any retry tier topic since startup
+     */
+    public long getRetriesSent() {
+        double sent = 0;
+        for (Counter counter : retriesByTopic.values()) {
+            sent += counter.count();
+        }
+        return (long) sent;
+    }
+
+    /**
+     * Count an order sent to the dead letter queue
+     *
+     * @param delivered Whether the DLQ write was acknowledged
+     */
+    public void recordDlq(boolean delivered) {
+        (delivered ? dlqSent : dlqFailed).increment();
+    }
+
+    /**
+     * Count a DLQ store entry republished to the orders topic
+     *
+     * @param delivered Whether the write was acknowledged
+     */
+    public void recordDlqReplay(boolean delivered) {
+        (delivered ? dlqReplayed : dlqReplayFailed).increment();
+    }
+
+    private Timer processingTimer(String result) {
+        return Timer.builder("orders.consumer.processing")
+                .description("Per-record processing time")
+                .tag("result", result)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(10))
+                .register(meterRegistry);
+    }
+
+    private Counter dlqCounter(String result) {
+        return Counter.builder("orders.dlq.sent")
+                .description("Orders sent to the dead letter queue")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private Counter dlqReplayCounter(String result) {
+        return Counter.builder("orders.dlq.replayed")
+                .description("DLQ store entries republished to the orders topic")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
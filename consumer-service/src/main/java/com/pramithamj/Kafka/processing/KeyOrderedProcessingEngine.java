@@ -0,0 +1,236 @@
+package com.pramithamj.kafka.processing;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fans records from a partition out to a bounded pool of single-threaded lanes.
+ *
+ * Records are routed to a lane by key hash, so all orders with the same orderId are
+ * processed in poll order. Offsets are committed only up to the highest contiguous
+ * completed offset of each partition, and in-flight work for revoked partitions is
+ * drained before the partitions are given up.
+ *
+ * With kafka.consumer.virtual-threads.enabled=true there are no lanes: every record runs
+ * on its own virtual thread, chained behind the previous record with the same key, and
+ * each listener container may keep up to max-in-flight-per-container records in flight.
+ */
+@Slf4j
+@Component
+public class KeyOrderedProcessingEngine implements ConsumerAwareRebalanceListener {
+
+    @Value("${kafka.consumer.parallel.lanes:16}")
+    private int laneCount;
+
+    @Value("${kafka.consumer.parallel.max-in-flight:1000}")
+    private int maxInFlight;
+
+    @Value("${kafka.consumer.parallel.drain-timeout-ms:10000}")
+    private long drainTimeoutMs;
+
+    @Value("${kafka.consumer.virtual-threads.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${kafka.consumer.virtual-threads.max-in-flight-per-container:2000}")
+    private int maxInFlightPerContainer;
+
+    private final Map<TopicPartition, PartitionOffsetTracker> trackers = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlightCount = new AtomicInteger();
+
+    // Lane mode
+    private ExecutorService[] lanes;
+    private Semaphore inFlight;
+
+    // Virtual thread mode: tail of the per-key chain, and one permit pool per consumer thread
+    private ExecutorService virtualExecutor;
+    private final Map<Object, CompletableFuture<Void>> keyTails = new ConcurrentHashMap<>();
+    private final ThreadLocal<Semaphore> containerPermits =
+            ThreadLocal.withInitial(() -> new Semaphore(maxInFlightPerContainer));
+
+    @PostConstruct
+    void start() {
+        if (virtualThreads) {
+            virtualExecutor = Executors.newVirtualThreadPerTaskExecutor();
+            log.info("Key-ordered processing engine started on virtual threads: maxInFlightPerContainer={}",
+                    maxInFlightPerContainer);
+            return;
+        }
+
+        lanes = new ExecutorService[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = Executors.newSingleThreadExecutor();
+        }
+        inFlight = new Semaphore(maxInFlight);
+        log.info("Key-ordered processing engine started: lanes={}, maxInFlight={}", laneCount, maxInFlight);
+    }
+
+    /**
+     * Hand a record to its lane. Blocks the caller while the in-flight cap is reached.
+     * The task is expected to handle its own failures (e.g. by routing to the retry topic);
+     * its offset is considered complete once it returns.
+     *
+     * @param record The record being processed
+     * @param task Processing work for the record
+     */
+    public void submit(ConsumerRecord<String, ?> record, Runnable task) throws InterruptedException {
+        Semaphore permits = virtualThreads ? containerPermits.get() : inFlight;
+        permits.acquire();
+        inFlightCount.incrementAndGet();
+
+        TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+        PartitionOffsetTracker tracker = trackers.computeIfAbsent(partition, tp -> new PartitionOffsetTracker());
+        tracker.register(record.offset());
+
+        Runnable work = () -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                log.error("Unhandled error in processing lane: partition={}, offset={}",
+                        partition, record.offset(), e);
+            } finally {
+                tracker.complete(record.offset());
+                inFlightCount.decrementAndGet();
+                permits.release();
+            }
+        };
+
+        if (virtualThreads) {
+            dispatchVirtual(keyOf(record), work);
+        } else {
+            lanes[Math.floorMod(keyOf(record).hashCode(), laneCount)].execute(work);
+        }
+    }
+
+    /**
+     * Commit the contiguous completed prefix of every partition assigned to the consumer.
+     * Must be called on the consumer thread.
+     *
+     * @param consumer The listener container's consumer
+     */
+    public void commitCompleted(Consumer<?, ?> consumer) {
+        commit(consumer, consumer.assignment());
+    }
+
+    /**
+     * @return Offset of the partition below which every submitted record has completed,
+     *         or -1 if none was submitted
+     */
+    public long completedBefore(TopicPartition partition) {
+        PartitionOffsetTracker tracker = trackers.get(partition);
+        return tracker != null ? tracker.completedBefore() : -1;
+    }
+
+    /**
+     * @return Number of records submitted but not yet completed
+     */
+    public int getInFlightCount() {
+        return inFlightCount.get();
+    }
+
+    /**
+     * Commit completed work while the container is idle, since the listener is not
+     * invoked when a poll returns no records.
+     */
+    @EventListener(condition = "event.listenerId.startsWith('orders-batch')")
+    public void onIdle(ListenerContainerIdleEvent event) {
+        commitCompleted(event.getConsumer());
+    }
+
+    @Override
+    public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        long deadline = System.currentTimeMillis() + drainTimeoutMs;
+        for (TopicPartition partition : partitions) {
+            PartitionOffsetTracker tracker = trackers.get(partition);
+            while (tracker != null && tracker.pendingCount() > 0 && System.currentTimeMillis() < deadline) {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            if (tracker != null && tracker.pendingCount() > 0) {
+                log.warn("Drain timed out, {} records of {} will be redelivered",
+                        tracker.pendingCount(), partition);
+            }
+        }
+
+        commit(consumer, partitions);
+        partitions.forEach(trackers::remove);
+    }
+
+    @Override
+    public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        // Ownership is already gone; uncommitted work will be redelivered to the new owner
+        partitions.forEach(trackers::remove);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (virtualExecutor != null) {
+            virtualExecutor.shutdown();
+        }
+        if (lanes != null) {
+            for (ExecutorService lane : lanes) {
+                lane.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Run the work on a new virtual thread once the previous record with the same key is done
+     */
+    private void dispatchVirtual(Object key, Runnable work) {
+        CompletableFuture<Void> next = keyTails.compute(key, (k, tail) -> tail == null
+                ? CompletableFuture.runAsync(work, virtualExecutor)
+                : tail.thenRunAsync(work, virtualExecutor));
+        // Drop the chain once it is idle so the map only holds keys with work in flight
+        next.whenComplete((result, ex) -> keyTails.remove(key, next));
+    }
+
+    private void commit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        for (TopicPartition partition : partitions) {
+            PartitionOffsetTracker tracker = trackers.get(partition);
+            if (tracker == null) {
+                continue;
+            }
+            long commitOffset = tracker.nextCommitOffset();
+            if (commitOffset >= 0) {
+                offsets.put(partition, new OffsetAndMetadata(commitOffset));
+            }
+        }
+        if (offsets.isEmpty()) {
+            return;
+        }
+
+        consumer.commitSync(offsets);
+        offsets.forEach((partition, offset) -> trackers.get(partition).committed(offset.offset()));
+        log.debug("Committed contiguous offsets: {}", offsets);
+    }
+
+    private Object keyOf(ConsumerRecord<String, ?> record) {
+        return record.key() != null ? record.key() : record.partition();
+    }
+}
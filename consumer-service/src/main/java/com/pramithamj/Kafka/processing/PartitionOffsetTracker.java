@@ -0,0 +1,67 @@
+package com.pramithamj.kafka.processing;
+
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Tracks in-flight offsets of a single partition so that only the highest
+ * contiguous completed offset is ever committed.
+ *
+ * Offsets are registered in poll order by the consumer thread and completed
+ * in any order by worker threads.
+ */
+public class PartitionOffsetTracker {
+
+    private final ConcurrentSkipListSet<Long> pending = new ConcurrentSkipListSet<>();
+    private volatile long highestRegistered = -1;
+    private long lastCommitted = -1;
+
+    /**
+     * Register an offset handed to a worker (consumer thread only)
+     */
+    public void register(long offset) {
+        pending.add(offset);
+        highestRegistered = Math.max(highestRegistered, offset);
+    }
+
+    /**
+     * Mark an offset as completed (any thread)
+     */
+    public void complete(long offset) {
+        pending.remove(offset);
+    }
+
+    /**
+     * @return Number of offsets still being processed
+     */
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Offset to commit, i.e. the next offset to consume after the contiguous completed prefix
+     *
+     * @return Commit offset, or -1 if nothing new can be committed
+     */
+    public long nextCommitOffset() {
+        long commitOffset = completedBefore();
+        return commitOffset > lastCommitted ? commitOffset : -1;
+    }
+
+    /**
+     * @return Offset below which all registered work has completed, or -1 if nothing was registered
+     */
+    public long completedBefore() {
+        if (highestRegistered < 0) {
+            return -1;
+        }
+        Long lowestPending = pending.ceiling(0L); // null when nothing is pending
+        return lowestPending != null ? lowestPending : highestRegistered + 1;
+    }
+
+    /**
+     * Record that an offset has been committed (consumer thread only)
+     */
+    public void committed(long offset) {
+        lastCommitted = Math.max(lastCommitted, offset);
+    }
+}
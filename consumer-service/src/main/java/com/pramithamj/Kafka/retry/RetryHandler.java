@@ -1,21 +1,47 @@
 package com.pramithamj.kafka.retry;
 
+import com.pramithamj.kafka.events.OrderEventLog;
+import com.pramithamj.kafka.metrics.ConsumerMetrics;
 import com.pramithamj.kafka.model.Order;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeaders;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
- * Handles retry logic for failed order processing
+ * Handles retry logic for failed order processing.
+ *
+ * Failed orders are routed to delay tiers chosen from the retry count, one topic per
+ * delay in kafka.retry.tier-delays-ms (orders-retry-2s, orders-retry-4s, orders-retry-8s by
+ * default). Each record carries a "not-before" header so the retry
+ * listener can pause instead of sleeping until the record is due.
  */
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class RetryHandler {
 
+    public static final String RETRY_COUNT_HEADER = "retry-count";
+    public static final String NOT_BEFORE_HEADER = "retry-not-before";
+
+    private static final int RECENT_RETRIES = 100;
+
     private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final ConsumerMetrics metrics;
+    private final OrderEventLog eventLog;
 
     @Value("${kafka.topic.orders-retry}")
     private String retryTopic;
@@ -23,49 +49,67 @@ public class RetryHandler {
     @Value("${kafka.retry.max-attempts:3}")
     private int maxRetryAttempts;
 
-    private static final String RETRY_COUNT_HEADER = "retry-count";
+    @Value("${kafka.retry.tier-delays-ms:2000,4000,8000}")
+    private long[] tierDelaysMs;
+
+    // Newest first, for the dashboard
+    private final Deque<Map<String, Object>> recentRetries = new ArrayDeque<>();
 
     /**
-     * Send an order to the retry topic
-     * 
+     * Send an order to the retry tier matching its next retry attempt
+     *
      * @param order The order that failed processing
      * @param exception The exception that caused the failure
      * @param currentRetryCount Current retry attempt count
      */
     public void sendToRetry(Order order, Exception exception, int currentRetryCount) {
         if (currentRetryCount >= maxRetryAttempts) {
-            log.warn("Max retry attempts ({}) reached for order: {}", 
+            log.warn("Max retry attempts ({}) reached for order: {}",
                     maxRetryAttempts, order.getOrderId());
             return;
         }
 
         int nextRetryCount = currentRetryCount + 1;
-        
-        log.info("Sending order to retry topic: orderId={}, retryCount={}, reason={}", 
-                order.getOrderId(), nextRetryCount, exception.getMessage());
+        long delay = calculateBackoffDelay(nextRetryCount);
+        String tierTopic = resolveTierTopic(nextRetryCount);
+        long notBefore = System.currentTimeMillis() + delay;
+
+        RecordHeaders headers = new RecordHeaders();
+        headers.add(RETRY_COUNT_HEADER, String.valueOf(nextRetryCount).getBytes(StandardCharsets.UTF_8));
+        headers.add(NOT_BEFORE_HEADER, String.valueOf(notBefore).getBytes(StandardCharsets.UTF_8));
 
         try {
-            kafkaTemplate.send(retryTopic, order.getOrderId().toString(), order)
+            kafkaTemplate.send(new ProducerRecord<>(tierTopic, null, order.getOrderId().toString(), order, headers))
                 .whenComplete((result, ex) -> {
                     if (ex == null) {
-                        log.info("Order sent to retry topic successfully: orderId={}, partition={}, offset={}", 
-                                order.getOrderId(),
-                                result.getRecordMetadata().partition(),
-                                result.getRecordMetadata().offset());
+                        metrics.recordRetry(tierTopic);
+                        rememberRetry(order, exception, nextRetryCount, tierTopic);
+                        eventLog.record(OrderEventLog.Type.RETRY_SENT, order, tierTopic,
+                                result.getRecordMetadata().partition(), result.getRecordMetadata().offset(),
+                                nextRetryCount, exception);
                     } else {
-                        log.error("Failed to send order to retry topic: orderId={}, error={}", 
-                                order.getOrderId(), ex.getMessage(), ex);
+                        eventLog.record(OrderEventLog.Type.RETRY_SEND_FAILED, order, tierTopic, -1, -1,
+                                nextRetryCount, ex);
                     }
                 });
         } catch (Exception e) {
-            log.error("Exception while sending to retry topic: orderId={}", 
+            log.error("Exception while sending to retry topic: orderId={}",
                     order.getOrderId(), e);
         }
     }
 
+    /**
+     * The last orders sent to a retry tier by this instance, newest first
+     */
+    public List<Map<String, Object>> getRecentRetries() {
+        synchronized (recentRetries) {
+            return List.copyOf(recentRetries);
+        }
+    }
+
     /**
      * Check if the order should be retried
-     * 
+     *
      * @param retryCount Current retry count
      * @return true if should retry, false otherwise
      */
@@ -74,13 +118,85 @@ public class RetryHandler {
     }
 
     /**
-     * Calculate exponential backoff delay
-     * 
-     * @param retryCount Current retry count
+     * Calculate the backoff delay for a retry attempt from the configured tiers
+     *
+     * @param retryCount Current retry count (1-based)
      * @return Delay in milliseconds
      */
     public long calculateBackoffDelay(int retryCount) {
-        // Exponential backoff: 2^retryCount * 1000ms
-        return (long) Math.pow(2, retryCount) * 1000;
+        return tierDelaysMs[tierIndex(retryCount)];
+    }
+
+    /**
+     * Resolve the delay tier topic for a retry attempt, e.g. orders-retry-4s, or
+     * orders-retry-500ms for delays that are not whole seconds
+     *
+     * @param retryCount Retry attempt (1-based)
+     * @return Tier topic name
+     */
+    public String resolveTierTopic(int retryCount) {
+        long delay = calculateBackoffDelay(retryCount);
+        return retryTopic + "-" + (delay % 1000 == 0 ? delay / 1000 + "s" : delay + "ms");
+    }
+
+    /**
+     * Every tier topic a retry can be sent to, in attempt order
+     */
+    public List<String> getTierTopics() {
+        List<String> topics = new ArrayList<>();
+        for (int retryCount = 1; retryCount <= maxRetryAttempts; retryCount++) {
+            String topic = resolveTierTopic(retryCount);
+            if (!topics.contains(topic)) {
+                topics.add(topic);
+            }
+        }
+        return topics;
+    }
+
+    /**
+     * Read the retry count written by {@link #sendToRetry}
+     *
+     * @param record Record consumed from a retry tier
+     * @return Retry count, or 1 for records without the header
+     */
+    public int getRetryCount(ConsumerRecord<?, ?> record) {
+        Header header = record.headers().lastHeader(RETRY_COUNT_HEADER);
+        return header != null ? Integer.parseInt(new String(header.value(), StandardCharsets.UTF_8)) : 1;
+    }
+
+    /**
+     * Time left until a retry record is due
+     *
+     * @param record Record consumed from a retry tier
+     * @return Remaining delay in milliseconds, 0 if the record is due or has no header
+     */
+    public long remainingDelay(ConsumerRecord<?, ?> record) {
+        Header header = record.headers().lastHeader(NOT_BEFORE_HEADER);
+        if (header == null) {
+            return 0;
+        }
+        long notBefore = Long.parseLong(new String(header.value(), StandardCharsets.UTF_8));
+        return Math.max(0, notBefore - System.currentTimeMillis());
+    }
+
+    private void rememberRetry(Order order, Exception exception, int retryCount, String topic) {
+        Map<String, Object> retry = new LinkedHashMap<>();
+        retry.put("timestamp", System.currentTimeMillis());
+        retry.put("orderId", order.getOrderId().toString());
+        retry.put("product", order.getProduct().toString());
+        retry.put("retryCount", retryCount);
+        retry.put("topic", topic);
+        retry.put("errorType", exception.getClass().getName());
+        retry.put("errorMessage", String.valueOf(exception.getMessage()));
+        synchronized (recentRetries) {
+            recentRetries.addFirst(retry);
+            if (recentRetries.size() > RECENT_RETRIES) {
+                recentRetries.removeLast();
+            }
+        }
+    }
+
+    private int tierIndex(int retryCount) {
+        return Math.min(Math.max(retryCount, 1), tierDelaysMs.length) - 1;
     }
 }
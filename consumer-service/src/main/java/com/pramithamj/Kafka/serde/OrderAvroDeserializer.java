@@ -0,0 +1,148 @@
+package com.pramithamj.kafka.serde;
+
+import com.pramithamj.kafka.model.Order;
+import com.pramithamj.kafka.model.OrderV2;
+import io.confluent.kafka.schemaregistry.ParsedSchema;
+import io.confluent.kafka.schemaregistry.avro.AvroSchema;
+import io.confluent.kafka.schemaregistry.client.CachedSchemaRegistryClient;
+import io.confluent.kafka.schemaregistry.client.SchemaRegistryClient;
+import io.confluent.kafka.schemaregistry.client.rest.exceptions.RestClientException;
+import io.confluent.kafka.serializers.AbstractKafkaSchemaSerDeConfig;
+import org.apache.avro.Schema;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.specific.SpecificDatumReader;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Allocation-light replacement for KafkaAvroDeserializer with specific.avro.reader, for
+ * Order values only.
+ *
+ * Reads the Confluent wire format written by KafkaAvroSerializer or OrderAvroSerializer.
+ * Each writer schema id is fetched from the registry once and resolved against the
+ * generated Order schema into a cached reader. Each platform thread reuses one
+ * BinaryDecoder, so the only per-record allocations are the Order and its strings.
+ *
+ * Records written as the compact OrderV2 are read too, into a per-thread OrderV2 that is
+ * converted to an Order, so the rest of the pipeline only sees Order while producers
+ * migrate between encodings.
+ *
+ * Fetched writer schemas are also kept in the SchemaIdCache shared by every serde of the
+ * registry, so a deserializer configured after StartupWarmup (or, with schema.id.cache.path
+ * set, after a restart) builds its readers without calling the registry.
+ */
+public class OrderAvroDeserializer implements Deserializer<Order> {
+
+    private static final int HEADER_BYTES = 5;
+
+    private static final ThreadLocal<DecodeState> DECODE_STATE = ThreadLocal.withInitial(DecodeState::new);
+
+    private final Map<Integer, OrderReader> readers = new ConcurrentHashMap<>();
+    private SchemaRegistryClient schemaRegistry;
+    private SchemaIdCache schemaIdCache;
+
+    public OrderAvroDeserializer() {
+    }
+
+    /**
+     * For tests and benchmarks; the client is not replaced by configure()
+     */
+    public OrderAvroDeserializer(SchemaRegistryClient schemaRegistry) {
+        this.schemaRegistry = schemaRegistry;
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        Object url = configs.get(AbstractKafkaSchemaSerDeConfig.SCHEMA_REGISTRY_URL_CONFIG);
+        if (schemaRegistry == null) {
+            if (url == null) {
+                throw new IllegalArgumentException("Missing " + AbstractKafkaSchemaSerDeConfig.SCHEMA_REGISTRY_URL_CONFIG);
+            }
+            schemaRegistry = new CachedSchemaRegistryClient(url.toString(), 100, configs);
+        }
+        schemaIdCache = SchemaIdCache.fromConfigs(configs, url);
+    }
+
+    @Override
+    public Order deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        if (data.length < HEADER_BYTES || data[0] != OrderAvroSerializer.MAGIC_BYTE) {
+            throw new SerializationException("Unknown magic byte reading Order from topic " + topic);
+        }
+        int schemaId = (data[1] & 0xff) << 24 | (data[2] & 0xff) << 16 | (data[3] & 0xff) << 8 | (data[4] & 0xff);
+        OrderReader reader = readers.computeIfAbsent(schemaId, this::createReader);
+
+        DecodeState state = DECODE_STATE.get();
+        state.decoder = DecoderFactory.get().binaryDecoder(data, HEADER_BYTES, data.length - HEADER_BYTES, state.decoder);
+        try {
+            return reader.read(state);
+        } catch (IOException | RuntimeException e) {
+            throw new SerializationException("Error deserializing Order with schema id " + schemaId, e);
+        }
+    }
+
+    private OrderReader createReader(int schemaId) {
+        Schema schema = schemaIdCache != null ? schemaIdCache.getSchema(schemaId) : null;
+        if (schema == null) {
+            schema = fetchSchema(schemaId);
+            if (schemaIdCache != null) {
+                schemaIdCache.putSchema(schemaId, schema);
+            }
+        }
+        if (OrderV2.getClassSchema().getFullName().equals(schema.getFullName())) {
+            SpecificDatumReader<OrderV2> reader = new SpecificDatumReader<>(schema, OrderV2.getClassSchema());
+            return state -> {
+                state.compact = reader.read(state.compact, state.decoder);
+                return fromCompact(state.compact);
+            };
+        }
+        SpecificDatumReader<Order> reader = new SpecificDatumReader<>(schema, Order.getClassSchema());
+        return state -> reader.read(null, state.decoder);
+    }
+
+    private Schema fetchSchema(int schemaId) {
+        ParsedSchema writerSchema;
+        try {
+            writerSchema = schemaRegistry.getSchemaById(schemaId);
+        } catch (IOException | RestClientException e) {
+            throw new SerializationException("Error retrieving schema id " + schemaId, e);
+        }
+        if (!(writerSchema instanceof AvroSchema avroSchema)) {
+            throw new SerializationException("Schema id " + schemaId + " is not an Avro schema");
+        }
+        return avroSchema.rawSchema();
+    }
+
+    /**
+     * Convert a compact order to the Order the pipeline works with
+     */
+    static Order fromCompact(OrderV2 compact) {
+        ByteBuffer uuid = ByteBuffer.wrap(compact.getOrderId().bytes());
+        return new Order(new UUID(uuid.getLong(), uuid.getLong()).toString(),
+                compact.getProduct().name(),
+                (float) (compact.getPriceCents() / 100.0),
+                compact.getTimestamp());
+    }
+
+    @FunctionalInterface
+    private interface OrderReader {
+        Order read(DecodeState state) throws IOException;
+    }
+
+    /**
+     * Per-thread decoder, and the OrderV2 reused for compact records
+     */
+    private static final class DecodeState {
+        BinaryDecoder decoder;
+        OrderV2 compact;
+    }
+}
@@ -0,0 +1,202 @@
+package com.pramithamj.kafka.serde;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaNormalization;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Schema ids learned from Schema Registry, kept in memory for the whole process and,
+ * optionally, on local disk across restarts, so the serdes of every client (and a restarted
+ * instance) serialize and deserialize Orders without registry round trips.
+ *
+ * Holds subject + schema -> id, as registered or looked up by OrderAvroSerializer, and
+ * id -> schema, as fetched by OrderAvroDeserializer. Registry ids never change meaning
+ * within one registry, so entries are not expired. Every serde configured with the same
+ * path shares one instance; without a path, every serde of the same registry URL shares one
+ * kept in memory only, so ids resolved by StartupWarmup reach the serdes the clients create.
+ * A serde configured without a registry URL (given its client directly) gets one of its own.
+ *
+ * The file records the registry URL and is ignored when it was written against another one.
+ * A registry recreated at the same URL assigns ids afresh, so a subject -> id loaded from the
+ * file counts as unverified until OrderAvroSerializer has re-checked it and stored it again
+ * with putId. Writes go to a temporary file that is atomically moved over the cache, and a
+ * cache that cannot be read or written only costs the registry calls it would have saved.
+ */
+public final class SchemaIdCache {
+
+    /**
+     * Serde config: file to keep the cache in; unset or blank turns it off
+     */
+    public static final String PATH_CONFIG = "schema.id.cache.path";
+
+    private static final Logger log = LoggerFactory.getLogger(SchemaIdCache.class);
+
+    private static final String REGISTRY_KEY = "registry";
+    private static final String ID_PREFIX = "id/";
+    private static final String SCHEMA_PREFIX = "schema/";
+
+    private static final Map<Path, SchemaIdCache> OPEN = new ConcurrentHashMap<>();
+    private static final Map<String, SchemaIdCache> IN_MEMORY = new ConcurrentHashMap<>();
+
+    private final Path path;
+    private final String registryUrl;
+    // subject/fingerprint of the schema text -> id
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final Map<Integer, String> schemas = new ConcurrentHashMap<>();
+    // Keys of ids read from the file and not re-checked against the registry yet
+    private final Set<String> unverified = ConcurrentHashMap.newKeySet();
+
+    /**
+     * A cache of its own, read from the file, or kept in memory only if path is null; serdes
+     * share theirs through fromConfigs()
+     */
+    SchemaIdCache(Path path, String registryUrl) {
+        this.path = path;
+        this.registryUrl = registryUrl;
+        if (path != null) {
+            load();
+        }
+    }
+
+    /**
+     * The cache kept in the file configured under PATH_CONFIG, or in memory for the registry
+     * if none is configured
+     */
+    static SchemaIdCache fromConfigs(Map<String, ?> configs, Object registryUrl) {
+        Object path = configs.get(PATH_CONFIG);
+        if (registryUrl == null) {
+            return new SchemaIdCache(null, null);
+        }
+        if (path == null || path.toString().isBlank()) {
+            return IN_MEMORY.computeIfAbsent(registryUrl.toString(), url -> new SchemaIdCache(null, url));
+        }
+        return open(Path.of(path.toString()), registryUrl.toString());
+    }
+
+    static SchemaIdCache open(Path path, String registryUrl) {
+        return OPEN.computeIfAbsent(path.toAbsolutePath().normalize(), p -> new SchemaIdCache(p, registryUrl));
+    }
+
+    /**
+     * @return The id of schema under subject, or null if not cached
+     */
+    Integer getId(String subject, Schema schema) {
+        return ids.get(idKey(subject, schema));
+    }
+
+    /**
+     * @return false if the id was read from the file and has not been stored again since
+     */
+    boolean isVerified(String subject, Schema schema) {
+        return unverified.isEmpty() || !unverified.contains(idKey(subject, schema));
+    }
+
+    /**
+     * Store the id the registry returned, which also verifies one read from the file
+     */
+    void putId(String subject, Schema schema, int id) {
+        String key = idKey(subject, schema);
+        boolean changed = !Objects.equals(ids.put(key, id), id);
+        unverified.remove(key);
+        if (changed) {
+            save();
+        }
+    }
+
+    /**
+     * @return The schema with this id, or null if not cached
+     */
+    Schema getSchema(int id) {
+        String schema = schemas.get(id);
+        return schema != null ? new Schema.Parser().parse(schema) : null;
+    }
+
+    void putSchema(int id, Schema schema) {
+        if (schemas.putIfAbsent(id, schema.toString()) == null) {
+            save();
+        }
+    }
+
+    int size() {
+        return ids.size() + schemas.size();
+    }
+
+    private static String idKey(String subject, Schema schema) {
+        // Full schema text rather than the parsing canonical form, which drops defaults and
+        // docs that make the registry assign a different id
+        long fingerprint = SchemaNormalization.fingerprint64(schema.toString().getBytes(StandardCharsets.UTF_8));
+        return subject + "/" + Long.toHexString(fingerprint);
+    }
+
+    private void load() {
+        if (!Files.exists(path)) {
+            return;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(path)) {
+            properties.load(in);
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("Ignoring unreadable schema id cache {}: {}", path, e.getMessage());
+            return;
+        }
+        if (!registryUrl.equals(properties.getProperty(REGISTRY_KEY))) {
+            log.info("Ignoring schema id cache {} written for registry {}", path, properties.getProperty(REGISTRY_KEY));
+            return;
+        }
+        try {
+            for (String key : properties.stringPropertyNames()) {
+                String value = properties.getProperty(key);
+                if (key.startsWith(ID_PREFIX)) {
+                    ids.put(key.substring(ID_PREFIX.length()), Integer.parseInt(value));
+                    unverified.add(key.substring(ID_PREFIX.length()));
+                } else if (key.startsWith(SCHEMA_PREFIX)) {
+                    schemas.put(Integer.parseInt(key.substring(SCHEMA_PREFIX.length())), value);
+                }
+            }
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring corrupt schema id cache {}: {}", path, e.getMessage());
+            ids.clear();
+            schemas.clear();
+            unverified.clear();
+            return;
+        }
+        log.info("Loaded {} schema ids and {} schemas from {}", ids.size(), schemas.size(), path);
+    }
+
+    private synchronized void save() {
+        if (path == null) {
+            return;
+        }
+        Properties properties = new Properties();
+        properties.setProperty(REGISTRY_KEY, registryUrl);
+        ids.forEach((key, id) -> properties.setProperty(ID_PREFIX + key, Integer.toString(id)));
+        schemas.forEach((id, schema) -> properties.setProperty(SCHEMA_PREFIX + id, schema));
+        try {
+            Path parent = path.getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                properties.store(out, "Schema Registry ids, see SchemaIdCache");
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Could not write schema id cache {}: {}", path, e.getMessage());
+        }
+    }
+}
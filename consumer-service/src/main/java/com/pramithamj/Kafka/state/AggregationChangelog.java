@@ -0,0 +1,243 @@
+package com.pramithamj.kafka.state;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Compacted changelog topic holding the latest checkpoint of every orders partition,
+ * keyed by partition, so whichever instance is assigned a partition can pick up its state.
+ *
+ * Every instance also follows the changelog and keeps the latest checkpoint of each
+ * partition, which backs the cluster-wide statistics view. The follower assigns itself every
+ * changelog partition directly, with no consumer group, so nothing is left on the brokers
+ * when an instance restarts; partitions added to the topic are picked up within a minute.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AggregationChangelog {
+
+    private final KafkaTemplate<String, byte[]> changelogKafkaTemplate;
+    private final ConsumerFactory<String, byte[]> changelogConsumerFactory;
+
+    @Value("${kafka.topic.orders-aggregates}")
+    private String changelogTopic;
+
+    @Value("${kafka.aggregation.changelog.restore-timeout-ms:10000}")
+    private long restoreTimeoutMs;
+
+    private static final long PARTITION_REFRESH_MS = 60_000;
+    private static final long FOLLOWER_RETRY_MS = 5_000;
+
+    private final Map<TopicPartition, PartitionCheckpoint> latest = new ConcurrentHashMap<>();
+
+    private volatile boolean running;
+    private volatile Consumer<String, byte[]> followerConsumer;
+    private Thread follower;
+
+    @PostConstruct
+    void start() {
+        running = true;
+        follower = Thread.ofPlatform().name("aggregates-changelog").daemon().start(this::follow);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        Consumer<String, byte[]> consumer = followerConsumer;
+        if (consumer != null) {
+            consumer.wakeup();
+        }
+        LockSupport.unpark(follower);
+        follower.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    /**
+     * Publish checkpoints without waiting for the broker
+     */
+    public void publish(Collection<PartitionCheckpoint> checkpoints) {
+        for (PartitionCheckpoint checkpoint : checkpoints) {
+            send(checkpoint);
+        }
+    }
+
+    /**
+     * Publish checkpoints and wait until they are acknowledged, so the next owner of the
+     * partitions reads them on assignment
+     *
+     * @return true if every checkpoint was written
+     */
+    public boolean publishAndWait(Collection<PartitionCheckpoint> checkpoints) {
+        List<CompletableFuture<SendResult<String, byte[]>>> futures = new ArrayList<>();
+        for (PartitionCheckpoint checkpoint : checkpoints) {
+            futures.add(send(checkpoint));
+        }
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                    .get(restoreTimeoutMs, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            log.error("Failed to publish aggregation checkpoints: partitions={}, error={}",
+                    checkpoints.size(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Read the changelog from the beginning up to its current end
+     *
+     * @return Latest checkpoint by orders partition; partial if the restore timed out
+     */
+    public Map<TopicPartition, PartitionCheckpoint> restore() {
+        long start = System.nanoTime();
+        Map<TopicPartition, PartitionCheckpoint> checkpoints = new HashMap<>();
+        try (Consumer<String, byte[]> consumer = changelogConsumerFactory.createConsumer(null, "aggregates-restore")) {
+            List<PartitionInfo> infos = consumer.partitionsFor(changelogTopic);
+            if (infos == null || infos.isEmpty()) {
+                return checkpoints;
+            }
+            List<TopicPartition> partitions = infos.stream()
+                    .map(info -> new TopicPartition(info.topic(), info.partition()))
+                    .toList();
+            consumer.assign(partitions);
+            consumer.seekToBeginning(partitions);
+            Map<TopicPartition, Long> endOffsets = consumer.endOffsets(partitions);
+
+            long deadline = System.currentTimeMillis() + restoreTimeoutMs;
+            while (!caughtUp(consumer, endOffsets)) {
+                if (System.currentTimeMillis() > deadline) {
+                    log.warn("Aggregation changelog restore timed out after {}ms, using partial state",
+                            restoreTimeoutMs);
+                    break;
+                }
+                for (ConsumerRecord<String, byte[]> record : consumer.poll(Duration.ofMillis(200))) {
+                    PartitionCheckpoint checkpoint = decode(record);
+                    if (checkpoint != null) {
+                        checkpoints.put(new TopicPartition(checkpoint.topic(), checkpoint.partition()), checkpoint);
+                    }
+                }
+            }
+        }
+
+        latest.putAll(checkpoints);
+        log.info("Restored aggregation changelog: partitions={}, took={}ms",
+                checkpoints.size(), (System.nanoTime() - start) / 1_000_000);
+        return checkpoints;
+    }
+
+    /**
+     * Latest known checkpoint of every partition, from any instance
+     */
+    public Map<TopicPartition, PartitionCheckpoint> getLatest() {
+        return Map.copyOf(latest);
+    }
+
+    /**
+     * Follows the changelog from the beginning to keep the cluster-wide view current. With
+     * no group there are no committed offsets, so newly assigned partitions start at the
+     * earliest offset.
+     */
+    private void follow() {
+        try (Consumer<String, byte[]> consumer = changelogConsumerFactory.createConsumer(null, "aggregates-follower")) {
+            followerConsumer = consumer;
+            long nextRefresh = 0;
+            while (running) {
+                try {
+                    if (System.currentTimeMillis() >= nextRefresh) {
+                        assignAll(consumer);
+                        nextRefresh = System.currentTimeMillis() + PARTITION_REFRESH_MS;
+                    }
+                    if (consumer.assignment().isEmpty()) {
+                        pause();
+                        nextRefresh = 0;
+                        continue;
+                    }
+                    for (ConsumerRecord<String, byte[]> record : consumer.poll(Duration.ofSeconds(1))) {
+                        PartitionCheckpoint checkpoint = decode(record);
+                        if (checkpoint != null) {
+                            latest.put(new TopicPartition(checkpoint.topic(), checkpoint.partition()), checkpoint);
+                        }
+                    }
+                } catch (WakeupException e) {
+                    // stop() was called
+                } catch (KafkaException e) {
+                    log.warn("Failed to follow aggregation changelog, retrying: {}", e.getMessage());
+                    pause();
+                }
+            }
+        }
+    }
+
+    /**
+     * Wait before retrying; stop() ends the wait early
+     */
+    private void pause() {
+        if (running) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(FOLLOWER_RETRY_MS));
+        }
+    }
+
+    private void assignAll(Consumer<String, byte[]> consumer) {
+        List<PartitionInfo> infos = consumer.partitionsFor(changelogTopic);
+        if (infos == null || infos.size() == consumer.assignment().size()) {
+            return;
+        }
+        // Partitions already assigned keep their positions
+        consumer.assign(infos.stream().map(info -> new TopicPartition(info.topic(), info.partition())).toList());
+        log.info("Following aggregation changelog: partitions={}", infos.size());
+    }
+
+    private CompletableFuture<SendResult<String, byte[]>> send(PartitionCheckpoint checkpoint) {
+        latest.put(new TopicPartition(checkpoint.topic(), checkpoint.partition()), checkpoint);
+        String key = checkpoint.topic() + "-" + checkpoint.partition();
+        return changelogKafkaTemplate.send(changelogTopic, key, checkpoint.toBytes());
+    }
+
+    private boolean caughtUp(Consumer<String, byte[]> consumer, Map<TopicPartition, Long> endOffsets) {
+        for (Map.Entry<TopicPartition, Long> entry : endOffsets.entrySet()) {
+            if (consumer.position(entry.getKey()) < entry.getValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private PartitionCheckpoint decode(ConsumerRecord<String, byte[]> record) {
+        if (record.value() == null) {
+            return null;
+        }
+        try {
+            return PartitionCheckpoint.fromBytes(record.value());
+        } catch (IllegalArgumentException e) {
+            log.warn("Skipping malformed aggregation checkpoint: key={}, offset={}", record.key(), record.offset());
+            return null;
+        }
+    }
+}
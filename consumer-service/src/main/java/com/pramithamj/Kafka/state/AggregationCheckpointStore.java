@@ -0,0 +1,120 @@
+package com.pramithamj.kafka.state;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Local, memory-mapped snapshot file holding the latest checkpoint of every partition.
+ *
+ * Snapshots are written to a temporary file, forced to disk and atomically renamed, so a
+ * crash mid-write leaves the previous snapshot intact. Restores map the file read-only
+ * and decode it in one pass.
+ */
+@Slf4j
+@Component
+public class AggregationCheckpointStore {
+
+    private static final int MAGIC = 0x4F414747; // "OAGG"
+    private static final int FORMAT_VERSION = 1;
+    private static final String FILE_NAME = "aggregates.snapshot";
+
+    private final Path snapshotFile;
+
+    public AggregationCheckpointStore(@Value("${kafka.aggregation.checkpoint.dir:./data/checkpoints}") String directory) {
+        this.snapshotFile = Paths.get(directory, FILE_NAME);
+    }
+
+    /**
+     * Replace the snapshot with the given partition checkpoints
+     */
+    public void write(Collection<PartitionCheckpoint> checkpoints) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(checkpoints.size());
+            for (PartitionCheckpoint checkpoint : checkpoints) {
+                checkpoint.writeTo(out);
+            }
+            out.flush();
+            byte[] data = bytes.toByteArray();
+
+            Files.createDirectories(snapshotFile.getParent());
+            Path temp = snapshotFile.resolveSibling(FILE_NAME + ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, data.length);
+                buffer.put(data);
+                buffer.force();
+            }
+            Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write aggregation snapshot " + snapshotFile, e);
+        }
+    }
+
+    /**
+     * Load the latest snapshot
+     *
+     * @return Checkpoints by partition, empty if there is no usable snapshot
+     */
+    public Map<TopicPartition, PartitionCheckpoint> read() {
+        Map<TopicPartition, PartitionCheckpoint> checkpoints = new HashMap<>();
+        if (!Files.exists(snapshotFile)) {
+            return checkpoints;
+        }
+
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            byte[] data = new byte[buffer.remaining()];
+            buffer.get(data);
+
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                log.warn("Ignoring aggregation snapshot with unknown format: {}", snapshotFile);
+                return checkpoints;
+            }
+            int partitions = in.readInt();
+            for (int i = 0; i < partitions; i++) {
+                PartitionCheckpoint checkpoint = PartitionCheckpoint.readFrom(in);
+                checkpoints.put(new TopicPartition(checkpoint.topic(), checkpoint.partition()), checkpoint);
+            }
+        } catch (IOException e) {
+            log.error("Failed to read aggregation snapshot {}, starting from empty state", snapshotFile, e);
+            return new HashMap<>();
+        }
+
+        log.info("Loaded aggregation snapshot: partitions={}, bytes={}, took={}us",
+                checkpoints.size(), snapshotFileSize(), (System.nanoTime() - start) / 1000);
+        return checkpoints;
+    }
+
+    private long snapshotFileSize() {
+        try {
+            return Files.size(snapshotFile);
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package com.pramithamj.kafka.state;
+
+import com.pramithamj.kafka.aggregation.DDSketch;
+import com.pramithamj.kafka.aggregation.PriceQuantileTracker;
+import com.pramithamj.kafka.aggregation.RunningAverageCalculator;
+import com.pramithamj.kafka.model.Order;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps per-partition aggregation state for the orders topic, checkpoints it periodically
+ * and moves it with the partitions on rebalance.
+ *
+ * Checkpoints go to the local snapshot and to the changelog topic. Revoked partitions are
+ * flushed to the changelog and their contribution is removed from this instance's
+ * calculators; assigned partitions load the newer of the local and changelog checkpoint.
+ *
+ * On assignment the restored state is reconciled with the committed offset:
+ * - snapshot behind the commit: seek back and replay the gap for aggregation only
+ *   (those orders were already processed)
+ * - snapshot ahead of the commit: redelivered orders are processed again but not
+ *   counted twice
+ *
+ * Orders that succeed via the retry topics update the live calculators but are not
+ * part of the checkpoint.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AggregationStateManager implements ConsumerAwareRebalanceListener {
+
+    private final AggregationCheckpointStore checkpointStore;
+    private final AggregationChangelog changelog;
+    private final RunningAverageCalculator averageCalculator;
+    private final PriceQuantileTracker quantileTracker;
+
+    @Value("${kafka.topic.orders}")
+    private String ordersTopic;
+
+    @Value("${kafka.aggregation.quantiles.relative-accuracy:0.01}")
+    private double relativeAccuracy;
+
+    private final Map<TopicPartition, PartitionAggregateState> states = new ConcurrentHashMap<>();
+    private final Map<TopicPartition, Long> processFrom = new ConcurrentHashMap<>();
+    private final Map<TopicPartition, PartitionCheckpoint> restored = new ConcurrentHashMap<>();
+    private volatile int partitionCount;
+
+    @PostConstruct
+    void loadSnapshot() {
+        restored.putAll(checkpointStore.read());
+    }
+
+    /**
+     * @return false while replaying already-committed records to rebuild aggregates
+     */
+    public boolean shouldProcess(ConsumerRecord<?, ?> record) {
+        Long from = processFrom.get(new TopicPartition(record.topic(), record.partition()));
+        return from == null || record.offset() >= from;
+    }
+
+    /**
+     * @return true if the record's contribution is already part of the restored state
+     */
+    public boolean isAggregated(ConsumerRecord<?, ?> record) {
+        PartitionAggregateState state = states.get(new TopicPartition(record.topic(), record.partition()));
+        return state != null && state.isHandled(record.offset());
+    }
+
+    /**
+     * @return Offset up to which a tracked partition's records are known to be handled,
+     *         by this instance or per the restored checkpoint; -1 if not tracked
+     */
+    public long handledThrough(TopicPartition partition) {
+        PartitionAggregateState state = states.get(partition);
+        return state != null ? state.getContiguousOffset() : -1;
+    }
+
+    /**
+     * Add a processed order to its partition's state (no-op for untracked topics)
+     */
+    public void apply(ConsumerRecord<?, ?> record, Order order) {
+        PartitionAggregateState state = states.get(new TopicPartition(record.topic(), record.partition()));
+        if (state != null) {
+            state.apply(record.offset(), order.getProduct(), order.getPrice());
+        }
+    }
+
+    /**
+     * Mark a record handled without a contribution, e.g. when it was sent to the retry topic
+     */
+    public void markHandled(ConsumerRecord<?, ?> record) {
+        PartitionAggregateState state = states.get(new TopicPartition(record.topic(), record.partition()));
+        if (state != null) {
+            state.markHandled(record.offset());
+        }
+    }
+
+    /**
+     * Mark every record of a tracked partition below offset handled, once the consumer
+     * has finished with all of them
+     */
+    public void advanceTo(TopicPartition partition, long offset) {
+        PartitionAggregateState state = states.get(partition);
+        if (state != null) {
+            state.advanceTo(offset);
+        }
+    }
+
+    /**
+     * @return Orders partitions currently owned by this instance
+     */
+    public Set<TopicPartition> getAssignedPartitions() {
+        return Set.copyOf(states.keySet());
+    }
+
+    /**
+     * @return Number of partitions of the orders topic, 0 until the first assignment
+     */
+    public int getPartitionCount() {
+        return partitionCount;
+    }
+
+    /**
+     * Latest state of every orders partition across the consumer group: live state for
+     * partitions owned here, the last changelog checkpoint for the others
+     */
+    public Map<TopicPartition, PartitionCheckpoint> getClusterCheckpoints() {
+        Map<TopicPartition, PartitionCheckpoint> checkpoints = new HashMap<>();
+        changelog.getLatest().forEach((tp, checkpoint) -> {
+            if (ordersTopic.equals(tp.topic())) {
+                checkpoints.put(tp, checkpoint);
+            }
+        });
+        states.forEach((tp, state) -> checkpoints.put(tp, state.snapshot(tp.topic(), tp.partition())));
+        return checkpoints;
+    }
+
+    /**
+     * Clear the aggregated values of every partition so a statistics reset survives restarts
+     */
+    public void reset() {
+        states.values().forEach(PartitionAggregateState::clearAggregates);
+        restored.clear();
+    }
+
+    /**
+     * Write a snapshot of every tracked partition and publish the owned ones
+     */
+    @Scheduled(fixedDelayString = "${kafka.aggregation.checkpoint.interval-ms:10000}",
+               initialDelayString = "${kafka.aggregation.checkpoint.interval-ms:10000}")
+    public synchronized void checkpoint() {
+        if (states.isEmpty() && restored.isEmpty()) {
+            return;
+        }
+        List<PartitionCheckpoint> owned = new ArrayList<>();
+        states.forEach((tp, state) -> owned.add(state.snapshot(tp.topic(), tp.partition())));
+        List<PartitionCheckpoint> checkpoints = new ArrayList<>(owned);
+        // Keep checkpoints of partitions this instance does not own, in case they come back
+        restored.forEach((tp, checkpoint) -> {
+            if (!states.containsKey(tp)) {
+                checkpoints.add(checkpoint);
+            }
+        });
+        checkpointStore.write(checkpoints);
+        changelog.publish(owned);
+        log.debug("Aggregation checkpoint written: partitions={}, owned={}", checkpoints.size(), owned.size());
+    }
+
+    @Override
+    public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        List<TopicPartition> added = partitions.stream()
+                .filter(partition -> ordersTopic.equals(partition.topic()) && !states.containsKey(partition))
+                .toList();
+        if (added.isEmpty()) {
+            return;
+        }
+        partitionCount = consumer.partitionsFor(ordersTopic).size();
+        Map<TopicPartition, PartitionCheckpoint> published = changelog.restore();
+
+        for (TopicPartition partition : added) {
+            OffsetAndMetadata committed = consumer.committed(Set.of(partition)).get(partition);
+            long committedOffset = committed != null ? committed.offset() : consumer.position(partition);
+            processFrom.put(partition, committedOffset);
+
+            PartitionCheckpoint checkpoint = newer(restored.remove(partition), published.get(partition));
+            if (checkpoint == null) {
+                states.put(partition, new PartitionAggregateState(relativeAccuracy, committedOffset - 1));
+                continue;
+            }
+
+            states.put(partition, PartitionAggregateState.restore(checkpoint, relativeAccuracy));
+            averageCalculator.add(checkpoint.count(), checkpoint.totalInCents());
+            checkpoint.productSketches().forEach((product, bytes) ->
+                    quantileTracker.merge(product, DDSketch.fromBytes(bytes)));
+
+            long replayFrom = checkpoint.contiguousOffset() + 1;
+            if (replayFrom < committedOffset) {
+                consumer.seek(partition, replayFrom);
+            }
+            log.info("Restored aggregation state: partition={}, orders={}, snapshotOffset={}, committedOffset={}, replay={}",
+                    partition, checkpoint.count(), checkpoint.contiguousOffset(), committedOffset,
+                    Math.max(0, committedOffset - replayFrom));
+        }
+    }
+
+    /**
+     * Flush revoked partitions to the changelog for their next owner and stop counting
+     * them locally. The container commits offsets after this returns, so the flushed
+     * state is never behind the commit.
+     */
+    @Override
+    public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        List<PartitionCheckpoint> flushed = new ArrayList<>();
+        for (TopicPartition partition : partitions) {
+            PartitionCheckpoint checkpoint = release(partition);
+            if (checkpoint != null) {
+                flushed.add(checkpoint);
+                restored.put(partition, checkpoint);
+            }
+        }
+        if (!flushed.isEmpty()) {
+            changelog.publishAndWait(flushed);
+            checkpoint();
+            log.info("Flushed revoked aggregation state: partitions={}", flushed.size());
+        }
+    }
+
+    /**
+     * Lost partitions may already have a new owner, so their state is dropped without publishing
+     */
+    @Override
+    public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        for (TopicPartition partition : partitions) {
+            release(partition);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        checkpoint();
+    }
+
+    /**
+     * Stop tracking a partition and remove its contribution from the local calculators
+     *
+     * @return The partition's final checkpoint, or null if it was not tracked
+     */
+    private PartitionCheckpoint release(TopicPartition partition) {
+        PartitionAggregateState state = states.remove(partition);
+        processFrom.remove(partition);
+        if (state == null) {
+            return null;
+        }
+        PartitionCheckpoint checkpoint = state.snapshot(partition.topic(), partition.partition());
+        averageCalculator.add(-checkpoint.count(), -checkpoint.totalInCents());
+        checkpoint.productSketches().forEach((product, bytes) ->
+                quantileTracker.subtract(product, DDSketch.fromBytes(bytes)));
+        return checkpoint;
+    }
+
+    private static PartitionCheckpoint newer(PartitionCheckpoint local, PartitionCheckpoint published) {
+        if (local == null) {
+            return published;
+        }
+        if (published == null) {
+            return local;
+        }
+        return published.contiguousOffset() >= local.contiguousOffset() ? published : local;
+    }
+}
@@ -0,0 +1,121 @@
+package com.pramithamj.kafka.state;
+
+import com.pramithamj.kafka.aggregation.DDSketch;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Aggregation state contributed by one partition of the orders topic, together with
+ * the offsets it covers.
+ *
+ * Offsets up to contiguousOffset are all handled; handledAhead holds offsets above it
+ * that completed out of order (parallel mode). Offsets that never carry an order are
+ * skipped by advanceTo once the consumer has moved past them. Updates and snapshots share the same
+ * monitor, so a checkpoint always pairs the state with exactly the offsets it contains.
+ * The monitor is normally only taken by the thread that owns the partition.
+ */
+public class PartitionAggregateState {
+
+    private final double relativeAccuracy;
+    private final Map<String, DDSketch> productSketches = new HashMap<>();
+    private final TreeSet<Long> handledAhead = new TreeSet<>();
+    private long contiguousOffset;
+    private long count;
+    private long totalInCents;
+
+    public PartitionAggregateState(double relativeAccuracy, long contiguousOffset) {
+        this.relativeAccuracy = relativeAccuracy;
+        this.contiguousOffset = contiguousOffset;
+    }
+
+    /**
+     * Rebuild the state saved in a checkpoint
+     */
+    public static PartitionAggregateState restore(PartitionCheckpoint checkpoint, double relativeAccuracy) {
+        PartitionAggregateState state = new PartitionAggregateState(relativeAccuracy, checkpoint.contiguousOffset());
+        for (long offset : checkpoint.handledAhead()) {
+            state.handledAhead.add(offset);
+        }
+        state.count = checkpoint.count();
+        state.totalInCents = checkpoint.totalInCents();
+        checkpoint.productSketches().forEach((product, bytes) ->
+                state.productSketches.put(product, DDSketch.fromBytes(bytes)));
+        return state;
+    }
+
+    /**
+     * @return Highest offset such that it and every offset below it are handled
+     */
+    public synchronized long getContiguousOffset() {
+        return contiguousOffset;
+    }
+
+    /**
+     * @return true if the offset's contribution is already part of this state
+     */
+    public synchronized boolean isHandled(long offset) {
+        return offset <= contiguousOffset || handledAhead.contains(offset);
+    }
+
+    /**
+     * Add an order's contribution and mark its offset handled
+     */
+    public synchronized void apply(long offset, String product, double price) {
+        count++;
+        totalInCents += Math.round(price * 100);
+        productSketches.computeIfAbsent(product, p -> new DDSketch(relativeAccuracy)).add(price);
+        markHandled(offset);
+    }
+
+    /**
+     * Mark an offset handled without contributing (e.g. the order went to the retry topic)
+     */
+    public synchronized void markHandled(long offset) {
+        if (offset <= contiguousOffset) {
+            return;
+        }
+        handledAhead.add(offset);
+        collapse();
+    }
+
+    /**
+     * Mark every offset below the given one handled. Offsets the consumer moved past
+     * without an order to apply or mark (transaction markers, aborted or undeserializable
+     * records) would otherwise hold contiguousOffset back for good.
+     */
+    public synchronized void advanceTo(long offset) {
+        if (offset - 1 <= contiguousOffset) {
+            return;
+        }
+        contiguousOffset = offset - 1;
+        handledAhead.headSet(contiguousOffset, true).clear();
+        collapse();
+    }
+
+    /**
+     * Drop the aggregated values, keeping the offsets they covered
+     */
+    public synchronized void clearAggregates() {
+        count = 0;
+        totalInCents = 0;
+        productSketches.clear();
+    }
+
+    private void collapse() {
+        while (!handledAhead.isEmpty() && handledAhead.first() == contiguousOffset + 1) {
+            contiguousOffset = handledAhead.pollFirst();
+        }
+    }
+
+    /**
+     * Consistent copy of the state for checkpointing
+     */
+    public synchronized PartitionCheckpoint snapshot(String topic, int partition) {
+        Map<String, byte[]> sketches = new HashMap<>();
+        productSketches.forEach((product, sketch) -> sketches.put(product, sketch.toBytes()));
+        long[] ahead = handledAhead.stream().mapToLong(Long::longValue).toArray();
+        return new PartitionCheckpoint(topic, partition, contiguousOffset, ahead, count, totalInCents, sketches);
+    }
+}
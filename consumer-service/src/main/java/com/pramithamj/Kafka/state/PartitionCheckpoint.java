@@ -0,0 +1,91 @@
+package com.pramithamj.kafka.state;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Serialized aggregation state of one partition
+ *
+ * @param topic Source topic
+ * @param partition Source partition
+ * @param contiguousOffset Every offset up to and including this one is reflected in the state
+ * @param handledAhead Offsets above contiguousOffset that are also reflected
+ * @param count Number of orders aggregated
+ * @param totalInCents Sum of their prices, in cents
+ * @param productSketches Serialized price sketch per product
+ */
+public record PartitionCheckpoint(String topic, int partition, long contiguousOffset, long[] handledAhead,
+                                  long count, long totalInCents, Map<String, byte[]> productSketches) {
+
+    /**
+     * Standalone binary form, as published to the changelog topic
+     */
+    public byte[] toBytes() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            writeTo(out);
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Rebuild a checkpoint produced by {@link #toBytes()}
+     */
+    public static PartitionCheckpoint fromBytes(byte[] bytes) {
+        try {
+            return readFrom(new DataInputStream(new ByteArrayInputStream(bytes)));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed partition checkpoint", e);
+        }
+    }
+
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeUTF(topic);
+        out.writeInt(partition);
+        out.writeLong(contiguousOffset);
+        out.writeInt(handledAhead.length);
+        for (long offset : handledAhead) {
+            out.writeLong(offset);
+        }
+        out.writeLong(count);
+        out.writeLong(totalInCents);
+        out.writeInt(productSketches.size());
+        for (Map.Entry<String, byte[]> entry : productSketches.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeInt(entry.getValue().length);
+            out.write(entry.getValue());
+        }
+    }
+
+    static PartitionCheckpoint readFrom(DataInputStream in) throws IOException {
+        String topic = in.readUTF();
+        int partition = in.readInt();
+        long contiguousOffset = in.readLong();
+        long[] handledAhead = new long[in.readInt()];
+        for (int i = 0; i < handledAhead.length; i++) {
+            handledAhead[i] = in.readLong();
+        }
+        long count = in.readLong();
+        long totalInCents = in.readLong();
+        int products = in.readInt();
+        Map<String, byte[]> productSketches = new HashMap<>();
+        for (int i = 0; i < products; i++) {
+            String product = in.readUTF();
+            byte[] sketch = new byte[in.readInt()];
+            in.readFully(sketch);
+            productSketches.put(product, sketch);
+        }
+        return new PartitionCheckpoint(topic, partition, contiguousOffset, handledAhead,
+                count, totalInCents, productSketches);
+    }
+}
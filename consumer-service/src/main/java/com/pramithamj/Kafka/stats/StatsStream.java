@@ -0,0 +1,392 @@
+package com.pramithamj.kafka.stats;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pramithamj.kafka.aggregation.RunningAverageCalculator;
+import com.pramithamj.kafka.consumer.OrderConsumer;
+import com.pramithamj.kafka.dlq.DLQStore;
+import com.pramithamj.kafka.flow.FlowController;
+import com.pramithamj.kafka.metrics.ConsumerMetrics;
+import com.pramithamj.kafka.retry.RetryHandler;
+import com.pramithamj.kafka.state.AggregationStateManager;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Pushes consumer statistics to dashboards over Server-Sent Events.
+ *
+ * Every interval a single thread collects the statistics once into an immutable snapshot and
+ * renders it to JSON. A new subscriber gets the latest snapshot as a "snapshot" event; after
+ * that every subscriber gets the same pre-rendered "delta" event, holding only the top-level
+ * fields that changed since the previous tick, and nothing when none did. The cost of a tick
+ * is one collection and one rendering however many dashboards are open; each subscriber only
+ * adds a write. While nothing changes, a comment is sent every heartbeat interval so dead
+ * connections are noticed and proxies keep idle ones open.
+ *
+ * Events are built under the lock but written outside it: each subscriber has its own queue,
+ * drained by a send thread while it is non-empty, so a slow browser only delays itself. A
+ * subscriber with more than max-queued-events unsent events has fallen behind and is dropped;
+ * its browser reconnects to a fresh snapshot.
+ *
+ * Streams end after timeout-ms and browsers reconnect to a fresh snapshot.
+ */
+@Slf4j
+@Component
+public class StatsStream {
+
+    static final String SNAPSHOT_EVENT = "snapshot";
+    static final String DELTA_EVENT = "delta";
+
+    private static final int RECENT_ENTRIES = 10;
+
+    private final Supplier<Map<String, Object>> collector;
+    private final ObjectMapper objectMapper;
+    private final long intervalMs;
+    private final long heartbeatIntervalMs;
+    private final long timeoutMs;
+    private final int maxSubscribers;
+    private final int maxQueuedEvents;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("stats-stream").daemon().factory());
+    // At most one running send per subscriber. Platform threads, since a blocked write holds
+    // the emitter's monitor and would pin a virtual thread's carrier.
+    private final ExecutorService sendExecutor = Executors.newCachedThreadPool(
+            Thread.ofPlatform().name("stats-stream-send-", 0).daemon().factory());
+    // Guards the latest snapshot against subscribers joining during a broadcast, so every
+    // subscriber's queue starts with a snapshot followed by all later deltas
+    private final Object lock = new Object();
+    private Snapshot latest;
+    private long lastSentAt;
+
+    /**
+     * One published state of the statistics
+     *
+     * @param sequence Increases by one on every tick that changed something
+     * @param stats Unmodifiable, values are JSON-serializable
+     * @param json The snapshot event data, rendered once
+     */
+    record Snapshot(long sequence, long timestamp, Map<String, Object> stats, String json) {
+    }
+
+    @Autowired
+    public StatsStream(OrderConsumer orderConsumer,
+                       RunningAverageCalculator averageCalculator,
+                       AggregationStateManager stateManager,
+                       FlowController flowController,
+                       DLQStore dlqStore,
+                       RetryHandler retryHandler,
+                       ConsumerMetrics metrics,
+                       ObjectMapper objectMapper,
+                       MeterRegistry meterRegistry,
+                       @Value("${kafka.consumer.stats-stream.interval-ms:1000}") long intervalMs,
+                       @Value("${kafka.consumer.stats-stream.heartbeat-interval-ms:15000}") long heartbeatIntervalMs,
+                       @Value("${kafka.consumer.stats-stream.timeout-ms:1800000}") long timeoutMs,
+                       @Value("${kafka.consumer.stats-stream.max-subscribers:100}") int maxSubscribers,
+                       @Value("${kafka.consumer.stats-stream.max-queued-events:10}") int maxQueuedEvents) {
+        this(() -> collect(orderConsumer, averageCalculator, stateManager, flowController, dlqStore,
+                        retryHandler, metrics),
+                objectMapper, intervalMs, heartbeatIntervalMs, timeoutMs, maxSubscribers, maxQueuedEvents);
+        Gauge.builder("orders.consumer.stats.stream.subscribers", subscribers, List::size)
+                .description("Open statistics streams")
+                .register(meterRegistry);
+    }
+
+    StatsStream(Supplier<Map<String, Object>> collector, ObjectMapper objectMapper, long intervalMs,
+                long heartbeatIntervalMs, long timeoutMs, int maxSubscribers, int maxQueuedEvents) {
+        this.collector = collector;
+        this.objectMapper = objectMapper;
+        this.intervalMs = intervalMs;
+        this.heartbeatIntervalMs = heartbeatIntervalMs;
+        this.timeoutMs = timeoutMs;
+        this.maxSubscribers = maxSubscribers;
+        this.maxQueuedEvents = maxQueuedEvents;
+    }
+
+    @PostConstruct
+    void start() {
+        executor.scheduleWithFixedDelay(this::tick, 0, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+        subscribers.forEach(Subscriber::close);
+        subscribers.clear();
+        sendExecutor.shutdown();
+    }
+
+    /**
+     * Open a stream starting with the latest snapshot
+     *
+     * @return Empty if max-subscribers streams are already open
+     */
+    public Optional<SseEmitter> subscribe() {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        return subscribe(emitter) ? Optional.of(emitter) : Optional.empty();
+    }
+
+    boolean subscribe(SseEmitter emitter) {
+        Subscriber subscriber = new Subscriber(emitter);
+        synchronized (lock) {
+            if (subscribers.size() >= maxSubscribers) {
+                return false;
+            }
+            if (latest != null) {
+                subscriber.offer(SseEmitter.event().name(SNAPSHOT_EVENT)
+                        .id(Long.toString(latest.sequence())).data(latest.json()).build());
+            }
+            subscribers.add(subscriber);
+        }
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscriber.dispatch();
+        return true;
+    }
+
+    int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    Snapshot getLatest() {
+        synchronized (lock) {
+            return latest;
+        }
+    }
+
+    private void tick() {
+        try {
+            publish(System.currentTimeMillis());
+        } catch (RuntimeException e) {
+            // Keep the schedule alive; the next tick tries again
+            log.warn("Failed to publish consumer statistics", e);
+        }
+    }
+
+    /**
+     * Collect the statistics and send what changed to every subscriber
+     *
+     * @return The delta event data sent, or null if nothing changed
+     */
+    String publish(long now) {
+        Map<String, Object> stats = Collections.unmodifiableMap(new LinkedHashMap<>(collector.get()));
+        String json;
+        synchronized (lock) {
+            Snapshot previous = latest;
+            Map<String, Object> changes = previous == null ? stats : changes(previous.stats(), stats);
+            if (changes.isEmpty()) {
+                if (now - lastSentAt < heartbeatIntervalMs) {
+                    return null;
+                }
+                enqueue(SseEmitter.event().comment("heartbeat").build());
+                lastSentAt = now;
+                json = null;
+            } else {
+
+                long sequence = previous == null ? 1 : previous.sequence() + 1;
+                Map<String, Object> snapshot = new LinkedHashMap<>();
+                snapshot.put("sequence", sequence);
+                snapshot.put("timestamp", now);
+                snapshot.put("stats", stats);
+                latest = new Snapshot(sequence, now, stats, render(snapshot));
+
+                Map<String, Object> delta = new LinkedHashMap<>();
+                delta.put("sequence", sequence);
+                delta.put("timestamp", now);
+                delta.put("changes", changes);
+                json = render(delta);
+                enqueue(SseEmitter.event().name(DELTA_EVENT).id(Long.toString(sequence)).data(json).build());
+                lastSentAt = now;
+            }
+        }
+        // The writes happen on the send threads, outside the lock
+        subscribers.forEach(Subscriber::dispatch);
+        return json;
+    }
+
+    /**
+     * Top-level fields of next that are new or differ from previous. Fields are never
+     * removed, so a missing field needs no marker.
+     */
+    static Map<String, Object> changes(Map<String, Object> previous, Map<String, Object> next) {
+        Map<String, Object> changes = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> field : next.entrySet()) {
+            if (!Objects.equals(previous.get(field.getKey()), field.getValue())) {
+                changes.put(field.getKey(), field.getValue());
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Queue an event, built once, for every subscriber; drops those that fell behind
+     */
+    private void enqueue(Set<ResponseBodyEmitter.DataWithMediaType> event) {
+        for (Subscriber subscriber : subscribers) {
+            if (!subscriber.offer(event)) {
+                log.debug("Dropping a statistics stream that fell {} events behind", maxQueuedEvents);
+                subscribers.remove(subscriber);
+                subscriber.close();
+            }
+        }
+    }
+
+    private String render(Map<String, Object> value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Statistics are not serializable", e);
+        }
+    }
+
+    /**
+     * One open stream and the events not yet written to it
+     */
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final Queue<Set<ResponseBodyEmitter.DataWithMediaType>> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private final AtomicBoolean completed = new AtomicBoolean();
+        private volatile boolean closed;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        /**
+         * @return false if the subscriber is closed or already has max-queued-events unsent
+         */
+        boolean offer(Set<ResponseBodyEmitter.DataWithMediaType> event) {
+            if (closed) {
+                return false;
+            }
+            if (queued.incrementAndGet() > maxQueuedEvents) {
+                queued.decrementAndGet();
+                return false;
+            }
+            pending.add(event);
+            return true;
+        }
+
+        /**
+         * Start a send thread unless one is already draining this subscriber
+         */
+        void dispatch() {
+            if (!closed && !pending.isEmpty() && sending.compareAndSet(false, true)) {
+                sendExecutor.execute(this::drain);
+            }
+        }
+
+        /**
+         * Stop sending and complete the stream. Never waits for a write in progress: completing
+         * the emitter would, so that is then left to the send thread.
+         */
+        void close() {
+            closed = true;
+            if (sending.compareAndSet(false, true)) {
+                try {
+                    complete();
+                } finally {
+                    sending.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                Set<ResponseBodyEmitter.DataWithMediaType> event;
+                while (!closed && (event = pending.poll()) != null) {
+                    try {
+                        emitter.send(event);
+                    } catch (Exception e) {
+                        // Client gone or stream already completed; the container cleans up the request
+                        closed = true;
+                        subscribers.remove(this);
+                    }
+                    queued.decrementAndGet();
+                }
+            } finally {
+                sending.set(false);
+            }
+            if (closed) {
+                complete();
+            } else {
+                // An event may have been queued after the last poll, before the flag was cleared
+                dispatch();
+            }
+        }
+
+        private void complete() {
+            if (completed.compareAndSet(false, true)) {
+                pending.clear();
+                emitter.complete();
+            }
+        }
+    }
+
+    /**
+     * Everything the dashboard shows about this instance. Values must implement equals by
+     * content, since that is how changes are detected.
+     */
+    private static Map<String, Object> collect(OrderConsumer orderConsumer,
+                                               RunningAverageCalculator averageCalculator,
+                                               AggregationStateManager stateManager,
+                                               FlowController flowController,
+                                               DLQStore dlqStore,
+                                               RetryHandler retryHandler,
+                                               ConsumerMetrics metrics) {
+        RunningAverageCalculator.Snapshot snapshot = averageCalculator.snapshot();
+        List<Integer> assigned = stateManager.getAssignedPartitions().stream()
+                .map(TopicPartition::partition)
+                .sorted()
+                .toList();
+        List<Map<String, Object>> retries = retryHandler.getRecentRetries();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ordersProcessed", snapshot.count());
+        stats.put("totalAmount", snapshot.totalAmount());
+        stats.put("runningAverage", snapshot.average());
+        stats.put("errorCount", orderConsumer.getErrorCount());
+        stats.put("retryCount", metrics.getRetriesSent());
+        stats.put("dlqCount", dlqStore.size());
+        stats.put("assignedPartitions", assigned);
+        stats.put("partitionCount", stateManager.getPartitionCount());
+        stats.put("partial", assigned.size() < stateManager.getPartitionCount());
+        stats.put("dlq", dlqStore.query(new DLQStore.Filter(null, null, null, null, DLQStore.Status.ALL),
+                0, RECENT_ENTRIES).entries());
+        stats.put("retries", retries.subList(0, Math.min(RECENT_ENTRIES, retries.size())));
+        stats.put("flow", flowController.getStatus());
+        return stats;
+    }
+}
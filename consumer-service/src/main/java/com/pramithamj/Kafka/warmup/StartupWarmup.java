@@ -0,0 +1,138 @@
+package com.pramithamj.kafka.warmup;
+
+import com.pramithamj.kafka.model.Order;
+import com.pramithamj.kafka.model.Product;
+import com.pramithamj.kafka.retry.RetryHandler;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.common.utils.Utils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Does the work of the first retry, DLQ and replay sends, and of reading the first order,
+ * at startup instead.
+ *
+ * Spring Boot reports readiness (/actuator/health/readiness) as accepting traffic only once
+ * application runners have finished, so until this one has:
+ * - resolved the Order and OrderV2 schema ids of the orders, retry tier and DLQ topics
+ *   through the configured value serializer, and the writer schemas behind them through the
+ *   configured value deserializer; with the pooled serde they land in the SchemaIdCache that
+ *   the serdes of the listeners and producers share, so their first record does not wait for
+ *   the registry (and, with a cache path, later restarts load them from disk)
+ * - created the retry/DLQ producer (in exactly-once mode a transactional one, with its
+ *   transactions initialized) and the changelog producer, and fetched the metadata of every
+ *   topic they write to over a broker connection
+ *
+ * The listener containers start with the context and connect on their own. Connections to
+ * the remaining partition leaders are opened by the client on the first batch sent to each
+ * of them. Warm-up is best effort: after timeout-ms, or on any failure, it is logged and
+ * startup carries on, since the service would fail the same way on first use.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StartupWarmup implements ApplicationRunner {
+
+    private final ProducerFactory<String, Object> producerFactory;
+    private final ProducerFactory<String, byte[]> changelogProducerFactory;
+    private final ConsumerFactory<String, Object> consumerFactory;
+    private final RetryHandler retryHandler;
+
+    @Value("${kafka.topic.orders}")
+    private String ordersTopic;
+
+    @Value("${kafka.topic.orders-dlq}")
+    private String dlqTopic;
+
+    @Value("${kafka.topic.orders-aggregates}")
+    private String aggregatesTopic;
+
+    @Value("${kafka.warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${kafka.warmup.timeout-ms:30000}")
+    private long timeoutMs;
+
+    @Override
+    public void run(ApplicationArguments args) throws InterruptedException {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        Thread warmup = Thread.ofPlatform().name("startup-warmup").daemon().start(this::warmUp);
+        warmup.join(timeoutMs);
+        if (warmup.isAlive()) {
+            log.warn("Startup warm-up still running after {}ms, reporting ready without it", timeoutMs);
+        } else {
+            log.info("Startup warm-up finished in {}ms", (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    private void warmUp() {
+        List<String> orderTopics = new ArrayList<>();
+        orderTopics.add(ordersTopic);
+        orderTopics.addAll(retryHandler.getTierTopics());
+        orderTopics.add(dlqTopic);
+        try {
+            resolveSchemas(orderTopics);
+            fetchMetadata(producerFactory, orderTopics);
+            fetchMetadata(changelogProducerFactory, List.of(aggregatesTopic));
+        } catch (Exception e) {
+            log.warn("Startup warm-up failed, the first use will retry: {}", e.toString());
+        }
+    }
+
+    private void resolveSchemas(List<String> topics) throws ClassNotFoundException {
+        Map<String, Object> producerConfigs = producerFactory.getConfigurationProperties();
+        Map<String, Object> consumerConfigs = consumerFactory.getConfigurationProperties();
+        Object deserializerType = consumerConfigs.get(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS);
+        Serializer<Object> serializer = newInstance(producerConfigs.get(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG));
+        Deserializer<Object> deserializer = newInstance(deserializerType != null
+                ? deserializerType : consumerConfigs.get(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG));
+        try (serializer; deserializer) {
+            serializer.configure(producerConfigs, false);
+            deserializer.configure(consumerConfigs, false);
+            // One order each for the Order and, when order.encoding=v2, the OrderV2 subject
+            List<Order> samples = List.of(new Order("warmup", "warmup", 0f, 0L),
+                    new Order(UUID.randomUUID().toString(), Product.Item1.name(), 0f, 0L));
+            for (String topic : topics) {
+                for (Order sample : samples) {
+                    deserializer.deserialize(topic, serializer.serialize(topic, sample));
+                }
+            }
+        }
+        log.info("Resolved Order schema ids for {}", topics);
+    }
+
+    private void fetchMetadata(ProducerFactory<String, ?> factory, List<String> topics) {
+        // The factory hands out its shared (or cached transactional) producer, the one later
+        // sends go through; closing the handle leaves it open
+        try (Producer<String, ?> producer = factory.createProducer()) {
+            for (String topic : topics) {
+                log.info("Fetched metadata for {} partitions of {}", producer.partitionsFor(topic).size(), topic);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T newInstance(Object type) throws ClassNotFoundException {
+        Class<?> c = type instanceof Class<?> cls ? cls : Class.forName(type.toString());
+        return (T) Utils.newInstance(c);
+    }
+}
@@ -0,0 +1,54 @@
+package com.pramithamj.kafka.aggregation;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DDSketchTest {
+
+	@Test
+	void quantilesStayWithinRelativeAccuracy() {
+		DDSketch sketch = new DDSketch(0.01);
+		for (int i = 1; i <= 10_000; i++) {
+			sketch.add(i / 10.0);
+		}
+
+		assertEquals(500.0, sketch.getQuantile(0.5), 500.0 * 0.01);
+		assertEquals(990.0, sketch.getQuantile(0.99), 990.0 * 0.01);
+	}
+
+	@Test
+	void serializedSketchesMergeLikeTheOriginals() {
+		DDSketch first = new DDSketch(0.01);
+		DDSketch second = new DDSketch(0.01);
+		for (int i = 1; i <= 1_000; i++) {
+			first.add(i);
+			second.add(i + 1_000);
+		}
+
+		DDSketch merged = DDSketch.fromBytes(first.toBytes());
+		merged.merge(DDSketch.fromBytes(second.toBytes()));
+
+		assertEquals(2_000, merged.getCount());
+		assertEquals(1_000.0, merged.getQuantile(0.5), 1_000.0 * 0.01);
+	}
+
+	@Test
+	void subtractingAMergedSketchRestoresTheOriginal() {
+		DDSketch owned = new DDSketch(0.01);
+		DDSketch revoked = new DDSketch(0.01);
+		for (int i = 1; i <= 100; i++) {
+			owned.add(i);
+			revoked.add(i * 1_000);
+		}
+
+		DDSketch combined = new DDSketch(0.01);
+		combined.merge(owned);
+		combined.merge(revoked);
+		combined.subtract(revoked);
+
+		assertEquals(100, combined.getCount());
+		assertEquals(owned.getQuantile(0.99), combined.getQuantile(0.99));
+	}
+
+}
@@ -0,0 +1,80 @@
+package com.pramithamj.kafka.aggregation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares the striped RunningAverageCalculator with the previous two-atomic version
+ * at 1 to 64 threads; run by the benchmarks profile, it uses 4 threads.
+ *
+ * Run with:
+ * mvn test-compile exec:java -Dexec.mainClass=com.pramithamj.kafka.aggregation.RunningAverageCalculatorBenchmark -Dexec.classpathScope=test
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class RunningAverageCalculatorBenchmark {
+
+    private final RunningAverageCalculator striped = new RunningAverageCalculator();
+    private final AtomicPairCalculator atomicPair = new AtomicPairCalculator();
+
+    @Benchmark
+    public void stripedAdd() {
+        striped.addAmount(123.45);
+    }
+
+    @Benchmark
+    public void atomicPairAdd() {
+        atomicPair.addAmount(123.45);
+    }
+
+    @Benchmark
+    public RunningAverageCalculator.Snapshot stripedSnapshot() {
+        return striped.snapshot();
+    }
+
+    public static void main(String[] args) throws Exception {
+        for (int threads : new int[] {1, 2, 4, 8, 16, 32, 64}) {
+            Options options = new OptionsBuilder()
+                    .include(RunningAverageCalculatorBenchmark.class.getSimpleName() + ".*Add")
+                    .threads(threads)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+
+    /**
+     * The previous implementation: separate atomics for total and count
+     */
+    static class AtomicPairCalculator {
+
+        private final AtomicLong totalAmount = new AtomicLong(0);
+        private final AtomicInteger count = new AtomicInteger(0);
+
+        double addAmount(double amount) {
+            long amountInCents = Math.round(amount * 100);
+            long newTotal = totalAmount.addAndGet(amountInCents);
+            int newCount = count.incrementAndGet();
+            return (double) newTotal / (newCount * 100);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.pramithamj.kafka.aggregation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RunningAverageCalculatorTest {
+
+	@Test
+	void concurrentAddsAreAllCounted() throws Exception {
+		RunningAverageCalculator calculator = new RunningAverageCalculator();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		for (int t = 0; t < 8; t++) {
+			executor.execute(() -> {
+				for (int i = 0; i < 10_000; i++) {
+					calculator.addAmount(10.25);
+				}
+			});
+		}
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+		RunningAverageCalculator.Snapshot snapshot = calculator.snapshot();
+		assertEquals(80_000, snapshot.count());
+		assertEquals(80_000 * 1025L, snapshot.totalInCents());
+		assertEquals(10.25, snapshot.average(), 1e-9);
+	}
+
+	@Test
+	void snapshotsNeverPairCountWithForeignSum() throws Exception {
+		RunningAverageCalculator calculator = new RunningAverageCalculator();
+		Thread writer = new Thread(() -> {
+			for (int i = 0; i < 200_000; i++) {
+				calculator.addAmount(5.00);
+			}
+		});
+		writer.start();
+		while (writer.isAlive()) {
+			RunningAverageCalculator.Snapshot snapshot = calculator.snapshot();
+			assertEquals(snapshot.count() * 500, snapshot.totalInCents());
+		}
+		writer.join();
+	}
+
+}
@@ -0,0 +1,81 @@
+package com.pramithamj.kafka.aggregation;
+
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WindowedPriceAggregatorTest {
+
+	private static final long T0 = 1_700_000_040_000L; // aligned to a minute
+	private static final TopicPartition P0 = new TopicPartition("orders", 0);
+	private static final TopicPartition P1 = new TopicPartition("orders", 1);
+
+	private WindowedPriceAggregator newAggregator() {
+		WindowedPriceAggregator aggregator = new WindowedPriceAggregator();
+		ReflectionTestUtils.setField(aggregator, "gracePeriodMs", 30_000L);
+		ReflectionTestUtils.setField(aggregator, "idleTimeoutMs", 60_000L);
+		aggregator.init();
+		return aggregator;
+	}
+
+	@Test
+	void tumblingAndSlidingWindowsShareTheSamePanes() {
+		WindowedPriceAggregator aggregator = newAggregator();
+		aggregator.record(P0, "Item1", 10.00, T0 + 1_000);
+		aggregator.record(P0, "Item1", 30.00, T0 + 59_000);
+		aggregator.record(P0, "Item1", 20.00, T0 + 61_000);
+
+		List<WindowedPriceAggregator.WindowStats> tumbling = aggregator.getTumblingWindows().get("Item1");
+		assertEquals(2, tumbling.size());
+		assertEquals(2, tumbling.get(0).count());
+		assertEquals(20.00, tumbling.get(0).average(), 1e-9);
+		assertEquals(10.00, tumbling.get(0).min(), 1e-9);
+		assertEquals(30.00, tumbling.get(0).max(), 1e-9);
+
+		WindowedPriceAggregator.WindowStats sliding = aggregator.getSlidingWindows().get("Item1");
+		assertEquals(3, sliding.count());
+		assertEquals(60.00, sliding.sum(), 1e-9);
+	}
+
+	@Test
+	void eventsBeyondGracePeriodAreDropped() {
+		WindowedPriceAggregator aggregator = newAggregator();
+		aggregator.record(P0, "Item1", 10.00, T0 + 100_000);
+
+		assertFalse(aggregator.record(P0, "Item1", 10.00, T0 + 60_000));
+		assertEquals(1, aggregator.getLateEventsDropped());
+	}
+
+	@Test
+	void partitionRunningAheadDoesNotMakeOthersLate() {
+		WindowedPriceAggregator aggregator = newAggregator();
+		long now = System.currentTimeMillis();
+		aggregator.record(P0, "Item1", 10.00, T0 + 100_000, now);
+		aggregator.record(P1, "Item1", 10.00, T0, now);
+
+		assertTrue(aggregator.record(P1, "Item1", 10.00, T0 + 10_000, now));
+		assertEquals(T0 + 10_000, aggregator.getWatermark());
+		assertEquals(0, aggregator.getLateEventsDropped());
+	}
+
+	@Test
+	void idleAndRevokedPartitionsDoNotHoldTheWatermarkBack() {
+		WindowedPriceAggregator aggregator = newAggregator();
+		long now = 1_000_000;
+		aggregator.record(P1, "Item1", 10.00, T0, now);
+		aggregator.record(P0, "Item1", 10.00, T0 + 100_000, now + 61_000);
+		assertFalse(aggregator.record(P0, "Item1", 10.00, T0 + 60_000, now + 61_000));
+
+		aggregator.record(P1, "Item1", 10.00, T0 + 1_000, now + 62_000);
+		aggregator.onPartitionsRevokedBeforeCommit(null, List.of(P1));
+		assertFalse(aggregator.record(P0, "Item1", 10.00, T0 + 60_000, now + 62_000));
+		assertEquals(2, aggregator.getLateEventsDropped());
+	}
+
+}
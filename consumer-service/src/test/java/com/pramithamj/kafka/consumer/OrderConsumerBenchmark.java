@@ -0,0 +1,203 @@
+package com.pramithamj.kafka.consumer;
+
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+import com.pramithamj.kafka.aggregation.PriceQuantileTracker;
+import com.pramithamj.kafka.aggregation.RunningAverageCalculator;
+import com.pramithamj.kafka.aggregation.WindowedPriceAggregator;
+import com.pramithamj.kafka.dedup.OrderDeduplicator;
+import com.pramithamj.kafka.dlq.DLQHandler;
+import com.pramithamj.kafka.events.OrderEventLog;
+import com.pramithamj.kafka.metrics.ConsumerMetrics;
+import com.pramithamj.kafka.model.Order;
+import com.pramithamj.kafka.processing.KeyOrderedProcessingEngine;
+import com.pramithamj.kafka.retry.RetryHandler;
+import com.pramithamj.kafka.serde.OrderAvroSerializer;
+import com.pramithamj.kafka.state.AggregationChangelog;
+import com.pramithamj.kafka.state.AggregationCheckpointStore;
+import com.pramithamj.kafka.state.AggregationStateManager;
+import io.confluent.kafka.schemaregistry.client.MockSchemaRegistryClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.mock.MockProducerFactory;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * OrderConsumer.consumeOrder for one record with kafka.consumer.processing-delay-ms=0:
+ * dedup check, validation, running average, windowed and quantile aggregation, metrics and
+ * the sampled order.processed event. The ~5% of orders that fail the simulated check take
+ * the failure path and are sent to a retry tier through a MockProducer. Partition state
+ * tracking, the processing engine and the DLQ are not exercised.
+ *
+ * Every record carries a new orderId so dedup does not skip it; buildRecord is the cost
+ * of that input alone and should be subtracted from consumeOrder. consumeDuplicate is an
+ * already-handled order being skipped. Logging goes through logback with the console
+ * pattern into a null stream.
+ *
+ * Run with:
+ * mvn test-compile exec:java -Dexec.mainClass=com.pramithamj.kafka.consumer.OrderConsumerBenchmark -Dexec.classpathScope=test
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderConsumerBenchmark {
+
+    private static final String[] PRODUCTS = {"Item1", "Item2", "Item3", "Item4", "Item5"};
+    // MockProducer keeps every sent record; it is cleared this often to bound the heap
+    private static final int CLEAR_EVERY = 4096;
+
+    private final Acknowledgment acknowledgment = () -> { };
+    private OpenMockProducer mockProducer;
+    private OrderEventLog eventLog;
+    private OrderConsumer consumer;
+    private ConsumerRecord<String, Order> handled;
+    private long offset;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void setUp() {
+        discardLogging();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        Serializer valueSerializer = new OrderAvroSerializer(new MockSchemaRegistryClient());
+        mockProducer = new OpenMockProducer(valueSerializer);
+        KafkaTemplate<String, Object> template = new KafkaTemplate<>(new MockProducerFactory<>(() -> mockProducer));
+
+        RunningAverageCalculator averageCalculator = new RunningAverageCalculator();
+        WindowedPriceAggregator windowedAggregator = new WindowedPriceAggregator();
+        ReflectionTestUtils.setField(windowedAggregator, "gracePeriodMs", 30_000L);
+        ReflectionTestUtils.setField(windowedAggregator, "idleTimeoutMs", 60_000L);
+        ReflectionTestUtils.invokeMethod(windowedAggregator, "init");
+        PriceQuantileTracker quantileTracker = new PriceQuantileTracker(0.01);
+        ConsumerMetrics metrics = new ConsumerMetrics(meterRegistry);
+        eventLog = new OrderEventLog(true, 8192, 1000, 1, "", meterRegistry);
+        ReflectionTestUtils.invokeMethod(eventLog, "start");
+
+        RetryHandler retryHandler = new RetryHandler(template, metrics, eventLog);
+        ReflectionTestUtils.setField(retryHandler, "retryTopic", "orders-retry");
+        ReflectionTestUtils.setField(retryHandler, "maxRetryAttempts", 3);
+        ReflectionTestUtils.setField(retryHandler, "tierDelaysMs", new long[] {2000, 4000, 8000});
+
+        AggregationStateManager stateManager = new AggregationStateManager(mock(AggregationCheckpointStore.class),
+                mock(AggregationChangelog.class), averageCalculator, quantileTracker);
+        OrderDeduplicator deduplicator = new OrderDeduplicator(null, stateManager, meterRegistry);
+        ReflectionTestUtils.setField(deduplicator, "enabled", true);
+        ReflectionTestUtils.setField(deduplicator, "memoryBudgetBytes", 67_108_864L);
+        ReflectionTestUtils.setField(deduplicator, "retentionMs", 3_600_000L);
+        ReflectionTestUtils.invokeMethod(deduplicator, "init");
+
+        consumer = new OrderConsumer(averageCalculator, windowedAggregator, quantileTracker, retryHandler,
+                mock(DLQHandler.class), mock(KeyOrderedProcessingEngine.class), stateManager, deduplicator,
+                metrics, eventLog);
+        ReflectionTestUtils.setField(consumer, "processingDelayMs", 0L);
+
+        handled = buildRecord();
+        consume(handled);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ReflectionTestUtils.invokeMethod(eventLog, "stop");
+    }
+
+    @Benchmark
+    public ConsumerRecord<String, Order> buildRecord() {
+        long next = offset++;
+        String orderId = "order-" + next;
+        Order order = new Order(orderId, PRODUCTS[(int) (next % PRODUCTS.length)], 10.0f + next % 1000,
+                System.currentTimeMillis());
+        return new ConsumerRecord<>("orders", (int) (next % 3), next, orderId, order);
+    }
+
+    @Benchmark
+    public void consumeOrder() {
+        if (offset % CLEAR_EVERY == 0) {
+            mockProducer.clear();
+        }
+        consume(buildRecord());
+    }
+
+    @Benchmark
+    public void consumeDuplicate() {
+        consume(handled);
+    }
+
+    private void consume(ConsumerRecord<String, Order> record) {
+        consumer.consumeOrder(record.value(), record.partition(), record.offset(), record, acknowledgment);
+    }
+
+    /**
+     * Format log output as the console would but write it nowhere
+     */
+    private static void discardLogging() {
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        context.reset();
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d{yyyy-MM-dd HH:mm:ss} - %msg%n");
+        encoder.start();
+        OutputStreamAppender<ILoggingEvent> appender = new OutputStreamAppender<>();
+        appender.setContext(context);
+        appender.setEncoder(encoder);
+        appender.setOutputStream(OutputStream.nullOutputStream());
+        appender.start();
+        ch.qos.logback.classic.Logger root = context.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        root.addAppender(appender);
+        root.setLevel(ch.qos.logback.classic.Level.INFO);
+    }
+
+    /**
+     * A MockProducer that stays open: KafkaTemplate closes its producer after every send
+     * unless the factory caches it
+     */
+    private static final class OpenMockProducer extends MockProducer<String, Object> {
+
+        OpenMockProducer(Serializer<Object> valueSerializer) {
+            super(true, new StringSerializer(), valueSerializer);
+        }
+
+        @Override
+        public void close(Duration timeout) {
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(OrderConsumerBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
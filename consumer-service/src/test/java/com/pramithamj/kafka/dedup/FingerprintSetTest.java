@@ -0,0 +1,92 @@
+package com.pramithamj.kafka.dedup;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FingerprintSetTest {
+
+	private static final long HOUR_MS = 3_600_000;
+
+	@Test
+	void remembersAddedKeys() {
+		FingerprintSet set = new FingerprintSet(4, 1 << 16, HOUR_MS, () -> 0);
+
+		assertTrue(set.add("order-1"));
+		assertFalse(set.add("order-1"));
+		assertTrue(set.contains("order-1"));
+		assertFalse(set.contains("order-2"));
+		assertEquals(0, set.getFalsePositives());
+	}
+
+	@Test
+	void evictsOldestGenerationWhenFull() {
+		FingerprintSet set = new FingerprintSet(1, 24 * 100, HOUR_MS, () -> 0);
+		long capacity = set.generationCapacity();
+
+		// Fill the first generation, then a second one, which rotates the first out
+		for (int i = 0; i < 2 * capacity; i++) {
+			set.add("order-" + i);
+		}
+
+		assertFalse(set.contains("order-0"));
+		for (long i = capacity; i < 2 * capacity; i++) {
+			assertTrue(set.contains("order-" + i));
+		}
+	}
+
+	@Test
+	void keepsKeysForAtLeastTheRetentionPeriod() {
+		AtomicLong now = new AtomicLong();
+		FingerprintSet set = new FingerprintSet(1, 1 << 16, 1_000, now::get);
+
+		now.set(900);
+		set.add("order-1");
+		set.add("order-2");
+		now.set(1_899);
+		// Rotates the generation holding both keys to previous
+		assertTrue(set.contains("order-1"));
+		now.set(2_800);
+		assertTrue(set.contains("order-2"));
+		now.set(2_899);
+		assertFalse(set.contains("order-2"));
+	}
+
+	@Test
+	void expiresBothGenerationsAfterIdlePeriod() {
+		AtomicLong now = new AtomicLong();
+		FingerprintSet set = new FingerprintSet(1, 1 << 16, 1_000, now::get);
+
+		now.set(900);
+		set.add("order-1");
+		now.set(2_000);
+		assertFalse(set.contains("order-1"));
+	}
+
+	@Test
+	void staysWithinBudgetAtTenMillionKeys() {
+		long budget = 64L << 20;
+		FingerprintSet set = new FingerprintSet(budget, HOUR_MS);
+		int keys = 10_000_000;
+
+		for (int i = 0; i < keys; i++) {
+			set.add("order-" + i);
+		}
+
+		assertTrue(set.memoryBytes() <= budget);
+		assertTrue(set.size() <= 2 * set.generationCapacity());
+		// The most recent generation's worth of keys is always retained
+		int missing = 0;
+		for (long i = keys - set.generationCapacity(); i < keys; i++) {
+			if (!set.contains("order-" + i)) {
+				missing++;
+			}
+		}
+		assertEquals(0, missing);
+		assertFalse(set.contains("order-0"));
+	}
+}
@@ -0,0 +1,151 @@
+package com.pramithamj.kafka.dlq;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DLQStoreTest {
+
+	private static final long DAY_MS = 86_400_000;
+
+	@TempDir
+	Path directory;
+
+	private final AtomicLong now = new AtomicLong(1_000_000);
+
+	@Test
+	void queriesByOrderIdProductAndTimeNewestFirst() {
+		DLQStore store = open(DLQStore.MIN_SEGMENT_BYTES);
+		for (int i = 0; i < 10; i++) {
+			store.append(entry("order-" + i, i % 2 == 0 ? "Item1" : "Item2", 1_000 + i * 100L, i));
+		}
+
+		DLQStore.Page all = store.query(filter(null, null, null, null), 0, 4);
+		assertEquals(10, all.total());
+		assertEquals(List.of("order-9", "order-8", "order-7", "order-6"), orderIds(all));
+		assertEquals(List.of("order-1", "order-0"), orderIds(store.query(filter(null, null, null, null), 2, 4)));
+
+		DLQStore.Page item1 = store.query(filter(null, "Item1", null, null), 0, 10);
+		assertEquals(List.of("order-8", "order-6", "order-4", "order-2", "order-0"), orderIds(item1));
+
+		// [1300, 1600) covers orders 3 to 5
+		DLQStore.Page range = store.query(filter(null, "Item2", 1_300L, 1_600L), 0, 10);
+		assertEquals(List.of("order-5", "order-3"), orderIds(range));
+
+		assertEquals(List.of("order-7"), orderIds(store.query(filter("order-7", null, null, null), 0, 10)));
+		assertEquals(0, store.query(filter("order-7", "Item1", null, null), 0, 10).total());
+	}
+
+	@Test
+	void restoresEntriesAndReplayMarksAfterReopen() {
+		DLQStore store = open(DLQStore.MIN_SEGMENT_BYTES);
+		long first = store.append(entry("order-1", "Item1", 1_000, 0)).orElseThrow().id();
+		store.append(entry("order-2", "Item1", 2_000, 1));
+		assertTrue(store.markReplayed(first));
+		assertFalse(store.markReplayed(first));
+		store.close();
+
+		DLQStore reopened = open(DLQStore.MIN_SEGMENT_BYTES);
+		assertEquals(2, reopened.size());
+		DLQEntry restored = reopened.get(first).orElseThrow();
+		assertEquals("order-1", restored.orderId());
+		assertEquals(3, restored.retryCount());
+		assertEquals("Simulated processing failure", restored.errorMessage());
+		assertEquals(now.get(), restored.replayedAt());
+
+		assertEquals(List.of("order-2"), orderIds(reopened.query(
+				new DLQStore.Filter(null, null, null, null, DLQStore.Status.PENDING), 0, 10)));
+		assertEquals(1, reopened.selectPending(filter(null, "Item1", null, null), 10).size());
+
+		// A redelivered orders-dlq record is not stored again; new ones continue the ids
+		assertTrue(reopened.append(entry("order-2", "Item1", 2_000, 1)).isEmpty());
+		assertEquals(first + 2, reopened.append(entry("order-3", "Item1", 3_000, 2)).orElseThrow().id());
+	}
+
+	@Test
+	void failureTimesNeverGoBackwards() {
+		DLQStore store = open(DLQStore.MIN_SEGMENT_BYTES);
+		store.append(entry("order-1", "Item1", 5_000, 0));
+		DLQEntry late = store.append(entry("order-2", "Item1", 4_000, 1)).orElseThrow();
+
+		assertEquals(5_000, late.failedAt());
+		assertEquals(2, store.query(filter(null, null, 5_000L, null), 0, 10).total());
+	}
+
+	@Test
+	void rollsSegmentsAndDeletesExpiredOnes() {
+		DLQStore store = open(DLQStore.MIN_SEGMENT_BYTES);
+		int entries = 2_000;
+		for (int i = 0; i < entries; i++) {
+			store.append(entry("order-" + i, "Item1", now.get() - DAY_MS + i, i));
+		}
+		assertTrue(store.diskBytes() > DLQStore.MIN_SEGMENT_BYTES);
+		assertEquals(entries, store.query(filter(null, "Item1", null, null), 0, 1).total());
+
+		// Everything is a day old; only the segment being appended to is kept
+		now.addAndGet(8 * DAY_MS);
+		store.enforceRetention();
+
+		assertEquals(DLQStore.MIN_SEGMENT_BYTES, store.diskBytes());
+		long kept = store.size();
+		assertTrue(kept > 0 && kept < entries);
+		assertEquals(kept, store.query(filter(null, "Item1", null, null), 0, 1).total());
+		assertTrue(store.query(filter("order-0", null, null, null), 0, 1).entries().isEmpty());
+		assertFalse(store.query(filter("order-" + (entries - 1), null, null, null), 0, 1).entries().isEmpty());
+	}
+
+	@Test
+	void replayMarksRollIntoTheirOwnSegmentsAndSurviveReopen() {
+		DLQStore store = open(DLQStore.MIN_SEGMENT_BYTES);
+		int entries = 3_000;
+		for (int i = 0; i < entries; i++) {
+			store.append(entry("order-" + i, "Item1", now.get() - DAY_MS + i, i));
+		}
+		// The marks fill more than one segment, and segments holding only marks start at the same id
+		for (long id = 0; id < entries; id++) {
+			assertTrue(store.markReplayed(id));
+		}
+		long latest = store.append(entry("order-new", "Item1", now.get(), entries)).orElseThrow().id();
+		long diskBytes = store.diskBytes();
+		store.close();
+
+		DLQStore reopened = open(DLQStore.MIN_SEGMENT_BYTES);
+		assertEquals(entries + 1, reopened.size());
+		assertEquals(diskBytes, reopened.diskBytes());
+		assertEquals(List.of(latest), reopened.selectPending(filter(null, null, null, null), 10));
+
+		// The old entries expire, and the segments marking them go with them
+		now.addAndGet(7 * DAY_MS - 1);
+		reopened.enforceRetention();
+		assertEquals(1, reopened.size());
+		assertEquals(DLQStore.MIN_SEGMENT_BYTES, reopened.diskBytes());
+		reopened.close();
+		assertEquals(List.of(latest), open(DLQStore.MIN_SEGMENT_BYTES).selectPending(filter(null, null, null, null), 10));
+	}
+
+	private DLQStore open(int segmentBytes) {
+		DLQStore store = new DLQStore(directory.toString(), segmentBytes, 7 * DAY_MS, now::get);
+		store.open();
+		return store;
+	}
+
+	private static DLQStore.Filter filter(String orderId, String product, Long from, Long to) {
+		return new DLQStore.Filter(orderId, product, from, to, DLQStore.Status.ALL);
+	}
+
+	private static DLQEntry entry(String orderId, String product, long failedAt, long dlqOffset) {
+		return new DLQEntry(0, failedAt, orderId, product, 19.99f, failedAt - 500, 3,
+				RuntimeException.class.getName(), "Simulated processing failure", 0, dlqOffset, 0);
+	}
+
+	private static List<String> orderIds(DLQStore.Page page) {
+		return page.entries().stream().map(DLQEntry::orderId).toList();
+	}
+}
@@ -0,0 +1,123 @@
+package com.pramithamj.kafka.events;
+
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+import com.pramithamj.kafka.model.Order;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.Logger;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-order logging cost on the listener threads: the two synchronous info lines each
+ * processed order used to write, against OrderEventLog with the default sampling, with
+ * every event kept, and with async off. Output goes through a logback appender with the
+ * console pattern into a null stream, so real console I/O would only widen the gap.
+ *
+ * Run with:
+ * mvn test-compile exec:java -Dexec.mainClass=com.pramithamj.kafka.events.OrderEventLogBenchmark -Dexec.classpathScope=test
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class OrderEventLogBenchmark {
+
+    private Logger logger;
+    private OrderEventLog sampled;
+    private OrderEventLog unsampled;
+    private OrderEventLog synchronous;
+    private Order order;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        LoggerContext context = new LoggerContext();
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d{yyyy-MM-dd HH:mm:ss} - %msg%n");
+        encoder.start();
+        OutputStreamAppender<ILoggingEvent> appender = new OutputStreamAppender<>();
+        appender.setContext(context);
+        appender.setEncoder(encoder);
+        appender.setOutputStream(OutputStream.nullOutputStream());
+        appender.start();
+        ch.qos.logback.classic.Logger logbackLogger = context.getLogger("benchmark");
+        logbackLogger.addAppender(appender);
+        logbackLogger.setLevel(ch.qos.logback.classic.Level.INFO);
+        logbackLogger.setAdditive(false);
+        logger = logbackLogger;
+
+        OrderEventLog.Sink sink = (type, json) -> logger.info(json);
+        sampled = new OrderEventLog(true, 8192, 1000, 1, "", sink);
+        unsampled = new OrderEventLog(true, 8192, 1, 1, "", sink);
+        synchronous = new OrderEventLog(false, 8192, 1000, 1, "", sink);
+        sampled.start();
+        unsampled.start();
+        order = Order.newBuilder()
+                .setOrderId("0f8fad5b-d9cb-469f-a165-70867728950e")
+                .setProduct("Item3")
+                .setPrice(1299.99f)
+                .setTimestamp(System.currentTimeMillis())
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        System.out.printf("%nEvents dropped: every event kept=%d, default sampling=%d%n",
+                unsampled.getDropped(), sampled.getDropped());
+        sampled.stop();
+        unsampled.stop();
+    }
+
+    @Benchmark
+    public void synchronousInfoLogging() {
+        logger.info(" Received order: orderId={}, product={}, price=${:.2f}, partition={}, offset={}",
+                order.getOrderId(), order.getProduct(), order.getPrice(), 3, 123456L);
+        logger.info("Order processed successfully: orderId={}", order.getOrderId());
+    }
+
+    @Benchmark
+    public void eventLogSampled() {
+        sampled.record(OrderEventLog.Type.ORDER_PROCESSED, order, "orders", 3, 123456L, -1, null);
+    }
+
+    @Benchmark
+    public void eventLogEveryEvent() {
+        unsampled.record(OrderEventLog.Type.ORDER_PROCESSED, order, "orders", 3, 123456L, -1, null);
+    }
+
+    @Benchmark
+    public void eventLogSynchronous() {
+        synchronous.record(OrderEventLog.Type.ORDER_PROCESSED, order, "orders", 3, 123456L, -1, null);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(OrderEventLogBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
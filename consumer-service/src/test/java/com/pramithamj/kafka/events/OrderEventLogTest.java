@@ -0,0 +1,85 @@
+package com.pramithamj.kafka.events;
+
+import com.pramithamj.kafka.model.Order;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderEventLogTest {
+
+	private final List<String> lines = new ArrayList<>();
+
+	@Test
+	void rendersCompactJson() {
+		OrderEventLog eventLog = new OrderEventLog(true, 16, 1, 1, "", (type, json) -> lines.add(json));
+
+		eventLog.record(OrderEventLog.Type.RETRY_FAILED, order("order-\"1\""), "orders-retry-2s", 2, 41, 1,
+				new IllegalStateException("line1\nline2"));
+		assertEquals(1, eventLog.drain());
+
+		String json = lines.get(0);
+		assertTrue(json.startsWith("{\"ts\":"));
+		assertTrue(json.endsWith(",\"event\":\"retry.failed\",\"orderId\":\"order-\\\"1\\\"\",\"product\":\"Item1\","
+				+ "\"price\":19.99,\"topic\":\"orders-retry-2s\",\"partition\":2,\"offset\":41,\"attempt\":1,"
+				+ "\"error\":\"java.lang.IllegalStateException\",\"message\":\"line1\\nline2\"}"), json);
+	}
+
+	@Test
+	void samplesPerEventType() {
+		OrderEventLog eventLog = new OrderEventLog(true, 1024, 0, 1, "order.duplicate:1",
+				(type, json) -> lines.add(json));
+
+		for (int i = 0; i < 100; i++) {
+			eventLog.record(OrderEventLog.Type.ORDER_PROCESSED, order("order-" + i), "orders", 0, i, -1, null);
+			eventLog.record(OrderEventLog.Type.ORDER_FAILED, order("order-" + i), "orders", 0, i, 0,
+					new RuntimeException("failed"));
+		}
+		eventLog.record(OrderEventLog.Type.ORDER_DUPLICATE, order("order-1"), "orders", 0, 100, -1, null);
+		eventLog.drain();
+
+		// Successes are off, failures and the overridden type are all kept
+		assertEquals(101, lines.size());
+		assertTrue(lines.stream().noneMatch(line -> line.contains("\"order.processed\"")));
+	}
+
+	@Test
+	void dropsEventsWhenTheRingIsFull() {
+		OrderEventLog eventLog = new OrderEventLog(true, 8, 1, 1, "", (type, json) -> lines.add(json));
+
+		for (int i = 0; i < 20; i++) {
+			eventLog.record(OrderEventLog.Type.ORDER_PROCESSED, order("order-" + i), "orders", 0, i, -1, null);
+		}
+		assertEquals(8, eventLog.drain());
+		assertEquals(12, eventLog.getDropped());
+
+		// Drained slots are reused on the next lap
+		eventLog.record(OrderEventLog.Type.ORDER_PROCESSED, order("order-20"), "orders", 0, 20, -1, null);
+		assertEquals(1, eventLog.drain());
+		assertTrue(lines.get(8).contains("\"orderId\":\"order-20\""));
+	}
+
+	@Test
+	void writesOnTheCallerThreadWhenNotAsync() {
+		OrderEventLog eventLog = new OrderEventLog(false, 8, 1000, 1, "", (type, json) -> lines.add(json));
+
+		for (int i = 0; i < 20; i++) {
+			eventLog.record(OrderEventLog.Type.ORDER_PROCESSED, order("order-" + i), "orders", 0, i, -1, null);
+		}
+
+		assertEquals(20, lines.size());
+		assertEquals(0, eventLog.drain());
+	}
+
+	private static Order order(String orderId) {
+		return Order.newBuilder()
+				.setOrderId(orderId)
+				.setProduct("Item1")
+				.setPrice(19.99f)
+				.setTimestamp(1_700_000_000_000L)
+				.build();
+	}
+}
@@ -0,0 +1,106 @@
+package com.pramithamj.kafka.flow;
+
+import com.pramithamj.kafka.processing.KeyOrderedProcessingEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FlowControllerTest {
+
+	private final KafkaListenerEndpointRegistry registry = mock(KafkaListenerEndpointRegistry.class);
+	private final MessageListenerContainer main = container(FlowController.RECORD_LISTENER_ID);
+	private final MessageListenerContainer retry = container("orders-retry-2s");
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private FlowController controller;
+
+	@BeforeEach
+	void setUp() {
+		when(registry.getListenerContainer(FlowController.RECORD_LISTENER_ID)).thenReturn(main);
+		when(registry.getListenerContainers()).thenReturn(List.of(main, retry));
+		controller = new FlowController(registry, mock(KeyOrderedProcessingEngine.class), meterRegistry);
+		ReflectionTestUtils.setField(controller, "retryTopic", "orders-retry");
+		ReflectionTestUtils.setField(controller, "pauseQueueDepth", 800);
+		ReflectionTestUtils.setField(controller, "resumeQueueDepth", 400);
+		ReflectionTestUtils.setField(controller, "pauseLatencyMs", 2000.0);
+		ReflectionTestUtils.setField(controller, "resumeLatencyMs", 500.0);
+		ReflectionTestUtils.setField(controller, "minPauseMs", 5000L);
+		ReflectionTestUtils.setField(controller, "retryPauseLag", 5000L);
+		ReflectionTestUtils.setField(controller, "retryResumeLag", 1000L);
+	}
+
+	@Test
+	void pausesMainOnQueueDepthAndResumesWithHysteresis() {
+		controller.apply(new FlowController.Load(900, 100, 0), 0);
+		verify(main).pause();
+		// Retries also stop while the main listener is held back
+		verify(retry).pause();
+
+		// Below the pause threshold but above the resume threshold: stays paused
+		controller.apply(new FlowController.Load(600, 100, 0), 6_000);
+		verify(main, never()).resume();
+
+		controller.apply(new FlowController.Load(300, 100, 0), 7_000);
+		verify(main).resume();
+		verify(retry).resume();
+		assertEquals(1.0, meterRegistry.get("orders.consumer.flow.pauses")
+				.tag("container", "orders").tag("reason", "queue_depth").counter().count());
+	}
+
+	@Test
+	void latencyPauseIsHeldForMinimumThenProbed() {
+		controller.apply(new FlowController.Load(0, 2500, 0), 0);
+		verify(main).pause();
+
+		// No records finished while paused
+		controller.apply(new FlowController.Load(0, Double.NaN, 0), 1_000);
+		verify(main, never()).resume();
+		controller.apply(new FlowController.Load(0, Double.NaN, 0), 5_000);
+		verify(main).resume();
+	}
+
+	@Test
+	void pausesRetriesWhileMainLags() {
+		controller.apply(new FlowController.Load(0, 100, 6_000), 0);
+		verify(main, never()).pause();
+		verify(retry).pause();
+
+		controller.apply(new FlowController.Load(0, 100, 3_000), 1_000);
+		verify(retry, never()).resume();
+
+		controller.apply(new FlowController.Load(0, 100, 500), 2_000);
+		verify(retry, times(1)).resume();
+		assertEquals(1.0, meterRegistry.get("orders.consumer.flow.pauses")
+				.tag("container", "orders-retry-2s").tag("reason", "main_lag").counter().count());
+	}
+
+	@Test
+	void pausesTiersOfAConfiguredRetryTopic() {
+		MessageListenerContainer tier = container("shop-orders-retry-2s");
+		MessageListenerContainer other = container("shop-audit");
+		when(registry.getListenerContainers()).thenReturn(List.of(main, tier, other));
+		ReflectionTestUtils.setField(controller, "retryTopic", "shop-orders-retry");
+
+		controller.apply(new FlowController.Load(0, 100, 6_000), 0);
+		verify(tier).pause();
+		verify(other, never()).pause();
+	}
+
+	private static MessageListenerContainer container(String id) {
+		MessageListenerContainer container = mock(MessageListenerContainer.class);
+		when(container.getListenerId()).thenReturn(id);
+		when(container.isRunning()).thenReturn(true);
+		return container;
+	}
+}
@@ -0,0 +1,47 @@
+package com.pramithamj.kafka.processing;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PartitionOffsetTrackerTest {
+
+	@Test
+	void commitsOnlyContiguousCompletedPrefix() {
+		PartitionOffsetTracker tracker = new PartitionOffsetTracker();
+		tracker.register(10);
+		tracker.register(11);
+		tracker.register(12);
+
+		tracker.complete(11);
+		tracker.complete(12);
+		assertEquals(10, tracker.nextCommitOffset());
+
+		tracker.complete(10);
+		assertEquals(13, tracker.nextCommitOffset());
+	}
+
+	@Test
+	void doesNotRecommitSameOffset() {
+		PartitionOffsetTracker tracker = new PartitionOffsetTracker();
+		tracker.register(5);
+		tracker.complete(5);
+		assertEquals(6, tracker.nextCommitOffset());
+
+		tracker.committed(6);
+		assertEquals(-1, tracker.nextCommitOffset());
+	}
+
+	@Test
+	void completedPrefixSkipsOffsetsNeverRegistered() {
+		PartitionOffsetTracker tracker = new PartitionOffsetTracker();
+		tracker.register(5);
+		tracker.register(7);
+		tracker.complete(5);
+		assertEquals(7, tracker.completedBefore());
+
+		tracker.complete(7);
+		assertEquals(8, tracker.completedBefore());
+	}
+
+}
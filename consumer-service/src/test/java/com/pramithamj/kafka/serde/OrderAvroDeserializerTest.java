@@ -0,0 +1,92 @@
+package com.pramithamj.kafka.serde;
+
+import com.pramithamj.kafka.model.Order;
+import io.confluent.kafka.schemaregistry.client.MockSchemaRegistryClient;
+import io.confluent.kafka.schemaregistry.client.SchemaRegistryClient;
+import io.confluent.kafka.serializers.KafkaAvroDeserializer;
+import io.confluent.kafka.serializers.KafkaAvroDeserializerConfig;
+import io.confluent.kafka.serializers.KafkaAvroSerializer;
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderAvroDeserializerTest {
+
+	private static final Map<String, Object> CONFLUENT_CONFIG = Map.of(
+			KafkaAvroDeserializerConfig.SCHEMA_REGISTRY_URL_CONFIG, "mock://serde-test",
+			KafkaAvroDeserializerConfig.SPECIFIC_AVRO_READER_CONFIG, true);
+
+	private final SchemaRegistryClient registry = new MockSchemaRegistryClient();
+	private final OrderAvroDeserializer deserializer = new OrderAvroDeserializer(registry);
+
+	@Test
+	void readsKafkaAvroSerializerOutput() {
+		KafkaAvroSerializer confluent = new KafkaAvroSerializer(registry, CONFLUENT_CONFIG);
+		Order first = order("1001", "Item1");
+		Order second = order("1002", "Item2");
+
+		byte[] firstBytes = confluent.serialize("orders", first);
+		byte[] secondBytes = confluent.serialize("orders", second);
+
+		// The second read reuses the thread's decoder
+		assertEquals(first, deserializer.deserialize("orders", firstBytes));
+		assertEquals(second, deserializer.deserialize("orders", secondBytes));
+	}
+
+	@Test
+	void pooledSerializerOutputIsReadableByBothDeserializers() {
+		OrderAvroSerializer serializer = new OrderAvroSerializer(registry);
+		KafkaAvroDeserializer confluent = new KafkaAvroDeserializer(registry, CONFLUENT_CONFIG);
+		Order order = order("1001", "Item1");
+
+		byte[] bytes = serializer.serialize("orders-dlq", order);
+
+		assertEquals(order, deserializer.deserialize("orders-dlq", bytes));
+		assertEquals(order, confluent.deserialize("orders-dlq", bytes));
+	}
+
+	@Test
+	void readsCompactAndRegularOrdersSideBySide() {
+		OrderAvroSerializer compact = new OrderAvroSerializer(registry);
+		compact.configure(Map.of(OrderAvroSerializer.ORDER_ENCODING_CONFIG, "v2"), false);
+		OrderAvroSerializer regular = new OrderAvroSerializer(registry);
+		Order first = order(UUID.randomUUID().toString(), "Item1");
+		Order second = order(UUID.randomUUID().toString(), "Item10");
+		Order numericId = order("1003", "Item2");
+
+		byte[] firstBytes = compact.serialize("orders", first);
+		byte[] regularBytes = regular.serialize("orders", first);
+
+		assertTrue(firstBytes.length < regularBytes.length);
+		assertEquals(first, deserializer.deserialize("orders", firstBytes));
+		assertEquals(first, deserializer.deserialize("orders", regularBytes));
+		// The per-thread OrderV2 is reused between records
+		assertEquals(second, deserializer.deserialize("orders", compact.serialize("orders", second)));
+		assertEquals(numericId, deserializer.deserialize("orders", compact.serialize("orders", numericId)));
+	}
+
+	@Test
+	void rejectsDataWithoutConfluentFraming() {
+		assertThrows(SerializationException.class,
+				() -> deserializer.deserialize("orders", new byte[] {1, 0, 0, 0, 1, 2}));
+		assertThrows(SerializationException.class,
+				() -> deserializer.deserialize("orders", new byte[] {0, 0}));
+		assertNull(deserializer.deserialize("orders", null));
+	}
+
+	private static Order order(String orderId, String product) {
+		return Order.newBuilder()
+				.setOrderId(orderId)
+				.setProduct(product)
+				.setPrice(19.99f)
+				.setTimestamp(1_700_000_000_000L)
+				.build();
+	}
+}
@@ -0,0 +1,149 @@
+package com.pramithamj.kafka.serde;
+
+import com.pramithamj.kafka.model.Order;
+import io.confluent.kafka.schemaregistry.client.MockSchemaRegistryClient;
+import io.confluent.kafka.serializers.KafkaAvroDeserializer;
+import io.confluent.kafka.serializers.KafkaAvroDeserializerConfig;
+import io.confluent.kafka.serializers.KafkaAvroSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares KafkaAvroDeserializer with the pooled OrderAvroDeserializer on the listener path,
+ * reading Order (v1) and the compact OrderV2 (v2), and both serializers on the retry/DLQ
+ * path. The GC profiler reports allocations per record as gc.alloc.rate.norm (bytes/op).
+ *
+ * Records cycle through a fixed dataset shaped like production traffic: UUID order ids,
+ * products from the catalogue and prices between 10.00 and 500.00. main() prints the
+ * average encoded size of both versions before running.
+ *
+ * Run with:
+ * mvn test-compile exec:java -Dexec.mainClass=com.pramithamj.kafka.serde.OrderSerdeBenchmark -Dexec.classpathScope=test
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderSerdeBenchmark {
+
+    private static final int DATASET_SIZE = 1024;
+
+    private KafkaAvroSerializer confluentSerializer;
+    private KafkaAvroDeserializer confluentDeserializer;
+    private OrderAvroSerializer pooledSerializer;
+    private OrderAvroDeserializer pooledDeserializer;
+    private Order[] orders;
+    private byte[][] v1Records;
+    private byte[][] v2Records;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        MockSchemaRegistryClient registry = new MockSchemaRegistryClient();
+        Map<String, Object> config = Map.of(
+                KafkaAvroDeserializerConfig.SCHEMA_REGISTRY_URL_CONFIG, "mock://benchmark",
+                KafkaAvroDeserializerConfig.SPECIFIC_AVRO_READER_CONFIG, true);
+        confluentSerializer = new KafkaAvroSerializer(registry, config);
+        confluentDeserializer = new KafkaAvroDeserializer(registry, config);
+        pooledSerializer = new OrderAvroSerializer(registry);
+        pooledDeserializer = new OrderAvroDeserializer(registry);
+        OrderAvroSerializer compactSerializer = new OrderAvroSerializer(registry);
+        compactSerializer.configure(Map.of(OrderAvroSerializer.ORDER_ENCODING_CONFIG, "v2"), false);
+
+        orders = dataset();
+        v1Records = new byte[DATASET_SIZE][];
+        v2Records = new byte[DATASET_SIZE][];
+        for (int i = 0; i < DATASET_SIZE; i++) {
+            v1Records[i] = confluentSerializer.serialize("orders", orders[i]);
+            v2Records[i] = compactSerializer.serialize("orders", orders[i]);
+        }
+    }
+
+    private int nextIndex() {
+        int index = next;
+        next = (index + 1) & (DATASET_SIZE - 1);
+        return index;
+    }
+
+    @Benchmark
+    public Object confluentDeserialize() {
+        return confluentDeserializer.deserialize("orders", v1Records[nextIndex()]);
+    }
+
+    @Benchmark
+    public Order pooledDeserialize() {
+        return pooledDeserializer.deserialize("orders", v1Records[nextIndex()]);
+    }
+
+    @Benchmark
+    public Order pooledDeserializeCompact() {
+        return pooledDeserializer.deserialize("orders", v2Records[nextIndex()]);
+    }
+
+    @Benchmark
+    public byte[] confluentSerialize() {
+        return confluentSerializer.serialize("orders-dlq", orders[nextIndex()]);
+    }
+
+    @Benchmark
+    public byte[] pooledSerialize() {
+        return pooledSerializer.serialize("orders-dlq", orders[nextIndex()]);
+    }
+
+    /**
+     * Orders shaped like production traffic, from a fixed seed
+     */
+    static Order[] dataset() {
+        Random random = new Random(42);
+        long now = 1_700_000_000_000L;
+        Order[] orders = new Order[DATASET_SIZE];
+        for (int i = 0; i < DATASET_SIZE; i++) {
+            orders[i] = Order.newBuilder()
+                    .setOrderId(new UUID(random.nextLong(), random.nextLong()).toString())
+                    .setProduct("Item" + (1 + random.nextInt(10)))
+                    .setPrice(Math.round((10.0f + random.nextFloat() * 490.0f) * 100.0f) / 100.0f)
+                    .setTimestamp(now + i * 37L)
+                    .build();
+        }
+        return orders;
+    }
+
+    public static void main(String[] args) throws Exception {
+        OrderSerdeBenchmark sizes = new OrderSerdeBenchmark();
+        sizes.setUp();
+        long v1Bytes = 0;
+        long v2Bytes = 0;
+        for (int i = 0; i < DATASET_SIZE; i++) {
+            v1Bytes += sizes.v1Records[i].length;
+            v2Bytes += sizes.v2Records[i].length;
+        }
+        System.out.printf("Average record size: v1 %.1f bytes, v2 %.1f bytes (%.1f%% smaller)%n",
+                (double) v1Bytes / DATASET_SIZE, (double) v2Bytes / DATASET_SIZE,
+                100.0 * (v1Bytes - v2Bytes) / v1Bytes);
+
+        Options options = new OptionsBuilder()
+                .include(OrderSerdeBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,103 @@
+package com.pramithamj.kafka.serde;
+
+import com.pramithamj.kafka.model.Order;
+import io.confluent.kafka.schemaregistry.client.MockSchemaRegistryClient;
+import io.confluent.kafka.schemaregistry.client.SchemaRegistryClient;
+import io.confluent.kafka.serializers.AbstractKafkaSchemaSerDeConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class SchemaIdCacheTest {
+
+	private static final String REGISTRY_URL = "http://schema-registry:8081";
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void restartedSerdesDoNotWaitForTheRegistry() throws Exception {
+		Path file = dir.resolve("schema-ids.properties");
+		SchemaRegistryClient registry = spy(new MockSchemaRegistryClient());
+		OrderAvroSerializer serializer = new OrderAvroSerializer(registry);
+		serializer.configure(configs(file), false);
+		OrderAvroDeserializer deserializer = new OrderAvroDeserializer(registry);
+		deserializer.configure(configs(file), false);
+		Order order = new Order("1001", "Item1", 10.5f, 1_700_000_000_000L);
+		byte[] bytes = serializer.serialize("orders", order);
+		deserializer.deserialize("orders", bytes);
+		verify(registry).getSchemaById(anyInt());
+
+		SchemaIdCache reloaded = new SchemaIdCache(file, REGISTRY_URL);
+		assertEquals(2, reloaded.size());
+		assertEquals(Order.getClassSchema(), reloaded.getSchema(reloaded.getId("orders-value", Order.getClassSchema())));
+
+		// A new process reads the file afresh. Its registry client is not waited for: it never
+		// answers the serializer's background check and is never asked for the schema
+		Path restartedFile = Files.copy(file, dir.resolve("restarted.properties"));
+		CountDownLatch registryAnswers = new CountDownLatch(1);
+		SchemaRegistryClient restarted = mock(SchemaRegistryClient.class);
+		when(restarted.register(eq("orders-value"), any())).thenAnswer(invocation -> {
+			registryAnswers.await();
+			return reloaded.getId("orders-value", Order.getClassSchema());
+		});
+		OrderAvroSerializer restartedSerializer = new OrderAvroSerializer(restarted);
+		restartedSerializer.configure(configs(restartedFile), false);
+		OrderAvroDeserializer restartedDeserializer = new OrderAvroDeserializer(restarted);
+		restartedDeserializer.configure(configs(restartedFile), false);
+		assertEquals(order, restartedDeserializer.deserialize("orders", restartedSerializer.serialize("orders", order)));
+		verify(restarted, never()).getSchemaById(anyInt());
+		registryAnswers.countDown();
+	}
+
+	@Test
+	void serdesConfiguredAfterTheWarmupMakeNoRegistryCall() {
+		Map<String, Object> configs = Map.of(AbstractKafkaSchemaSerDeConfig.SCHEMA_REGISTRY_URL_CONFIG, "mock://warmup-test");
+		SchemaRegistryClient warmupRegistry = new MockSchemaRegistryClient();
+		OrderAvroSerializer warmupSerializer = new OrderAvroSerializer(warmupRegistry);
+		warmupSerializer.configure(configs, false);
+		OrderAvroDeserializer warmupDeserializer = new OrderAvroDeserializer(warmupRegistry);
+		warmupDeserializer.configure(configs, false);
+		Order order = new Order("1001", "Item1", 10.5f, 1_700_000_000_000L);
+		warmupDeserializer.deserialize("orders-retry-1", warmupSerializer.serialize("orders-retry-1", order));
+
+		SchemaRegistryClient registry = mock(SchemaRegistryClient.class);
+		OrderAvroSerializer serializer = new OrderAvroSerializer(registry);
+		serializer.configure(configs, false);
+		OrderAvroDeserializer deserializer = new OrderAvroDeserializer(registry);
+		deserializer.configure(configs, false);
+
+		assertEquals(order, deserializer.deserialize("orders-retry-1", serializer.serialize("orders-retry-1", order)));
+		verifyNoInteractions(registry);
+	}
+
+	@Test
+	void ignoresCacheOfAnotherRegistry() {
+		Path file = dir.resolve("schema-ids.properties");
+		new SchemaIdCache(file, REGISTRY_URL).putId("orders-value", Order.getClassSchema(), 7);
+
+		assertEquals(7, new SchemaIdCache(file, REGISTRY_URL).getId("orders-value", Order.getClassSchema()));
+		assertNull(new SchemaIdCache(file, "http://other-registry:8081").getId("orders-value", Order.getClassSchema()));
+	}
+
+	private static Map<String, Object> configs(Path file) {
+		return Map.of(AbstractKafkaSchemaSerDeConfig.SCHEMA_REGISTRY_URL_CONFIG, REGISTRY_URL,
+				SchemaIdCache.PATH_CONFIG, file.toString());
+	}
+}
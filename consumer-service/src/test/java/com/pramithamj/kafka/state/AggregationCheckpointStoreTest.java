@@ -0,0 +1,63 @@
+package com.pramithamj.kafka.state;
+
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AggregationCheckpointStoreTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void restoredStateCoversTheCheckpointedOffsets() {
+		PartitionAggregateState state = new PartitionAggregateState(0.01, -1);
+		state.apply(0, "laptop", 999.99);
+		state.markHandled(1);
+		state.apply(3, "mouse", 25.50);
+
+		AggregationCheckpointStore store = new AggregationCheckpointStore(directory.toString());
+		store.write(List.of(state.snapshot("orders", 2)));
+		Map<TopicPartition, PartitionCheckpoint> loaded = store.read();
+
+		PartitionCheckpoint checkpoint = loaded.get(new TopicPartition("orders", 2));
+		assertEquals(1, checkpoint.contiguousOffset());
+		assertArrayEquals(new long[] {3}, checkpoint.handledAhead());
+		assertEquals(2, checkpoint.count());
+		assertEquals(102549, checkpoint.totalInCents());
+
+		PartitionAggregateState restored = PartitionAggregateState.restore(checkpoint, 0.01);
+		assertTrue(restored.isHandled(3));
+		assertFalse(restored.isHandled(2));
+		restored.markHandled(2);
+		assertEquals(3, restored.snapshot("orders", 2).contiguousOffset());
+	}
+
+	@Test
+	void changelogBytesRoundTrip() {
+		PartitionAggregateState state = new PartitionAggregateState(0.01, 41);
+		state.apply(42, "keyboard", 79.00);
+
+		PartitionCheckpoint checkpoint = PartitionCheckpoint.fromBytes(state.snapshot("orders", 0).toBytes());
+
+		assertEquals("orders", checkpoint.topic());
+		assertEquals(42, checkpoint.contiguousOffset());
+		assertEquals(7900, checkpoint.totalInCents());
+		assertTrue(checkpoint.productSketches().containsKey("keyboard"));
+	}
+
+	@Test
+	void missingSnapshotLoadsAsEmpty() {
+		assertTrue(new AggregationCheckpointStore(directory.toString()).read().isEmpty());
+	}
+
+}
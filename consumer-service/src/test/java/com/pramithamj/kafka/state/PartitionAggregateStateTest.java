@@ -0,0 +1,42 @@
+package com.pramithamj.kafka.state;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PartitionAggregateStateTest {
+
+	@Test
+	void advancesOverOffsetsWithoutOrders() {
+		PartitionAggregateState state = new PartitionAggregateState(0.01, 9);
+		state.apply(10, "Item1", 10.0);
+		// 11 is a transaction marker; 12 and 13 complete before the consumer moves on
+		state.apply(12, "Item2", 20.0);
+		state.markHandled(13);
+		assertEquals(10, state.getContiguousOffset());
+
+		state.advanceTo(14);
+
+		assertEquals(13, state.getContiguousOffset());
+		assertArrayEquals(new long[0], state.snapshot("orders", 0).handledAhead());
+		assertEquals(2, state.snapshot("orders", 0).count());
+	}
+
+	@Test
+	void advanceKeepsOffsetsHandledAheadOfIt() {
+		PartitionAggregateState state = new PartitionAggregateState(0.01, 9);
+		state.markHandled(12);
+		state.markHandled(14);
+
+		state.advanceTo(11);
+		assertEquals(10, state.getContiguousOffset());
+		assertFalse(state.isHandled(11));
+
+		state.markHandled(11);
+		assertEquals(12, state.getContiguousOffset());
+		assertTrue(state.isHandled(14));
+	}
+}
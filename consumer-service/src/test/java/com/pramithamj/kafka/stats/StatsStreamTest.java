@@ -0,0 +1,133 @@
+package com.pramithamj.kafka.stats;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StatsStreamTest {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final Map<String, Object> stats = new LinkedHashMap<>();
+	private final StatsStream stream = new StatsStream(() -> stats, objectMapper, 1000, 15000, 60000, 2, 3);
+
+	@Test
+	void publishesOnlyChangedFields() throws Exception {
+		stats.put("ordersProcessed", 10L);
+		stats.put("runningAverage", 25.5);
+		stats.put("assignedPartitions", List.of(0, 1));
+
+		JsonNode first = objectMapper.readTree(stream.publish(1000));
+		assertEquals(1, first.get("sequence").asLong());
+		assertEquals(3, first.get("changes").size());
+
+		assertNull(stream.publish(2000));
+
+		stats.put("ordersProcessed", 11L);
+		stats.put("assignedPartitions", List.of(0, 1));
+		JsonNode delta = objectMapper.readTree(stream.publish(3000));
+		assertEquals(2, delta.get("sequence").asLong());
+		assertEquals(1, delta.get("changes").size());
+		assertEquals(11, delta.get("changes").get("ordersProcessed").asLong());
+
+		JsonNode snapshot = objectMapper.readTree(stream.getLatest().json());
+		assertEquals(2, snapshot.get("sequence").asLong());
+		assertEquals(11, snapshot.get("stats").get("ordersProcessed").asLong());
+		assertEquals(25.5, snapshot.get("stats").get("runningAverage").asDouble());
+	}
+
+	@Test
+	void snapshotIsNotAffectedByLaterCollections() {
+		stats.put("ordersProcessed", 10L);
+		stream.publish(1000);
+		StatsStream.Snapshot snapshot = stream.getLatest();
+
+		stats.put("ordersProcessed", 20L);
+		assertEquals(10L, snapshot.stats().get("ordersProcessed"));
+		assertTrue(snapshot.json().contains("\"ordersProcessed\":10"));
+	}
+
+	@Test
+	void changesIncludeNewAndDifferentFieldsOnly() {
+		Map<String, Object> changes = StatsStream.changes(
+				Map.of("a", 1, "b", List.of("x"), "c", Map.of("k", 1)),
+				Map.of("a", 1, "b", List.of("x", "y"), "c", Map.of("k", 1), "d", 0));
+
+		assertEquals(Map.of("b", List.of("x", "y"), "d", 0), changes);
+	}
+
+	@Test
+	void limitsSubscribers() {
+		stats.put("ordersProcessed", 1L);
+		stream.publish(1000);
+
+		assertTrue(stream.subscribe().isPresent());
+		assertTrue(stream.subscribe().isPresent());
+		assertFalse(stream.subscribe().isPresent());
+		assertEquals(2, stream.getSubscriberCount());
+	}
+
+	@Test
+	void slowSubscriberIsDroppedWithoutDelayingOthers() throws Exception {
+		CountDownLatch unblock = new CountDownLatch(1);
+		CountDownLatch stuck = new CountDownLatch(1);
+		SseEmitter slow = new SseEmitter(60000L) {
+			@Override
+			public void send(Set<ResponseBodyEmitter.DataWithMediaType> items) throws IOException {
+				stuck.countDown();
+				try {
+					unblock.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+		AtomicInteger received = new AtomicInteger();
+		SseEmitter fast = new SseEmitter(60000L) {
+			@Override
+			public void send(Set<ResponseBodyEmitter.DataWithMediaType> items) {
+				received.incrementAndGet();
+			}
+		};
+		assertTrue(stream.subscribe(slow));
+		assertTrue(stream.subscribe(fast));
+
+		stats.put("ordersProcessed", 0L);
+		stream.publish(1000);
+		assertTrue(stuck.await(5, TimeUnit.SECONDS));
+		awaitReceived(received, 1);
+		// The slow subscriber's write is blocked; publishing does not wait for it, and the
+		// other subscriber keeps getting every event
+		for (long i = 1; i <= 3; i++) {
+			stats.put("ordersProcessed", i);
+			stream.publish(1000 + i);
+			awaitReceived(received, (int) i + 1);
+		}
+
+		assertEquals(1, stream.getSubscriberCount());
+		unblock.countDown();
+	}
+
+	private static void awaitReceived(AtomicInteger received, int expected) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (received.get() < expected && System.nanoTime() < deadline) {
+			Thread.sleep(5);
+		}
+		assertEquals(expected, received.get());
+	}
+}
@@ -21,6 +21,12 @@ let statsData = {
     retryMessages: []
 };
 
+// Consumer statistics stream (Server-Sent Events): a full snapshot on connect, then
+// only the fields that changed
+let statsStream = null;
+let consumerStats = {};
+let streamConnected = false;
+
 // Initialize Dashboard
 document.addEventListener('DOMContentLoaded', () => {
     console.log('🚀 Kafka Order Processing Dashboard Initialized');
@@ -31,15 +37,15 @@ document.addEventListener('DOMContentLoaded', () => {
     // Check system status immediately
     checkSystemStatus();
     
-    // Start auto-refresh (every 5 seconds)
-    setInterval(refreshDashboard, 5000);
+    // Consumer statistics are pushed; only the other services' health is polled (every 5 seconds)
+    setInterval(checkSystemStatus, 5000);
     
     // Update timestamp
     updateTimestamp();
     setInterval(updateTimestamp, 1000);
     
-    // Load initial data
-    loadConsumerStats();
+    // Subscribe to consumer statistics
+    connectStatsStream();
 });
 
 // Handle Order Submission
@@ -65,9 +71,6 @@ async function handleOrderSubmit(event) {
             
             // Clear form
             document.getElementById('orderForm').reset();
-            
-            // Refresh stats
-            setTimeout(loadConsumerStats, 1000);
         } else {
             throw new Error('Failed to create order');
         }
@@ -85,7 +88,7 @@ function generateRandomOrder() {
     const products = ['Laptop', 'Mouse', 'Keyboard', 'Monitor', 'Headphones', 'Webcam', 'Speaker', 'Microphone'];
     const randomProduct = products[Math.floor(Math.random() * products.length)];
     const randomPrice = (Math.random() * 500 + 10).toFixed(2);
-    const randomId = 'ORD' + Math.floor(Math.random() * 100000);
+    const randomId = 'ORD' + Date.now() + '-' + Math.floor(Math.random() * 1000);
     
     document.getElementById('orderId').value = randomId;
     document.getElementById('product').value = randomProduct;
@@ -132,63 +135,79 @@ async function sendBatchOrders() {
     
     showLoading(false);
     showToast('success', 'Batch Complete', `Success: ${successCount}, Failed: ${failCount}`);
-    
-    // Refresh stats after batch
-    setTimeout(loadConsumerStats, 2000);
 }
 
-// Load Consumer Statistics
-async function loadConsumerStats() {
-    try {
-        const response = await fetch(`${API_BASE.consumer}/api/consumer/stats`);
+// Connect to the consumer statistics stream
+function connectStatsStream() {
+    if (statsStream) {
+        statsStream.close();
+    }
+    
+    consumerStats = {};
+    statsStream = new EventSource(`${API_BASE.consumer}/api/consumer/stats/stream`);
+    
+    statsStream.onopen = () => {
+        streamConnected = true;
+        updateServiceStatus('consumerService', true);
+    };
+    
+    statsStream.onerror = () => {
+        streamConnected = false;
+        updateServiceStatus('consumerService', false);
         
-        if (response.ok) {
-            const data = await response.json();
-            
-            // Update stats
-            statsData.totalOrders = data.ordersProcessed || 0;
-            statsData.runningAverage = data.runningAverage || 0;
-            statsData.totalRevenue = data.totalAmount || 0;
-            statsData.errorCount = data.errorCount || 0;
-            statsData.retryCount = data.retryCount || 0;
-            statsData.dlqCount = data.dlqCount || 0;
-            
-            // Calculate success rate
-            if (data.ordersProcessed > 0) {
-                const successfulOrders = data.ordersProcessed - (data.errorCount || 0);
-                statsData.successRate = ((successfulOrders / data.ordersProcessed) * 100).toFixed(2);
-            }
-            
-            // Update UI
-            updateStatsUI();
-            
-            // Load error details if present
-            if (data.errorCount > 0 || data.retryCount > 0 || data.dlqCount > 0) {
-                loadErrorDetails();
-            }
+        // The browser reconnects by itself unless the server refused the stream (e.g. 503
+        // when the subscriber limit is reached); retry those later
+        if (statsStream.readyState === EventSource.CLOSED) {
+            setTimeout(connectStatsStream, 5000);
         }
-    } catch (error) {
-        console.error('Error loading consumer stats:', error);
+    };
+    
+    statsStream.addEventListener('snapshot', (event) => {
+        consumerStats = JSON.parse(event.data).stats;
+        applyConsumerStats();
+    });
+    
+    statsStream.addEventListener('delta', (event) => {
+        Object.assign(consumerStats, JSON.parse(event.data).changes);
+        applyConsumerStats();
+    });
+}
+
+// Apply Consumer Statistics
+function applyConsumerStats() {
+    const data = consumerStats;
+    
+    // Update stats
+    statsData.totalOrders = data.ordersProcessed || 0;
+    statsData.runningAverage = data.runningAverage || 0;
+    statsData.totalRevenue = data.totalAmount || 0;
+    statsData.errorCount = data.errorCount || 0;
+    statsData.retryCount = data.retryCount || 0;
+    statsData.dlqCount = data.dlqCount || 0;
+    statsData.dlqMessages = Array.isArray(data.dlq) ? data.dlq : [];
+    statsData.retryMessages = Array.isArray(data.retries) ? data.retries : [];
+    
+    // Calculate success rate
+    if (data.ordersProcessed > 0) {
+        const successfulOrders = data.ordersProcessed - (data.errorCount || 0);
+        statsData.successRate = ((successfulOrders / data.ordersProcessed) * 100).toFixed(2);
     }
+    
+    // Update UI
+    updateStatsUI();
+    updateDLQTable();
 }
 
-// Load Error Details for DLQ and Retry
+// Load Error Details for DLQ (on demand; the stream keeps the table current)
 async function loadErrorDetails() {
     try {
-        // Try to fetch DLQ messages (if endpoint exists)
-        const dlqResponse = await fetch(`${API_BASE.consumer}/api/consumer/dlq`).catch(() => null);
+        // Latest page of the consumer's DLQ store
+        const dlqResponse = await fetch(`${API_BASE.consumer}/api/consumer/dlq?size=10`).catch(() => null);
         if (dlqResponse && dlqResponse.ok) {
             const dlqData = await dlqResponse.json();
-            statsData.dlqMessages = Array.isArray(dlqData) ? dlqData : [];
+            statsData.dlqMessages = Array.isArray(dlqData.entries) ? dlqData.entries : [];
             updateDLQTable();
         }
-        
-        // Try to fetch retry messages (if endpoint exists)
-        const retryResponse = await fetch(`${API_BASE.consumer}/api/consumer/retry`).catch(() => null);
-        if (retryResponse && retryResponse.ok) {
-            const retryData = await retryResponse.json();
-            statsData.retryMessages = Array.isArray(retryData) ? retryData : [];
-        }
     } catch (error) {
         console.error('Error loading error details:', error);
     }
@@ -206,10 +225,10 @@ function updateDLQTable() {
     
     dlqTableBody.innerHTML = statsData.dlqMessages.slice(0, 10).map(msg => `
         <tr>
-            <td>${new Date(msg.timestamp || Date.now()).toLocaleTimeString()}</td>
+            <td>${new Date(msg.failedAt || msg.timestamp || Date.now()).toLocaleTimeString()}</td>
             <td><code>${msg.orderId || 'N/A'}</code></td>
             <td>${msg.product || 'N/A'}</td>
-            <td><span class="error-badge">${msg.errorType || 'Processing Error'}</span></td>
+            <td><span class="error-badge">${(msg.errorType || 'Processing Error').split('.').pop()}</span></td>
             <td title="${msg.errorMessage || 'Unknown error'}">${(msg.errorMessage || 'Unknown error').substring(0, 50)}...</td>
         </tr>
     `).join('');
@@ -322,15 +341,8 @@ async function checkSystemStatus() {
         allHealthy = false;
     }
     
-    // Check Consumer Service
-    try {
-        const response = await fetch(`${API_BASE.consumer}/actuator/health`, { method: 'GET' });
-        updateServiceStatus('consumerService', response.ok);
-        if (!response.ok) allHealthy = false;
-    } catch (error) {
-        updateServiceStatus('consumerService', false);
-        allHealthy = false;
-    }
+    // Consumer Service is healthy while its statistics stream is connected
+    if (!streamConnected) allHealthy = false;
     
     // Check Schema Registry
     try {
@@ -402,7 +414,9 @@ function updateClusterStatus(clusterId, isHealthy) {
 
 // Refresh Dashboard
 function refreshDashboard() {
-    loadConsumerStats();
+    if (!streamConnected) {
+        connectStatsStream();
+    }
     checkSystemStatus();
     updateTimestamp();
 }
@@ -0,0 +1,55 @@
+#!/bin/bash
+
+# Sets Schema Registry compatibility rules for the order subjects and registers the compact
+# OrderV2 schema, so producers can be switched to kafka.serde.order-encoding=v2.
+#
+# Order (v1) and OrderV2 (v2) live side by side on the same topics under separate subjects:
+#   <topic>-value                               Order, written by encoding v1
+#   <topic>-com.pramithamj.kafka.model.OrderV2  OrderV2, written by encoding v2
+# Both use FULL_TRANSITIVE, so any reader deployed during a migration can read any version
+# of the same record type.
+#
+# Usage: ./configure-schemas.sh [schema-registry-url]
+
+REGISTRY=${1:-http://localhost:8081}
+SCRIPT_DIR="$(cd "$(dirname "${BASH_SOURCE[0]}")" && pwd)"
+SCHEMA_DIR="$SCRIPT_DIR/../../producer-service/src/main/resources/avro"
+TOPICS="orders orders-retry-2s orders-retry-4s orders-retry-8s orders-dlq"
+
+GREEN='\033[0;32m'
+RED='\033[0;31m'
+YELLOW='\033[1;33m'
+NC='\033[0m' # No Color
+
+# Request body {"schema": "<escaped schema>"} for an .avsc file
+schema_request() {
+  python3 -c 'import json,sys; print(json.dumps({"schema": json.dumps(json.load(open(sys.argv[1])))}))' "$1"
+}
+
+set_compatibility() {
+  local subject=$1
+  if curl -sf -X PUT -H "Content-Type: application/vnd.schemaregistry.v1+json" \
+      --data '{"compatibility": "FULL_TRANSITIVE"}' "$REGISTRY/config/$subject" >/dev/null; then
+    echo -e "${GREEN}✓ $subject: FULL_TRANSITIVE${NC}"
+  else
+    echo -e "${RED}✗ Failed to set compatibility for $subject${NC}"
+  fi
+}
+
+V2_REQUEST=$(schema_request "$SCHEMA_DIR/order_v2.avsc")
+
+for topic in $TOPICS; do
+  echo -e "\n${YELLOW}Configuring subjects for '$topic'...${NC}"
+  set_compatibility "$topic-value"
+
+  v2_subject="$topic-com.pramithamj.kafka.model.OrderV2"
+  set_compatibility "$v2_subject"
+  if response=$(curl -sf -X POST -H "Content-Type: application/vnd.schemaregistry.v1+json" \
+      --data "$V2_REQUEST" "$REGISTRY/subjects/$v2_subject/versions"); then
+    echo -e "${GREEN}✓ $v2_subject registered: $response${NC}"
+  else
+    echo -e "${RED}✗ Failed to register $v2_subject (incompatible with an earlier version?)${NC}"
+  fi
+done
+
+echo -e "\n${GREEN}✓ Schema configuration complete!${NC}"
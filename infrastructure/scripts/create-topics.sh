@@ -46,6 +46,26 @@ else
   echo -e "${RED}✗ Failed to create 'orders-retry' topic${NC}"
 fi
 
+# Create retry delay tier topics (non-blocking backoff: 2s, 4s, 8s). Set RETRY_TIERS to
+# match a custom kafka.retry.tier-delays-ms, e.g. RETRY_TIERS="500ms 1s 5s"
+for tier in ${RETRY_TIERS:-2s 4s 8s}; do
+  echo -e "\n${YELLOW}Creating 'orders-retry-${tier}' topic...${NC}"
+  docker exec kafka1 kafka-topics --create \
+    --bootstrap-server kafka1:19092,kafka2:19093,kafka3:19094 \
+    --topic orders-retry-${tier} \
+    --partitions 3 \
+    --replication-factor 3 \
+    --config min.insync.replicas=2 \
+    --config retention.ms=86400000 \
+    --if-not-exists
+
+  if [ $? -eq 0 ]; then
+    echo -e "${GREEN}✓ 'orders-retry-${tier}' topic created successfully${NC}"
+  else
+    echo -e "${RED}✗ Failed to create 'orders-retry-${tier}' topic${NC}"
+  fi
+done
+
 # Create DLQ topic
 echo -e "\n${YELLOW}Creating 'orders-dlq' topic...${NC}"
 docker exec kafka1 kafka-topics --create \
@@ -63,6 +83,23 @@ else
   echo -e "${RED}✗ Failed to create 'orders-dlq' topic${NC}"
 fi
 
+# Create aggregation changelog topic (compacted: latest checkpoint per orders partition)
+echo -e "\n${YELLOW}Creating 'orders-aggregates' topic...${NC}"
+docker exec kafka1 kafka-topics --create \
+  --bootstrap-server kafka1:19092,kafka2:19093,kafka3:19094 \
+  --topic orders-aggregates \
+  --partitions 3 \
+  --replication-factor 3 \
+  --config min.insync.replicas=2 \
+  --config cleanup.policy=compact \
+  --if-not-exists
+
+if [ $? -eq 0 ]; then
+  echo -e "${GREEN}✓ 'orders-aggregates' topic created successfully${NC}"
+else
+  echo -e "${RED}✗ Failed to create 'orders-aggregates' topic${NC}"
+fi
+
 # List all topics
 echo -e "\n${YELLOW}Listing all topics:${NC}"
 docker exec kafka1 kafka-topics --list --bootstrap-server kafka1:19092,kafka2:19093,kafka3:19094
@@ -0,0 +1,103 @@
+#!/bin/bash
+
+# Compare consumer throughput in at-least-once mode and exactly-once (transactional) mode.
+#
+# Usage: ./eos-throughput-test.sh [orders] [listener]
+#
+#   orders    number of orders to seed through the producer's bulk endpoint (default 20000,
+#             0 to reuse the current backlog of the orders topic)
+#   listener  record (default) or batch; transactions are per listener invocation, so
+#             record mode pays one commit per order and batch mode one per poll
+#
+# Needs the docker cluster and producer-service running, and a built consumer jar. Stop the
+# consumer-service container first so it does not compete for the orders partitions. Each
+# run drains the orders topic with a fresh consumer group and reports committed offsets per
+# second, measured between the first commit and the end of the backlog.
+
+# Colors for output
+GREEN='\033[0;32m'
+RED='\033[0;31m'
+YELLOW='\033[1;33m'
+NC='\033[0m' # No Color
+
+ORDERS=${1:-20000}
+LISTENER=${2:-record}
+CONSUMER_JAR=${CONSUMER_JAR:-../../consumer-service/target/consumer-service-0.0.1-SNAPSHOT.jar}
+PRODUCER_URL=${PRODUCER_URL:-http://localhost:8090}
+BOOTSTRAP=${BOOTSTRAP:-localhost:9092,localhost:9093,localhost:9094}
+PORT=${PORT:-8092}
+
+if [ ! -f "$CONSUMER_JAR" ]; then
+  echo -e "${RED}✗ Consumer JAR not found at $CONSUMER_JAR (cd consumer-service && mvn clean package)${NC}"
+  exit 1
+fi
+
+case "$LISTENER" in
+  record) BATCH=false ;;
+  batch) BATCH=true ;;
+  *) echo -e "${RED}✗ listener must be record or batch${NC}"; exit 1 ;;
+esac
+
+if [ "$ORDERS" -gt 0 ]; then
+  echo -e "${YELLOW}Seeding $ORDERS orders...${NC}"
+  BODY=$(mktemp)
+  trap 'rm -f "$BODY"' EXIT
+  for ((i = 0; i < ORDERS; i++)); do
+    printf '{"orderId":"EOS-%d-%d","product":"Item%d","price":%d.50}\n' \
+      "$$" "$i" $((i % 10 + 1)) $((i % 490 + 10))
+  done > "$BODY"
+  curl -s -o /dev/null -w "bulk ingest: HTTP %{http_code}\n" -X POST "$PRODUCER_URL/api/orders/bulk" \
+    -H "Content-Type: application/x-ndjson" --data-binary @"$BODY"
+fi
+
+# Sum a column of kafka-consumer-groups --describe for the orders topic
+group_column() {
+  docker exec kafka1 kafka-consumer-groups --bootstrap-server kafka1:19092 \
+    --describe --group "$1" 2>/dev/null \
+    | awk -v col="$2" '$2 == "orders" && $col ~ /^[0-9]+$/ { sum += $col; n++ } END { if (n) print sum }'
+}
+
+run() {
+  local mode=$1 transactions=$2
+  local group="eos-bench-$mode-$(date +%s)"
+
+  echo -e "\n${YELLOW}Draining orders in ${mode} mode (${LISTENER} listener, group ${group})...${NC}"
+  java -jar "$CONSUMER_JAR" --server.port="$PORT" \
+    --spring.kafka.bootstrap-servers="$BOOTSTRAP" \
+    --spring.kafka.consumer.group-id="$group" \
+    --kafka.consumer.batch-listener.enabled="$BATCH" \
+    --kafka.consumer.transactions.enabled="$transactions" \
+    --kafka.aggregation.checkpoint.dir="$(mktemp -d)" \
+    --logging.level.com.pramithamj.kafka=WARN > "/tmp/eos-bench-$mode.log" 2>&1 &
+  local pid=$!
+
+  local start_offset="" start_time="" offset="" lag=""
+  while kill -0 "$pid" 2> /dev/null; do
+    sleep 1
+    offset=$(group_column "$group" 4)
+    [ -z "$offset" ] && continue
+    if [ -z "$start_offset" ]; then
+      start_offset=$offset
+      start_time=$(date +%s.%N)
+    fi
+    lag=$(group_column "$group" 6)
+    [ "$lag" = "0" ] && break
+  done
+  local end_time
+  end_time=$(date +%s.%N)
+  kill "$pid" 2> /dev/null
+  wait "$pid" 2> /dev/null
+
+  if [ "$lag" != "0" ]; then
+    echo -e "${RED}✗ ${mode} run did not drain the topic, see /tmp/eos-bench-$mode.log${NC}"
+    return
+  fi
+  awk -v mode="$mode" -v n=$((offset - start_offset)) -v t0="$start_time" -v t1="$end_time" \
+    'BEGIN { printf "%-14s %8d orders in %7.1fs = %8.1f orders/s\n", mode, n, t1 - t0, n / (t1 - t0) }'
+}
+
+run at-least-once false
+run exactly-once true
+
+echo -e "\n${GREEN}✓ Throughput test complete! Producer transaction timings are in the consumer's${NC}"
+echo -e "${GREEN}  kafka_producer_txn_* metrics at /actuator/prometheus while it runs${NC}"
@@ -0,0 +1,50 @@
+#!/bin/bash
+
+# Compare the servlet and reactive producer ingestion paths under many concurrent connections.
+#
+# Usage: ./ingestion-load-test.sh [connections] [duration]
+#
+# Start two producer instances first, e.g.
+#   java -jar producer-service.jar --server.port=8090
+#   java -jar producer-service.jar --server.port=8091 --spring.profiles.active=reactive
+# Raise the open file limit (ulimit -n 65536) on both the load host and the producer hosts.
+
+# Colors for output
+GREEN='\033[0;32m'
+RED='\033[0;31m'
+YELLOW='\033[1;33m'
+NC='\033[0m' # No Color
+
+CONNECTIONS=${1:-10000}
+DURATION=${2:-60s}
+THREADS=${THREADS:-16}
+SERVLET_URL=${SERVLET_URL:-http://localhost:8090}
+REACTIVE_URL=${REACTIVE_URL:-http://localhost:8091}
+
+if ! command -v wrk > /dev/null; then
+  echo -e "${RED}✗ wrk is required (https://github.com/wg/wrk)${NC}"
+  exit 1
+fi
+
+SCRIPT=$(mktemp)
+trap 'rm -f "$SCRIPT"' EXIT
+cat > "$SCRIPT" <<'LUA'
+wrk.method = "POST"
+wrk.headers["Content-Type"] = "application/json"
+counter = 0
+request = function()
+  counter = counter + 1
+  local body = string.format('{"orderId":"LT%d-%d","product":"Item%d","price":%d.99}',
+    math.random(1, 1000000), counter, counter % 10 + 1, counter % 490 + 10)
+  return wrk.format(nil, "/api/orders", nil, body)
+end
+LUA
+
+for target in "servlet|$SERVLET_URL" "reactive|$REACTIVE_URL"; do
+  name=${target%%|*}
+  url=${target#*|}
+  echo -e "\n${YELLOW}Load testing ${name} path at ${url} (${CONNECTIONS} connections, ${DURATION})...${NC}"
+  wrk -t"$THREADS" -c"$CONNECTIONS" -d"$DURATION" --latency --timeout 10s -s "$SCRIPT" "$url"
+done
+
+echo -e "\n${GREEN}✓ Load test complete! Compare Requests/sec, latency percentiles and non-2xx responses above${NC}"
@@ -0,0 +1,78 @@
+package com.pramithamj.kafka.loadgen;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Produce-to-consume latency at each target rate of a run: the table printed at the end,
+ * capacity-curve.csv for plotting p99 against rate, and one HdrHistogram percentile
+ * distribution (latency-&lt;rate&gt;.hgrm) per rate.
+ */
+final class CapacityCurve {
+
+    private static final String HEADER =
+            "target_rate,send_rate,sent,received,missing,failed,p50_ms,p90_ms,p99_ms,p999_ms,max_ms,max_send_lag_ms";
+
+    /**
+     * One load step
+     *
+     * @param sendRate Measured orders sent per second
+     * @param missing Measured orders not read within the drain timeout; they are in the
+     *                histogram at the drain timeout, a lower bound of their latency
+     * @param failed Sends that failed during the whole step, warm-up included
+     * @param maxSendLagMs How far the generator itself fell behind its schedule
+     * @param histogram Latencies in milliseconds
+     */
+    record Step(int targetRate, double sendRate, long sent, long received, long missing, long failed,
+                long maxSendLagMs, Histogram histogram) {
+
+        long percentile(double percentile) {
+            return histogram.getValueAtPercentile(percentile);
+        }
+    }
+
+    private final List<Step> steps = new ArrayList<>();
+
+    void add(Step step) {
+        steps.add(step);
+    }
+
+    List<Step> getSteps() {
+        return List.copyOf(steps);
+    }
+
+    void print(PrintStream out) {
+        out.printf(Locale.ROOT, "%n%10s %10s %10s %8s %8s %8s %8s %8s %9s %8s%n",
+                "rate/s", "sent/s", "received", "missing", "failed", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Step step : steps) {
+            out.printf(Locale.ROOT, "%10d %10.1f %10d %8d %8d %8d %8d %8d %9d %8d%n",
+                    step.targetRate(), step.sendRate(), step.received(), step.missing(), step.failed(),
+                    step.percentile(50), step.percentile(90), step.percentile(99), step.percentile(99.9),
+                    step.histogram().getMaxValue());
+        }
+    }
+
+    void write(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        List<String> lines = new ArrayList<>();
+        lines.add(HEADER);
+        for (Step step : steps) {
+            lines.add(String.format(Locale.ROOT, "%d,%.1f,%d,%d,%d,%d,%d,%d,%d,%d,%d,%d",
+                    step.targetRate(), step.sendRate(), step.sent(), step.received(), step.missing(), step.failed(),
+                    step.percentile(50), step.percentile(90), step.percentile(99), step.percentile(99.9),
+                    step.histogram().getMaxValue(), step.maxSendLagMs()));
+            try (PrintStream out = new PrintStream(
+                    Files.newOutputStream(directory.resolve("latency-" + step.targetRate() + ".hgrm")))) {
+                step.histogram().outputPercentileDistribution(out, 1.0);
+            }
+        }
+        Files.write(directory.resolve("capacity-curve.csv"), lines);
+    }
+}
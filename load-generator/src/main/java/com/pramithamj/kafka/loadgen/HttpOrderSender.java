@@ -0,0 +1,80 @@
+package com.pramithamj.kafka.loadgen;
+
+import com.pramithamj.kafka.model.Order;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Posts orders to the producer service's /api/orders endpoint. Requests are asynchronous,
+ * so a slow or saturated service does not slow the schedule down; its 429 answers are
+ * counted as failures like any other error.
+ */
+final class HttpOrderSender implements OrderSender {
+
+    private final HttpClient client;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final URI ordersUri;
+    private final AtomicLong inFlight = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    HttpOrderSender(String producerUrl) {
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(executor)
+                .build();
+        this.ordersUri = URI.create(producerUrl.replaceAll("/+$", "") + "/api/orders");
+    }
+
+    @Override
+    public void send(Order order) {
+        HttpRequest request = HttpRequest.newBuilder(ordersUri)
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(toJson(order)))
+                .build();
+        inFlight.incrementAndGet();
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, ex) -> {
+            if (ex != null || response.statusCode() / 100 != 2) {
+                failed.incrementAndGet();
+            }
+            inFlight.decrementAndGet();
+        });
+    }
+
+    @Override
+    public void flush(long timeoutMs) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Override
+    public long getFailed() {
+        return failed.get();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * The order as the JSON the producer's controller binds to Order; ids and products are
+     * generated and need no escaping
+     */
+    static String toJson(Order order) {
+        return String.format(Locale.ROOT, "{\"orderId\":\"%s\",\"product\":\"%s\",\"price\":%.2f,\"timestamp\":%d}",
+                order.getOrderId(), order.getProduct(), order.getPrice(), order.getTimestamp());
+    }
+}
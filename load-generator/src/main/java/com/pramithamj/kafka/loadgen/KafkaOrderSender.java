@@ -0,0 +1,68 @@
+package com.pramithamj.kafka.loadgen;
+
+import com.pramithamj.kafka.model.Order;
+import io.confluent.kafka.serializers.KafkaAvroSerializer;
+import io.confluent.kafka.serializers.KafkaAvroSerializerConfig;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringSerializer;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Produces orders straight to the orders topic with the producer service's settings for
+ * its default (BALANCED) batching profile, leaving out the service's HTTP layer
+ */
+final class KafkaOrderSender implements OrderSender {
+
+    private final KafkaProducer<String, Object> producer;
+    private final String topic;
+    private final AtomicLong failed = new AtomicLong();
+
+    KafkaOrderSender(String bootstrapServers, String schemaRegistryUrl, String topic) {
+        Map<String, Object> config = new HashMap<>();
+        config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, KafkaAvroSerializer.class);
+        config.put(KafkaAvroSerializerConfig.SCHEMA_REGISTRY_URL_CONFIG, schemaRegistryUrl);
+        config.put(KafkaAvroSerializerConfig.AUTO_REGISTER_SCHEMAS, true);
+        config.put(ProducerConfig.ACKS_CONFIG, "all");
+        config.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5);
+        config.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        config.put(ProducerConfig.BATCH_SIZE_CONFIG, 16384);
+        config.put(ProducerConfig.LINGER_MS_CONFIG, 10);
+        config.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, "snappy");
+        config.put(ProducerConfig.BUFFER_MEMORY_CONFIG, 33554432);
+        config.put(ProducerConfig.DELIVERY_TIMEOUT_MS_CONFIG, 120000);
+        this.producer = new KafkaProducer<>(config);
+        this.topic = topic;
+    }
+
+    @Override
+    public void send(Order order) {
+        producer.send(new ProducerRecord<>(topic, order.getOrderId(), order), (metadata, ex) -> {
+            if (ex != null) {
+                failed.incrementAndGet();
+            }
+        });
+    }
+
+    @Override
+    public void flush(long timeoutMs) {
+        producer.flush();
+    }
+
+    @Override
+    public long getFailed() {
+        return failed.get();
+    }
+
+    @Override
+    public void close() {
+        producer.close(Duration.ofSeconds(10));
+    }
+}
@@ -0,0 +1,167 @@
+package com.pramithamj.kafka.loadgen;
+
+import io.confluent.kafka.serializers.KafkaAvroDeserializer;
+import io.confluent.kafka.serializers.KafkaAvroDeserializerConfig;
+import org.HdrHistogram.Histogram;
+import org.apache.avro.generic.GenericFixed;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reads the orders topic from its end and records, for every order of this run, the time
+ * from the order's Avro timestamp to when it was read.
+ *
+ * The generator stamps each order with the time it was due to be sent, not the time it was
+ * actually sent, so delays in the generator, the producer or the HTTP layer all count
+ * towards latency instead of silently pushing later sends back. That is the open-loop form
+ * of coordinated-omission correction; HdrHistogram's recordValueWithExpectedInterval is the
+ * after-the-fact form for closed-loop measurements and would count those delays twice here.
+ *
+ * Both the Order and the compact OrderV2 encoding are read, as generic records.
+ */
+final class LatencyConsumer implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(LatencyConsumer.class);
+
+    // Latencies are in milliseconds, the resolution of the Avro timestamp
+    private static final long HIGHEST_TRACKABLE_MS = Duration.ofHours(1).toMillis();
+
+    private final KafkaConsumer<String, Object> consumer;
+    private final String topic;
+    private final int runId;
+    private final Map<Integer, StepStats> steps = new ConcurrentHashMap<>();
+    private volatile boolean running = true;
+    private Thread thread;
+
+    LatencyConsumer(String bootstrapServers, String schemaRegistryUrl, String topic, int runId) {
+        Map<String, Object> config = new HashMap<>();
+        config.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, KafkaAvroDeserializer.class);
+        config.put(KafkaAvroDeserializerConfig.SCHEMA_REGISTRY_URL_CONFIG, schemaRegistryUrl);
+        config.put(KafkaAvroDeserializerConfig.SPECIFIC_AVRO_READER_CONFIG, false);
+        config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        config.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 500);
+        this.consumer = new KafkaConsumer<>(config);
+        this.topic = topic;
+        this.runId = runId;
+    }
+
+    /**
+     * Position at the end of every partition and start reading. Partitions are assigned
+     * directly, so the consumer group of the services is not disturbed.
+     */
+    void start() {
+        List<TopicPartition> partitions = consumer.partitionsFor(topic, Duration.ofSeconds(30)).stream()
+                .map(info -> new TopicPartition(topic, info.partition()))
+                .toList();
+        if (partitions.isEmpty()) {
+            throw new IllegalStateException("Topic " + topic + " has no partitions");
+        }
+        consumer.assign(partitions);
+        consumer.seekToEnd(partitions);
+        // Resolve the end offsets now, before the first order is sent
+        partitions.forEach(consumer::position);
+        thread = Thread.ofPlatform().name("latency-consumer").start(this::run);
+        log.info("Reading {} partitions of {} from their end", partitions.size(), topic);
+    }
+
+    /**
+     * Latency and count of the measured orders read so far for a step
+     */
+    StepStats.Snapshot snapshot(int step) {
+        return stats(step).snapshot();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        if (thread == null) {
+            consumer.close(Duration.ofSeconds(5));
+            return;
+        }
+        consumer.wakeup();
+        try {
+            thread.join(10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                for (ConsumerRecord<String, Object> record : consumer.poll(Duration.ofMillis(100))) {
+                    record(record, System.currentTimeMillis());
+                }
+            }
+        } catch (WakeupException e) {
+            // Closing
+        } catch (RuntimeException e) {
+            log.error("Latency consumer stopped", e);
+        } finally {
+            consumer.close(Duration.ofSeconds(5));
+        }
+    }
+
+    private void record(ConsumerRecord<String, Object> record, long now) {
+        if (!(record.value() instanceof GenericRecord order)) {
+            return;
+        }
+        OrderTag tag = tag(order.get("orderId"));
+        if (tag == null || tag.runId() != runId || !tag.measured()) {
+            return;
+        }
+        long timestamp = (Long) order.get("timestamp");
+        stats(tag.step()).record(Math.max(0, now - timestamp));
+    }
+
+    private StepStats stats(int step) {
+        return steps.computeIfAbsent(step, s -> new StepStats());
+    }
+
+    private static OrderTag tag(Object orderId) {
+        if (orderId instanceof GenericFixed uuid) {
+            // OrderV2 carries the UUID as 16 bytes
+            ByteBuffer bytes = ByteBuffer.wrap(uuid.bytes());
+            return OrderTag.of(new UUID(bytes.getLong(), bytes.getLong()));
+        }
+        return orderId != null ? OrderTag.parse(orderId.toString()) : null;
+    }
+
+    /**
+     * Latencies of one step, written by the consumer thread and snapshotted by the generator
+     */
+    static final class StepStats {
+
+        record Snapshot(long received, Histogram histogram) {
+        }
+
+        private final Histogram histogram = new Histogram(HIGHEST_TRACKABLE_MS, 3);
+        private long received;
+
+        synchronized void record(long latencyMs) {
+            histogram.recordValue(Math.min(latencyMs, HIGHEST_TRACKABLE_MS));
+            received++;
+        }
+
+        synchronized Snapshot snapshot() {
+            return new Snapshot(received, histogram.copy());
+        }
+    }
+}
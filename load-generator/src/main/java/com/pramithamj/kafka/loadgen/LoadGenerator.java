@@ -0,0 +1,235 @@
+package com.pramithamj.kafka.loadgen;
+
+import com.pramithamj.kafka.model.Order;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load generator for the order pipeline.
+ *
+ * Each target rate is one step: orders are due at fixed intervals for warmup-seconds and
+ * then duration-seconds, and each is sent when it is due whether or not earlier sends have
+ * completed. Orders carry their due time as the Avro timestamp, and LatencyConsumer reads
+ * them back to record produce-to-consume latency per step. The steps run in increasing rate
+ * order and stop once p99 exceeds stop-at-p99-ms; the result is a capacity curve of rate
+ * against latency percentiles.
+ *
+ * Modes:
+ * - embedded: starts an embedded KRaft broker with a mock schema registry and produces to it
+ *   directly; nothing else needs to run
+ * - kafka: produces directly to bootstrap-servers with the producer service's settings
+ * - http: posts to the producer service's /api/orders at producer-url
+ *
+ * Options are given as --name=value:
+ * mode (embedded), bootstrap-servers (localhost:9092,localhost:9093,localhost:9094),
+ * schema-registry-url (http://localhost:8081), producer-url (http://localhost:8090),
+ * topic (orders), partitions (3, embedded only), rates (100,500,1000,2000,5000,10000),
+ * warmup-seconds (5), duration-seconds (30), drain-timeout-seconds (10),
+ * stop-at-p99-ms (5000), seed (42), zipf-exponent (1.1), price-sigma (0.35),
+ * output (target/load-generator).
+ */
+public final class LoadGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadGenerator.class);
+
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("mode", "embedded");
+        DEFAULTS.put("bootstrap-servers", "localhost:9092,localhost:9093,localhost:9094");
+        DEFAULTS.put("schema-registry-url", "http://localhost:8081");
+        DEFAULTS.put("producer-url", "http://localhost:8090");
+        DEFAULTS.put("topic", "orders");
+        DEFAULTS.put("partitions", "3");
+        DEFAULTS.put("rates", "100,500,1000,2000,5000,10000");
+        DEFAULTS.put("warmup-seconds", "5");
+        DEFAULTS.put("duration-seconds", "30");
+        DEFAULTS.put("drain-timeout-seconds", "10");
+        DEFAULTS.put("stop-at-p99-ms", "5000");
+        DEFAULTS.put("seed", "42");
+        DEFAULTS.put("zipf-exponent", "1.1");
+        DEFAULTS.put("price-sigma", "0.35");
+        DEFAULTS.put("output", "target/load-generator");
+    }
+
+    private final Map<String, String> options;
+    private final int runId = ThreadLocalRandom.current().nextInt();
+    private final OrderDistribution distribution;
+    private final OrderSender sender;
+    private final LatencyConsumer consumer;
+
+    LoadGenerator(Map<String, String> options, String bootstrapServers, String schemaRegistryUrl) {
+        this.options = options;
+        this.distribution = new OrderDistribution(longOption("seed"),
+                doubleOption("zipf-exponent"), doubleOption("price-sigma"));
+        String topic = options.get("topic");
+        this.sender = "http".equals(options.get("mode"))
+                ? new HttpOrderSender(options.get("producer-url"))
+                : new KafkaOrderSender(bootstrapServers, schemaRegistryUrl, topic);
+        this.consumer = new LatencyConsumer(bootstrapServers, schemaRegistryUrl, topic, runId);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        String mode = options.get("mode");
+        if (!List.of("embedded", "kafka", "http").contains(mode)) {
+            throw new IllegalArgumentException("mode must be embedded, kafka or http: " + mode);
+        }
+
+        EmbeddedKafkaKraftBroker broker = null;
+        String bootstrapServers = options.get("bootstrap-servers");
+        String schemaRegistryUrl = options.get("schema-registry-url");
+        if ("embedded".equals(mode)) {
+            broker = new EmbeddedKafkaKraftBroker(1, Integer.parseInt(options.get("partitions")), options.get("topic"));
+            broker.afterPropertiesSet();
+            bootstrapServers = broker.getBrokersAsString();
+            schemaRegistryUrl = "mock://load-generator";
+            log.info("Embedded broker started at {}", bootstrapServers);
+        }
+
+        try {
+            CapacityCurve curve = new LoadGenerator(options, bootstrapServers, schemaRegistryUrl).run();
+            curve.print(System.out);
+            Path output = Path.of(options.get("output"));
+            curve.write(output);
+            log.info("Capacity curve written to {}", output.resolve("capacity-curve.csv").toAbsolutePath());
+        } finally {
+            if (broker != null) {
+                broker.destroy();
+            }
+        }
+    }
+
+    CapacityCurve run() throws InterruptedException {
+        CapacityCurve curve = new CapacityCurve();
+        long stopAtP99Ms = longOption("stop-at-p99-ms");
+        int[] rates = Arrays.stream(options.get("rates").split(","))
+                .map(String::trim)
+                .mapToInt(Integer::parseInt)
+                .sorted()
+                .toArray();
+        try (sender; consumer) {
+            consumer.start();
+            for (int step = 0; step < rates.length; step++) {
+                CapacityCurve.Step result = runStep(step, rates[step]);
+                curve.add(result);
+                log.info("{}/s: p50={}ms, p99={}ms, max={}ms, received={}, missing={}, failed={}",
+                        result.targetRate(), result.percentile(50), result.percentile(99),
+                        result.histogram().getMaxValue(), result.received(), result.missing(), result.failed());
+                if (result.percentile(99) > stopAtP99Ms) {
+                    log.info("p99 above {}ms at {}/s, not trying higher rates", stopAtP99Ms, result.targetRate());
+                    break;
+                }
+            }
+        }
+        return curve;
+    }
+
+    /**
+     * Send at the target rate for the warm-up and the measurement, then wait for the
+     * measured orders to be read
+     */
+    private CapacityCurve.Step runStep(int step, int rate) throws InterruptedException {
+        if (rate <= 0) {
+            throw new IllegalArgumentException("rates must be positive: " + rate);
+        }
+        long warmupOrders = rate * longOption("warmup-seconds");
+        long measuredOrders = rate * longOption("duration-seconds");
+        long drainTimeoutMs = TimeUnit.SECONDS.toMillis(longOption("drain-timeout-seconds"));
+        OrderTag warmup = new OrderTag(runId, step, false);
+        OrderTag measured = new OrderTag(runId, step, true);
+        long failedBefore = sender.getFailed();
+        log.info("Step {}: {} orders/s for {}s after a {}s warm-up", step, rate,
+                options.get("duration-seconds"), options.get("warmup-seconds"));
+
+        long startNanos = System.nanoTime();
+        long startMillis = System.currentTimeMillis();
+        long maxLagNanos = 0;
+        long measuredStartNanos = 0;
+        for (long i = 0; i < warmupOrders + measuredOrders; i++) {
+            // Due times are computed from the start, so rounding does not accumulate
+            long due = startNanos + i * 1_000_000_000L / rate;
+            long lag = waitUntil(due);
+            if (i == warmupOrders) {
+                measuredStartNanos = System.nanoTime();
+            }
+            if (i >= warmupOrders) {
+                maxLagNanos = Math.max(maxLagNanos, lag);
+            }
+            OrderTag tag = i < warmupOrders ? warmup : measured;
+            int product = distribution.nextProduct();
+            sender.send(new Order(tag.orderId(i), OrderDistribution.PRODUCTS[product],
+                    distribution.nextPrice(product), startMillis + TimeUnit.NANOSECONDS.toMillis(due - startNanos)));
+        }
+        double sendRate = measuredOrders * 1e9 / Math.max(1, System.nanoTime() - measuredStartNanos);
+
+        long drainDeadline = System.currentTimeMillis() + drainTimeoutMs;
+        sender.flush(drainTimeoutMs);
+        LatencyConsumer.StepStats.Snapshot snapshot = consumer.snapshot(step);
+        while (snapshot.received() < measuredOrders && System.currentTimeMillis() < drainDeadline) {
+            Thread.sleep(50);
+            snapshot = consumer.snapshot(step);
+        }
+
+        Histogram histogram = snapshot.histogram();
+        long missing = Math.max(0, measuredOrders - snapshot.received());
+        if (missing > 0) {
+            // Not read after the drain timeout: at least that late, and counted so
+            histogram.recordValueWithCount(drainTimeoutMs, missing);
+        }
+        return new CapacityCurve.Step(rate, sendRate, measuredOrders, snapshot.received(), missing,
+                sender.getFailed() - failedBefore, TimeUnit.NANOSECONDS.toMillis(maxLagNanos), histogram);
+    }
+
+    /**
+     * Park, then spin for the last stretch, until the due time
+     *
+     * @return How late the generator is for this send, in nanoseconds
+     */
+    private static long waitUntil(long due) {
+        long remaining;
+        while ((remaining = due - System.nanoTime()) > 0) {
+            if (remaining > 200_000) {
+                LockSupport.parkNanos(remaining - 100_000);
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+        return -remaining;
+    }
+
+    static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>(DEFAULTS);
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Expected --name=value: " + arg);
+            }
+            String name = arg.substring(2, equals);
+            if (!DEFAULTS.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown option " + name + ", expected one of " + DEFAULTS.keySet());
+            }
+            options.put(name, arg.substring(equals + 1));
+        }
+        return options;
+    }
+
+    private long longOption(String name) {
+        return Long.parseLong(options.get(name));
+    }
+
+    private double doubleOption(String name) {
+        return Double.parseDouble(options.get(name));
+    }
+}
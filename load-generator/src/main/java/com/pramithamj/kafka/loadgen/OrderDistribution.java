@@ -0,0 +1,82 @@
+package com.pramithamj.kafka.loadgen;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Products and prices of generated orders.
+ *
+ * Product popularity follows a Zipf law over the catalogue, so a few products take most of
+ * the orders as in a real shop. Each product has its own typical price, spread log-uniformly
+ * over the 10 to 500 range the producer uses and independent of popularity, and order prices
+ * are log-normally distributed around it. The generator is seeded, so a run can be repeated
+ * with the same orders.
+ */
+public final class OrderDistribution {
+
+    /**
+     * The producer's catalogue, which is also the product dictionary of the compact encoding
+     */
+    public static final String[] PRODUCTS = {
+        "Item1", "Item2", "Item3", "Item4", "Item5",
+        "Item6", "Item7", "Item8", "Item9", "Item10"
+    };
+
+    static final double MIN_PRICE = 10.0;
+    static final double MAX_PRICE = 500.0;
+    private static final double MIN_TYPICAL_PRICE = 20.0;
+    private static final double MAX_TYPICAL_PRICE = 400.0;
+
+    private final SplittableRandom random;
+    private final double[] cumulative = new double[PRODUCTS.length];
+    private final double[] typicalPrice = new double[PRODUCTS.length];
+    private final double priceSigma;
+
+    /**
+     * @param zipfExponent Skew of product popularity; 0 makes all products equally popular
+     * @param priceSigma Standard deviation of log(price) around a product's typical price
+     */
+    public OrderDistribution(long seed, double zipfExponent, double priceSigma) {
+        this.random = new SplittableRandom(seed);
+        this.priceSigma = priceSigma;
+        double total = 0;
+        for (int i = 0; i < PRODUCTS.length; i++) {
+            total += 1.0 / Math.pow(i + 1, zipfExponent);
+            cumulative[i] = total;
+        }
+        for (int i = 0; i < PRODUCTS.length; i++) {
+            cumulative[i] /= total;
+            // Interleave so that the best sellers are not also the cheapest
+            double position = (double) (i * 3 % PRODUCTS.length) / (PRODUCTS.length - 1);
+            typicalPrice[i] = MIN_TYPICAL_PRICE * Math.pow(MAX_TYPICAL_PRICE / MIN_TYPICAL_PRICE, position);
+        }
+    }
+
+    /**
+     * @return Index into PRODUCTS of the next order's product
+     */
+    public int nextProduct() {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return Math.min(index < 0 ? -index - 1 : index, PRODUCTS.length - 1);
+    }
+
+    /**
+     * @return Price of an order for the product, in dollars rounded to cents
+     */
+    public float nextPrice(int product) {
+        double price = typicalPrice[product] * Math.exp(priceSigma * random.nextGaussian());
+        price = Math.min(MAX_PRICE, Math.max(MIN_PRICE, price));
+        return Math.round(price * 100.0) / 100.0f;
+    }
+
+    /**
+     * @return Share of orders that go to each product
+     */
+    double share(int product) {
+        return product == 0 ? cumulative[0] : cumulative[product] - cumulative[product - 1];
+    }
+
+    double typicalPrice(int product) {
+        return typicalPrice[product];
+    }
+}
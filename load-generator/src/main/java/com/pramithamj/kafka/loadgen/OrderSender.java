@@ -0,0 +1,25 @@
+package com.pramithamj.kafka.loadgen;
+
+import com.pramithamj.kafka.model.Order;
+
+/**
+ * Sends generated orders into the pipeline without waiting for each result, so the
+ * schedule is never held back by a slow send
+ */
+interface OrderSender extends AutoCloseable {
+
+    void send(Order order);
+
+    /**
+     * Wait for the sends issued so far to complete
+     */
+    void flush(long timeoutMs) throws InterruptedException;
+
+    /**
+     * @return Sends that failed, including orders the producer service rejected
+     */
+    long getFailed();
+
+    @Override
+    void close();
+}
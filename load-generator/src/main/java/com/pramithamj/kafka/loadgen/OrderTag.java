@@ -0,0 +1,50 @@
+package com.pramithamj.kafka.loadgen;
+
+import java.util.UUID;
+
+/**
+ * Run, load step and warm-up flag of a generated order, carried in the first half of its
+ * UUID orderId. The consumer side attributes each order it reads to its step from the id
+ * alone and ignores other traffic on the topic. The ids still parse as UUIDs, so the
+ * producer's compact encoding applies to them.
+ *
+ * @param measured false for orders sent during a step's warm-up
+ */
+record OrderTag(int runId, int step, boolean measured) {
+
+    OrderTag {
+        if (step < 0 || step > 0xFFFF) {
+            throw new IllegalArgumentException("step out of range: " + step);
+        }
+    }
+
+    /**
+     * @param sequence Distinguishes the orders of one tag
+     */
+    String orderId(long sequence) {
+        long high = (long) runId << 32 | (long) step << 16 | (measured ? 1 : 0);
+        return new UUID(high, sequence).toString();
+    }
+
+    /**
+     * @return The tag, or null if the id was not made by orderId
+     */
+    static OrderTag parse(String orderId) {
+        UUID uuid;
+        try {
+            uuid = UUID.fromString(orderId);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        return of(uuid);
+    }
+
+    static OrderTag of(UUID uuid) {
+        long high = uuid.getMostSignificantBits();
+        int flags = (int) (high & 0xFFFF);
+        if (flags > 1) {
+            return null;
+        }
+        return new OrderTag((int) (high >>> 32), (int) (high >>> 16) & 0xFFFF, flags == 1);
+    }
+}
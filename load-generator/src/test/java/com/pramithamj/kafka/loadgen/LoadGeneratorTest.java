@@ -0,0 +1,67 @@
+package com.pramithamj.kafka.loadgen;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoadGeneratorTest {
+
+	@Test
+	void orderIdsCarryTheirTag() {
+		OrderTag tag = new OrderTag(-123456789, 7, true);
+		String orderId = tag.orderId(42);
+
+		assertEquals(tag, OrderTag.parse(orderId));
+		assertEquals(orderId, UUID.fromString(orderId).toString());
+		assertEquals(new OrderTag(5, 0, false), OrderTag.parse(new OrderTag(5, 0, false).orderId(1)));
+		assertNull(OrderTag.parse("1001"));
+		assertNull(OrderTag.parse("0f8fad5b-d9cb-469f-a165-70867728950e"));
+	}
+
+	@Test
+	void productsAreSkewedAndPricesStayInRange() {
+		OrderDistribution distribution = new OrderDistribution(42, 1.1, 0.35);
+		int orders = 100_000;
+		int[] counts = new int[OrderDistribution.PRODUCTS.length];
+		for (int i = 0; i < orders; i++) {
+			int product = distribution.nextProduct();
+			counts[product]++;
+			float price = distribution.nextPrice(product);
+			assertTrue(price >= OrderDistribution.MIN_PRICE && price <= OrderDistribution.MAX_PRICE);
+		}
+
+		for (int i = 0; i < counts.length; i++) {
+			assertEquals(distribution.share(i), (double) counts[i] / orders, 0.01);
+		}
+		assertTrue(counts[0] > 3 * counts[counts.length - 1]);
+	}
+
+	@Test
+	void measuresLatencyAgainstTheEmbeddedBroker() throws Exception {
+		EmbeddedKafkaKraftBroker broker = new EmbeddedKafkaKraftBroker(1, 3, "orders");
+		broker.afterPropertiesSet();
+		try {
+			Map<String, String> options = LoadGenerator.parse(new String[] {
+					"--rates=200,100", "--warmup-seconds=1", "--duration-seconds=2", "--drain-timeout-seconds=10"});
+			CapacityCurve curve = new LoadGenerator(options, broker.getBrokersAsString(), "mock://load-generator-test")
+					.run();
+
+			assertEquals(2, curve.getSteps().size());
+			CapacityCurve.Step first = curve.getSteps().get(0);
+			assertEquals(100, first.targetRate());
+			assertEquals(200, first.sent());
+			assertEquals(200, first.received());
+			assertEquals(0, first.missing());
+			assertEquals(200, first.histogram().getTotalCount());
+			assertEquals(400, curve.getSteps().get(1).received());
+		} finally {
+			broker.destroy();
+		}
+	}
+}
@@ -1,16 +1,25 @@
 package com.pramithamj.kafka.config;
 
+import com.pramithamj.kafka.producer.AdaptiveBatchingRouter;
+import com.pramithamj.kafka.producer.BatchingProfile;
+import com.pramithamj.kafka.serde.OrderAvroSerializer;
+import com.pramithamj.kafka.serde.SchemaIdCache;
 import io.confluent.kafka.serializers.KafkaAvroSerializer;
 import io.confluent.kafka.serializers.KafkaAvroSerializerConfig;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.MicrometerProducerListener;
 import org.springframework.kafka.core.ProducerFactory;
 
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -23,41 +32,104 @@ public class KafkaProducerConfig {
     @Value("${spring.kafka.properties.schema.registry.url}")
     private String schemaRegistryUrl;
 
+    // Pooled Order serde; false falls back to the Confluent Avro serializer
+    @Value("${kafka.serde.pooled.enabled:true}")
+    private boolean pooledSerde;
+
+    // Schema ids kept across restarts by the pooled serde; blank keeps them in memory only
+    @Value("${kafka.serde.schema-cache.path:}")
+    private String schemaCachePath;
+
+    // Order value encoding written by the pooled serializer: v1 (Order) or v2 (compact OrderV2)
+    @Value("${kafka.serde.order-encoding:v1}")
+    private String orderEncoding;
+
+    @Bean
+    @Primary
+    public ProducerFactory<String, Object> producerFactory(MeterRegistry meterRegistry) {
+        return createProducerFactory(BatchingProfile.BALANCED, meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public KafkaTemplate<String, Object> kafkaTemplate(ProducerFactory<String, Object> producerFactory) {
+        return new KafkaTemplate<>(producerFactory);
+    }
+
+    /**
+     * Producer factories of the other batching profiles. They are beans so their producers
+     * are flushed and closed on shutdown; a producer is only created once the router uses it.
+     */
+    @Bean
+    public ProducerFactory<String, Object> latencyProducerFactory(MeterRegistry meterRegistry) {
+        return createProducerFactory(BatchingProfile.LATENCY, meterRegistry);
+    }
+
     @Bean
-    public ProducerFactory<String, Object> producerFactory() {
+    public ProducerFactory<String, Object> throughputProducerFactory(MeterRegistry meterRegistry) {
+        return createProducerFactory(BatchingProfile.THROUGHPUT, meterRegistry);
+    }
+
+    /**
+     * Routes OrderProducer sends across one producer per batching profile. The BALANCED
+     * profile reuses the primary template; the others are separate producers, connected
+     * by StartupWarmup before the service reports ready.
+     */
+    @Bean
+    public AdaptiveBatchingRouter adaptiveBatchingRouter(
+            KafkaTemplate<String, Object> kafkaTemplate,
+            @Qualifier("latencyProducerFactory") ProducerFactory<String, Object> latencyProducerFactory,
+            @Qualifier("throughputProducerFactory") ProducerFactory<String, Object> throughputProducerFactory,
+            MeterRegistry meterRegistry,
+            @Value("${kafka.producer.adaptive.enabled:false}") boolean enabled,
+            @Value("${kafka.producer.adaptive.window-seconds:10}") int windowSeconds,
+            @Value("${kafka.producer.adaptive.latency-max-rate:50}") double latencyMaxRate,
+            @Value("${kafka.producer.adaptive.throughput-min-rate:5000}") double throughputMinRate,
+            @Value("${kafka.producer.adaptive.throughput-min-bytes-per-second:4194304}") double throughputMinBytesPerSecond) {
+        Map<BatchingProfile, KafkaTemplate<String, Object>> templates = new EnumMap<>(BatchingProfile.class);
+        templates.put(BatchingProfile.BALANCED, kafkaTemplate);
+        if (enabled) {
+            templates.put(BatchingProfile.LATENCY, new KafkaTemplate<>(latencyProducerFactory));
+            templates.put(BatchingProfile.THROUGHPUT, new KafkaTemplate<>(throughputProducerFactory));
+        }
+        return new AdaptiveBatchingRouter(templates, enabled, windowSeconds,
+                latencyMaxRate, throughputMinRate, throughputMinBytesPerSecond, meterRegistry);
+    }
+
+    private DefaultKafkaProducerFactory<String, Object> createProducerFactory(BatchingProfile profile,
+                                                                              MeterRegistry meterRegistry) {
         Map<String, Object> configProps = new HashMap<>();
-        
+
         // Basic Kafka configuration
         configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, KafkaAvroSerializer.class);
-        
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG,
+                pooledSerde ? OrderAvroSerializer.class : KafkaAvroSerializer.class);
+
         // Schema Registry configuration
         configProps.put(KafkaAvroSerializerConfig.SCHEMA_REGISTRY_URL_CONFIG, schemaRegistryUrl);
         configProps.put(KafkaAvroSerializerConfig.AUTO_REGISTER_SCHEMAS, true);
+        configProps.put(OrderAvroSerializer.ORDER_ENCODING_CONFIG, orderEncoding);
+        configProps.put(SchemaIdCache.PATH_CONFIG, schemaCachePath);
         configProps.put(KafkaAvroSerializerConfig.USE_LATEST_VERSION, true);
-        
+
         // Producer reliability configuration
         configProps.put(ProducerConfig.ACKS_CONFIG, "all"); // Wait for all replicas
         configProps.put(ProducerConfig.RETRIES_CONFIG, 3);
-        configProps.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 1); // Ensure ordering
+        configProps.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5); // Idempotence keeps ordering up to 5
         configProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true); // Exactly-once semantics
-        
-        // Performance tuning
-        configProps.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, "snappy");
-        configProps.put(ProducerConfig.BATCH_SIZE_CONFIG, 16384);
-        configProps.put(ProducerConfig.LINGER_MS_CONFIG, 10);
+
+        // Performance tuning: batch.size, linger.ms and compression.type come from the profile
+        profile.applyTo(configProps);
         configProps.put(ProducerConfig.BUFFER_MEMORY_CONFIG, 33554432);
-        
+
         // Timeout configuration
         configProps.put(ProducerConfig.REQUEST_TIMEOUT_MS_CONFIG, 30000);
         configProps.put(ProducerConfig.DELIVERY_TIMEOUT_MS_CONFIG, 120000);
-        
-        return new DefaultKafkaProducerFactory<>(configProps);
-    }
 
-    @Bean
-    public KafkaTemplate<String, Object> kafkaTemplate() {
-        return new KafkaTemplate<>(producerFactory());
+        DefaultKafkaProducerFactory<String, Object> factory = new DefaultKafkaProducerFactory<>(configProps);
+        // Export the client's own metrics (batch-size-avg, record-send-rate, ...) per producer
+        factory.addListener(new MicrometerProducerListener<>(meterRegistry));
+        return factory;
     }
 }
@@ -1,28 +1,33 @@
 package com.pramithamj.kafka.controller;
 
 import com.pramithamj.kafka.model.Order;
+import com.pramithamj.kafka.producer.AdaptiveBatchingRouter;
+import com.pramithamj.kafka.producer.BulkOrderIngestor;
 import com.pramithamj.kafka.producer.OrderProducer;
+import com.pramithamj.kafka.producer.ProducerSaturatedException;
+import com.pramithamj.kafka.producer.RandomOrders;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.InputStream;
 import java.util.*;
-import java.util.concurrent.ThreadLocalRandom;
 
 @Slf4j
 @RestController
 @RequestMapping("/api/orders")
 @RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class OrderController {
 
     private final OrderProducer orderProducer;
-
-    private static final String[] PRODUCTS = {
-        "Item1", "Item2", "Item3", "Item4", "Item5",
-        "Item6", "Item7", "Item8", "Item9", "Item10"
-    };
+    private final BulkOrderIngestor bulkOrderIngestor;
+    private final AdaptiveBatchingRouter batchingRouter;
 
     /**
      * Create and send a single order
@@ -31,7 +36,7 @@ public class OrderController {
     public ResponseEntity<Map<String, Object>> createOrder(@RequestBody(required = false) Order order) {
         try {
             if (order == null) {
-                order = generateRandomOrder();
+                order = RandomOrders.generate();
             }
             
             orderProducer.sendOrder(order);
@@ -42,6 +47,8 @@ public class OrderController {
             response.put("message", "Order sent to Kafka successfully");
             
             return ResponseEntity.ok(response);
+        } catch (ProducerSaturatedException e) {
+            return tooManyRequests(e.getMessage(), e.getRetryAfterSeconds());
         } catch (Exception e) {
             log.error("Error creating order", e);
             Map<String, Object> errorResponse = new HashMap<>();
@@ -57,13 +64,15 @@ public class OrderController {
     @PostMapping("/batch")
     public ResponseEntity<Map<String, Object>> createBatchOrders(@RequestParam(defaultValue = "10") int count) {
         try {
+            List<Order> orders = new ArrayList<>();
             List<String> orderIds = new ArrayList<>();
             
             for (int i = 0; i < count; i++) {
-                Order order = generateRandomOrder();
-                orderProducer.sendOrder(order);
+                Order order = RandomOrders.generate();
+                orders.add(order);
                 orderIds.add(order.getOrderId().toString());
             }
+            orderProducer.sendOrders(orders);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -72,6 +81,8 @@ public class OrderController {
             response.put("message", count + " orders sent to Kafka successfully");
             
             return ResponseEntity.ok(response);
+        } catch (ProducerSaturatedException e) {
+            return tooManyRequests(e.getMessage(), e.getRetryAfterSeconds());
         } catch (Exception e) {
             log.error("Error creating batch orders", e);
             Map<String, Object> errorResponse = new HashMap<>();
@@ -81,6 +92,40 @@ public class OrderController {
         }
     }
 
+    /**
+     * Ingest real orders in bulk from a JSON array or NDJSON body.
+     * The body is parsed and sent incrementally; the response lists the partition and
+     * offset of every acknowledged order and the failures, by position in the body.
+     */
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<Map<String, Object>> ingestBulkOrders(InputStream body) {
+        try {
+            BulkOrderIngestor.BulkResult result = bulkOrderIngestor.ingest(body);
+
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("success", result.failures().isEmpty());
+            response.put("received", result.received());
+            response.put("sent", result.results().size());
+            response.put("failed", result.failures().size());
+            response.put("results", result.results());
+            response.put("failures", result.failures());
+
+            if (result.saturated()) {
+                // Everything after the last reported index was not read and can be resubmitted
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                        .header(HttpHeaders.RETRY_AFTER, String.valueOf(result.retryAfterSeconds()))
+                        .body(response);
+            }
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            log.error("Error ingesting bulk orders", e);
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+        }
+    }
+
     /**
      * Send order to specific partition
      */
@@ -90,7 +135,7 @@ public class OrderController {
             @RequestBody(required = false) Order order) {
         try {
             if (order == null) {
-                order = generateRandomOrder();
+                order = RandomOrders.generate();
             }
             
             orderProducer.sendOrderToPartition(order, partition);
@@ -102,6 +147,8 @@ public class OrderController {
             response.put("message", "Order sent to partition " + partition + " successfully");
             
             return ResponseEntity.ok(response);
+        } catch (ProducerSaturatedException e) {
+            return tooManyRequests(e.getMessage(), e.getRetryAfterSeconds());
         } catch (Exception e) {
             log.error("Error creating order to partition", e);
             Map<String, Object> errorResponse = new HashMap<>();
@@ -111,6 +158,14 @@ public class OrderController {
         }
     }
 
+    /**
+     * Batching profile currently used for sends and the load it was chosen from
+     */
+    @GetMapping("/batching")
+    public ResponseEntity<Map<String, Object>> batchingProfile() {
+        return ResponseEntity.ok(batchingRouter.getStatus());
+    }
+
     /**
      * Health check endpoint
      */
@@ -123,29 +178,14 @@ public class OrderController {
     }
 
     /**
-     * Generate a random order matching assignment requirements
-     * Order Schema: orderId (string), product (string), price (float), timestamp (long)
+     * 429 response asking the caller to back off while the producer's in-flight window is full
      */
-    private Order generateRandomOrder() {
-        ThreadLocalRandom random = ThreadLocalRandom.current();
-        
-        // Generate orderId: "1001", "1002", etc.
-        String orderId = String.valueOf(1000 + random.nextInt(1, 10000));
-        
-        // Select random product: "Item1", "Item2", etc.
-        String product = PRODUCTS[random.nextInt(PRODUCTS.length)];
-        
-        // Generate random price between 10.00 and 500.00
-        float price = (float) (10.0 + random.nextDouble() * 490.0);
-        // Round to 2 decimal places
-        price = Math.round(price * 100.0f) / 100.0f;
-        
-        // Build Order using Avro-generated builder
-        return Order.newBuilder()
-            .setOrderId(orderId)
-            .setProduct(product)
-            .setPrice(price)
-            .setTimestamp(System.currentTimeMillis())
-            .build();
+    private ResponseEntity<Map<String, Object>> tooManyRequests(String message, long retryAfterSeconds) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("success", false);
+        errorResponse.put("error", message);
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(errorResponse);
     }
 }
@@ -0,0 +1,305 @@
+package com.pramithamj.kafka.events;
+
+import com.pramithamj.kafka.model.Order;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sampled, structured log of per-order events, written off the caller thread.
+ *
+ * Recording an event copies its fields (references and primitives) into a preallocated slot
+ * of a bounded ring buffer; nothing is formatted on the caller thread. A single writer
+ * thread drains the ring, renders each event as one compact JSON line and writes it to the
+ * order-events logger, failures at WARN and the rest at INFO. When the ring is full the event
+ * is dropped and counted instead of blocking the caller.
+ *
+ * Events are sampled per type before they reach the ring: success types 1 in
+ * success-sample-every, failure types 1 in failure-sample-every (all of them by default),
+ * and types listed in sample-every (e.g. order.processed:100,retry.sent:1) as configured
+ * there; 0 turns a type off. With kafka.events.async.enabled=false every event is rendered and
+ * written on the caller thread instead, unsampled, as the per-record logging did before.
+ */
+@Component
+public class OrderEventLog {
+
+    public enum Type {
+        ORDER_SENT(false),
+        ORDER_SEND_FAILED(true);
+
+        final boolean failure;
+        final String key;
+
+        Type(boolean failure) {
+            this.failure = failure;
+            this.key = name().toLowerCase(Locale.ROOT).replace('_', '.');
+        }
+    }
+
+    /**
+     * Where rendered events go, the order-events logger outside tests
+     */
+    interface Sink {
+        void write(Type type, String json);
+    }
+
+    private static final Logger EVENTS = LoggerFactory.getLogger("order-events");
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private final boolean async;
+    private final int[] sampleEvery = new int[Type.values().length];
+    private final Sink sink;
+
+    private final Slot[] slots;
+    private final int mask;
+    // Next position to claim; producers race on it
+    private final AtomicLong tail = new AtomicLong();
+    // Next position to write; writer thread only
+    private long head;
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final StringBuilder json = new StringBuilder(256);
+    private volatile boolean running;
+    private Thread writer;
+
+    @Autowired
+    public OrderEventLog(@Value("${kafka.events.async.enabled:true}") boolean async,
+                         @Value("${kafka.events.buffer-size:8192}") int bufferSize,
+                         @Value("${kafka.events.success-sample-every:1000}") int successSampleEvery,
+                         @Value("${kafka.events.failure-sample-every:1}") int failureSampleEvery,
+                         @Value("${kafka.events.sample-every:}") String sampleOverrides,
+                         MeterRegistry meterRegistry) {
+        this(async, bufferSize, successSampleEvery, failureSampleEvery, sampleOverrides,
+                (type, line) -> {
+                    if (type.failure) {
+                        EVENTS.warn(line);
+                    } else {
+                        EVENTS.info(line);
+                    }
+                });
+        FunctionCounter.builder("orders.events.written", written, LongAdder::sum)
+                .description("Order events written to the order-events log")
+                .register(meterRegistry);
+        FunctionCounter.builder("orders.events.dropped", dropped, LongAdder::sum)
+                .description("Sampled order events dropped because the event ring was full")
+                .register(meterRegistry);
+    }
+
+    OrderEventLog(boolean async, int bufferSize, int successSampleEvery, int failureSampleEvery,
+                  String sampleOverrides, Sink sink) {
+        if (Integer.bitCount(bufferSize) != 1) {
+            throw new IllegalArgumentException("kafka.events.buffer-size must be a power of two: " + bufferSize);
+        }
+        this.async = async;
+        this.sink = sink;
+        for (Type type : Type.values()) {
+            sampleEvery[type.ordinal()] = type.failure ? failureSampleEvery : successSampleEvery;
+        }
+        for (String override : sampleOverrides.split(",")) {
+            if (override.isBlank()) {
+                continue;
+            }
+            String[] parts = override.trim().split(":");
+            Type type = Type.valueOf(parts[0].trim().toUpperCase(Locale.ROOT).replace('.', '_'));
+            sampleEvery[type.ordinal()] = Integer.parseInt(parts[1].trim());
+        }
+        this.slots = new Slot[bufferSize];
+        for (int i = 0; i < bufferSize; i++) {
+            slots[i] = new Slot(i);
+        }
+        this.mask = bufferSize - 1;
+    }
+
+    @PostConstruct
+    void start() {
+        if (!async) {
+            return;
+        }
+        running = true;
+        writer = Thread.ofPlatform().name("order-events").daemon().start(this::writeLoop);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            LockSupport.unpark(writer);
+            writer.join(TimeUnit.SECONDS.toMillis(2));
+        }
+    }
+
+    /**
+     * Record an event
+     *
+     * @param topic Topic the event relates to, or null
+     * @param partition Partition, or -1
+     * @param offset Offset, or -1
+     * @param error Failure cause, or null
+     */
+    public void record(Type type, Order order, String topic, int partition, long offset, Throwable error) {
+        if (!async) {
+            StringBuilder line = new StringBuilder(256);
+            render(line, type, System.currentTimeMillis(), order, topic, partition, offset, error);
+            sink.write(type, line.toString());
+            written.increment();
+            return;
+        }
+        int every = sampleEvery[type.ordinal()];
+        if (every <= 0 || (every > 1 && ThreadLocalRandom.current().nextInt(every) != 0)) {
+            return;
+        }
+
+        long position = tail.get();
+        while (true) {
+            Slot slot = slots[(int) position & mask];
+            long lag = slot.sequence - position;
+            if (lag == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slot.type = type;
+                    slot.timestamp = System.currentTimeMillis();
+                    slot.order = order;
+                    slot.topic = topic;
+                    slot.partition = partition;
+                    slot.offset = offset;
+                    slot.error = error;
+                    // Publishes the fields to the writer
+                    slot.sequence = position + 1;
+                    return;
+                }
+                position = tail.get();
+            } else if (lag < 0) {
+                // The writer has not freed this slot yet: the ring is full
+                dropped.increment();
+                return;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * @return Events dropped because the ring was full
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Write every event published so far; called by the writer thread only
+     *
+     * @return Events written
+     */
+    int drain() {
+        int count = 0;
+        while (true) {
+            Slot slot = slots[(int) head & mask];
+            if (slot.sequence != head + 1) {
+                return count;
+            }
+            json.setLength(0);
+            render(json, slot.type, slot.timestamp, slot.order, slot.topic, slot.partition, slot.offset, slot.error);
+            Type type = slot.type;
+            slot.order = null;
+            slot.error = null;
+            // Frees the slot for the producer one lap ahead
+            slot.sequence = head + slots.length;
+            head++;
+            sink.write(type, json.toString());
+            written.increment();
+            count++;
+        }
+    }
+
+    private void writeLoop() {
+        while (running) {
+            try {
+                if (drain() == 0) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            } catch (RuntimeException e) {
+                EVENTS.error("Failed to write order event", e);
+            }
+        }
+        drain();
+    }
+
+    static void render(StringBuilder out, Type type, long timestamp, Order order, String topic, int partition,
+                       long offset, Throwable error) {
+        out.append("{\"ts\":").append(timestamp);
+        out.append(",\"event\":\"").append(type.key).append('"');
+        if (order != null) {
+            appendString(out, "orderId", order.getOrderId());
+            appendString(out, "product", order.getProduct());
+            out.append(",\"price\":").append(order.getPrice());
+        }
+        if (topic != null) {
+            appendString(out, "topic", topic);
+        }
+        if (partition >= 0) {
+            out.append(",\"partition\":").append(partition);
+        }
+        if (offset >= 0) {
+            out.append(",\"offset\":").append(offset);
+        }
+        if (error != null) {
+            appendString(out, "error", error.getClass().getName());
+            appendString(out, "message", String.valueOf(error.getMessage()));
+        }
+        out.append('}');
+    }
+
+    private static void appendString(StringBuilder out, String name, CharSequence value) {
+        out.append(",\"").append(name).append("\":\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        out.append('"');
+    }
+
+    /**
+     * One ring position. sequence == position + 1 once the event at that position is
+     * published, position + ring size once it is written and the slot can be reused.
+     */
+    private static final class Slot {
+
+        volatile long sequence;
+        Type type;
+        long timestamp;
+        Order order;
+        String topic;
+        int partition;
+        long offset;
+        Throwable error;
+
+        Slot(long sequence) {
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.pramithamj.kafka.producer;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Picks the KafkaTemplate, and so the batching profile, for each send from the load observed
+ * over a sliding window.
+ *
+ * Every send is counted in a ring of one-second buckets. Once per second the completed
+ * seconds of the window are summed into a record rate and an average record size:
+ * <ul>
+ *   <li>THROUGHPUT when the record rate or the byte rate reaches its threshold,</li>
+ *   <li>LATENCY when the record rate is at or below the trickle threshold,</li>
+ *   <li>BALANCED otherwise.</li>
+ * </ul>
+ * A profile is kept for at least one full window before switching again, so traffic near a
+ * threshold does not flap between producers. Each profile has its own producer, and idempotence
+ * only orders records within one producer: around a switch, a record sent through the new
+ * producer can reach its partition before an earlier record with the same key that is still
+ * batched or retried in the old one. Order ids are random and may repeat, so consumers must
+ * not rely on per-key ordering across a profile switch; disable adaptive batching when they do.
+ *
+ * When disabled, every send uses BALANCED, but the observed load is still reported.
+ */
+@Slf4j
+public class AdaptiveBatchingRouter {
+
+    private final Map<BatchingProfile, KafkaTemplate<String, Object>> templates;
+    private final boolean enabled;
+    private final int windowSeconds;
+    private final double latencyMaxRate;
+    private final double throughputMinRate;
+    private final double throughputMinBytesPerSecond;
+
+    private final Bucket[] buckets;
+    private final AtomicLong lastEvaluatedSecond = new AtomicLong(-1);
+    private volatile BatchingProfile activeProfile = BatchingProfile.BALANCED;
+    private volatile long switchedAtSecond = -1;
+    private volatile double recordsPerSecond;
+    private volatile double averageRecordBytes;
+
+    private static final class Bucket {
+        final AtomicLong second = new AtomicLong(-1);
+        final LongAdder records = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+    }
+
+    /**
+     * @param templates One template per profile
+     * @param enabled Route by observed load; otherwise always use BALANCED
+     * @param windowSeconds Length of the sliding window
+     * @param latencyMaxRate Records per second at or below which LATENCY is used
+     * @param throughputMinRate Records per second from which THROUGHPUT is used
+     * @param throughputMinBytesPerSecond Bytes per second from which THROUGHPUT is used
+     */
+    public AdaptiveBatchingRouter(Map<BatchingProfile, KafkaTemplate<String, Object>> templates,
+                                  boolean enabled,
+                                  int windowSeconds,
+                                  double latencyMaxRate,
+                                  double throughputMinRate,
+                                  double throughputMinBytesPerSecond,
+                                  MeterRegistry meterRegistry) {
+        if (!templates.containsKey(BatchingProfile.BALANCED)) {
+            throw new IllegalArgumentException("A template for the BALANCED profile is required");
+        }
+        if (windowSeconds < 1) {
+            throw new IllegalArgumentException("windowSeconds must be at least 1");
+        }
+        this.templates = new EnumMap<>(templates);
+        this.enabled = enabled;
+        this.windowSeconds = windowSeconds;
+        this.latencyMaxRate = latencyMaxRate;
+        this.throughputMinRate = throughputMinRate;
+        this.throughputMinBytesPerSecond = throughputMinBytesPerSecond;
+        // One extra bucket holds the second still in progress
+        this.buckets = new Bucket[windowSeconds + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new Bucket();
+        }
+
+        for (BatchingProfile profile : BatchingProfile.values()) {
+            Gauge.builder("orders.producer.batching.profile", this, r -> r.activeProfile == profile ? 1 : 0)
+                    .description("1 for the batching profile currently used for sends")
+                    .tag("profile", profile.name().toLowerCase())
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Count one send and return the template to send it with
+     *
+     * @param recordBytes Estimated serialized size of the record
+     */
+    public KafkaTemplate<String, Object> select(int recordBytes) {
+        return templates.get(record(recordBytes, System.currentTimeMillis()));
+    }
+
+    /**
+     * Count one send at the given time and return the profile to use
+     */
+    BatchingProfile record(int recordBytes, long nowMs) {
+        long second = nowMs / 1000;
+        Bucket bucket = buckets[(int) (second % buckets.length)];
+        long stamp = bucket.second.get();
+        if (stamp != second && bucket.second.compareAndSet(stamp, second)) {
+            // Sends racing with the reset may be lost; the window only has to be approximate
+            bucket.records.reset();
+            bucket.bytes.reset();
+        }
+        bucket.records.increment();
+        bucket.bytes.add(recordBytes);
+
+        long evaluated = lastEvaluatedSecond.get();
+        if (evaluated != second && lastEvaluatedSecond.compareAndSet(evaluated, second)) {
+            evaluate(second);
+        }
+        return enabled ? activeProfile : BatchingProfile.BALANCED;
+    }
+
+    private void evaluate(long currentSecond) {
+        long records = 0;
+        long bytes = 0;
+        for (Bucket bucket : buckets) {
+            long stamp = bucket.second.get();
+            if (stamp < currentSecond && stamp >= currentSecond - windowSeconds) {
+                records += bucket.records.sum();
+                bytes += bucket.bytes.sum();
+            }
+        }
+        double rate = (double) records / windowSeconds;
+        recordsPerSecond = rate;
+        averageRecordBytes = records == 0 ? 0 : (double) bytes / records;
+
+        if (!enabled) {
+            return;
+        }
+        BatchingProfile target;
+        if (rate >= throughputMinRate || (double) bytes / windowSeconds >= throughputMinBytesPerSecond) {
+            target = BatchingProfile.THROUGHPUT;
+        } else if (rate <= latencyMaxRate) {
+            target = BatchingProfile.LATENCY;
+        } else {
+            target = BatchingProfile.BALANCED;
+        }
+        if (!templates.containsKey(target)) {
+            target = BatchingProfile.BALANCED;
+        }
+        if (target != activeProfile && (switchedAtSecond < 0 || currentSecond - switchedAtSecond >= windowSeconds)) {
+            log.info("Switching producer batching profile {} -> {}: {} records/s, {} bytes/record",
+                    activeProfile, target, String.format("%.1f", rate), String.format("%.0f", averageRecordBytes));
+            activeProfile = target;
+            switchedAtSecond = currentSecond;
+        }
+    }
+
+    /**
+     * Profile used for sends right now
+     */
+    public BatchingProfile getActiveProfile() {
+        return enabled ? activeProfile : BatchingProfile.BALANCED;
+    }
+
+    /**
+     * Template of every profile this router can select
+     */
+    public List<KafkaTemplate<String, Object>> getTemplates() {
+        return List.copyOf(templates.values());
+    }
+
+    /**
+     * Active profile, its settings and the load it was chosen from
+     */
+    public Map<String, Object> getStatus() {
+        BatchingProfile profile = getActiveProfile();
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("adaptive", enabled);
+        status.put("activeProfile", profile.name());
+        status.put("batchSize", profile.getBatchSize());
+        status.put("lingerMs", profile.getLingerMs());
+        status.put("compressionType", profile.getCompressionType());
+        status.put("windowSeconds", windowSeconds);
+        status.put("recordsPerSecond", recordsPerSecond);
+        status.put("averageRecordBytes", averageRecordBytes);
+        return status;
+    }
+}
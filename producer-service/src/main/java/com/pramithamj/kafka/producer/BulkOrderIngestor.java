@@ -0,0 +1,169 @@
+package com.pramithamj.kafka.producer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pramithamj.kafka.model.Order;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Streams a bulk order body into Kafka.
+ *
+ * The body is either a JSON array of orders or NDJSON (one order object per line). It is
+ * read one order at a time, and each order is handed to the producer as soon as it is
+ * parsed, so sends are pipelined while the rest of the body is still arriving. The result
+ * is reported once every send has been acknowledged or has failed.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BulkOrderIngestor {
+
+    private final OrderProducer orderProducer;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Outcome of a bulk request
+     *
+     * @param received Number of orders read from the body
+     * @param results Partition and offset of every acknowledged order, by position in the body
+     * @param failures Orders that were rejected or not acknowledged, by position in the body
+     * @param saturated Reading stopped because the producer stayed saturated; orders after the
+     *                  last reported index were not read and can be resubmitted
+     * @param retryAfterSeconds Suggested delay before resubmitting when saturated
+     */
+    public record BulkResult(int received, List<Map<String, Object>> results, List<Map<String, Object>> failures,
+                             boolean saturated, long retryAfterSeconds) {
+    }
+
+    /**
+     * Parse and send every order in the body, then wait for all acknowledgments
+     */
+    public BulkResult ingest(InputStream body) throws IOException {
+        List<CompletableFuture<Map<String, Object>>> pending = new ArrayList<>();
+        List<Map<String, Object>> failures = new ArrayList<>();
+        int index = 0;
+        ProducerSaturatedException saturation = null;
+
+        // readValues unwraps a root-level array and also reads a whitespace-separated sequence
+        try (MappingIterator<JsonNode> nodes = objectMapper.readerFor(JsonNode.class).readValues(body)) {
+            while (nodes.hasNextValue()) {
+                JsonNode node = nodes.nextValue();
+                int position = index++;
+                Order order;
+                try {
+                    order = toOrder(node);
+                } catch (IllegalArgumentException e) {
+                    failures.add(failure(position, node.path("orderId").asText(null), e.getMessage()));
+                    continue;
+                }
+                CompletableFuture<SendResult<String, Object>> send;
+                try {
+                    send = orderProducer.sendBulkOrder(order);
+                } catch (ProducerSaturatedException e) {
+                    // Waited for the whole admission timeout; stop reading instead of waiting per order
+                    failures.add(failure(position, orderId(order), e.getMessage()));
+                    saturation = e;
+                    break;
+                } catch (RuntimeException e) {
+                    // e.g. serialization errors or buffer exhaustion are thrown from send() itself
+                    failures.add(failure(position, orderId(order), e.getMessage()));
+                    continue;
+                }
+                pending.add(send.handle((result, ex) -> ex == null
+                        ? success(position, order, result)
+                        : failure(position, orderId(order), rootCause(ex).getMessage())));
+            }
+        } catch (JsonProcessingException e) {
+            // Orders before the malformed part were already sent; report them as usual
+            failures.add(failure(index, null, "Malformed body: " + e.getOriginalMessage()));
+        }
+
+        orderProducer.recordBatchSize(index);
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (CompletableFuture<Map<String, Object>> future : pending) {
+            Map<String, Object> outcome = future.join();
+            if (outcome.containsKey("error")) {
+                failures.add(outcome);
+            } else {
+                results.add(outcome);
+            }
+        }
+        failures.sort((a, b) -> Integer.compare((int) a.get("index"), (int) b.get("index")));
+
+        log.info("Bulk ingestion completed: received={}, sent={}, failed={}", index, results.size(), failures.size());
+        return new BulkResult(index, results, failures, saturation != null,
+                saturation != null ? saturation.getRetryAfterSeconds() : 0);
+    }
+
+    /**
+     * Convert one JSON order object, shared with the reactive bulk endpoint
+     *
+     * @throws IllegalArgumentException if a required field is missing or invalid
+     */
+    public static Order toOrder(JsonNode node) {
+        String orderId = requiredText(node, "orderId");
+        String product = requiredText(node, "product");
+        JsonNode price = node.get("price");
+        if (price == null || !price.isNumber()) {
+            throw new IllegalArgumentException("Missing or non-numeric field: price");
+        }
+        JsonNode timestamp = node.get("timestamp");
+        return Order.newBuilder()
+                .setOrderId(orderId)
+                .setProduct(product)
+                .setPrice(price.floatValue())
+                .setTimestamp(timestamp != null && timestamp.canConvertToLong()
+                        ? timestamp.longValue() : System.currentTimeMillis())
+                .build();
+    }
+
+    private static String requiredText(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        if (value == null || !value.isValueNode() || value.asText().isBlank()) {
+            throw new IllegalArgumentException("Missing field: " + field);
+        }
+        return value.asText();
+    }
+
+    private static Map<String, Object> success(int index, Order order, SendResult<String, Object> result) {
+        RecordMetadata metadata = result.getRecordMetadata();
+        Map<String, Object> outcome = new LinkedHashMap<>();
+        outcome.put("index", index);
+        outcome.put("orderId", orderId(order));
+        outcome.put("partition", metadata.partition());
+        outcome.put("offset", metadata.offset());
+        return outcome;
+    }
+
+    private static Map<String, Object> failure(int index, String orderId, String error) {
+        Map<String, Object> outcome = new LinkedHashMap<>();
+        outcome.put("index", index);
+        outcome.put("orderId", orderId);
+        outcome.put("error", error);
+        return outcome;
+    }
+
+    private static String orderId(Order order) {
+        return order.getOrderId().toString();
+    }
+
+    private static Throwable rootCause(Throwable ex) {
+        return ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+    }
+}
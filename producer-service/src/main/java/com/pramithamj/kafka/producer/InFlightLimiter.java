@@ -0,0 +1,135 @@
+package com.pramithamj.kafka.producer;
+
+import com.pramithamj.kafka.model.Order;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded admission window for sends that have not been acknowledged yet.
+ *
+ * Limits both the number of in-flight records and their estimated size, and is kept below
+ * the producer's buffer.memory so KafkaTemplate.send() never blocks a request thread on a
+ * full buffer. Request endpoints use {@link #tryAcquire} and answer 429 when it is full, a
+ * batch request reserving room for all of its records at once; streaming callers use
+ * {@link #acquire} and stop reading their input while they wait.
+ */
+@Component
+public class InFlightLimiter {
+
+    // Avro record overhead beyond the two strings: float, long, length prefixes, schema id
+    private static final int RECORD_OVERHEAD_BYTES = 32;
+
+    private final int maxRecords;
+    private final int maxBytes;
+    private final Semaphore records;
+    private final Semaphore bytes;
+
+    public InFlightLimiter(
+            @Value("${kafka.producer.admission.max-in-flight-records:10000}") int maxRecords,
+            @Value("${kafka.producer.admission.max-queued-bytes:16777216}") int maxBytes,
+            MeterRegistry meterRegistry) {
+        this.maxRecords = maxRecords;
+        this.maxBytes = maxBytes;
+        this.records = new Semaphore(maxRecords);
+        this.bytes = new Semaphore(maxBytes);
+
+        Gauge.builder("orders.producer.inflight.records", this, InFlightLimiter::getInFlightRecords)
+                .description("Sends waiting for a broker acknowledgment")
+                .register(meterRegistry);
+        Gauge.builder("orders.producer.inflight.bytes", this, InFlightLimiter::getQueuedBytes)
+                .description("Estimated bytes of sends waiting for a broker acknowledgment")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reserve room for one record without waiting
+     *
+     * @return false if the window is full
+     */
+    public boolean tryAcquire(int size) {
+        return tryAcquire(1, size);
+    }
+
+    /**
+     * Reserve room for a batch of records, all or nothing, without waiting
+     *
+     * @param size Estimated size of all records together
+     * @return false if the window cannot take the whole batch
+     */
+    public boolean tryAcquire(int count, int size) {
+        if (!records.tryAcquire(clampRecords(count))) {
+            return false;
+        }
+        if (!bytes.tryAcquire(clamp(size))) {
+            records.release(clampRecords(count));
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reserve room for one record, waiting up to the timeout for earlier sends to complete
+     *
+     * @return false if the window was still full when the timeout expired
+     */
+    public boolean acquire(int size, long timeoutMs) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        if (!records.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS)) {
+            return false;
+        }
+        long remaining = Math.max(0, deadline - System.nanoTime());
+        if (!bytes.tryAcquire(clamp(size), remaining, TimeUnit.NANOSECONDS)) {
+            records.release();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Return the room reserved for a record once its send has completed
+     */
+    public void release(int size) {
+        release(1, size);
+    }
+
+    /**
+     * Return the room reserved for a batch once all of its sends have completed
+     */
+    public void release(int count, int size) {
+        bytes.release(clamp(size));
+        records.release(clampRecords(count));
+    }
+
+    public int getInFlightRecords() {
+        return maxRecords - records.availablePermits();
+    }
+
+    public int getQueuedBytes() {
+        return maxBytes - bytes.availablePermits();
+    }
+
+    /**
+     * Estimated serialized size of an order
+     */
+    public static int estimateSize(Order order) {
+        return 2 * order.getOrderId().length() // key and field
+                + order.getProduct().length()
+                + RECORD_OVERHEAD_BYTES;
+    }
+
+    private int clamp(int size) {
+        // A single oversized record must still be admissible on an empty window
+        return Math.min(size, maxBytes);
+    }
+
+    private int clampRecords(int count) {
+        // Likewise a batch larger than the window
+        return Math.min(count, maxRecords);
+    }
+}
@@ -1,25 +1,64 @@
 package com.pramithamj.kafka.producer;
 
+import com.pramithamj.kafka.events.OrderEventLog;
 import com.pramithamj.kafka.model.Order;
-import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
-@Slf4j
 @Service
-@RequiredArgsConstructor
 public class OrderProducer {
 
-    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final AdaptiveBatchingRouter batchingRouter;
+    private final InFlightLimiter inFlightLimiter;
+    private final OrderEventLog eventLog;
+
+    // Send latency from send() to broker acknowledgment. Meters are registered once so the
+    // send path only records into them; histogram buckets are bounded to keep them small.
+    private final Timer sendSuccessTimer;
+    private final Timer sendFailureTimer;
+    private final DistributionSummary batchSize;
+    private final Counter rejected;
 
     @Value("${kafka.topic.orders}")
     private String ordersTopic;
 
+    @Value("${kafka.producer.admission.max-wait-ms:30000}")
+    private long admissionMaxWaitMs;
+
+    @Value("${kafka.producer.admission.retry-after-seconds:1}")
+    private long retryAfterSeconds;
+
+    public OrderProducer(AdaptiveBatchingRouter batchingRouter, InFlightLimiter inFlightLimiter,
+                         OrderEventLog eventLog, MeterRegistry meterRegistry) {
+        this.batchingRouter = batchingRouter;
+        this.inFlightLimiter = inFlightLimiter;
+        this.eventLog = eventLog;
+        this.rejected = Counter.builder("orders.producer.rejected")
+                .description("Orders rejected because the in-flight window was full")
+                .register(meterRegistry);
+        this.sendSuccessTimer = sendTimer(meterRegistry, "success");
+        this.sendFailureTimer = sendTimer(meterRegistry, "failure");
+        this.batchSize = DistributionSummary.builder("orders.producer.batch.size")
+                .description("Orders per batch send request")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(1.0)
+                .maximumExpectedValue(10_000.0)
+                .register(meterRegistry);
+    }
+
     /**
      * Send an order to Kafka with async callback handling
      * 
@@ -27,25 +66,16 @@ public class OrderProducer {
      * @return CompletableFuture for async handling
      */
     public CompletableFuture<SendResult<String, Object>> sendOrder(Order order) {
-        log.info("Sending order to Kafka: orderId={}, product={}, price=${}", 
-                 order.getOrderId(), order.getProduct(), order.getPrice());
-        
-        CompletableFuture<SendResult<String, Object>> future = kafkaTemplate.send(
+        long start = System.nanoTime();
+        CompletableFuture<SendResult<String, Object>> future = admit(order, false, kafkaTemplate -> kafkaTemplate.send(
             ordersTopic, 
             order.getOrderId().toString(), 
             order
-        );
+        ));
         
         future.whenComplete((result, ex) -> {
-            if (ex == null) {
-                log.info("Order sent successfully: orderId={}, partition={}, offset={}", 
-                         order.getOrderId(),
-                         result.getRecordMetadata().partition(),
-                         result.getRecordMetadata().offset());
-            } else {
-                log.error("Failed to send order: orderId={}, error={}", 
-                          order.getOrderId(), ex.getMessage(), ex);
-            }
+            recordSend(start, ex);
+            recordEvent(order, -1, result, ex);
         });
         
         return future;
@@ -58,18 +88,21 @@ public class OrderProducer {
      * @throws Exception if send fails
      */
     public void sendOrderSync(Order order) throws Exception {
-        log.info("Sending order synchronously: orderId={}", order.getOrderId());
-        
-        SendResult<String, Object> result = kafkaTemplate.send(
-            ordersTopic, 
-            order.getOrderId().toString(), 
-            order
-        ).get(); // Blocking call
-        
-        log.info("Order sent successfully: orderId={}, partition={}, offset={}", 
-                 order.getOrderId(),
-                 result.getRecordMetadata().partition(),
-                 result.getRecordMetadata().offset());
+        long start = System.nanoTime();
+        SendResult<String, Object> result;
+        try {
+            result = admit(order, false, kafkaTemplate -> kafkaTemplate.send(
+                ordersTopic, 
+                order.getOrderId().toString(), 
+                order
+            )).get(); // Blocking call
+        } catch (Exception e) {
+            recordSend(start, e);
+            recordEvent(order, -1, null, e);
+            throw e;
+        }
+        recordSend(start, null);
+        recordEvent(order, -1, result, null);
     }
 
     /**
@@ -80,27 +113,163 @@ public class OrderProducer {
      * @return CompletableFuture for async handling
      */
     public CompletableFuture<SendResult<String, Object>> sendOrderToPartition(Order order, int partition) {
-        log.info("Sending order to partition {}: orderId={}", partition, order.getOrderId());
-        
-        CompletableFuture<SendResult<String, Object>> future = kafkaTemplate.send(
+        long start = System.nanoTime();
+        CompletableFuture<SendResult<String, Object>> future = admit(order, false, kafkaTemplate -> kafkaTemplate.send(
             ordersTopic,
             partition,
             order.getOrderId().toString(),
             order
-        );
+        ));
         
         future.whenComplete((result, ex) -> {
-            if (ex == null) {
-                log.info("Order sent to partition successfully: orderId={}, partition={}, offset={}", 
-                         order.getOrderId(),
-                         result.getRecordMetadata().partition(),
-                         result.getRecordMetadata().offset());
-            } else {
-                log.error("Failed to send order to partition: orderId={}, partition={}, error={}", 
-                          order.getOrderId(), partition, ex.getMessage(), ex);
-            }
+            recordSend(start, ex);
+            recordEvent(order, partition, result, ex);
         });
         
         return future;
     }
+
+    /**
+     * Send several orders asynchronously, recording the batch size. Room in the in-flight
+     * window is reserved for the whole batch up front, so either every order is sent or,
+     * without waiting, none is.
+     *
+     * @param orders The orders to send
+     * @return One future per order, in the same order
+     * @throws ProducerSaturatedException if the window cannot take the whole batch
+     */
+    public List<CompletableFuture<SendResult<String, Object>>> sendOrders(List<Order> orders) {
+        recordBatchSize(orders.size());
+        int[] sizes = new int[orders.size()];
+        int totalSize = 0;
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = InFlightLimiter.estimateSize(orders.get(i));
+            totalSize += sizes[i];
+        }
+        if (!inFlightLimiter.tryAcquire(orders.size(), totalSize)) {
+            throw saturated(orders.size());
+        }
+
+        List<CompletableFuture<SendResult<String, Object>>> futures = new ArrayList<>(orders.size());
+        int reservedSize = totalSize;
+        try {
+            for (int i = 0; i < sizes.length; i++) {
+                Order order = orders.get(i);
+                long start = System.nanoTime();
+                CompletableFuture<SendResult<String, Object>> future = batchingRouter.select(sizes[i])
+                        .send(ordersTopic, order.getOrderId().toString(), order);
+                future.whenComplete((result, ex) -> recordSend(start, ex));
+                futures.add(future);
+            }
+        } finally {
+            // Orders not sent because of an exception free their room with the sent ones
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                    .whenComplete((result, ex) -> inFlightLimiter.release(orders.size(), reservedSize));
+        }
+        return futures;
+    }
+
+    /**
+     * Send an order without per-record info logging, for bulk ingestion where the caller
+     * collects and reports the results. Waits up to kafka.producer.admission.max-wait-ms for
+     * room in the in-flight window, which also stops the caller reading more input.
+     *
+     * @param order The order to send
+     * @return CompletableFuture completed when the broker acknowledges the order
+     */
+    public CompletableFuture<SendResult<String, Object>> sendBulkOrder(Order order) {
+        long start = System.nanoTime();
+        CompletableFuture<SendResult<String, Object>> future = admit(order, true, kafkaTemplate -> kafkaTemplate.send(
+            ordersTopic,
+            order.getOrderId().toString(),
+            order
+        ));
+        future.whenComplete((result, ex) -> recordSend(start, ex));
+        return future;
+    }
+
+    /**
+     * Record the number of orders in one batch request
+     */
+    public void recordBatchSize(int size) {
+        batchSize.record(size);
+    }
+
+    /**
+     * Reserve room in the in-flight window, run the send with the template of the active
+     * batching profile and free the room on completion
+     *
+     * @param wait Wait for room instead of failing at once
+     * @throws ProducerSaturatedException if there is no room
+     */
+    private CompletableFuture<SendResult<String, Object>> admit(
+            Order order, boolean wait,
+            Function<KafkaTemplate<String, Object>, CompletableFuture<SendResult<String, Object>>> send) {
+        int size = InFlightLimiter.estimateSize(order);
+        boolean admitted;
+        if (wait) {
+            try {
+                admitted = inFlightLimiter.acquire(size, admissionMaxWaitMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                admitted = false;
+            }
+        } else {
+            admitted = inFlightLimiter.tryAcquire(size);
+        }
+        if (!admitted) {
+            throw saturated(1);
+        }
+
+        CompletableFuture<SendResult<String, Object>> future;
+        try {
+            future = send.apply(batchingRouter.select(size));
+        } catch (RuntimeException e) {
+            inFlightLimiter.release(size);
+            throw e;
+        }
+        future.whenComplete((result, ex) -> inFlightLimiter.release(size));
+        return future;
+    }
+
+    private ProducerSaturatedException saturated(int orders) {
+        rejected.increment(orders);
+        return new ProducerSaturatedException("Producer in-flight window is full: records="
+                + inFlightLimiter.getInFlightRecords() + ", bytes=" + inFlightLimiter.getQueuedBytes(),
+                retryAfterSeconds);
+    }
+
+    private void recordSend(long startNanos, Throwable ex) {
+        Timer timer = ex == null ? sendSuccessTimer : sendFailureTimer;
+        timer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Sampled order.sent / order.send.failed event; the partition and offset come from the
+     * broker acknowledgment when there is one
+     */
+    private void recordEvent(Order order, int partition, SendResult<String, Object> result, Throwable ex) {
+        if (ex == null) {
+            eventLog.record(OrderEventLog.Type.ORDER_SENT, order, ordersTopic,
+                    result.getRecordMetadata().partition(), result.getRecordMetadata().offset(), null);
+        } else {
+            eventLog.record(OrderEventLog.Type.ORDER_SEND_FAILED, order, ordersTopic, partition, -1, ex);
+        }
+    }
+
+    /**
+     * The orders.producer.send timer for one result. Registered the same way by every send
+     * path, since the first registration of a meter id decides its histogram.
+     *
+     * @param result success or failure
+     */
+    public static Timer sendTimer(MeterRegistry meterRegistry, String result) {
+        return Timer.builder("orders.producer.send")
+                .description("Time from send to broker acknowledgment")
+                .tag("result", result)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(meterRegistry);
+    }
 }
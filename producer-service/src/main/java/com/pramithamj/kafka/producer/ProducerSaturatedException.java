@@ -0,0 +1,21 @@
+package com.pramithamj.kafka.producer;
+
+/**
+ * Thrown when the in-flight send window is full and an order cannot be admitted
+ */
+public class ProducerSaturatedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public ProducerSaturatedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * @return Suggested delay before the caller tries again
+     */
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
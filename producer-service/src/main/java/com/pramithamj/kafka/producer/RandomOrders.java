@@ -0,0 +1,47 @@
+package com.pramithamj.kafka.producer;
+
+import com.pramithamj.kafka.model.Order;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Random demo orders, shared by the servlet and reactive controllers
+ */
+public final class RandomOrders {
+
+    public static final String[] PRODUCTS = {
+        "Item1", "Item2", "Item3", "Item4", "Item5",
+        "Item6", "Item7", "Item8", "Item9", "Item10"
+    };
+
+    private RandomOrders() {
+    }
+
+    /**
+     * Generate a random order matching assignment requirements
+     * Order Schema: orderId (string), product (string), price (float), timestamp (long)
+     */
+    public static Order generate() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        
+        // Unique orderId: consumers skip an orderId they have already handled
+        String orderId = new UUID(random.nextLong(), random.nextLong()).toString();
+        
+        // Select random product: "Item1", "Item2", etc.
+        String product = PRODUCTS[random.nextInt(PRODUCTS.length)];
+        
+        // Generate random price between 10.00 and 500.00
+        float price = (float) (10.0 + random.nextDouble() * 490.0);
+        // Round to 2 decimal places
+        price = Math.round(price * 100.0f) / 100.0f;
+        
+        // Build Order using Avro-generated builder
+        return Order.newBuilder()
+            .setOrderId(orderId)
+            .setProduct(product)
+            .setPrice(price)
+            .setTimestamp(System.currentTimeMillis())
+            .build();
+    }
+}
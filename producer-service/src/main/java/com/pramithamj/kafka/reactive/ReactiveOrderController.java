@@ -0,0 +1,241 @@
+package com.pramithamj.kafka.reactive;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.pramithamj.kafka.model.Order;
+import com.pramithamj.kafka.producer.BulkOrderIngestor;
+import com.pramithamj.kafka.producer.ProducerSaturatedException;
+import com.pramithamj.kafka.producer.RandomOrders;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reactive variant of OrderController with the same endpoints and response bodies, active
+ * when the application runs as a reactive web application (the "reactive" profile).
+ * No request holds a thread while its orders are being acknowledged, and requests are
+ * answered 429 with Retry-After when the producer's in-flight window is full.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/orders")
+@RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveOrderController {
+
+    private final ReactiveOrderProducer orderProducer;
+
+    /**
+     * Create and send a single order
+     */
+    @PostMapping
+    public Mono<ResponseEntity<Map<String, Object>>> createOrder(@RequestBody(required = false) Mono<JsonNode> body) {
+        return body.map(BulkOrderIngestor::toOrder)
+                .switchIfEmpty(Mono.fromSupplier(RandomOrders::generate))
+                .flatMap(order -> orderProducer.send(order, null))
+                .map(outcome -> {
+                    throwIfFailed(outcome);
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("success", true);
+                    response.put("orderId", outcome.order().getOrderId().toString());
+                    response.put("message", "Order sent to Kafka successfully");
+                    return ResponseEntity.ok(response);
+                })
+                .onErrorResume(e -> error("Error creating order", e));
+    }
+
+    /**
+     * Generate and send multiple random orders
+     */
+    @PostMapping("/batch")
+    public Mono<ResponseEntity<Map<String, Object>>> createBatchOrders(@RequestParam(defaultValue = "10") int count) {
+        List<String> orderIds = Collections.synchronizedList(new ArrayList<>());
+        Flux<Order> orders = Flux.range(0, count)
+                .map(i -> RandomOrders.generate())
+                .doOnNext(order -> orderIds.add(order.getOrderId().toString()));
+
+        return orderProducer.sendIndexed(orders.index(), false)
+                .doOnNext(this::throwIfFailed)
+                .then(Mono.fromSupplier(() -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("success", true);
+                    response.put("count", count);
+                    response.put("orderIds", orderIds);
+                    response.put("message", count + " orders sent to Kafka successfully");
+                    return ResponseEntity.ok(response);
+                }))
+                .onErrorResume(e -> error("Error creating batch orders", e));
+    }
+
+    /**
+     * Ingest real orders in bulk from a streamed JSON array or NDJSON body. Orders are
+     * decoded and sent as they arrive; reading pauses while the in-flight window is full,
+     * and stops with a 429 if it stays full for kafka.producer.admission.max-wait-ms.
+     */
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Mono<ResponseEntity<Map<String, Object>>> ingestBulkOrders(@RequestBody Flux<JsonNode> body) {
+        AtomicInteger received = new AtomicInteger();
+        List<Map<String, Object>> failures = Collections.synchronizedList(new ArrayList<>());
+
+        Flux<Tuple2<Long, Order>> orders = body
+                .onErrorResume(e -> {
+                    // Orders before the malformed part were already sent; report them as usual
+                    failures.add(failure(received.get(), null, "Malformed body: " + e.getMessage()));
+                    return Flux.empty();
+                })
+                .index()
+                .doOnNext(indexed -> received.incrementAndGet())
+                .handle((indexed, sink) -> {
+                    try {
+                        sink.next(Tuples.of(indexed.getT1(), BulkOrderIngestor.toOrder(indexed.getT2())));
+                    } catch (IllegalArgumentException e) {
+                        failures.add(failure(indexed.getT1(), indexed.getT2().path("orderId").asText(null),
+                                e.getMessage()));
+                    }
+                });
+
+        return orderProducer.sendIndexed(orders, true)
+                .collectList()
+                .map(outcomes -> {
+                    List<Map<String, Object>> results = new ArrayList<>();
+                    ProducerSaturatedException saturation = null;
+                    long lastIndex = Long.MAX_VALUE;
+                    for (ReactiveOrderProducer.SendOutcome outcome : outcomes) {
+                        if (outcome.exception() instanceof ProducerSaturatedException saturated) {
+                            saturation = saturated;
+                            lastIndex = outcome.index();
+                        }
+                    }
+                    if (saturation != null) {
+                        // Orders read ahead of the rejected one were neither sent nor reported
+                        long rejectedIndex = lastIndex;
+                        failures.removeIf(failure -> (long) failure.get("index") > rejectedIndex);
+                        received.set((int) rejectedIndex + 1);
+                    }
+                    for (ReactiveOrderProducer.SendOutcome outcome : outcomes) {
+                        if (outcome.exception() == null) {
+                            Map<String, Object> result = new LinkedHashMap<>();
+                            result.put("index", outcome.index());
+                            result.put("orderId", outcome.order().getOrderId().toString());
+                            result.put("partition", outcome.metadata().partition());
+                            result.put("offset", outcome.metadata().offset());
+                            results.add(result);
+                        } else {
+                            failures.add(failure(outcome.index(), outcome.order().getOrderId().toString(),
+                                    outcome.exception().getMessage()));
+                        }
+                    }
+                    results.sort((a, b) -> Long.compare((long) a.get("index"), (long) b.get("index")));
+                    failures.sort((a, b) -> Long.compare((long) a.get("index"), (long) b.get("index")));
+
+                    Map<String, Object> response = new LinkedHashMap<>();
+                    response.put("success", failures.isEmpty());
+                    response.put("received", received.get());
+                    response.put("sent", results.size());
+                    response.put("failed", failures.size());
+                    response.put("results", results);
+                    response.put("failures", failures);
+
+                    if (saturation != null) {
+                        // Everything after the last reported index was not sent and can be resubmitted
+                        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                                .header(HttpHeaders.RETRY_AFTER, String.valueOf(saturation.getRetryAfterSeconds()))
+                                .body(response);
+                    }
+                    return ResponseEntity.ok(response);
+                })
+                .onErrorResume(e -> error("Error ingesting bulk orders", e));
+    }
+
+    /**
+     * Send order to specific partition
+     */
+    @PostMapping("/partition/{partition}")
+    public Mono<ResponseEntity<Map<String, Object>>> createOrderToPartition(
+            @PathVariable int partition,
+            @RequestBody(required = false) Mono<JsonNode> body) {
+        return body.map(BulkOrderIngestor::toOrder)
+                .switchIfEmpty(Mono.fromSupplier(RandomOrders::generate))
+                .flatMap(order -> orderProducer.send(order, partition))
+                .map(outcome -> {
+                    throwIfFailed(outcome);
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("success", true);
+                    response.put("orderId", outcome.order().getOrderId().toString());
+                    response.put("partition", partition);
+                    response.put("message", "Order sent to partition " + partition + " successfully");
+                    return ResponseEntity.ok(response);
+                })
+                .onErrorResume(e -> error("Error creating order to partition", e));
+    }
+
+    /**
+     * Health check endpoint
+     */
+    @GetMapping("/health")
+    public Mono<ResponseEntity<Map<String, String>>> health() {
+        Map<String, String> response = new HashMap<>();
+        response.put("status", "UP");
+        response.put("service", "producer-service");
+        return Mono.just(ResponseEntity.ok(response));
+    }
+
+    private void throwIfFailed(ReactiveOrderProducer.SendOutcome outcome) {
+        if (outcome.exception() instanceof ProducerSaturatedException saturated) {
+            throw saturated;
+        }
+        if (outcome.exception() != null) {
+            throw new IllegalStateException(outcome.exception().getMessage(), outcome.exception());
+        }
+    }
+
+    private Mono<ResponseEntity<Map<String, Object>>> error(String message, Throwable e) {
+        if (e instanceof ProducerSaturatedException saturated) {
+            return Mono.just(tooManyRequests(saturated.getMessage(), saturated.getRetryAfterSeconds()));
+        }
+        log.error(message, e);
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("success", false);
+        errorResponse.put("error", e.getMessage());
+        return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse));
+    }
+
+    private ResponseEntity<Map<String, Object>> tooManyRequests(String message, long retryAfterSeconds) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("success", false);
+        errorResponse.put("error", message);
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(errorResponse);
+    }
+
+    private static Map<String, Object> failure(long index, String orderId, String error) {
+        Map<String, Object> outcome = new LinkedHashMap<>();
+        outcome.put("index", index);
+        outcome.put("orderId", orderId);
+        outcome.put("error", error);
+        return outcome;
+    }
+}
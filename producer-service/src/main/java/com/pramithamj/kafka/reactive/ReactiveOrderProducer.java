@@ -0,0 +1,231 @@
+package com.pramithamj.kafka.reactive;
+
+import com.pramithamj.kafka.events.OrderEventLog;
+import com.pramithamj.kafka.model.Order;
+import com.pramithamj.kafka.producer.InFlightLimiter;
+import com.pramithamj.kafka.producer.OrderProducer;
+import com.pramithamj.kafka.producer.ProducerSaturatedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.PartitionInfo;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.kafka.sender.KafkaSender;
+import reactor.kafka.sender.SenderOptions;
+import reactor.kafka.sender.SenderRecord;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Non-blocking order producer for the reactive profile, built on reactor-kafka's KafkaSender
+ * with the same client configuration as the servlet path's KafkaTemplate.
+ *
+ * Every order is admitted through the same InFlightLimiter as the servlet path, so the
+ * process-wide window stays below buffer.memory and KafkaProducer.send() never blocks the
+ * sender's thread. Single orders are rejected at once when the window is full; streams wait
+ * for room (polling, without holding a thread) up to kafka.producer.admission.max-wait-ms
+ * and stop reading their source while they wait. On top of that,
+ * kafka.producer.reactive.max-in-flight bounds the unacknowledged records of one stream
+ * (reactor-kafka sizes each stream's queue by it, so it is kept small).
+ *
+ * Sends are not routed through AdaptiveBatchingRouter: the reactive path has one sender
+ * with the BALANCED configuration.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveOrderProducer {
+
+    // How often a waiting stream retries admission while the window is full
+    private static final Duration ADMISSION_POLL_INTERVAL = Duration.ofMillis(10);
+
+    private final KafkaSender<String, Object> sender;
+    private final InFlightLimiter inFlightLimiter;
+    private final OrderEventLog eventLog;
+    private final Timer sendSuccessTimer;
+    private final Timer sendFailureTimer;
+    private final Counter rejected;
+
+    @Value("${kafka.topic.orders}")
+    private String ordersTopic;
+
+    @Value("${kafka.producer.admission.max-wait-ms:30000}")
+    private long admissionMaxWaitMs;
+
+    @Value("${kafka.producer.admission.retry-after-seconds:1}")
+    private long retryAfterSeconds;
+
+    /**
+     * Result of one send
+     *
+     * @param index Position of the order in its stream
+     * @param order The order sent
+     * @param metadata Partition and offset, null if the send failed
+     * @param exception Failure cause, null if the send succeeded; a ProducerSaturatedException
+     *                  if the order was not admitted
+     */
+    public record SendOutcome(long index, Order order, RecordMetadata metadata, Exception exception) {
+    }
+
+    private record Correlation(long index, Order order, int size, long startNanos) {
+    }
+
+    public ReactiveOrderProducer(ProducerFactory<String, Object> producerFactory,
+                                 InFlightLimiter inFlightLimiter,
+                                 OrderEventLog eventLog,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${kafka.producer.reactive.max-in-flight:256}") int maxInFlight) {
+        SenderOptions<String, Object> options = SenderOptions.<String, Object>create(
+                        producerFactory.getConfigurationProperties())
+                .maxInFlight(maxInFlight)
+                .stopOnError(false);
+        this.sender = KafkaSender.create(options);
+        this.inFlightLimiter = inFlightLimiter;
+        this.eventLog = eventLog;
+        // Same meters as OrderProducer, so dashboards work for either path
+        this.sendSuccessTimer = OrderProducer.sendTimer(meterRegistry, "success");
+        this.sendFailureTimer = OrderProducer.sendTimer(meterRegistry, "failure");
+        this.rejected = Counter.builder("orders.producer.rejected")
+                .description("Orders rejected because the in-flight window was full")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Send one order, optionally to a fixed partition. Fails with ProducerSaturatedException
+     * without sending if the in-flight window is full.
+     */
+    public Mono<SendOutcome> send(Order order, Integer partition) {
+        return sendIndexed(Flux.just(Tuples.of(0L, order)), partition, false)
+                .next()
+                .flatMap(outcome -> outcome.exception() instanceof ProducerSaturatedException saturated
+                        ? Mono.error(saturated)
+                        : Mono.just(outcome));
+    }
+
+    /**
+     * Send a stream of orders, tagged with their position in the stream. If an order cannot be
+     * admitted, the stream stops reading its source and ends with that order's outcome, whose
+     * exception is a ProducerSaturatedException.
+     *
+     * @param waitForRoom Wait up to kafka.producer.admission.max-wait-ms for room in the
+     *                    in-flight window, instead of stopping as soon as it is full
+     */
+    public Flux<SendOutcome> sendIndexed(Flux<Tuple2<Long, Order>> orders, boolean waitForRoom) {
+        return sendIndexed(orders, null, waitForRoom);
+    }
+
+    private Flux<SendOutcome> sendIndexed(Flux<Tuple2<Long, Order>> orders, Integer partition, boolean waitForRoom) {
+        return Flux.defer(() -> {
+            // Admitted but not yet acknowledged; whatever is left when the stream ends early
+            // (cancelled or failed) is returned to the window
+            Set<Correlation> outstanding = ConcurrentHashMap.newKeySet();
+            AtomicReference<SendOutcome> rejection = new AtomicReference<>();
+
+            Flux<SenderRecord<String, Object, Correlation>> records = orders
+                    .takeWhile(indexed -> rejection.get() == null)
+                    .concatMap(indexed -> {
+                        Order order = indexed.getT2();
+                        if (rejection.get() != null) {
+                            return Mono.empty();
+                        }
+                        return admit(order, waitForRoom)
+                                .map(size -> {
+                                    Correlation correlation =
+                                            new Correlation(indexed.getT1(), order, size, System.nanoTime());
+                                    outstanding.add(correlation);
+                                    ProducerRecord<String, Object> record = new ProducerRecord<>(
+                                            ordersTopic, partition, order.getOrderId().toString(), order);
+                                    return SenderRecord.create(record, correlation);
+                                })
+                                .onErrorResume(ProducerSaturatedException.class, e -> {
+                                    rejection.set(new SendOutcome(indexed.getT1(), order, null, e));
+                                    return Mono.empty();
+                                });
+                    });
+
+            // Results arrive on the producer's network thread; everything downstream, up to
+            // writing the HTTP response, must not run there or it delays every other send
+            return sender.send(records)
+                    .publishOn(Schedulers.parallel())
+                    .map(result -> {
+                        Correlation correlation = result.correlationMetadata();
+                        if (outstanding.remove(correlation)) {
+                            inFlightLimiter.release(correlation.size());
+                        }
+                        Exception ex = result.exception();
+                        Timer timer = ex == null ? sendSuccessTimer : sendFailureTimer;
+                        timer.record(System.nanoTime() - correlation.startNanos(), TimeUnit.NANOSECONDS);
+                        if (ex == null) {
+                            eventLog.record(OrderEventLog.Type.ORDER_SENT, correlation.order(), ordersTopic,
+                                    result.recordMetadata().partition(), result.recordMetadata().offset(), null);
+                        } else {
+                            eventLog.record(OrderEventLog.Type.ORDER_SEND_FAILED, correlation.order(), ordersTopic,
+                                    partition != null ? partition : -1, -1, ex);
+                        }
+                        return new SendOutcome(correlation.index(), correlation.order(),
+                                ex == null ? result.recordMetadata() : null, ex);
+                    })
+                    .concatWith(Mono.fromSupplier(rejection::get))
+                    .doFinally(signal -> {
+                        for (Correlation correlation : outstanding) {
+                            if (outstanding.remove(correlation)) {
+                                inFlightLimiter.release(correlation.size());
+                            }
+                        }
+                    });
+        });
+    }
+
+    /**
+     * Reserve room for one order in the in-flight window
+     *
+     * @return The reserved size, or ProducerSaturatedException if there was no room
+     */
+    private Mono<Integer> admit(Order order, boolean waitForRoom) {
+        int size = InFlightLimiter.estimateSize(order);
+        Mono<Integer> attempt = Mono.defer(() -> inFlightLimiter.tryAcquire(size)
+                ? Mono.just(size)
+                : Mono.error(saturated()));
+        if (waitForRoom) {
+            long attempts = Math.max(0, admissionMaxWaitMs / ADMISSION_POLL_INTERVAL.toMillis());
+            attempt = attempt.retryWhen(Retry.fixedDelay(attempts, ADMISSION_POLL_INTERVAL)
+                    .filter(ProducerSaturatedException.class::isInstance)
+                    .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+        }
+        return attempt.doOnError(ProducerSaturatedException.class, e -> rejected.increment());
+    }
+
+    private ProducerSaturatedException saturated() {
+        return new ProducerSaturatedException("Producer in-flight window is full: records="
+                + inFlightLimiter.getInFlightRecords() + ", bytes=" + inFlightLimiter.getQueuedBytes(),
+                retryAfterSeconds);
+    }
+
+    /**
+     * Fetch a topic's partitions through the sender's producer, creating it if needed
+     */
+    public List<PartitionInfo> partitionsFor(String topic) {
+        return sender.doOnProducer(producer -> producer.partitionsFor(topic)).block();
+    }
+
+    @PreDestroy
+    void close() {
+        sender.close();
+    }
+}
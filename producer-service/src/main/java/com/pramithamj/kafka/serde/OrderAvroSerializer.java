@@ -0,0 +1,316 @@
+package com.pramithamj.kafka.serde;
+
+import com.pramithamj.kafka.model.Order;
+import com.pramithamj.kafka.model.OrderV2;
+import com.pramithamj.kafka.model.Product;
+import io.confluent.kafka.schemaregistry.avro.AvroSchema;
+import io.confluent.kafka.schemaregistry.client.CachedSchemaRegistryClient;
+import io.confluent.kafka.schemaregistry.client.SchemaRegistryClient;
+import io.confluent.kafka.schemaregistry.client.rest.exceptions.RestClientException;
+import io.confluent.kafka.serializers.AbstractKafkaSchemaSerDeConfig;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Allocation-light replacement for KafkaAvroSerializer, for Order values only.
+ *
+ * Writes the Confluent wire format (magic byte 0, 4-byte schema id, Avro binary), so
+ * KafkaAvroDeserializer and OrderAvroDeserializer can both read it. Compared with
+ * KafkaAvroSerializer:
+ * <ul>
+ *   <li>each platform thread reuses one output buffer and BinaryEncoder,</li>
+ *   <li>the schema id is registered (or looked up) once per topic and then read from a map,
+ *       instead of hashing the schema into the registry client's cache on every record,</li>
+ *   <li>the only per-record allocations are Avro's string encoding and the returned array.</li>
+ * </ul>
+ * Subjects follow the default TopicNameStrategy. The writer schema is always the generated
+ * Order schema, so use.latest.version does not apply. Ids are also kept in the SchemaIdCache
+ * shared by every serde of the registry, so a serializer configured after StartupWarmup (or,
+ * with schema.id.cache.path set, after a restart) resolves them without waiting for the
+ * registry. An id read from the cache file is still checked against the registry in the
+ * background, and replaced if the registry was recreated at the same URL and now assigns
+ * another one.
+ *
+ * With order.encoding=v2, orders whose id is a UUID and whose product is in the Product
+ * dictionary are written as the compact OrderV2 record instead, under the subject
+ * {@code <topic>-com.pramithamj.kafka.model.OrderV2} so each version keeps its own
+ * compatibility rules. Other orders are still written as Order, and OrderAvroDeserializer
+ * reads both.
+ */
+public class OrderAvroSerializer implements Serializer<Order> {
+
+    static final byte MAGIC_BYTE = 0x0;
+
+    private static final Logger log = LoggerFactory.getLogger(OrderAvroSerializer.class);
+
+    /**
+     * v1 (default) writes every order as Order; v2 writes OrderV2 where possible
+     */
+    public static final String ORDER_ENCODING_CONFIG = "order.encoding";
+
+    private static final Map<String, Product> PRODUCTS = new HashMap<>();
+
+    static {
+        for (Product product : Product.values()) {
+            if (product != Product.UNKNOWN) {
+                PRODUCTS.put(product.name(), product);
+            }
+        }
+    }
+
+    // Buffers that grew past this for an unusually large record are not kept
+    private static final int MAX_RETAINED_BUFFER_BYTES = 64 * 1024;
+
+    private static final ThreadLocal<EncodeState> ENCODE_STATE = ThreadLocal.withInitial(EncodeState::new);
+
+    private final SpecificDatumWriter<Order> writer = new SpecificDatumWriter<>(Order.class);
+    private final Map<String, Integer> schemaIds = new ConcurrentHashMap<>();
+    private final Map<String, Integer> compactSchemaIds = new ConcurrentHashMap<>();
+    private final AvroSchema schema = new AvroSchema(Order.getClassSchema());
+    private final AvroSchema compactSchema = new AvroSchema(OrderV2.getClassSchema());
+    private boolean compact;
+    private SchemaRegistryClient schemaRegistry;
+    private SchemaIdCache schemaIdCache;
+    private boolean autoRegister = true;
+    private boolean isKey;
+
+    public OrderAvroSerializer() {
+    }
+
+    /**
+     * For tests and benchmarks; the client is not replaced by configure()
+     */
+    public OrderAvroSerializer(SchemaRegistryClient schemaRegistry) {
+        this.schemaRegistry = schemaRegistry;
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        this.isKey = isKey;
+        Object encoding = configs.get(ORDER_ENCODING_CONFIG);
+        if (encoding != null) {
+            compact = switch (encoding.toString()) {
+                case "v1" -> false;
+                case "v2" -> true;
+                default -> throw new IllegalArgumentException("Unknown " + ORDER_ENCODING_CONFIG + ": " + encoding);
+            };
+        }
+        Object autoRegisterConfig = configs.get(AbstractKafkaSchemaSerDeConfig.AUTO_REGISTER_SCHEMAS);
+        if (autoRegisterConfig != null) {
+            autoRegister = Boolean.parseBoolean(autoRegisterConfig.toString());
+        }
+        Object url = configs.get(AbstractKafkaSchemaSerDeConfig.SCHEMA_REGISTRY_URL_CONFIG);
+        if (schemaRegistry == null) {
+            if (url == null) {
+                throw new IllegalArgumentException("Missing " + AbstractKafkaSchemaSerDeConfig.SCHEMA_REGISTRY_URL_CONFIG);
+            }
+            schemaRegistry = new CachedSchemaRegistryClient(url.toString(), 100, configs);
+        }
+        schemaIdCache = SchemaIdCache.fromConfigs(configs, url);
+    }
+
+    @Override
+    public byte[] serialize(String topic, Order order) {
+        if (order == null) {
+            return null;
+        }
+        // A virtual thread usually serializes once and exits, so pooling per thread would
+        // only add a ThreadLocal entry; it gets a fresh buffer instead
+        EncodeState state = Thread.currentThread().isVirtual() ? new EncodeState() : ENCODE_STATE.get();
+        ReusableBuffer buffer = state.buffer;
+        buffer.reset();
+        buffer.write(MAGIC_BYTE);
+        try {
+            Product product = compact ? compactProduct(order, state.uuid) : null;
+            if (product != null) {
+                buffer.writeInt(compactSchemaIds.computeIfAbsent(topic, this::resolveCompactSchemaId));
+                // Field by field in OrderV2 schema order, so no OrderV2 is built per record
+                state.encoder.writeFixed(state.uuid);
+                state.encoder.writeEnum(product.ordinal());
+                state.encoder.writeLong(Math.round(order.getPrice() * 100.0));
+                state.encoder.writeLong(order.getTimestamp());
+            } else {
+                buffer.writeInt(schemaIds.computeIfAbsent(topic, this::resolveSchemaId));
+                writer.write(order, state.encoder);
+            }
+        } catch (IOException | RuntimeException e) {
+            throw new SerializationException("Error serializing Order to topic " + topic, e);
+        }
+        byte[] bytes = buffer.toByteArray();
+        buffer.shrinkTo(MAX_RETAINED_BUFFER_BYTES);
+        return bytes;
+    }
+
+    private int resolveSchemaId(String topic) {
+        return resolveSchemaId(topic + (isKey ? "-key" : "-value"), schema);
+    }
+
+    private int resolveCompactSchemaId(String topic) {
+        return resolveSchemaId(topic + "-" + OrderV2.getClassSchema().getFullName(), compactSchema);
+    }
+
+    private int resolveSchemaId(String subject, AvroSchema subjectSchema) {
+        if (schemaIdCache != null) {
+            Integer cached = schemaIdCache.getId(subject, subjectSchema.rawSchema());
+            if (cached != null) {
+                if (!schemaIdCache.isVerified(subject, subjectSchema.rawSchema())) {
+                    revalidate(subject, subjectSchema, cached);
+                }
+                return cached;
+            }
+        }
+        int id = lookUpSchemaId(subject, subjectSchema);
+        if (schemaIdCache != null) {
+            schemaIdCache.putId(subject, subjectSchema.rawSchema(), id);
+        }
+        return id;
+    }
+
+    private int lookUpSchemaId(String subject, AvroSchema subjectSchema) {
+        try {
+            return autoRegister
+                    ? schemaRegistry.register(subject, subjectSchema)
+                    : schemaRegistry.getId(subject, subjectSchema);
+        } catch (IOException | RestClientException e) {
+            throw new SerializationException("Error retrieving schema id for subject " + subject, e);
+        }
+    }
+
+    /**
+     * Check an id from the cache file against the registry without holding up serialization.
+     * A registry recreated at the same URL (e.g. docker compose down -v) assigns ids afresh,
+     * and the cached one would otherwise be written forever. If it changed, the cache is
+     * corrected and the per-topic ids are resolved again on the next record.
+     */
+    private void revalidate(String subject, AvroSchema subjectSchema, int cached) {
+        Thread.ofVirtual().name("schema-id-revalidation").start(() -> {
+            int id;
+            try {
+                id = lookUpSchemaId(subject, subjectSchema);
+            } catch (RuntimeException e) {
+                log.warn("Could not check cached schema id {} of subject {}: {}", cached, subject, e.getMessage());
+                return;
+            }
+            if (id != cached) {
+                log.warn("Schema Registry now has id {} instead of the cached {} for subject {}, replacing it",
+                        id, cached, subject);
+            }
+            // Before clearing, so a record resolving its id concurrently cannot keep the old one
+            schemaIdCache.putId(subject, subjectSchema.rawSchema(), id);
+            if (id != cached) {
+                schemaIds.clear();
+                compactSchemaIds.clear();
+            }
+        });
+    }
+
+    /**
+     * The order's Product if it can be written as OrderV2, with its UUID parsed into uuid
+     *
+     * @return null if the id is not a canonical UUID or the product is not in the dictionary
+     */
+    private static Product compactProduct(Order order, byte[] uuid) {
+        Product product = PRODUCTS.get(order.getProduct());
+        return product != null && parseUuid(order.getOrderId(), uuid) ? product : null;
+    }
+
+    /**
+     * Parse a canonical 36-character UUID into 16 bytes without allocating
+     */
+    static boolean parseUuid(String id, byte[] into) {
+        if (id.length() != 36 || id.charAt(8) != '-' || id.charAt(13) != '-'
+                || id.charAt(18) != '-' || id.charAt(23) != '-') {
+            return false;
+        }
+        int pos = 0;
+        for (int i = 0; i < 16; i++) {
+            if (pos == 8 || pos == 13 || pos == 18 || pos == 23) {
+                pos++;
+            }
+            int high = Character.digit(id.charAt(pos++), 16);
+            int low = Character.digit(id.charAt(pos++), 16);
+            if (high < 0 || low < 0) {
+                return false;
+            }
+            into[i] = (byte) (high << 4 | low);
+        }
+        return true;
+    }
+
+    /**
+     * Per-thread output buffer, the encoder bound to it and scratch space for a UUID
+     */
+    private static final class EncodeState {
+        final ReusableBuffer buffer = new ReusableBuffer(256);
+        final BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(buffer, null);
+        final byte[] uuid = new byte[16];
+    }
+
+    /**
+     * Unsynchronized growable byte buffer, reset instead of reallocated between records
+     */
+    static final class ReusableBuffer extends OutputStream {
+
+        private final int initialCapacity;
+        private byte[] buf;
+        private int count;
+
+        ReusableBuffer(int initialCapacity) {
+            this.initialCapacity = initialCapacity;
+            this.buf = new byte[initialCapacity];
+        }
+
+        @Override
+        public void write(int b) {
+            ensureCapacity(count + 1);
+            buf[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            ensureCapacity(count + len);
+            System.arraycopy(b, off, buf, count, len);
+            count += len;
+        }
+
+        void writeInt(int value) {
+            ensureCapacity(count + 4);
+            buf[count++] = (byte) (value >>> 24);
+            buf[count++] = (byte) (value >>> 16);
+            buf[count++] = (byte) (value >>> 8);
+            buf[count++] = (byte) value;
+        }
+
+        void reset() {
+            count = 0;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, count);
+        }
+
+        void shrinkTo(int maxCapacity) {
+            if (buf.length > maxCapacity) {
+                buf = new byte[initialCapacity];
+            }
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(capacity, buf.length * 2));
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.pramithamj.kafka.warmup;
+
+import com.pramithamj.kafka.model.Order;
+import com.pramithamj.kafka.model.Product;
+import com.pramithamj.kafka.producer.AdaptiveBatchingRouter;
+import com.pramithamj.kafka.reactive.ReactiveOrderProducer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.common.utils.Utils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Does the work of the first order send at startup instead, so the first requests after a
+ * deploy or scale-out do not pay for it.
+ *
+ * Spring Boot reports readiness (/actuator/health/readiness) as accepting traffic only once
+ * application runners have finished, so until this one has:
+ * - resolved (and with auto-registration registered) the Order and OrderV2 schema ids of the
+ *   orders topic through the configured value serializer; with the pooled serializer they
+ *   land in the SchemaIdCache that the producers' serializers share, so their first send
+ *   does not wait for the registry (and, with a cache path, later restarts load them from disk)
+ * - created the producers that serve requests (one per batching profile the router can
+ *   select, or the reactive sender's), which starts their idempotent producer id handshake,
+ *   and fetched the orders topic metadata through each over a broker connection
+ *
+ * Connections to the remaining partition leaders are opened by the client on the first batch
+ * sent to each of them. Warm-up is best effort: after timeout-ms, or on any failure, it is
+ * logged and startup carries on, since the service would fail the same way on first send.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StartupWarmup implements ApplicationRunner {
+
+    private final ProducerFactory<String, Object> producerFactory;
+    private final AdaptiveBatchingRouter router;
+    private final ObjectProvider<ReactiveOrderProducer> reactiveProducer;
+
+    @Value("${kafka.topic.orders}")
+    private String ordersTopic;
+
+    @Value("${kafka.warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${kafka.warmup.timeout-ms:30000}")
+    private long timeoutMs;
+
+    @Override
+    public void run(ApplicationArguments args) throws InterruptedException {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        Thread warmup = Thread.ofPlatform().name("startup-warmup").daemon().start(this::warmUp);
+        warmup.join(timeoutMs);
+        if (warmup.isAlive()) {
+            log.warn("Startup warm-up still running after {}ms, reporting ready without it", timeoutMs);
+        } else {
+            log.info("Startup warm-up finished in {}ms", (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    private void warmUp() {
+        try {
+            resolveSchemas();
+            fetchMetadata();
+        } catch (Exception e) {
+            log.warn("Startup warm-up failed, the first send will retry: {}", e.toString());
+        }
+    }
+
+    private void resolveSchemas() throws ClassNotFoundException {
+        Map<String, Object> configs = producerFactory.getConfigurationProperties();
+        Serializer<Object> serializer = newInstance(configs.get(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG));
+        try (serializer) {
+            serializer.configure(configs, false);
+            // One order each for the Order and, when order.encoding=v2, the OrderV2 subject
+            serializer.serialize(ordersTopic, new Order("warmup", "warmup", 0f, 0L));
+            serializer.serialize(ordersTopic, new Order(UUID.randomUUID().toString(), Product.Item1.name(), 0f, 0L));
+        }
+        log.info("Resolved Order schema ids for {}", ordersTopic);
+    }
+
+    private void fetchMetadata() {
+        ReactiveOrderProducer reactive = reactiveProducer.getIfAvailable();
+        if (reactive != null) {
+            List<PartitionInfo> partitions = reactive.partitionsFor(ordersTopic);
+            log.info("Fetched metadata for {} partitions of {}", partitions.size(), ordersTopic);
+            return;
+        }
+        // Each template's factory shares one producer, the one later sends go through
+        for (KafkaTemplate<String, Object> template : router.getTemplates()) {
+            List<PartitionInfo> partitions = template.partitionsFor(ordersTopic);
+            log.info("Fetched metadata for {} partitions of {}", partitions.size(), ordersTopic);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T newInstance(Object type) throws ClassNotFoundException {
+        Class<?> c = type instanceof Class<?> cls ? cls : Class.forName(type.toString());
+        return (T) Utils.newInstance(c);
+    }
+}
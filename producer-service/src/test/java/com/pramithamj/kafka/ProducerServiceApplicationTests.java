@@ -3,7 +3,7 @@ package com.pramithamj.kafka;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "kafka.warmup.enabled=false")
 class ProducerServiceApplicationTests {
 
 	@Test
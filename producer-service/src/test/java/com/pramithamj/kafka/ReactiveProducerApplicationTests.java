@@ -0,0 +1,15 @@
+package com.pramithamj.kafka;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+@SpringBootTest(properties = "kafka.warmup.enabled=false")
+@ActiveProfiles("reactive")
+class ReactiveProducerApplicationTests {
+
+	@Test
+	void contextLoads() {
+	}
+
+}
@@ -0,0 +1,88 @@
+package com.pramithamj.kafka.producer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+class AdaptiveBatchingRouterTest {
+
+	private static final int WINDOW_SECONDS = 2;
+
+	@Test
+	void followsObservedRate() {
+		AdaptiveBatchingRouter router = router(true);
+
+		// A trickle
+		sendPerSecond(router, 0, 10, 100);
+		sendPerSecond(router, 1, 10, 100);
+		assertEquals(BatchingProfile.LATENCY, router.record(100, 2_000));
+
+		// A flood
+		sendPerSecond(router, 2, 2_000, 100);
+		sendPerSecond(router, 3, 2_000, 100);
+		assertEquals(BatchingProfile.THROUGHPUT, router.record(100, 4_000));
+
+		// Moderate traffic
+		sendPerSecond(router, 4, 300, 100);
+		sendPerSecond(router, 5, 300, 100);
+		assertEquals(BatchingProfile.BALANCED, router.record(100, 6_000));
+	}
+
+	@Test
+	void holdsEachProfileForAWindow() {
+		AdaptiveBatchingRouter router = router(true);
+		assertEquals(BatchingProfile.LATENCY, router.record(100, 0));
+
+		// A one-second burst switches to THROUGHPUT once it has completed
+		sendPerSecond(router, 1, 2_100, 100);
+		assertEquals(BatchingProfile.THROUGHPUT, router.record(100, 3_000));
+
+		// The burst has left the window, but the switch was only a second ago
+		assertEquals(BatchingProfile.THROUGHPUT, router.record(100, 4_000));
+		assertEquals(BatchingProfile.LATENCY, router.record(100, 5_000));
+	}
+
+	@Test
+	void largeRecordsSelectThroughputAtLowerRates() {
+		AdaptiveBatchingRouter router = router(true);
+
+		sendPerSecond(router, 0, 200, 8_192);
+		sendPerSecond(router, 1, 200, 8_192);
+
+		assertEquals(BatchingProfile.THROUGHPUT, router.record(8_192, 2_000));
+		assertEquals(8_192.0, (double) router.getStatus().get("averageRecordBytes"));
+	}
+
+	@Test
+	void disabledRouterAlwaysUsesBalancedButReportsLoad() {
+		AdaptiveBatchingRouter router = router(false);
+
+		sendPerSecond(router, 0, 2_000, 100);
+		sendPerSecond(router, 1, 2_000, 100);
+
+		assertEquals(BatchingProfile.BALANCED, router.record(100, 2_000));
+		assertEquals(2_000.0, (double) router.getStatus().get("recordsPerSecond"));
+	}
+
+	@SuppressWarnings("unchecked")
+	private static AdaptiveBatchingRouter router(boolean enabled) {
+		Map<BatchingProfile, KafkaTemplate<String, Object>> templates = new EnumMap<>(BatchingProfile.class);
+		for (BatchingProfile profile : BatchingProfile.values()) {
+			templates.put(profile, mock(KafkaTemplate.class));
+		}
+		return new AdaptiveBatchingRouter(templates, enabled, WINDOW_SECONDS,
+				50, 1_000, 1_000_000, new SimpleMeterRegistry());
+	}
+
+	private static void sendPerSecond(AdaptiveBatchingRouter router, long second, int records, int bytes) {
+		for (int i = 0; i < records; i++) {
+			router.record(bytes, second * 1_000 + i % 1_000);
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package com.pramithamj.kafka.producer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pramithamj.kafka.model.Order;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.SendResult;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BulkOrderIngestorTest {
+
+	private final OrderProducer orderProducer = mock(OrderProducer.class);
+	private final BulkOrderIngestor ingestor = new BulkOrderIngestor(orderProducer, new ObjectMapper());
+	private final AtomicLong nextOffset = new AtomicLong();
+
+	BulkOrderIngestorTest() {
+		when(orderProducer.sendBulkOrder(any())).thenAnswer(invocation -> {
+			Order order = invocation.getArgument(0);
+			RecordMetadata metadata = new RecordMetadata(new TopicPartition("orders", 1), nextOffset.getAndIncrement(),
+					0, 0L, 0, 0);
+			return CompletableFuture.completedFuture(
+					new SendResult<>(new ProducerRecord<String, Object>("orders", order.getOrderId().toString(), order), metadata));
+		});
+	}
+
+	@Test
+	void ndjsonBodyReportsOffsetsAndRejectedLines() throws Exception {
+		String body = """
+				{"orderId":"1001","product":"Item1","price":10.5}
+				{"orderId":"1002","product":"Item2"}
+				{"orderId":"1003","product":"Item3","price":20,"timestamp":1730000000000}
+				""";
+
+		BulkOrderIngestor.BulkResult result = ingestor.ingest(stream(body));
+
+		assertEquals(3, result.received());
+		assertEquals(2, result.results().size());
+		assertEquals(1L, result.results().get(1).get("offset"));
+		assertEquals(1, result.failures().get(0).get("index"));
+	}
+
+	@Test
+	void jsonArrayBodyIsUnwrapped() throws Exception {
+		String body = "[{\"orderId\":\"1\",\"product\":\"Item1\",\"price\":1},{\"orderId\":\"2\",\"product\":\"Item2\",\"price\":2}]";
+
+		BulkOrderIngestor.BulkResult result = ingestor.ingest(stream(body));
+
+		assertEquals(2, result.results().size());
+		assertEquals(0, result.failures().size());
+	}
+
+	private static ByteArrayInputStream stream(String body) {
+		return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+	}
+
+}
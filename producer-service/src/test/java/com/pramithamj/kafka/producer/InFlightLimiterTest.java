@@ -0,0 +1,55 @@
+package com.pramithamj.kafka.producer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InFlightLimiterTest {
+
+	@Test
+	void rejectsWhenEitherRecordsOrBytesAreExhausted() {
+		InFlightLimiter limiter = new InFlightLimiter(2, 100, new SimpleMeterRegistry());
+
+		assertTrue(limiter.tryAcquire(60));
+		assertFalse(limiter.tryAcquire(60)); // bytes
+		assertTrue(limiter.tryAcquire(40));
+		assertFalse(limiter.tryAcquire(1)); // records
+		assertEquals(2, limiter.getInFlightRecords());
+		assertEquals(100, limiter.getQueuedBytes());
+
+		limiter.release(60);
+		assertTrue(limiter.tryAcquire(60));
+	}
+
+	@Test
+	void batchIsAdmittedWholeOrNotAtAll() {
+		InFlightLimiter limiter = new InFlightLimiter(10, 1000, new SimpleMeterRegistry());
+		limiter.tryAcquire(100);
+
+		assertFalse(limiter.tryAcquire(10, 100)); // records
+		assertFalse(limiter.tryAcquire(5, 1000)); // bytes
+		assertEquals(1, limiter.getInFlightRecords());
+		assertEquals(100, limiter.getQueuedBytes());
+
+		assertTrue(limiter.tryAcquire(9, 900));
+		limiter.release(9, 900);
+		limiter.release(100);
+		// A batch larger than the window still fits an empty one
+		assertTrue(limiter.tryAcquire(20, 2000));
+		assertEquals(10, limiter.getInFlightRecords());
+	}
+
+	@Test
+	void waitingAcquireTimesOutAndLeavesNothingReserved() throws InterruptedException {
+		InFlightLimiter limiter = new InFlightLimiter(1, 100, new SimpleMeterRegistry());
+		limiter.tryAcquire(10);
+
+		assertFalse(limiter.acquire(10, 20));
+		assertEquals(1, limiter.getInFlightRecords());
+		assertEquals(10, limiter.getQueuedBytes());
+	}
+
+}
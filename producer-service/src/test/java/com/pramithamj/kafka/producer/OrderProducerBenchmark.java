@@ -0,0 +1,164 @@
+package com.pramithamj.kafka.producer;
+
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+import com.pramithamj.kafka.events.OrderEventLog;
+import com.pramithamj.kafka.model.Order;
+import com.pramithamj.kafka.serde.OrderAvroSerializer;
+import io.confluent.kafka.schemaregistry.client.MockSchemaRegistryClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.mock.MockProducerFactory;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OrderProducer.sendOrder and sendBulkOrder through the whole send path: in-flight admission,
+ * batching profile selection, KafkaTemplate, the pooled Avro serializer and the sampled
+ * order.sent event, against a MockProducer that acknowledges every send at once. Broker
+ * round trips are left out, so this is the CPU and allocation cost per send on the request
+ * thread. Logging goes through logback with the console pattern into a null stream.
+ *
+ * Run with:
+ * mvn test-compile exec:java -Dexec.mainClass=com.pramithamj.kafka.producer.OrderProducerBenchmark -Dexec.classpathScope=test
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderProducerBenchmark {
+
+    // MockProducer keeps every sent record; it is cleared this often to bound the heap
+    private static final int CLEAR_EVERY = 4096;
+
+    private OpenMockProducer mockProducer;
+    private OrderEventLog eventLog;
+    private OrderProducer producer;
+    private Order order;
+    private int sends;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void setUp() {
+        discardLogging();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        Serializer valueSerializer = new OrderAvroSerializer(new MockSchemaRegistryClient());
+        mockProducer = new OpenMockProducer(valueSerializer);
+        KafkaTemplate<String, Object> template = new KafkaTemplate<>(new MockProducerFactory<>(() -> mockProducer));
+        Map<BatchingProfile, KafkaTemplate<String, Object>> templates = new EnumMap<>(BatchingProfile.class);
+        for (BatchingProfile profile : BatchingProfile.values()) {
+            templates.put(profile, template);
+        }
+
+        AdaptiveBatchingRouter router = new AdaptiveBatchingRouter(templates, true, 10, 50, 5_000, 4_194_304,
+                meterRegistry);
+        InFlightLimiter inFlightLimiter = new InFlightLimiter(10_000, 16_777_216, meterRegistry);
+        eventLog = new OrderEventLog(true, 8192, 1000, 1, "", meterRegistry);
+        ReflectionTestUtils.invokeMethod(eventLog, "start");
+        producer = new OrderProducer(router, inFlightLimiter, eventLog, meterRegistry);
+        ReflectionTestUtils.setField(producer, "ordersTopic", "orders");
+        order = Order.newBuilder()
+                .setOrderId("0f8fad5b-d9cb-469f-a165-70867728950e")
+                .setProduct("Item3")
+                .setPrice(1299.99f)
+                .setTimestamp(System.currentTimeMillis())
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ReflectionTestUtils.invokeMethod(eventLog, "stop");
+    }
+
+    @Benchmark
+    public CompletableFuture<SendResult<String, Object>> sendOrder() {
+        clearHistory();
+        return producer.sendOrder(order);
+    }
+
+    @Benchmark
+    public CompletableFuture<SendResult<String, Object>> sendBulkOrder() {
+        clearHistory();
+        return producer.sendBulkOrder(order);
+    }
+
+    private void clearHistory() {
+        if (++sends % CLEAR_EVERY == 0) {
+            mockProducer.clear();
+        }
+    }
+
+    /**
+     * Format log output as the console would but write it nowhere
+     */
+    private static void discardLogging() {
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        context.reset();
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d{yyyy-MM-dd HH:mm:ss} - %msg%n");
+        encoder.start();
+        OutputStreamAppender<ILoggingEvent> appender = new OutputStreamAppender<>();
+        appender.setContext(context);
+        appender.setEncoder(encoder);
+        appender.setOutputStream(OutputStream.nullOutputStream());
+        appender.start();
+        ch.qos.logback.classic.Logger root = context.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        root.addAppender(appender);
+        root.setLevel(ch.qos.logback.classic.Level.INFO);
+    }
+
+    /**
+     * A MockProducer that stays open: KafkaTemplate closes its producer after every send
+     * unless the factory caches it
+     */
+    private static final class OpenMockProducer extends MockProducer<String, Object> {
+
+        OpenMockProducer(Serializer<Object> valueSerializer) {
+            super(true, new StringSerializer(), valueSerializer);
+        }
+
+        @Override
+        public void close(Duration timeout) {
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(OrderProducerBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
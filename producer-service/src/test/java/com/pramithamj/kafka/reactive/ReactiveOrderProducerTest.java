@@ -0,0 +1,88 @@
+package com.pramithamj.kafka.reactive;
+
+import com.pramithamj.kafka.events.OrderEventLog;
+import com.pramithamj.kafka.model.Order;
+import com.pramithamj.kafka.producer.InFlightLimiter;
+import com.pramithamj.kafka.producer.ProducerSaturatedException;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.util.function.Tuples;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReactiveOrderProducerTest {
+
+	// Prometheus, so the send timer's histogram buckets are published
+	private final PrometheusMeterRegistry meterRegistry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+	private final InFlightLimiter limiter = new InFlightLimiter(1, 1024, meterRegistry);
+	private ReactiveOrderProducer producer;
+
+	@BeforeEach
+	void setUp() {
+		// Nothing reaches the broker in these tests; the window is full before the first send
+		DefaultKafkaProducerFactory<String, Object> producerFactory = new DefaultKafkaProducerFactory<>(Map.of(
+				ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:1",
+				ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class,
+				ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class));
+		OrderEventLog eventLog = new OrderEventLog(false, 16, 1, 1, "", meterRegistry);
+		producer = new ReactiveOrderProducer(producerFactory, limiter, eventLog, meterRegistry, 100);
+		ReflectionTestUtils.setField(producer, "ordersTopic", "orders");
+		ReflectionTestUtils.setField(producer, "admissionMaxWaitMs", 50L);
+		ReflectionTestUtils.setField(producer, "retryAfterSeconds", 3L);
+		limiter.tryAcquire(10);
+	}
+
+	@AfterEach
+	void tearDown() {
+		producer.close();
+	}
+
+	@Test
+	void singleSendIsRejectedWhenTheWindowIsFull() {
+		ProducerSaturatedException e = assertThrows(ProducerSaturatedException.class,
+				() -> producer.send(order("1"), null).block(Duration.ofSeconds(5)));
+
+		assertEquals(3, e.getRetryAfterSeconds());
+		assertEquals(1, limiter.getInFlightRecords());
+		assertEquals(1.0, meterRegistry.counter("orders.producer.rejected").count());
+	}
+
+	@Test
+	void streamWaitsForRoomThenEndsWithTheRejectedOrder() {
+		List<ReactiveOrderProducer.SendOutcome> outcomes = producer.sendIndexed(
+						Flux.just(Tuples.of(0L, order("1")), Tuples.of(1L, order("2"))), true)
+				.collectList()
+				.block(Duration.ofSeconds(5));
+
+		assertEquals(1, outcomes.size());
+		assertEquals(0, outcomes.get(0).index());
+		assertInstanceOf(ProducerSaturatedException.class, outcomes.get(0).exception());
+		assertEquals(1, limiter.getInFlightRecords());
+		assertEquals(10, limiter.getQueuedBytes());
+	}
+
+	@Test
+	void sendTimerHasTheHistogramOfTheServletPath() {
+		// Registered here first, the timer must still publish the buckets OrderProducer asks for
+		assertTrue(meterRegistry.scrape().contains("orders_producer_send_seconds_bucket"));
+	}
+
+	private static Order order(String id) {
+		return new Order(id, "Item1", 10.5f, 1_700_000_000_000L);
+	}
+}
@@ -0,0 +1,213 @@
+package com.pramithamj.kafka.serde;
+
+import com.pramithamj.kafka.model.Order;
+import com.pramithamj.kafka.model.OrderUuid;
+import com.pramithamj.kafka.model.OrderV2;
+import com.pramithamj.kafka.model.Product;
+import io.confluent.kafka.schemaregistry.avro.AvroSchema;
+import io.confluent.kafka.schemaregistry.client.MockSchemaRegistryClient;
+import io.confluent.kafka.schemaregistry.client.SchemaRegistryClient;
+import io.confluent.kafka.serializers.KafkaAvroDeserializer;
+import io.confluent.kafka.serializers.KafkaAvroDeserializerConfig;
+import io.confluent.kafka.serializers.KafkaAvroSerializer;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class OrderAvroSerializerTest {
+
+	private static final Map<String, Object> CONFLUENT_CONFIG = Map.of(
+			KafkaAvroDeserializerConfig.SCHEMA_REGISTRY_URL_CONFIG, "mock://serde-test",
+			KafkaAvroDeserializerConfig.SPECIFIC_AVRO_READER_CONFIG, true);
+
+	@Test
+	void writesTheSameBytesAsKafkaAvroSerializer() {
+		SchemaRegistryClient registry = new MockSchemaRegistryClient();
+		OrderAvroSerializer serializer = new OrderAvroSerializer(registry);
+		KafkaAvroSerializer confluent = new KafkaAvroSerializer(registry, CONFLUENT_CONFIG);
+		Order order = order("1001", "Item1");
+
+		byte[] bytes = serializer.serialize("orders", order);
+
+		assertArrayEquals(confluent.serialize("orders", order), bytes);
+		KafkaAvroDeserializer deserializer = new KafkaAvroDeserializer(registry, CONFLUENT_CONFIG);
+		assertEquals(order, deserializer.deserialize("orders", bytes));
+	}
+
+	@Test
+	void registersTheSchemaOncePerTopic() throws Exception {
+		SchemaRegistryClient registry = spy(new MockSchemaRegistryClient());
+		OrderAvroSerializer serializer = new OrderAvroSerializer(registry);
+
+		for (int i = 0; i < 3; i++) {
+			serializer.serialize("orders", order("100" + i, "Item1"));
+		}
+		serializer.serialize("orders-dlq", order("2001", "Item2"));
+
+		verify(registry, times(1)).register(eq("orders-value"), any());
+		verify(registry, times(1)).register(eq("orders-dlq-value"), any());
+	}
+
+	@Test
+	void reusedBufferDoesNotLeakIntoLaterRecords() {
+		SchemaRegistryClient registry = new MockSchemaRegistryClient();
+		OrderAvroSerializer serializer = new OrderAvroSerializer(registry);
+		KafkaAvroDeserializer deserializer = new KafkaAvroDeserializer(registry, CONFLUENT_CONFIG);
+		Order large = order("1001", "X".repeat(100_000));
+		Order small = order("1002", "Item2");
+
+		byte[] largeBytes = serializer.serialize("orders", large);
+		byte[] smallBytes = serializer.serialize("orders", small);
+
+		assertEquals(large, deserializer.deserialize("orders", largeBytes));
+		assertEquals(small, deserializer.deserialize("orders", smallBytes));
+	}
+
+	@Test
+	void compactEncodingWritesOrderV2UnderItsOwnSubject() throws Exception {
+		SchemaRegistryClient registry = spy(new MockSchemaRegistryClient());
+		OrderAvroSerializer serializer = new OrderAvroSerializer(registry);
+		serializer.configure(Map.of(OrderAvroSerializer.ORDER_ENCODING_CONFIG, "v2"), false);
+		UUID id = UUID.randomUUID();
+		Order order = order(id.toString(), "Item3");
+
+		byte[] bytes = serializer.serialize("orders", order);
+
+		int schemaId = ByteBuffer.wrap(bytes, 1, 4).getInt();
+		assertEquals(OrderV2.getClassSchema(), ((AvroSchema) registry.getSchemaById(schemaId)).rawSchema());
+		verify(registry).register(eq("orders-com.pramithamj.kafka.model.OrderV2"), any());
+
+		ByteBuffer uuid = ByteBuffer.allocate(16).putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits());
+		OrderV2 expected = new OrderV2(new OrderUuid(uuid.array()), Product.Item3, 1999L, order.getTimestamp());
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		out.write(0);
+		out.write(ByteBuffer.allocate(4).putInt(schemaId).array());
+		BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(out, null);
+		new SpecificDatumWriter<>(OrderV2.class).write(expected, encoder);
+		assertArrayEquals(out.toByteArray(), bytes);
+	}
+
+	@Test
+	void compactEncodingFallsBackToOrderWhenNotRepresentable() {
+		SchemaRegistryClient registry = new MockSchemaRegistryClient();
+		OrderAvroSerializer serializer = new OrderAvroSerializer(registry);
+		serializer.configure(Map.of(OrderAvroSerializer.ORDER_ENCODING_CONFIG, "v2"), false);
+		KafkaAvroDeserializer deserializer = new KafkaAvroDeserializer(registry, CONFLUENT_CONFIG);
+		Order numericId = order("1001", "Item1");
+		Order unknownProduct = order(UUID.randomUUID().toString(), "Gift Card");
+
+		assertEquals(numericId, deserializer.deserialize("orders", serializer.serialize("orders", numericId)));
+		assertEquals(unknownProduct, deserializer.deserialize("orders", serializer.serialize("orders", unknownProduct)));
+	}
+
+	@Test
+	void restartedSerializerTakesSchemaIdsFromTheCacheFile(@TempDir Path dir) throws Exception {
+		Map<String, Object> configs = Map.of(
+				KafkaAvroDeserializerConfig.SCHEMA_REGISTRY_URL_CONFIG, "mock://serde-test",
+				SchemaIdCache.PATH_CONFIG, dir.resolve("schema-ids.properties").toString());
+		SchemaRegistryClient registry = new MockSchemaRegistryClient();
+		OrderAvroSerializer serializer = new OrderAvroSerializer(registry);
+		serializer.configure(configs, false);
+		byte[] bytes = serializer.serialize("orders", order("1001", "Item1"));
+
+		SchemaIdCache reloaded = new SchemaIdCache(dir.resolve("schema-ids.properties"), "mock://serde-test");
+		assertEquals(ByteBuffer.wrap(bytes, 1, 4).getInt(), reloaded.getId("orders-value", Order.getClassSchema()));
+
+		// A new process reads the file afresh
+		Path restartedFile = Files.copy(dir.resolve("schema-ids.properties"), dir.resolve("restarted.properties"));
+		Map<String, Object> restartedConfigs = Map.of(
+				KafkaAvroDeserializerConfig.SCHEMA_REGISTRY_URL_CONFIG, "mock://serde-test",
+				SchemaIdCache.PATH_CONFIG, restartedFile.toString());
+
+		// The cached id is used at once and only checked against the registry in the background
+		CountDownLatch registryReached = new CountDownLatch(1);
+		CountDownLatch registryAnswers = new CountDownLatch(1);
+		SchemaRegistryClient restarted = mock(SchemaRegistryClient.class);
+		when(restarted.register(eq("orders-value"), any())).thenAnswer(invocation -> {
+			registryReached.countDown();
+			registryAnswers.await();
+			return ByteBuffer.wrap(bytes, 1, 4).getInt();
+		});
+		OrderAvroSerializer restartedSerializer = new OrderAvroSerializer(restarted);
+		restartedSerializer.configure(restartedConfigs, false);
+		assertArrayEquals(bytes, restartedSerializer.serialize("orders", order("1001", "Item1")));
+		assertTrue(registryReached.await(5, TimeUnit.SECONDS));
+		registryAnswers.countDown();
+	}
+
+	@Test
+	void cachedSchemaIdIsReplacedWhenTheRegistryWasRecreated(@TempDir Path dir) throws Exception {
+		Path file = dir.resolve("schema-ids.properties");
+		Map<String, Object> configs = Map.of(
+				KafkaAvroDeserializerConfig.SCHEMA_REGISTRY_URL_CONFIG, "mock://serde-test",
+				SchemaIdCache.PATH_CONFIG, file.toString());
+		new SchemaIdCache(file, "mock://serde-test").putId("orders-value", Order.getClassSchema(), 7);
+		SchemaRegistryClient recreated = mock(SchemaRegistryClient.class);
+		when(recreated.register(eq("orders-value"), any())).thenReturn(1);
+		OrderAvroSerializer serializer = new OrderAvroSerializer(recreated);
+		serializer.configure(configs, false);
+
+		assertEquals(7, schemaId(serializer.serialize("orders", order("1001", "Item1"))));
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (schemaId(serializer.serialize("orders", order("1001", "Item1"))) != 1 && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(1, schemaId(serializer.serialize("orders", order("1001", "Item1"))));
+		assertEquals(1, new SchemaIdCache(file, "mock://serde-test").getId("orders-value", Order.getClassSchema()));
+	}
+
+	@Test
+	void serializerConfiguredAfterTheWarmupMakesNoRegistryCall() throws Exception {
+		Map<String, Object> configs = Map.of(
+				KafkaAvroDeserializerConfig.SCHEMA_REGISTRY_URL_CONFIG, "mock://warmup-test",
+				OrderAvroSerializer.ORDER_ENCODING_CONFIG, "v2");
+		OrderAvroSerializer warmup = new OrderAvroSerializer(new MockSchemaRegistryClient());
+		warmup.configure(configs, false);
+		byte[] regular = warmup.serialize("orders", order("warmup", "warmup"));
+		byte[] compact = warmup.serialize("orders", order(UUID.randomUUID().toString(), "Item1"));
+
+		SchemaRegistryClient registry = mock(SchemaRegistryClient.class);
+		OrderAvroSerializer serializer = new OrderAvroSerializer(registry);
+		serializer.configure(configs, false);
+
+		assertEquals(schemaId(regular), schemaId(serializer.serialize("orders", order("1001", "Item1"))));
+		assertEquals(schemaId(compact), schemaId(serializer.serialize("orders", order(UUID.randomUUID().toString(), "Item2"))));
+		verifyNoInteractions(registry);
+	}
+
+	private static int schemaId(byte[] bytes) {
+		return ByteBuffer.wrap(bytes, 1, 4).getInt();
+	}
+
+	private static Order order(String orderId, String product) {
+		return Order.newBuilder()
+				.setOrderId(orderId)
+				.setProduct(product)
+				.setPrice(19.99f)
+				.setTimestamp(1_700_000_000_000L)
+				.build();
+	}
+}
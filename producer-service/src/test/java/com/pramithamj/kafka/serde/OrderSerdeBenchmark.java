@@ -0,0 +1,84 @@
+package com.pramithamj.kafka.serde;
+
+import com.pramithamj.kafka.model.Order;
+import io.confluent.kafka.schemaregistry.client.MockSchemaRegistryClient;
+import io.confluent.kafka.serializers.KafkaAvroSerializer;
+import io.confluent.kafka.serializers.KafkaAvroSerializerConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares KafkaAvroSerializer with the pooled OrderAvroSerializer, writing Order (v1) and
+ * the compact OrderV2 (v2). The GC profiler reports allocations per send as
+ * gc.alloc.rate.norm (bytes/op).
+ *
+ * Run with:
+ * mvn test-compile exec:java -Dexec.mainClass=com.pramithamj.kafka.serde.OrderSerdeBenchmark -Dexec.classpathScope=test
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderSerdeBenchmark {
+
+    private KafkaAvroSerializer confluentSerializer;
+    private OrderAvroSerializer pooledSerializer;
+    private OrderAvroSerializer compactSerializer;
+    private Order order;
+
+    @Setup
+    public void setUp() {
+        MockSchemaRegistryClient registry = new MockSchemaRegistryClient();
+        confluentSerializer = new KafkaAvroSerializer(registry,
+                Map.of(KafkaAvroSerializerConfig.SCHEMA_REGISTRY_URL_CONFIG, "mock://benchmark"));
+        pooledSerializer = new OrderAvroSerializer(registry);
+        compactSerializer = new OrderAvroSerializer(registry);
+        compactSerializer.configure(Map.of(OrderAvroSerializer.ORDER_ENCODING_CONFIG, "v2"), false);
+        order = Order.newBuilder()
+                .setOrderId("0f8fad5b-d9cb-469f-a165-70867728950e")
+                .setProduct("Laptop")
+                .setPrice(1299.99f)
+                .setTimestamp(System.currentTimeMillis())
+                .build();
+    }
+
+    @Benchmark
+    public byte[] confluentSerialize() {
+        return confluentSerializer.serialize("orders", order);
+    }
+
+    @Benchmark
+    public byte[] pooledSerialize() {
+        return pooledSerializer.serialize("orders", order);
+    }
+
+    @Benchmark
+    public byte[] compactSerialize() {
+        return compactSerializer.serialize("orders", order);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(OrderSerdeBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}